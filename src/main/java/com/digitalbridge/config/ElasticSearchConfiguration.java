@@ -1,15 +1,43 @@
 package com.digitalbridge.config;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import com.digitalbridge.elasticsearch.BulkIngestSessionFactory;
+import com.digitalbridge.elasticsearch.CredentialProvider;
+import com.digitalbridge.elasticsearch.DocumentTransformer;
+import com.digitalbridge.elasticsearch.FacetCache;
+import com.digitalbridge.elasticsearch.GeoPointTransformer;
+import com.digitalbridge.elasticsearch.HttpTransport;
+import com.digitalbridge.elasticsearch.IndexGeneration;
+import com.digitalbridge.elasticsearch.IndexLifecycleManager;
+import com.digitalbridge.elasticsearch.MergeScheduler;
+import com.digitalbridge.elasticsearch.MonthBuckets;
+import com.digitalbridge.elasticsearch.NodeMonitor;
+import com.digitalbridge.elasticsearch.NodeSelectingJestClient;
+import com.digitalbridge.elasticsearch.NodeSelector;
+import com.digitalbridge.elasticsearch.ReindexEngine;
+import com.digitalbridge.elasticsearch.SearchHitMapper;
+import com.digitalbridge.elasticsearch.SearchTemplateCache;
+import com.digitalbridge.elasticsearch.StatsCollector;
+import com.digitalbridge.elasticsearch.TermsFacets;
+import com.digitalbridge.mongodb.convert.CustomMappingMongoConverter;
 import com.digitalbridge.util.Constants;
 import com.google.gson.GsonBuilder;
 
@@ -20,10 +48,14 @@ import io.searchbox.client.http.JestHttpClient;
 @Configuration
 public class ElasticSearchConfiguration {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchConfiguration.class);
+
   private static final String DATESTYLE = "yyyy-MM-DD'T'hh:mm:ss";
 
   @Autowired Environment env;
 
+  @Autowired CustomMappingMongoConverter mongoConverter;
+
   /**
    * <p>
    * jestClient.
@@ -35,20 +67,323 @@ public class ElasticSearchConfiguration {
   public JestHttpClient jestClient() {
     // Construct a new Jest client according to configuration via factory
     JestClientFactory factory = new JestClientFactory();
+    int maxTotal = env.getProperty("elasticsearch.http.max-total", Integer.class, 50);
     HttpClientConfig httpClientConfig = new HttpClientConfig.Builder(getConnectionURL()).multiThreaded(true)
-        .connTimeout(Constants.CONNTIMEOUT).readTimeout(Constants.READTIMEOUT)
-        .maxTotalConnection(Constants.MAXTOTALCONNECTION)
-        // .requestCompressionEnabled(true)
+        .connTimeout(env.getProperty("elasticsearch.http.connect-timeout-ms", Integer.class, 1000))
+        .readTimeout(env.getProperty("elasticsearch.http.read-timeout-ms", Integer.class, 30000))
+        .maxTotalConnection(maxTotal)
+        .defaultMaxTotalConnectionPerRoute(env.getProperty("elasticsearch.http.max-per-route", Integer.class, maxTotal))
         .gson(new GsonBuilder().setDateFormat(DATESTYLE).create()).build();
     factory.setHttpClientConfig(httpClientConfig);
-    JestHttpClient jestHttpClient = (JestHttpClient) factory.getObject();
-    CloseableHttpClient closableHttpClient = HttpClientBuilder.create().build();
-    jestHttpClient.setHttpClient(closableHttpClient);
+    JestHttpClient factoryClient = (JestHttpClient) factory.getObject();
+    // the blocking client is replaced by the pooled transport, the asynchronous one is built from the config above
+    try {
+      factoryClient.getHttpClient().close();
+    } catch (IOException e) {
+      LOGGER.warn("Unable to close default HTTP client : {}", e.getMessage());
+    }
+    NodeSelectingJestClient jestHttpClient = new NodeSelectingJestClient(nodeSelector());
+    jestHttpClient.setServers(new LinkedHashSet<String>(getConnectionURL()));
+    jestHttpClient.setGson(factoryClient.getGson());
+    jestHttpClient.setHttpClient(httpTransport().getHttpClient());
+    jestHttpClient.setAsyncClient(factoryClient.getAsyncClient());
+    jestHttpClient.setCredentialProvider(credentialProvider());
     return jestHttpClient;
   }
 
+  /**
+   * <p>
+   * credentialProvider.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.CredentialProvider} object.
+   */
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public CredentialProvider credentialProvider() {
+    CredentialProvider credentialProvider = new CredentialProvider();
+    Properties credentials = new Properties();
+    credentials.setProperty(CredentialProvider.DEFAULT + ".username",
+        env.getProperty("elasticsearch.credentials.username", "admin"));
+    credentials.setProperty(CredentialProvider.DEFAULT + ".password",
+        env.getProperty("elasticsearch.credentials.password", "admin_pw"));
+    credentialProvider.load(credentials);
+    String location = env.getProperty("elasticsearch.credentials.location");
+    if (StringUtils.isNotBlank(location)) {
+      credentialProvider.setLocation(new DefaultResourceLoader().getResource(location));
+    }
+    credentialProvider
+        .setRefreshIntervalMillis(env.getProperty("elasticsearch.credentials.refresh-interval-ms", Long.class, 30000L));
+    return credentialProvider;
+  }
+
+  /**
+   * <p>
+   * nodeSelector.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.NodeSelector} object.
+   */
+  @Bean
+  public NodeSelector nodeSelector() {
+    NodeSelector nodeSelector = new NodeSelector(getConnectionURL());
+    nodeSelector.setFailureThreshold(env.getProperty("elasticsearch.nodes.failure-threshold", Integer.class, 3));
+    nodeSelector.setSlowCallMillis(env.getProperty("elasticsearch.nodes.slow-call-ms", Long.class, 5000L));
+    return nodeSelector;
+  }
+
+  /**
+   * <p>
+   * nodeMonitor.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.NodeMonitor} object.
+   */
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public NodeMonitor nodeMonitor() {
+    NodeMonitor nodeMonitor = new NodeMonitor(nodeSelector(), httpTransport().getHttpClient());
+    nodeMonitor.setCredentialProvider(credentialProvider());
+    nodeMonitor
+        .setDiscoveryIntervalMillis(env.getProperty("elasticsearch.nodes.discovery-interval-ms", Long.class, 60000L));
+    nodeMonitor.setProbeIntervalMillis(env.getProperty("elasticsearch.nodes.probe-interval-ms", Long.class, 5000L));
+    nodeMonitor.setProbeTimeoutMillis(env.getProperty("elasticsearch.nodes.probe-timeout-ms", Integer.class, 1000));
+    return nodeMonitor;
+  }
+
+  /**
+   * <p>
+   * httpTransport.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.HttpTransport} object.
+   */
+  @Bean(destroyMethod = "stop")
+  public HttpTransport httpTransport() {
+    HttpTransport httpTransport = new HttpTransport();
+    int maxTotal = env.getProperty("elasticsearch.http.max-total", Integer.class, 50);
+    httpTransport.setMaxTotal(maxTotal);
+    httpTransport.setMaxPerRoute(env.getProperty("elasticsearch.http.max-per-route", Integer.class, maxTotal));
+    httpTransport
+        .setConnectTimeoutMillis(env.getProperty("elasticsearch.http.connect-timeout-ms", Integer.class, 1000));
+    httpTransport.setReadTimeoutMillis(env.getProperty("elasticsearch.http.read-timeout-ms", Integer.class, 30000));
+    httpTransport.setLeaseTimeoutMillis(env.getProperty("elasticsearch.http.lease-timeout-ms", Integer.class, 5000));
+    httpTransport.setKeepAliveMillis(env.getProperty("elasticsearch.http.keep-alive-ms", Long.class, 60000L));
+    httpTransport.setIdleTimeoutMillis(env.getProperty("elasticsearch.http.idle-timeout-ms", Long.class, 30000L));
+    httpTransport.setEvictIntervalMillis(env.getProperty("elasticsearch.http.evict-interval-ms", Long.class, 5000L));
+    httpTransport.setCompressRequests(env.getProperty("elasticsearch.http.compress-requests", Boolean.class, true));
+    httpTransport.setCompressMinBytes(env.getProperty("elasticsearch.http.compress-min-bytes", Long.class, 1024L));
+    httpTransport.start();
+    return httpTransport;
+  }
+
+  /**
+   * <p>
+   * reindexEngine.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.ReindexEngine} object.
+   */
+  @Bean
+  public ReindexEngine reindexEngine() {
+    ReindexEngine reindexEngine = new ReindexEngine(jestClient());
+    reindexEngine.setIndexGeneration(indexGeneration());
+    reindexEngine.setTransformers(Arrays.<DocumentTransformer> asList(new GeoPointTransformer("address.location")));
+    reindexEngine.setReaders(env.getProperty("reindex.readers", Integer.class, 0));
+    reindexEngine.setWriters(env.getProperty("reindex.writers", Integer.class, 2));
+    reindexEngine.setPageSize(env.getProperty("reindex.page-size", Integer.class, 500));
+    reindexEngine.setMaxBulkBytes(env.getProperty("reindex.max-bulk-bytes", Long.class, 5L * 1024 * 1024));
+    reindexEngine.setQueueCapacity(env.getProperty("reindex.queue-capacity", Integer.class, 8));
+    return reindexEngine;
+  }
+
+  /**
+   * <p>
+   * bulkIngestSessionFactory.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.BulkIngestSessionFactory} object.
+   */
+  @Bean
+  public BulkIngestSessionFactory bulkIngestSessionFactory() {
+    BulkIngestSessionFactory bulkIngestSessionFactory = new BulkIngestSessionFactory(jestClient());
+    bulkIngestSessionFactory.setIndexGeneration(indexGeneration());
+    Map<String, String> ingestSettings = new LinkedHashMap<String, String>();
+    ingestSettings.put("index.refresh_interval", "-1");
+    ingestSettings.put("index.number_of_replicas", "0");
+    ingestSettings.put("index.translog.flush_threshold_size",
+        env.getProperty("elasticsearch.ingest.translog-flush-threshold-size", "1gb"));
+    bulkIngestSessionFactory.setIngestSettings(ingestSettings);
+    bulkIngestSessionFactory.setInitialBatchSize(env.getProperty("elasticsearch.ingest.initial-batch-size",
+        Integer.class, 500));
+    bulkIngestSessionFactory.setMinBatchSize(env.getProperty("elasticsearch.ingest.min-batch-size", Integer.class, 50));
+    bulkIngestSessionFactory.setMaxBatchSize(env.getProperty("elasticsearch.ingest.max-batch-size", Integer.class,
+        5000));
+    bulkIngestSessionFactory.setTargetLatencyMillis(env.getProperty("elasticsearch.ingest.target-latency-ms",
+        Long.class, 1000L));
+    return bulkIngestSessionFactory;
+  }
+
+  /**
+   * <p>
+   * indexLifecycleManager.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.IndexLifecycleManager} object.
+   */
+  @Bean
+  public IndexLifecycleManager indexLifecycleManager() {
+    IndexLifecycleManager indexLifecycleManager = new IndexLifecycleManager(jestClient(), reindexEngine(),
+        bulkIngestSessionFactory());
+    indexLifecycleManager.setShards(env.getProperty("elasticsearch.lifecycle.shards", Integer.class, 5));
+    indexLifecycleManager.setReplicas(env.getProperty("elasticsearch.lifecycle.replicas", Integer.class, 1));
+    indexLifecycleManager.setRefreshInterval(env.getProperty("elasticsearch.lifecycle.refresh-interval", "1s"));
+    indexLifecycleManager.setHealthTimeout(env.getProperty("elasticsearch.lifecycle.health-timeout", "60s"));
+    indexLifecycleManager
+        .setKeepGenerations(env.getProperty("elasticsearch.lifecycle.keep-generations", Integer.class, 2));
+    String warmFields = env.getProperty("elasticsearch.lifecycle.warm-fields", "cuisine,borough");
+    indexLifecycleManager.setWarmFields(Arrays.asList(StringUtils.split(warmFields, ',')));
+    return indexLifecycleManager;
+  }
+
+  /**
+   * <p>
+   * mergeScheduler.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.MergeScheduler} object.
+   */
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public MergeScheduler mergeScheduler() {
+    MergeScheduler mergeScheduler = new MergeScheduler(jestClient(),
+        Arrays.asList(StringUtils.split(env.getProperty("elasticsearch.merge.indices", "digitalbridge"), ',')));
+    mergeScheduler.setWindow(env.getProperty("elasticsearch.merge.window", "01:00-05:00"));
+    mergeScheduler.setTimeZone(env.getProperty("elasticsearch.merge.time-zone", "UTC"));
+    mergeScheduler
+        .setMaxSegmentsPerShard(env.getProperty("elasticsearch.merge.max-segments-per-shard", Integer.class, 20));
+    mergeScheduler.setMaxDeletedRatio(env.getProperty("elasticsearch.merge.max-deleted-ratio", Double.class, 0.1));
+    mergeScheduler.setTargetSegments(env.getProperty("elasticsearch.merge.target-segments", Integer.class, 1));
+    mergeScheduler.setQuietMillis(env.getProperty("elasticsearch.merge.quiet-ms", Long.class, 30L * 60000));
+    mergeScheduler
+        .setCheckIntervalMillis(env.getProperty("elasticsearch.merge.check-interval-ms", Long.class, 10L * 60000));
+    mergeScheduler.setLockIndex(env.getProperty("elasticsearch.merge.lock-index", "digitalbridge-locks"));
+    mergeScheduler.setLockTtlMillis(env.getProperty("elasticsearch.merge.lock-ttl-ms", Long.class, 60L * 60000));
+    return mergeScheduler;
+  }
+
+  /**
+   * <p>
+   * statsCollector.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.StatsCollector} object.
+   */
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public StatsCollector statsCollector() {
+    StatsCollector statsCollector = new StatsCollector(jestClient(),
+        Arrays.asList(StringUtils.split(env.getProperty("elasticsearch.stats.indices", "digitalbridge"), ',')));
+    statsCollector.setIntervalMillis(env.getProperty("elasticsearch.stats.interval-ms", Long.class, 10000L));
+    statsCollector.setCapacity(env.getProperty("elasticsearch.stats.capacity", Integer.class, 360));
+    return statsCollector;
+  }
+
+  /**
+   * <p>
+   * searchHitMapper.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.SearchHitMapper} object.
+   */
+  @Bean
+  public SearchHitMapper searchHitMapper() {
+    return new SearchHitMapper(mongoConverter);
+  }
+
+  /**
+   * <p>
+   * searchTemplateCache.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.SearchTemplateCache} object.
+   */
+  @Bean
+  public SearchTemplateCache searchTemplateCache() {
+    return new SearchTemplateCache(env.getProperty("search.template-cache.max-size", Integer.class, 256));
+  }
+
+  /**
+   * <p>
+   * indexGeneration.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.IndexGeneration} object.
+   */
+  @Bean
+  public IndexGeneration indexGeneration() {
+    IndexGeneration indexGeneration = new IndexGeneration();
+    indexGeneration.setRefreshIntervalMillis(TimeValue.parseTimeValue(
+        env.getProperty("elasticsearch.lifecycle.refresh-interval", "1s"), null).millis());
+    return indexGeneration;
+  }
+
+  /**
+   * <p>
+   * facetCache.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.FacetCache} object.
+   */
+  @Bean
+  public FacetCache facetCache() {
+    return new FacetCache(indexGeneration(), env.getProperty("search.facet-cache.max-size", Integer.class, 128));
+  }
+
+  /**
+   * <p>
+   * termsFacets.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.TermsFacets} object.
+   */
+  @Bean
+  public TermsFacets termsFacets() {
+    return new TermsFacets(env.getProperty("search.facets.size", Integer.class, 10),
+        env.getProperty("search.facets.min-doc-count", Long.class, 1L),
+        env.getProperty("search.facets.shards", Integer.class, 5));
+  }
+
+  /**
+   * <p>
+   * monthBuckets.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.MonthBuckets} object.
+   */
+  @Bean
+  public MonthBuckets monthBuckets() {
+    MonthBuckets monthBuckets = new MonthBuckets("MyDateRange", "lDate", Constants.TWELVE);
+    monthBuckets.setIndexGeneration(indexGeneration());
+    return monthBuckets;
+  }
+
+  /**
+   * <p>
+   * elasticSearchCallbackExecutor. Runs the result handlers of asynchronous Elasticsearch calls off the HTTP client's
+   * I/O threads.
+   * </p>
+   *
+   * @return a {@link org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor} object.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor elasticSearchCallbackExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(env.getProperty("elasticsearch.async.callback-threads", Integer.class, 8));
+    executor.setMaxPoolSize(env.getProperty("elasticsearch.async.callback-threads", Integer.class, 8));
+    executor.setQueueCapacity(env.getProperty("elasticsearch.async.callback-queue", Integer.class, 1000));
+    executor.setThreadNamePrefix("es-callback-");
+    return executor;
+  }
+
   private List<String> localConnectionURL() {
-    return Arrays.asList("http://USHYDRCHOWDARY1:9200"/*, "http://USHYDRCHOWDARY1:9201"*/);
+    return Arrays.asList("http://USHYDRCHOWDARY1:9200", "http://USHYDRCHOWDARY1:9201");
   }
 
   private List<String> iLabConnectionURL() {
@@ -60,7 +395,10 @@ public class ElasticSearchConfiguration {
   }
 
   public List<String> getConnectionURL() {
-    if (findProfile("iLab")) {
+    String nodes = env.getProperty("elasticsearch.nodes");
+    if (StringUtils.isNotBlank(nodes)) {
+      return Arrays.asList(StringUtils.split(nodes.replace(" ", ""), ','));
+    } else if (findProfile("iLab")) {
       return iLabConnectionURL();
     } else if (findProfile("demo")) {
       return demoConnectionURL();
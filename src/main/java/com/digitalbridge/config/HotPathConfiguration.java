@@ -0,0 +1,51 @@
+package com.digitalbridge.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.digitalbridge.metrics.HotPathFilter;
+import com.digitalbridge.metrics.RepositoryTimingPostProcessor;
+
+/**
+ * <p>
+ * HotPathConfiguration class. Samples requests for the {@link com.digitalbridge.metrics.HotPathTimer} and times the
+ * repository methods.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Configuration
+public class HotPathConfiguration {
+
+  @Autowired private Environment env;
+
+  /**
+   * <p>
+   * hotPathFilter.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.metrics.HotPathFilter} object.
+   */
+  @Bean
+  public HotPathFilter hotPathFilter() {
+    HotPathFilter hotPathFilter = new HotPathFilter();
+    hotPathFilter.setSampleRate(env.getProperty("hotpath.sample-rate", Double.class, 0.0));
+    hotPathFilter.setSlowRequestMillis(env.getProperty("hotpath.slow-request-ms", Long.class, 1000L));
+    return hotPathFilter;
+  }
+
+  /**
+   * <p>
+   * repositoryTimingPostProcessor.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.metrics.RepositoryTimingPostProcessor} object.
+   */
+  @Bean
+  public static RepositoryTimingPostProcessor repositoryTimingPostProcessor() {
+    return new RepositoryTimingPostProcessor();
+  }
+}
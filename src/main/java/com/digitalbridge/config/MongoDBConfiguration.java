@@ -10,6 +10,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.env.Environment;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
@@ -23,9 +24,12 @@ import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import com.digitalbridge.mongodb.audit.MongoAuditorProvider;
 import com.digitalbridge.mongodb.convert.CustomDefaultDbRefResolver;
 import com.digitalbridge.mongodb.convert.CustomMappingMongoConverter;
+import com.digitalbridge.mongodb.convert.DbRefCache;
 import com.digitalbridge.mongodb.convert.GeoJsonConverters;
 import com.digitalbridge.mongodb.convert.ObjectConverters;
+import com.digitalbridge.mongodb.core.DbRefBatchingMongoTemplate;
 import com.digitalbridge.mongodb.event.CascadeSaveMongoEventListener;
+import com.digitalbridge.mongodb.event.DbRefCacheEvictionListener;
 import com.digitalbridge.util.Constants;
 import com.mongodb.Mongo;
 import com.mongodb.MongoClient;
@@ -40,6 +44,8 @@ public class MongoDBConfiguration extends AbstractMongoConfiguration {
 
   @Autowired private Mongo mongoClient;
 
+  @Autowired private Environment env;
+
   @Override
   protected String getDatabaseName() {
     return DATABASE;
@@ -119,7 +125,23 @@ public class MongoDBConfiguration extends AbstractMongoConfiguration {
    */
   @Bean
   public MongoTemplate mongoTemplate() {
-    return new MongoTemplate(mongoDbFactory(), mongoConverter());
+    DbRefBatchingMongoTemplate mongoTemplate = new DbRefBatchingMongoTemplate(mongoDbFactory(), mongoConverter());
+    mongoTemplate.setDbRefCache(dbRefCache());
+    return mongoTemplate;
+  }
+
+  /**
+   * <p>
+   * dbRefCache. Disabled unless <code>dbref.cache.max-size</code> is set to a positive value.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.mongodb.convert.DbRefCache} object.
+   */
+  @Bean
+  public DbRefCache dbRefCache() {
+    int maxSize = env.getProperty("dbref.cache.max-size", Integer.class, 0);
+    long ttlSeconds = env.getProperty("dbref.cache.ttl-seconds", Long.class, 60L);
+    return new DbRefCache(maxSize, ttlSeconds * 1000);
   }
 
   /**
@@ -134,6 +156,7 @@ public class MongoDBConfiguration extends AbstractMongoConfiguration {
   public CustomMappingMongoConverter mongoConverter() {
     MongoMappingContext mappingContext = new MongoMappingContext();
     CustomDefaultDbRefResolver dbRefResolver = new CustomDefaultDbRefResolver(mongoDbFactory());
+    dbRefResolver.setSharedCache(dbRefCache());
     CustomMappingMongoConverter mongoConverter = new CustomMappingMongoConverter(dbRefResolver, mappingContext);
     mongoConverter.setTypeMapper(new DefaultMongoTypeMapper(null));
     mongoConverter.setCustomConversions(customConversions());
@@ -186,4 +209,16 @@ public class MongoDBConfiguration extends AbstractMongoConfiguration {
     return new CascadeSaveMongoEventListener();
   }
 
+  /**
+   * <p>
+   * dbRefCacheEvictionListener.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.mongodb.event.DbRefCacheEvictionListener} object.
+   */
+  @Bean
+  public DbRefCacheEvictionListener dbRefCacheEvictionListener() {
+    return new DbRefCacheEvictionListener(dbRefCache());
+  }
+
 }
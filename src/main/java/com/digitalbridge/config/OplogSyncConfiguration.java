@@ -0,0 +1,65 @@
+package com.digitalbridge.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.MongoDbFactory;
+
+import com.digitalbridge.elasticsearch.IndexGeneration;
+import com.digitalbridge.sync.AssetWrapperDocumentSource;
+import com.digitalbridge.sync.MongoOplogSource;
+import com.digitalbridge.sync.MongoSyncCheckpointStore;
+import com.digitalbridge.sync.OplogSyncService;
+import com.mongodb.Mongo;
+
+import io.searchbox.client.http.JestHttpClient;
+
+/**
+ * <p>
+ * OplogSyncConfiguration class. Enabled with <code>sync.oplog.enabled=true</code>, requires the replica set oplog to be
+ * readable by the configured Mongo user.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Configuration
+@ConditionalOnProperty("sync.oplog.enabled")
+public class OplogSyncConfiguration {
+
+  private static final String DATABASE = "digitalbridge";
+  private static final String INDEX_NAME = "digitalbridge";
+  private static final String TYPE = "assetwrapper";
+
+  @Autowired Environment env;
+
+  @Autowired private Mongo mongoClient;
+
+  @Autowired private MongoDbFactory mongoDbFactory;
+
+  @Autowired private JestHttpClient jestClient;
+
+  @Autowired private IndexGeneration indexGeneration;
+
+  /**
+   * <p>
+   * oplogSyncService.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.sync.OplogSyncService} object.
+   */
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public OplogSyncService oplogSyncService() {
+    OplogSyncService oplogSyncService = new OplogSyncService(
+        new MongoOplogSource(mongoClient, DATABASE, "assetwrapper", "address", "notes"),
+        new AssetWrapperDocumentSource(mongoDbFactory), new MongoSyncCheckpointStore(mongoDbFactory, INDEX_NAME),
+        jestClient, INDEX_NAME, TYPE);
+    oplogSyncService.setMaxBatchActions(env.getProperty("sync.oplog.max-batch-actions", Integer.class, 1000));
+    oplogSyncService.setMaxBatchBytes(env.getProperty("sync.oplog.max-batch-bytes", Long.class, 5L * 1024 * 1024));
+    oplogSyncService.setMaxBatchDelayMillis(env.getProperty("sync.oplog.max-batch-delay-ms", Long.class, 1000L));
+    oplogSyncService.setIndexGeneration(indexGeneration);
+    return oplogSyncService;
+  }
+}
@@ -0,0 +1,227 @@
+package com.digitalbridge.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * <p>
+ * AssetSearchRequest class. Typed search against the <code>assetwrapper</code> index: free text, term filters, date
+ * ranges, a geo distance filter, sort, paging and source filtering.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class AssetSearchRequest {
+
+  private String text;
+  private List<String> textFields = new ArrayList<String>(Arrays.asList("aName", "cuisine"));
+  private Map<String, List<String>> termFilters = new LinkedHashMap<String, List<String>>();
+  private List<DateRange> dateRanges = new ArrayList<DateRange>();
+  private GeoDistance geoDistance;
+  private Map<String, Direction> sort = new LinkedHashMap<String, Direction>();
+  private List<String> includes = new ArrayList<String>();
+  private int page;
+  private int size = 10;
+  private boolean hydrate;
+
+  public String getText() {
+    return text;
+  }
+
+  public void setText(String text) {
+    this.text = text;
+  }
+
+  public List<String> getTextFields() {
+    return textFields;
+  }
+
+  public void setTextFields(List<String> textFields) {
+    this.textFields = textFields;
+  }
+
+  public Map<String, List<String>> getTermFilters() {
+    return termFilters;
+  }
+
+  public void setTermFilters(Map<String, List<String>> termFilters) {
+    this.termFilters = termFilters;
+  }
+
+  public List<DateRange> getDateRanges() {
+    return dateRanges;
+  }
+
+  public void setDateRanges(List<DateRange> dateRanges) {
+    this.dateRanges = dateRanges;
+  }
+
+  public GeoDistance getGeoDistance() {
+    return geoDistance;
+  }
+
+  public void setGeoDistance(GeoDistance geoDistance) {
+    this.geoDistance = geoDistance;
+  }
+
+  public Map<String, Direction> getSort() {
+    return sort;
+  }
+
+  public void setSort(Map<String, Direction> sort) {
+    this.sort = sort;
+  }
+
+  public List<String> getIncludes() {
+    return includes;
+  }
+
+  public void setIncludes(List<String> includes) {
+    this.includes = includes;
+  }
+
+  public int getPage() {
+    return page;
+  }
+
+  public void setPage(int page) {
+    this.page = page;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  public boolean isHydrate() {
+    return hydrate;
+  }
+
+  public void setHydrate(boolean hydrate) {
+    this.hydrate = hydrate;
+  }
+
+  @Override
+  public String toString() {
+    return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+
+  /**
+   * Range filter on a date field, either bound may be {@literal null}.
+   */
+  public static class DateRange {
+
+    private String field;
+    private Date from;
+    private Date to;
+
+    public DateRange() {
+
+    }
+
+    public DateRange(String field, Date from, Date to) {
+      this.field = field;
+      this.from = from;
+      this.to = to;
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public void setField(String field) {
+      this.field = field;
+    }
+
+    public Date getFrom() {
+      return from;
+    }
+
+    public void setFrom(Date from) {
+      this.from = from;
+    }
+
+    public Date getTo() {
+      return to;
+    }
+
+    public void setTo(Date to) {
+      this.to = to;
+    }
+
+    @Override
+    public String toString() {
+      return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+  }
+
+  /**
+   * Distance filter around a point, the distance is given with unit, e.g. <code>2km</code>.
+   */
+  public static class GeoDistance {
+
+    private String field = "address.location";
+    private double lat;
+    private double lon;
+    private String distance;
+
+    public GeoDistance() {
+
+    }
+
+    public GeoDistance(double lat, double lon, String distance) {
+      this.lat = lat;
+      this.lon = lon;
+      this.distance = distance;
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public void setField(String field) {
+      this.field = field;
+    }
+
+    public double getLat() {
+      return lat;
+    }
+
+    public void setLat(double lat) {
+      this.lat = lat;
+    }
+
+    public double getLon() {
+      return lon;
+    }
+
+    public void setLon(double lon) {
+      this.lon = lon;
+    }
+
+    public String getDistance() {
+      return distance;
+    }
+
+    public void setDistance(String distance) {
+      this.distance = distance;
+    }
+
+    @Override
+    public String toString() {
+      return ReflectionToStringBuilder.toString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+  }
+}
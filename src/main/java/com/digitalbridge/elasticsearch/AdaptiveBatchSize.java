@@ -0,0 +1,71 @@
+package com.digitalbridge.elasticsearch;
+
+import org.springframework.util.Assert;
+
+/**
+ * <p>
+ * AdaptiveBatchSize class. Sizes bulk requests from the feedback of the previous ones, additive increase and
+ * multiplicative decrease: a request that was rejected or took longer than {@code targetLatencyMillis} halves the
+ * size, a full request answered in less than half the target grows it by {@code step}. The size always stays within
+ * {@code min} and {@code max}.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class AdaptiveBatchSize {
+
+  private final int min;
+  private final int max;
+  private final int step;
+  private final long targetLatencyMillis;
+
+  private volatile int size;
+
+  /**
+   * <p>
+   * Constructor for AdaptiveBatchSize.
+   * </p>
+   *
+   * @param initial the size of the first request.
+   * @param min the smallest size, at least 1.
+   * @param max the largest size.
+   * @param targetLatencyMillis the latency a bulk request should not exceed.
+   */
+  public AdaptiveBatchSize(int initial, int min, int max, long targetLatencyMillis) {
+
+    Assert.isTrue(min > 0 && min <= max, "Batch size bounds must satisfy 0 < min <= max!");
+    this.min = min;
+    this.max = max;
+    this.step = Math.max(1, min);
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.size = Math.max(min, Math.min(max, initial));
+  }
+
+  /**
+   * <p>
+   * get.
+   * </p>
+   *
+   * @return the number of actions to send with the next request.
+   */
+  public int get() {
+    return size;
+  }
+
+  /**
+   * Adjusts the size to the outcome of a bulk request.
+   *
+   * @param actions the number of actions sent.
+   * @param latencyMillis the time until all actions were acknowledged, including retries.
+   * @param rejected the number of actions rejected at least once.
+   */
+  public synchronized void onBatch(int actions, long latencyMillis, int rejected) {
+
+    if (rejected > 0 || latencyMillis > targetLatencyMillis) {
+      size = Math.max(min, size / 2);
+    } else if (actions >= size && latencyMillis < targetLatencyMillis / 2) {
+      size = Math.min(max, size + step);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.digitalbridge.exception.DigitalBridgeExceptionBean;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.action.Action;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.DocumentResult;
+import io.searchbox.indices.Refresh;
+import io.searchbox.indices.settings.GetSettings;
+import io.searchbox.indices.settings.UpdateSettings;
+
+/**
+ * <p>
+ * BulkIngestSession class. Loads a large number of documents into one index: {@link #open()} switches the index to
+ * the ingest settings (e.g. refresh disabled, no replicas, larger translog), {@link #add(BulkableAction)} buffers
+ * actions and sends them in bulk requests sized by an {@link AdaptiveBatchSize}, and {@link #close()} sends the
+ * remaining actions and puts the settings found on open back, also when the load failed. Created by
+ * {@link BulkIngestSessionFactory}; use it in a <code>try</code> / <code>finally</code> block. Sessions are not thread
+ * safe.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class BulkIngestSession {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkIngestSession.class);
+
+  /** Values Elasticsearch uses for settings that are not set on the index. */
+  private static final Map<String, String> DEFAULTS = new HashMap<String, String>();
+
+  static {
+    DEFAULTS.put("index.refresh_interval", "1s");
+    DEFAULTS.put("index.number_of_replicas", "1");
+    DEFAULTS.put("index.translog.flush_threshold_size", "200mb");
+    DEFAULTS.put("index.translog.flush_threshold_ops", "2147483647");
+  }
+
+  private final JestClient jestClient;
+  private final BulkSender bulkSender;
+  private final String index;
+  private final Map<String, String> ingestSettings;
+  private final AdaptiveBatchSize batchSize;
+
+  private final List<BulkableAction<DocumentResult>> buffer = new ArrayList<BulkableAction<DocumentResult>>();
+  private Map<String, String> productionSettings;
+
+  private long indexed;
+  private long failed;
+  private long retried;
+  private long requests;
+  private final long started = System.currentTimeMillis();
+
+  BulkIngestSession(JestClient jestClient, BulkSender bulkSender, String index, Map<String, String> ingestSettings,
+      AdaptiveBatchSize batchSize) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    Assert.notNull(bulkSender, "BulkSender must not be null!");
+    Assert.hasText(index, "Index must not be empty!");
+    this.jestClient = jestClient;
+    this.bulkSender = bulkSender;
+    this.index = index;
+    this.ingestSettings = ingestSettings;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Remembers the current settings of the index and applies the ingest settings. Fails without changing anything if
+   * an ingest setting is neither set on the index nor has a known default, as it could not be put back on close.
+   *
+   * @throws com.digitalbridge.exception.DigitalBridgeException if the settings can not be read, restored or changed.
+   */
+  void open() throws DigitalBridgeException {
+
+    try {
+      JsonObject response = execute(new GetSettings.Builder().addIndex(index).setParameter("flat_settings", true)
+          .build());
+      Entry<String, JsonElement> first = response.entrySet().iterator().next();
+      JsonObject current = first.getValue().getAsJsonObject().getAsJsonObject("settings");
+
+      Map<String, String> production = new LinkedHashMap<String, String>();
+      for (String key : ingestSettings.keySet()) {
+        JsonElement value = current.get(key);
+        String restored = value == null ? DEFAULTS.get(key) : value.getAsString();
+        if (restored == null) {
+          LOGGER.error("Setting {} is not set on {} and has no known default", key, index);
+          throw failure("Unable to restore " + key + " of " + index + " after ingest");
+        }
+        production.put(key, restored);
+      }
+
+      execute(new UpdateSettings.Builder(ingestSettings).addIndex(index).build());
+      productionSettings = production;
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to switch {} to ingest settings : {}", index, e.getMessage());
+      throw failure("Unable to switch " + index + " to ingest settings");
+    }
+
+    LOGGER.info("Bulk ingest into {} started with {}, restoring {} on close", index, ingestSettings,
+        productionSettings);
+  }
+
+  /**
+   * Buffers the given action and sends the buffer once it holds as many actions as the current batch size.
+   *
+   * @param action must not be {@literal null}.
+   * @throws java.lang.InterruptedException if interrupted while backing off.
+   */
+  public void add(BulkableAction<DocumentResult> action) throws InterruptedException {
+
+    Assert.notNull(action, "Action must not be null!");
+    Assert.state(productionSettings != null, "Session is closed!");
+    buffer.add(action);
+
+    if (buffer.size() >= batchSize.get()) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends the buffered actions.
+   *
+   * @throws java.lang.InterruptedException if interrupted while backing off.
+   */
+  public void flush() throws InterruptedException {
+
+    if (buffer.isEmpty()) {
+      return;
+    }
+
+    int actions = buffer.size();
+    long sent = System.currentTimeMillis();
+    BulkSender.Result result = bulkSender.send(new ArrayList<BulkableAction<DocumentResult>>(buffer));
+    buffer.clear();
+
+    batchSize.onBatch(actions, System.currentTimeMillis() - sent, result.getRetried());
+    indexed += result.getIndexed();
+    failed += result.getFailed();
+    retried += result.getRetried();
+    requests++;
+  }
+
+  /**
+   * Sends the remaining actions, puts the production settings back and refreshes the index. The settings are restored
+   * even if sending fails.
+   *
+   * @throws com.digitalbridge.exception.DigitalBridgeException if the settings could not be restored.
+   * @throws java.lang.InterruptedException if interrupted while sending the remaining actions.
+   */
+  public void close() throws DigitalBridgeException, InterruptedException {
+
+    if (productionSettings == null) {
+      return;
+    }
+
+    try {
+      flush();
+    } finally {
+      Map<String, String> production = productionSettings;
+      productionSettings = null;
+      buffer.clear();
+      restore(production);
+    }
+
+    LOGGER.info("Bulk ingest into {} finished in {} ms : {} indexed, {} failed, {} retried in {} requests", index,
+        System.currentTimeMillis() - started, indexed, failed, retried, requests);
+  }
+
+  private void restore(Map<String, String> production) throws DigitalBridgeException {
+    try {
+      execute(new UpdateSettings.Builder(production).addIndex(index).build());
+      execute(new Refresh.Builder().addIndex(index).build());
+      // the refresh interval was disabled while ingesting, the documents are searchable only now
+      IndexGeneration indexGeneration = bulkSender.getIndexGeneration();
+      if (indexGeneration != null) {
+        indexGeneration.bump();
+      }
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to restore settings {} of {} : {}", production, index, e.getMessage());
+      throw failure("Unable to restore settings of " + index);
+    }
+  }
+
+  private JsonObject execute(Action<? extends JestResult> action) {
+
+    JestResult result;
+
+    try {
+      result = jestClient.execute(action);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+
+    if (!result.isSucceeded()) {
+      throw new IllegalStateException(result.getErrorMessage());
+    }
+
+    return result.getJsonObject();
+  }
+
+  private static DigitalBridgeException failure(String message) {
+    DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+    bean.setFaultCode("1015");
+    bean.setFaultString(message);
+    return new DigitalBridgeException(bean);
+  }
+
+  /**
+   * <p>
+   * getBatchSize.
+   * </p>
+   *
+   * @return the number of actions sent with the next request.
+   */
+  public int getBatchSize() {
+    return batchSize.get();
+  }
+
+  /**
+   * <p>
+   * getIndexed.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getIndexed() {
+    return indexed;
+  }
+
+  /**
+   * <p>
+   * getFailed.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * <p>
+   * getRetried.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getRetried() {
+    return retried;
+  }
+}
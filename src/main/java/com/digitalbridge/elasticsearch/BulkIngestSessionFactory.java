@@ -0,0 +1,130 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+
+import io.searchbox.client.JestClient;
+
+/**
+ * <p>
+ * BulkIngestSessionFactory class. Opens {@link BulkIngestSession}s with the configured ingest settings and bulk size
+ * bounds.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class BulkIngestSessionFactory {
+
+  private final JestClient jestClient;
+
+  private Map<String, String> ingestSettings = new LinkedHashMap<String, String>();
+  private int initialBatchSize = 500;
+  private int minBatchSize = 50;
+  private int maxBatchSize = 5000;
+  private long targetLatencyMillis = 1000;
+  private IndexGeneration indexGeneration;
+
+  /**
+   * <p>
+   * Constructor for BulkIngestSessionFactory.
+   * </p>
+   *
+   * @param jestClient must not be {@literal null}.
+   */
+  public BulkIngestSessionFactory(JestClient jestClient) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    this.jestClient = jestClient;
+    ingestSettings.put("index.refresh_interval", "-1");
+    ingestSettings.put("index.number_of_replicas", "0");
+    ingestSettings.put("index.translog.flush_threshold_size", "1gb");
+  }
+
+  /**
+   * Switches the given index to the ingest settings and returns the session loading it.
+   *
+   * @param index the index to load.
+   * @return an open {@link com.digitalbridge.elasticsearch.BulkIngestSession}, must be closed.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if the index settings can not be changed.
+   */
+  public BulkIngestSession open(String index) throws DigitalBridgeException {
+
+    BulkSender bulkSender = new BulkSender(jestClient);
+    bulkSender.setIndexGeneration(indexGeneration);
+    BulkIngestSession session = new BulkIngestSession(jestClient, bulkSender, index, ingestSettings,
+        new AdaptiveBatchSize(initialBatchSize, minBatchSize, maxBatchSize, targetLatencyMillis));
+    session.open();
+    return session;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>ingestSettings</code>.
+   * </p>
+   *
+   * @param ingestSettings flat index settings applied while a session is open.
+   */
+  public void setIngestSettings(Map<String, String> ingestSettings) {
+    this.ingestSettings = new LinkedHashMap<String, String>(ingestSettings);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>initialBatchSize</code>.
+   * </p>
+   *
+   * @param initialBatchSize an int.
+   */
+  public void setInitialBatchSize(int initialBatchSize) {
+    this.initialBatchSize = initialBatchSize;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>minBatchSize</code>.
+   * </p>
+   *
+   * @param minBatchSize an int.
+   */
+  public void setMinBatchSize(int minBatchSize) {
+    this.minBatchSize = minBatchSize;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBatchSize</code>.
+   * </p>
+   *
+   * @param maxBatchSize an int.
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>targetLatencyMillis</code>.
+   * </p>
+   *
+   * @param targetLatencyMillis a long.
+   */
+  public void setTargetLatencyMillis(long targetLatencyMillis) {
+    this.targetLatencyMillis = targetLatencyMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>indexGeneration</code>.
+   * </p>
+   *
+   * @param indexGeneration a {@link com.digitalbridge.elasticsearch.IndexGeneration} object.
+   */
+  public void setIndexGeneration(IndexGeneration indexGeneration) {
+    this.indexGeneration = indexGeneration;
+  }
+}
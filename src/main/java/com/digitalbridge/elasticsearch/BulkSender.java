@@ -0,0 +1,290 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.util.Constants;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.DocumentResult;
+
+/**
+ * <p>
+ * BulkSender class. Sends {@link io.searchbox.core.Bulk} requests and retries the whole request or the rejected items
+ * with exponential back-off while Elasticsearch answers 429 or 503 or cannot be reached, for at most
+ * {@link #setMaxAttempts(int) maxAttempts} requests. Items failing with any other error are rejected for good; items
+ * still rejected after the last attempt, requests failing as a whole and actions the response has no item for are
+ * exhausted and may succeed when sent again later. Both are counted as failed and logged but not retried. Instances are
+ * thread safe.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class BulkSender {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkSender.class);
+
+  private final JestClient jestClient;
+
+  private volatile IndexGeneration indexGeneration;
+  private volatile long initialBackoffMillis = 100;
+  private volatile long maxBackoffMillis = 30000;
+  private volatile int maxAttempts = 10;
+
+  /**
+   * <p>
+   * Constructor for BulkSender.
+   * </p>
+   *
+   * @param jestClient must not be {@literal null}.
+   */
+  public BulkSender(JestClient jestClient) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    this.jestClient = jestClient;
+  }
+
+  /**
+   * Sends the given actions, blocking until every action is acknowledged or failed for good. Actions still rejected
+   * after {@link #setMaxAttempts(int) maxAttempts} requests are counted as exhausted.
+   *
+   * @param actions must not be {@literal null}.
+   * @return a {@link com.digitalbridge.elasticsearch.BulkSender.Result} object.
+   * @throws java.lang.InterruptedException if interrupted while backing off.
+   */
+  public Result send(List<? extends BulkableAction<DocumentResult>> actions) throws InterruptedException {
+
+    Result result = new Result();
+    List<? extends BulkableAction<DocumentResult>> pending = actions;
+    long backoff = initialBackoffMillis;
+    int attempts = 0;
+
+    while (!pending.isEmpty()) {
+
+      pending = execute(pending, result);
+
+      if (!pending.isEmpty() && ++attempts >= maxAttempts) {
+        LOGGER.error("Elasticsearch still rejected {} bulk actions after {} attempts, giving up", pending.size(),
+            attempts);
+        result.exhausted += pending.size();
+        break;
+      }
+
+      if (!pending.isEmpty()) {
+        result.retried += pending.size();
+        LOGGER.warn("Elasticsearch rejected {} bulk actions, retrying in {} ms", pending.size(), backoff);
+        Thread.sleep(backoff);
+        backoff = Math.min(backoff * 2, maxBackoffMillis);
+      }
+    }
+
+    if (indexGeneration != null && result.indexed + result.deleted > 0) {
+      indexGeneration.bumpAfterRefresh();
+    }
+
+    return result;
+  }
+
+  /**
+   * Executes one bulk request.
+   *
+   * @return the actions that have to be retried.
+   */
+  private List<? extends BulkableAction<DocumentResult>> execute(List<? extends BulkableAction<DocumentResult>> actions,
+      Result result) {
+
+    Bulk bulk = new Bulk.Builder().addAction(actions).build();
+    JestResult jestResult;
+
+    try {
+      jestResult = jestClient.execute(bulk);
+    } catch (IOException e) {
+      LOGGER.warn("IOException occured while attempting to perform bulk request : {}", e.getMessage());
+      return actions;
+    }
+
+    if (isRetryable(jestResult.getResponseCode())) {
+      return actions;
+    }
+
+    JsonObject json = jestResult.getJsonObject();
+    JsonArray items = json == null ? null : json.getAsJsonArray("items");
+
+    if (items == null) {
+      LOGGER.error("Bulk request failed : {}", jestResult.getErrorMessage());
+      result.exhausted += actions.size();
+      return Collections.emptyList();
+    }
+
+    List<BulkableAction<DocumentResult>> retry = new ArrayList<BulkableAction<DocumentResult>>();
+
+    for (int i = 0; i < items.size() && i < actions.size(); i++) {
+
+      Entry<String, JsonElement> item = items.get(i).getAsJsonObject().entrySet().iterator().next();
+      JsonObject response = item.getValue().getAsJsonObject();
+      int status = response.has("status") ? response.get("status").getAsInt() : 200;
+      boolean delete = "delete".equals(item.getKey());
+
+      if (isRetryable(status)) {
+        retry.add(actions.get(i));
+      } else if (status >= 300 && !(delete && status == Constants.INDEXMISSINGCODE)) {
+        result.rejected++;
+        LOGGER.error("Bulk {} of {} failed : {}", item.getKey(), response.get("_id"), response.get("error"));
+      } else if (delete) {
+        result.deleted++;
+      } else {
+        result.indexed++;
+      }
+    }
+
+    if (items.size() < actions.size()) {
+      LOGGER.error("Bulk response has {} items for {} actions, counting the remaining actions as failed", items.size(),
+          actions.size());
+      result.exhausted += actions.size() - items.size();
+    }
+
+    return retry;
+  }
+
+  private static boolean isRetryable(int status) {
+    return status == Constants.TOOMANYREQUESTSCODE || status == Constants.CLUSTERBLOCKEXCEPTIONCODE;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>indexGeneration</code>. After every send that changed at least one document the
+   * generation is bumped once the next refresh made the changes searchable.
+   * </p>
+   *
+   * @param indexGeneration a {@link com.digitalbridge.elasticsearch.IndexGeneration} object, can be {@literal null}.
+   */
+  public void setIndexGeneration(IndexGeneration indexGeneration) {
+    this.indexGeneration = indexGeneration;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>indexGeneration</code>.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.IndexGeneration} object, can be {@literal null}.
+   */
+  public IndexGeneration getIndexGeneration() {
+    return indexGeneration;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>initialBackoffMillis</code>.
+   * </p>
+   *
+   * @param initialBackoffMillis a long.
+   */
+  public void setInitialBackoffMillis(long initialBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBackoffMillis</code>.
+   * </p>
+   *
+   * @param maxBackoffMillis a long.
+   */
+  public void setMaxBackoffMillis(long maxBackoffMillis) {
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>maxBackoffMillis</code>.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxAttempts</code>.
+   * </p>
+   *
+   * @param maxAttempts the number of bulk requests sent for an action before it is counted as failed, at least 1.
+   */
+  public void setMaxAttempts(int maxAttempts) {
+
+    Assert.isTrue(maxAttempts > 0, "Max attempts must be positive!");
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Outcome of a single {@link BulkSender#send(List)} call.
+   */
+  public static final class Result {
+
+    private int indexed;
+    private int deleted;
+    private int rejected;
+    private int exhausted;
+    private int retried;
+
+    /**
+     * @return the number of documents indexed.
+     */
+    public int getIndexed() {
+      return indexed;
+    }
+
+    /**
+     * @return the number of documents deleted or already absent.
+     */
+    public int getDeleted() {
+      return deleted;
+    }
+
+    /**
+     * @return the number of actions failed, i.e. {@link #getRejected()} plus {@link #getExhausted()}.
+     */
+    public int getFailed() {
+      return rejected + exhausted;
+    }
+
+    /**
+     * @return the number of actions failed with a non retryable error, sending them again fails the same way.
+     */
+    public int getRejected() {
+      return rejected;
+    }
+
+    /**
+     * @return the number of actions still rejected with 429 or 503 after the last attempt, sent with a request that
+     *         failed as a whole or not answered.
+     */
+    public int getExhausted() {
+      return exhausted;
+    }
+
+    /**
+     * @return the number of action retries.
+     */
+    public int getRetried() {
+      return retried;
+    }
+  }
+}
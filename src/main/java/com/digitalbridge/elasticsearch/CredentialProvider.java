@@ -0,0 +1,237 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.elasticsearch.common.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * <p>
+ * CredentialProvider class. Holds the Elasticsearch credentials by name, each precomputed once into an immutable
+ * <code>Authorization</code> header and header map, so sending a request neither allocates nor encodes anything.
+ * Credentials are read from properties of the form <code>&lt;name&gt;.username</code> and
+ * <code>&lt;name&gt;.password</code>; the <code>default</code> credential is applied to every request by
+ * {@link NodeSelectingJestClient} and {@link NodeMonitor}.
+ * </p>
+ * <p>
+ * When a {@code location} is set, it is checked every {@code refreshIntervalMillis} and reloaded when modified, so
+ * credentials can be rotated without a restart. A reload replaces all credentials at once; a reload without the
+ * <code>default</code> credential is rejected while one is loaded, so a truncated or half written file cannot leave
+ * requests unauthenticated.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class CredentialProvider {
+
+  /** Constant <code>DEFAULT="default"</code> */
+  public static final String DEFAULT = "default";
+  /** Constant <code>AUTHORIZATION="Authorization"</code> */
+  public static final String AUTHORIZATION = "Authorization";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CredentialProvider.class);
+
+  private volatile Map<String, Credential> credentials = Collections.emptyMap();
+
+  private Resource location;
+  private long refreshIntervalMillis = 30000;
+  private long lastModified;
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Replaces all credentials with the ones found in the given properties.
+   *
+   * @param properties must not be {@literal null}.
+   */
+  public void load(Properties properties) {
+
+    Assert.notNull(properties, "Properties must not be null!");
+
+    Map<String, Credential> loaded = parse(properties);
+    credentials = Collections.unmodifiableMap(loaded);
+    LOGGER.info("Loaded Elasticsearch credentials {}", loaded.keySet());
+  }
+
+  private static Map<String, Credential> parse(Properties properties) {
+
+    Map<String, Credential> loaded = new HashMap<String, Credential>();
+
+    for (String key : properties.stringPropertyNames()) {
+
+      if (!key.endsWith(".username")) {
+        continue;
+      }
+
+      String name = key.substring(0, key.length() - ".username".length());
+      loaded.put(name, new Credential(properties.getProperty(key), properties.getProperty(name + ".password", "")));
+    }
+
+    return loaded;
+  }
+
+  /**
+   * Reloads the credentials from {@code location} if it was modified since the last load. A modification dropping the
+   * <code>default</code> credential is skipped and the current credentials are kept.
+   *
+   * @return {@literal true} if the credentials were reloaded.
+   */
+  public synchronized boolean refresh() {
+
+    if (location == null) {
+      return false;
+    }
+
+    try {
+      long modified = location.lastModified();
+      if (modified == lastModified) {
+        return false;
+      }
+
+      Properties properties = new Properties();
+      InputStream in = location.getInputStream();
+      try {
+        properties.load(in);
+      } finally {
+        in.close();
+      }
+
+      lastModified = modified;
+
+      if (!properties.containsKey(DEFAULT + ".username") && credentials.containsKey(DEFAULT)) {
+        LOGGER.warn("Ignoring Elasticsearch credentials from {} without a {} credential, keeping {}", location,
+            DEFAULT, credentials.keySet());
+        return false;
+      }
+
+      load(properties);
+      return true;
+    } catch (IOException e) {
+      LOGGER.warn("Unable to reload Elasticsearch credentials from {} : {}", location, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Loads {@code location} and starts watching it; does nothing if no location is set.
+   */
+  public synchronized void start() {
+
+    if (location == null || scheduler != null) {
+      return;
+    }
+
+    refresh();
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-credentials-"));
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        refresh();
+      }
+    }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops watching {@code location}.
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /**
+   * <p>
+   * getAuthorizationHeader.
+   * </p>
+   *
+   * @return the header of the <code>default</code> credential or {@literal null} if there is none.
+   */
+  public Header getAuthorizationHeader() {
+    return getAuthorizationHeader(DEFAULT);
+  }
+
+  /**
+   * <p>
+   * getAuthorizationHeader.
+   * </p>
+   *
+   * @param name the credential name.
+   * @return the header of the given credential or {@literal null} if there is none.
+   */
+  public Header getAuthorizationHeader(String name) {
+    Credential credential = credentials.get(name);
+    return credential == null ? null : credential.header;
+  }
+
+  /**
+   * Returns the headers to set on a single Jest action that must be sent with a credential other than the default.
+   *
+   * @param name the credential name.
+   * @return an immutable map, empty if there is no such credential.
+   */
+  public Map<String, Object> getHeaders(String name) {
+    Credential credential = credentials.get(name);
+    return credential == null ? Collections.<String, Object> emptyMap() : credential.headers;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>location</code>.
+   * </p>
+   *
+   * @param location a properties file to watch, {@literal null} disables watching.
+   */
+  public void setLocation(Resource location) {
+    this.location = location;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>refreshIntervalMillis</code>.
+   * </p>
+   *
+   * @param refreshIntervalMillis a long.
+   */
+  public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+    this.refreshIntervalMillis = refreshIntervalMillis;
+  }
+
+  private static final class Credential {
+
+    private final Header header;
+    private final Map<String, Object> headers;
+
+    Credential(String username, String password) {
+
+      String value;
+      try {
+        value = "Basic " + Base64.encodeBytes((username + ":" + password).getBytes("UTF-8"));
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+
+      this.header = new BasicHeader(AUTHORIZATION, value);
+      this.headers = Collections.<String, Object> singletonMap(AUTHORIZATION, value);
+    }
+  }
+}
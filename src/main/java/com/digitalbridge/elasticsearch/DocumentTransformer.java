@@ -0,0 +1,23 @@
+package com.digitalbridge.elasticsearch;
+
+import com.google.gson.JsonObject;
+
+/**
+ * <p>
+ * DocumentTransformer interface. A stage rewriting the <code>_source</code> of a document while it is copied by the
+ * {@link com.digitalbridge.elasticsearch.ReindexEngine}. Implementations are called concurrently by all readers and
+ * must be thread safe.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public interface DocumentTransformer {
+
+  /**
+   * Rewrites the given source in place.
+   *
+   * @param source the <code>_source</code> of a document, never {@literal null}.
+   */
+  void transform(JsonObject source);
+}
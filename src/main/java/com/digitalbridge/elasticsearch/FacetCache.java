@@ -0,0 +1,417 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * <p>
+ * FacetCache class. Caches facet results keyed on a normalized form of the term filters, so filters differing only in
+ * the order of their keys or values share one entry. Every entry is tagged with the {@link IndexGeneration} it was
+ * loaded at and is ignored once the generation moved on.
+ * </p>
+ * <p>
+ * Loads are coalesced: concurrent requests for the same filters at the same generation wait for the one request that
+ * is already talking to Elasticsearch instead of issuing their own. Blocking and asynchronous requests share the same
+ * in-flight loads.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class FacetCache {
+
+  private final IndexGeneration indexGeneration;
+  private final int maxSize;
+  private final Map<String, CacheEntry> entries;
+  private final ConcurrentMap<String, Load> loads = new ConcurrentHashMap<String, Load>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * <p>
+   * Constructor for FacetCache.
+   * </p>
+   *
+   * @param indexGeneration must not be {@literal null}.
+   * @param maxSize maximum number of cached results, {@code 0} disables caching but keeps coalescing.
+   */
+  public FacetCache(IndexGeneration indexGeneration, final int maxSize) {
+
+    Assert.notNull(indexGeneration, "IndexGeneration must not be null!");
+    this.indexGeneration = indexGeneration;
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the facets for the given term filters, loading them with the given loader if there is no entry for the
+   * current index generation.
+   *
+   * @param termFilters must not be {@literal null}.
+   * @param loader must not be {@literal null}.
+   * @return the cached or loaded facets, must not be modified.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if the loader failed.
+   */
+  public Map<String, Map<String, Long>> get(Map<String, Object[]> termFilters, Loader loader)
+      throws DigitalBridgeException {
+
+    Assert.notNull(loader, "Loader must not be null!");
+
+    String key = normalize(termFilters);
+    long generation = indexGeneration.current();
+
+    Map<String, Map<String, Long>> cached = lookup(key, generation);
+    if (cached != null) {
+      return cached;
+    }
+
+    Load load = new Load(key, generation);
+    Load running = loads.putIfAbsent(load.loadKey, load);
+
+    if (running != null) {
+      coalesced.incrementAndGet();
+      return running.await();
+    }
+
+    try {
+      Map<String, Map<String, Long>> facets = loader.load();
+      finish(load, facets, null);
+      return facets;
+    } catch (DigitalBridgeException e) {
+      finish(load, null, e);
+      throw e;
+    } catch (RuntimeException e) {
+      finish(load, null, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #get(Map, Loader)}: the callback is invoked with the cached facets right away, or
+   * by the thread completing the load.
+   *
+   * @param termFilters must not be {@literal null}.
+   * @param loader must not be {@literal null}.
+   * @param callback must not be {@literal null}.
+   */
+  public void getAsync(Map<String, Object[]> termFilters, AsyncLoader loader, Callback callback) {
+
+    Assert.notNull(loader, "Loader must not be null!");
+    Assert.notNull(callback, "Callback must not be null!");
+
+    String key = normalize(termFilters);
+    long generation = indexGeneration.current();
+
+    Map<String, Map<String, Long>> cached = lookup(key, generation);
+    if (cached != null) {
+      callback.completed(cached);
+      return;
+    }
+
+    final Load load = new Load(key, generation);
+    Load running = loads.putIfAbsent(load.loadKey, load);
+
+    if (running != null) {
+      coalesced.incrementAndGet();
+      running.whenDone(callback);
+      return;
+    }
+
+    load.whenDone(callback);
+
+    try {
+      loader.load(new Callback() {
+
+        @Override
+        public void completed(Map<String, Map<String, Long>> facets) {
+          finish(load, facets, null);
+        }
+
+        @Override
+        public void failed(Exception e) {
+          finish(load, null, e);
+        }
+      });
+    } catch (RuntimeException e) {
+      finish(load, null, e);
+    }
+  }
+
+  private Map<String, Map<String, Long>> lookup(String key, long generation) {
+
+    if (maxSize > 0) {
+      synchronized (entries) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.generation == generation) {
+          hits.incrementAndGet();
+          return entry.facets;
+        }
+      }
+    }
+
+    misses.incrementAndGet();
+    return null;
+  }
+
+  private void finish(Load load, Map<String, Map<String, Long>> facets, Exception failure) {
+
+    if (failure == null && maxSize > 0 && facets != null) {
+      synchronized (entries) {
+        CacheEntry entry = entries.get(load.key);
+        if (entry == null || entry.generation < load.generation) {
+          entries.put(load.key, new CacheEntry(load.generation, facets));
+        }
+      }
+    }
+
+    loads.remove(load.loadKey, load);
+    load.complete(facets, failure);
+  }
+
+  /**
+   * Builds the cache key of the given term filters: keys sorted, values sorted and de-duplicated, all JSON quoted.
+   *
+   * @param termFilters can be {@literal null}.
+   * @return a {@link java.lang.String} object.
+   */
+  static String normalize(Map<String, Object[]> termFilters) {
+
+    if (termFilters == null || termFilters.isEmpty()) {
+      return "{}";
+    }
+
+    Map<String, Object[]> sorted = new TreeMap<String, Object[]>(termFilters);
+    StringBuilder key = new StringBuilder("{");
+
+    for (Entry<String, Object[]> termFilter : sorted.entrySet()) {
+
+      Object[] values = termFilter.getValue();
+      String[] normalized = new String[values == null ? 0 : values.length];
+      for (int i = 0; i < normalized.length; i++) {
+        normalized[i] = String.valueOf(values[i]);
+      }
+      Arrays.sort(normalized);
+
+      key.append(new JsonPrimitive(termFilter.getKey())).append(":[");
+      String previous = null;
+      for (String value : normalized) {
+        if (!value.equals(previous)) {
+          if (previous != null) {
+            key.append(',');
+          }
+          key.append(new JsonPrimitive(value));
+          previous = value;
+        }
+      }
+      key.append("]");
+    }
+
+    return key.append('}').toString();
+  }
+
+  /**
+   * <p>
+   * clear.
+   * </p>
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * <p>
+   * size.
+   * </p>
+   *
+   * @return the number of cached results including stale ones.
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * <p>
+   * getHitCount.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * <p>
+   * getMissCount.
+   * </p>
+   *
+   * @return a long, including coalesced requests.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * <p>
+   * getCoalescedCount.
+   * </p>
+   *
+   * @return the number of requests served by a load started by another request.
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  /**
+   * Loads the facets from Elasticsearch on a cache miss.
+   */
+  public interface Loader {
+
+    /**
+     * @return the facets, {@literal null} results are not cached.
+     * @throws com.digitalbridge.exception.DigitalBridgeException if any.
+     */
+    Map<String, Map<String, Long>> load() throws DigitalBridgeException;
+  }
+
+  /**
+   * Loads the facets from Elasticsearch on a cache miss without blocking the calling thread.
+   */
+  public interface AsyncLoader {
+
+    /**
+     * @param callback to be completed exactly once with the facets or the failure.
+     */
+    void load(Callback callback);
+  }
+
+  /**
+   * Receives the facets of {@link FacetCache#getAsync(Map, AsyncLoader, Callback)}.
+   */
+  public interface Callback {
+
+    /**
+     * @param facets the facets, must not be modified.
+     */
+    void completed(Map<String, Map<String, Long>> facets);
+
+    /**
+     * @param e the failure of the load.
+     */
+    void failed(Exception e);
+  }
+
+  private static final class Load {
+
+    private final String key;
+    private final long generation;
+    private final String loadKey;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Map<String, Map<String, Long>> facets;
+    private volatile Exception failure;
+    private List<Callback> callbacks = new ArrayList<Callback>(1);
+
+    Load(String key, long generation) {
+      this.key = key;
+      this.generation = generation;
+      this.loadKey = generation + ":" + key;
+    }
+
+    void complete(Map<String, Map<String, Long>> facets, Exception failure) {
+
+      List<Callback> waiting;
+
+      synchronized (this) {
+        this.facets = facets;
+        this.failure = failure;
+        waiting = callbacks;
+        callbacks = null;
+      }
+
+      done.countDown();
+
+      for (Callback callback : waiting) {
+        notify(callback);
+      }
+    }
+
+    void whenDone(Callback callback) {
+
+      synchronized (this) {
+        if (callbacks != null) {
+          callbacks.add(callback);
+          return;
+        }
+      }
+
+      notify(callback);
+    }
+
+    private void notify(Callback callback) {
+      if (failure != null) {
+        callback.failed(failure);
+      } else {
+        callback.completed(facets);
+      }
+    }
+
+    Map<String, Map<String, Long>> await() throws DigitalBridgeException {
+
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for facets", e);
+      }
+
+      if (failure instanceof DigitalBridgeException) {
+        throw (DigitalBridgeException) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure != null) {
+        throw new IllegalStateException("Unable to load facets", failure);
+      }
+
+      return facets;
+    }
+  }
+
+  private static final class CacheEntry {
+
+    private final long generation;
+    private final Map<String, Map<String, Long>> facets;
+
+    CacheEntry(long generation, Map<String, Map<String, Long>> facets) {
+      this.generation = generation;
+      this.facets = facets;
+    }
+  }
+}
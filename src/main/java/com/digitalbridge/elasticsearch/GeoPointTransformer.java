@@ -0,0 +1,75 @@
+package com.digitalbridge.elasticsearch;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * <p>
+ * GeoPointTransformer class. Rewrites a GeoJSON point at a fixed field path, e.g. <code>address.location</code>, into
+ * the <code>geo_point</code> object form <code>{"lat": .., "lon": ..}</code>.
+ * </p>
+ * <p>
+ * The path is split once at construction, so a transformation is a direct lookup of every segment. The coordinates are
+ * moved as the parsed numbers of the source, taking GeoJSON's <code>[lon, lat]</code> order into account, without a
+ * round trip through strings.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class GeoPointTransformer implements DocumentTransformer {
+
+  private final String[] path;
+
+  /**
+   * <p>
+   * Constructor for GeoPointTransformer.
+   * </p>
+   *
+   * @param fieldPath dot separated path of the GeoJSON point, must not be empty.
+   */
+  public GeoPointTransformer(String fieldPath) {
+
+    Assert.hasText(fieldPath, "FieldPath must not be empty!");
+    this.path = StringUtils.delimitedListToStringArray(fieldPath, ".");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void transform(JsonObject source) {
+
+    JsonObject current = source;
+
+    for (int i = 0; i < path.length; i++) {
+
+      JsonElement element = current.get(path[i]);
+
+      if (element == null || !element.isJsonObject()) {
+        return;
+      }
+
+      current = element.getAsJsonObject();
+    }
+
+    JsonElement coordinates = current.get("coordinates");
+
+    if (coordinates == null || !coordinates.isJsonArray()) {
+      return;
+    }
+
+    JsonArray lonLat = coordinates.getAsJsonArray();
+
+    if (lonLat.size() < 2) {
+      return;
+    }
+
+    current.remove("type");
+    current.remove("coordinates");
+    current.add("lat", lonLat.get(1));
+    current.add("lon", lonLat.get(0));
+  }
+}
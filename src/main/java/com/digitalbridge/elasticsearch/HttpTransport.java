@@ -0,0 +1,393 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * <p>
+ * HttpTransport class. Owns the blocking HTTP client used by Jest: a pooling connection manager with total and per
+ * route limits, connect, read and lease timeouts, keep-alive honouring the server's <code>Keep-Alive</code> header up
+ * to {@code keepAliveMillis}, and a background task closing expired and idle connections so stale sockets are not
+ * leased.
+ * </p>
+ * <p>
+ * Responses are requested with <code>Accept-Encoding: gzip</code> (Elasticsearch compresses them when
+ * <code>http.compression</code> is enabled); request bodies of at least {@code compressMinBytes} are gzipped when
+ * {@code compressRequests} is set. The transport counts connection leases, lease wait time and lease timeouts for
+ * pool saturation metrics.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class HttpTransport {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpTransport.class);
+
+  private int maxTotal = 50;
+  private int maxPerRoute = 50;
+  private int connectTimeoutMillis = 1000;
+  private int readTimeoutMillis = 30000;
+  private int leaseTimeoutMillis = 5000;
+  private long keepAliveMillis = 60000;
+  private long idleTimeoutMillis = 30000;
+  private long evictIntervalMillis = 5000;
+  private boolean compressRequests;
+  private long compressMinBytes = 1024;
+
+  private final AtomicLong leases = new AtomicLong();
+  private final AtomicLong leaseWaitNanos = new AtomicLong();
+  private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+  private final AtomicLong leaseTimeouts = new AtomicLong();
+
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient httpClient;
+  private ScheduledExecutorService evictor;
+
+  /**
+   * Builds the connection pool and client and starts evicting stale connections.
+   */
+  public synchronized void start() {
+
+    if (httpClient != null) {
+      return;
+    }
+
+    connectionManager = new InstrumentedConnectionManager();
+    connectionManager.setMaxTotal(maxTotal);
+    connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+    RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeoutMillis)
+        .setSocketTimeout(readTimeoutMillis).setConnectionRequestTimeout(leaseTimeoutMillis).build();
+
+    HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig).setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+
+          @Override
+          public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? Math.min(duration, keepAliveMillis) : keepAliveMillis;
+          }
+        });
+
+    if (compressRequests) {
+      // must run before the protocol interceptors that derive Content-Encoding and Transfer-Encoding
+      builder.addInterceptorFirst(new GzipRequestInterceptor(compressMinBytes));
+    }
+
+    httpClient = builder.build();
+
+    evictor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-http-evictor-"));
+    evictor.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+      }
+    }, evictIntervalMillis, evictIntervalMillis, TimeUnit.MILLISECONDS);
+
+    LOGGER.info("HTTP transport started with {} connections ({} per route), compressing requests: {}", maxTotal,
+        maxPerRoute, compressRequests);
+  }
+
+  /**
+   * Stops the eviction task and closes all connections.
+   */
+  public synchronized void stop() {
+
+    if (httpClient == null) {
+      return;
+    }
+
+    evictor.shutdownNow();
+
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      LOGGER.warn("Unable to close HTTP client : {}", e.getMessage());
+    }
+
+    httpClient = null;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>httpClient</code>.
+   * </p>
+   *
+   * @return the pooled client, {@link #start()} must have been called.
+   */
+  public synchronized CloseableHttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  /**
+   * <p>
+   * getPoolStats.
+   * </p>
+   *
+   * @return leased, pending and available connections of the pool.
+   */
+  public PoolStats getPoolStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  /**
+   * <p>
+   * getLeaseCount.
+   * </p>
+   *
+   * @return the number of connection leases.
+   */
+  public long getLeaseCount() {
+    return leases.get();
+  }
+
+  /**
+   * <p>
+   * getLeaseWaitMillis.
+   * </p>
+   *
+   * @return the total time spent waiting for connection leases.
+   */
+  public long getLeaseWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(leaseWaitNanos.get());
+  }
+
+  /**
+   * <p>
+   * getAndResetMaxLeaseWaitMillis.
+   * </p>
+   *
+   * @return the longest wait for a connection lease since the last call.
+   */
+  public long getAndResetMaxLeaseWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxLeaseWaitNanos.getAndSet(0));
+  }
+
+  /**
+   * <p>
+   * getLeaseTimeoutCount.
+   * </p>
+   *
+   * @return the number of leases that timed out because the pool was exhausted.
+   */
+  public long getLeaseTimeoutCount() {
+    return leaseTimeouts.get();
+  }
+
+  private void recordLease(long waitNanos) {
+
+    leases.incrementAndGet();
+    leaseWaitNanos.addAndGet(waitNanos);
+
+    long max = maxLeaseWaitNanos.get();
+    while (waitNanos > max && !maxLeaseWaitNanos.compareAndSet(max, waitNanos)) {
+      max = maxLeaseWaitNanos.get();
+    }
+  }
+
+  /**
+   * Times every connection lease.
+   */
+  private final class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+
+      final ConnectionRequest request = super.requestConnection(route, state);
+
+      return new ConnectionRequest() {
+
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit tunit) throws InterruptedException,
+            ExecutionException, ConnectionPoolTimeoutException {
+
+          long started = System.nanoTime();
+
+          try {
+            return request.get(timeout, tunit);
+          } catch (ConnectionPoolTimeoutException e) {
+            leaseTimeouts.incrementAndGet();
+            throw e;
+          } finally {
+            recordLease(System.nanoTime() - started);
+          }
+        }
+
+        @Override
+        public boolean cancel() {
+          return request.cancel();
+        }
+      };
+    }
+  }
+
+  /**
+   * Gzips request bodies of at least {@code minBytes}; bodies of unknown length are always compressed.
+   */
+  static final class GzipRequestInterceptor implements HttpRequestInterceptor {
+
+    private final long minBytes;
+
+    GzipRequestInterceptor(long minBytes) {
+      this.minBytes = minBytes;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+
+      if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader("Content-Encoding")) {
+        return;
+      }
+
+      HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+      HttpEntity entity = enclosingRequest.getEntity();
+
+      if (entity == null || entity.getContentEncoding() != null
+          || (entity.getContentLength() >= 0 && entity.getContentLength() < minBytes)) {
+        return;
+      }
+
+      enclosingRequest.setEntity(new GzipCompressingEntity(entity));
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxTotal</code>.
+   * </p>
+   *
+   * @param maxTotal maximum number of pooled connections.
+   */
+  public void setMaxTotal(int maxTotal) {
+    this.maxTotal = maxTotal;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxPerRoute</code>.
+   * </p>
+   *
+   * @param maxPerRoute maximum number of pooled connections per Elasticsearch node.
+   */
+  public void setMaxPerRoute(int maxPerRoute) {
+    this.maxPerRoute = maxPerRoute;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>connectTimeoutMillis</code>.
+   * </p>
+   *
+   * @param connectTimeoutMillis a int.
+   */
+  public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>readTimeoutMillis</code>.
+   * </p>
+   *
+   * @param readTimeoutMillis a int.
+   */
+  public void setReadTimeoutMillis(int readTimeoutMillis) {
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>leaseTimeoutMillis</code>.
+   * </p>
+   *
+   * @param leaseTimeoutMillis maximum wait for a pooled connection.
+   */
+  public void setLeaseTimeoutMillis(int leaseTimeoutMillis) {
+    this.leaseTimeoutMillis = leaseTimeoutMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>keepAliveMillis</code>.
+   * </p>
+   *
+   * @param keepAliveMillis maximum time an idle connection is kept for reuse.
+   */
+  public void setKeepAliveMillis(long keepAliveMillis) {
+    this.keepAliveMillis = keepAliveMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>idleTimeoutMillis</code>.
+   * </p>
+   *
+   * @param idleTimeoutMillis idle time after which the evictor closes a connection.
+   */
+  public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+    this.idleTimeoutMillis = idleTimeoutMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>evictIntervalMillis</code>.
+   * </p>
+   *
+   * @param evictIntervalMillis a long.
+   */
+  public void setEvictIntervalMillis(long evictIntervalMillis) {
+    this.evictIntervalMillis = evictIntervalMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>compressRequests</code>.
+   * </p>
+   *
+   * @param compressRequests a boolean.
+   */
+  public void setCompressRequests(boolean compressRequests) {
+    this.compressRequests = compressRequests;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>compressMinBytes</code>.
+   * </p>
+   *
+   * @param compressMinBytes a long.
+   */
+  public void setCompressMinBytes(long compressMinBytes) {
+    this.compressMinBytes = compressMinBytes;
+  }
+}
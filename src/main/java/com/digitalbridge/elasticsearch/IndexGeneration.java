@@ -0,0 +1,103 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * IndexGeneration class. Monotonic counter bumped whenever the searchable content of the index may have changed, i.e.
+ * after bulk writes, refreshes, syncs and reindex runs. Caches of search results remember the generation they were
+ * computed at and are stale as soon as it moved on.
+ * </p>
+ * <p>
+ * Writes only become searchable with the next refresh of the index. Callers that refreshed explicitly {@link #bump()}
+ * right away, bulk writes relying on the periodic refresh use {@link #bumpAfterRefresh()} instead, so that results
+ * computed before the writes were visible are not cached under the new generation.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class IndexGeneration {
+
+  private final AtomicLong generation = new AtomicLong();
+
+  private volatile long pendingDeadline;
+  private long nextDeadline;
+
+  private long refreshIntervalMillis = 1000L;
+
+  /**
+   * <p>
+   * current.
+   * </p>
+   *
+   * @return the current generation.
+   */
+  public long current() {
+
+    long deadline = pendingDeadline;
+    if (deadline != 0 && currentTimeMillis() >= deadline) {
+      bumpIfDue();
+    }
+    return generation.get();
+  }
+
+  private synchronized void bumpIfDue() {
+
+    long now = currentTimeMillis();
+    if (pendingDeadline == 0 || now < pendingDeadline) {
+      return;
+    }
+
+    generation.incrementAndGet();
+    // writes acknowledged meanwhile get their own bump unless this one already covers them
+    pendingDeadline = nextDeadline > now ? nextDeadline : 0;
+    nextDeadline = 0;
+  }
+
+  /**
+   * <p>
+   * bump.
+   * </p>
+   *
+   * @return the new generation.
+   */
+  public long bump() {
+    return generation.incrementAndGet();
+  }
+
+  /**
+   * Bumps the generation once writes acknowledged now are searchable, i.e. after twice the refresh interval of the
+   * index, which leaves the periodic refresh time to finish. Further writes do not push a pending bump back, they are
+   * covered by one more bump once it happened, so a steady stream of writes still bumps at least every two refresh
+   * intervals.
+   */
+  public synchronized void bumpAfterRefresh() {
+
+    long deadline = currentTimeMillis() + 2 * refreshIntervalMillis;
+
+    if (pendingDeadline == 0) {
+      pendingDeadline = deadline;
+    } else if (deadline > pendingDeadline) {
+      nextDeadline = Math.max(nextDeadline, deadline);
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>refreshIntervalMillis</code>.
+   * </p>
+   *
+   * @param refreshIntervalMillis the refresh interval of the index, a negative value if it is disabled.
+   */
+  public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+    this.refreshIntervalMillis = Math.max(refreshIntervalMillis, 0L);
+  }
+
+  /**
+   * @return the current time in milliseconds.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+}
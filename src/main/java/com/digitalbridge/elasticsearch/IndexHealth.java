@@ -0,0 +1,53 @@
+package com.digitalbridge.elasticsearch;
+
+import io.searchbox.action.AbstractMultiIndexActionBuilder;
+import io.searchbox.action.GenericResultAbstractAction;
+
+/**
+ * <p>
+ * IndexHealth class. Reads the cluster health restricted to the given indices with
+ * <code>GET /_cluster/health/{index}</code>, the health action of the Jest version in use can not be restricted.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class IndexHealth extends GenericResultAbstractAction {
+
+  /**
+   * <p>
+   * Constructor for IndexHealth.
+   * </p>
+   *
+   * @param builder a {@link com.digitalbridge.elasticsearch.IndexHealth.Builder} object.
+   */
+  protected IndexHealth(Builder builder) {
+    super(builder);
+    indexName = builder.getJoinedIndices();
+    setURI(buildURI());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getRestMethodName() {
+    return "GET";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String buildURI() {
+    return "/_cluster/health/" + super.buildURI();
+  }
+
+  /**
+   * Builder of {@link IndexHealth}, e.g. with the <code>wait_for_status</code> and <code>timeout</code> parameters.
+   */
+  public static class Builder extends AbstractMultiIndexActionBuilder<IndexHealth, Builder> {
+
+    /** {@inheritDoc} */
+    @Override
+    public IndexHealth build() {
+      return new IndexHealth(this);
+    }
+  }
+}
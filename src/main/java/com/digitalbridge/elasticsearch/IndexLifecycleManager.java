@@ -0,0 +1,381 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.digitalbridge.exception.DigitalBridgeExceptionBean;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Search;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.DeleteIndex;
+import io.searchbox.indices.aliases.AliasMapping;
+import io.searchbox.indices.aliases.AddAliasMapping;
+import io.searchbox.indices.aliases.GetAliases;
+import io.searchbox.indices.aliases.ModifyAliases;
+import io.searchbox.indices.aliases.RemoveAliasMapping;
+import io.searchbox.params.Parameters;
+
+/**
+ * <p>
+ * IndexLifecycleManager class. Rebuilds the index behind a read alias blue/green style, so readers of the alias never
+ * see a partially built index:
+ * </p>
+ * <ol>
+ * <li>creates a new generation <code>&lt;alias&gt;_v&lt;yyyyMMddHHmmss&gt;</code> with the given mappings and the
+ * serving replicas and refresh interval,</li>
+ * <li>copies the source index into it with the {@link ReindexEngine} while a {@link BulkIngestSession} holds the
+ * ingest settings, e.g. no replicas and refresh disabled,</li>
+ * <li>lets the session restore the serving settings and refresh, and waits up to {@code healthTimeout} for the
+ * replicas,</li>
+ * <li>warms the field data of {@code warmFields} with one terms aggregation each,</li>
+ * <li>points the alias at the new generation in a single <code>_aliases</code> call,</li>
+ * <li>deletes all but the newest {@code keepGenerations} generations.</li>
+ * </ol>
+ * <p>
+ * A generation failing before the swap is deleted and the alias left untouched.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class IndexLifecycleManager {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(IndexLifecycleManager.class);
+
+  private static final String GENERATION_SEPARATOR = "_v";
+
+  private final JestClient jestClient;
+  private final ReindexEngine reindexEngine;
+  private final BulkIngestSessionFactory bulkIngestSessionFactory;
+
+  private int shards = 5;
+  private int replicas = 1;
+  private String refreshInterval = "1s";
+  private String healthTimeout = "60s";
+  private int keepGenerations = 2;
+  private List<String> warmFields = Collections.emptyList();
+
+  /**
+   * <p>
+   * Constructor for IndexLifecycleManager.
+   * </p>
+   *
+   * @param jestClient must not be {@literal null}.
+   * @param reindexEngine must not be {@literal null}.
+   * @param bulkIngestSessionFactory must not be {@literal null}.
+   */
+  public IndexLifecycleManager(JestClient jestClient, ReindexEngine reindexEngine,
+      BulkIngestSessionFactory bulkIngestSessionFactory) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    Assert.notNull(reindexEngine, "ReindexEngine must not be null!");
+    Assert.notNull(bulkIngestSessionFactory, "BulkIngestSessionFactory must not be null!");
+    this.jestClient = jestClient;
+    this.reindexEngine = reindexEngine;
+    this.bulkIngestSessionFactory = bulkIngestSessionFactory;
+  }
+
+  /**
+   * Builds a new generation from the source index and points the alias at it.
+   *
+   * @param sourceIndex the index to copy.
+   * @param type the type to copy.
+   * @param alias the read alias.
+   * @param mappings the <code>{"mappings":{...}}</code> of the new generation.
+   * @return the name of the new generation.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if the generation could not be built or swapped in.
+   */
+  public String rebuild(String sourceIndex, String type, String alias, String mappings)
+      throws DigitalBridgeException {
+
+    String index = generationName(alias, currentTimeMillis());
+    long started = System.currentTimeMillis();
+
+    try {
+      execute(new CreateIndex.Builder(index).settings(createBody(mappings)).build());
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to create {} : {}", index, e.getMessage());
+      throw failure("Unable to create " + index);
+    }
+
+    try {
+      load(sourceIndex, type, index);
+      awaitReplicas(index);
+      warm(index, type);
+      swap(alias, index);
+    } catch (DigitalBridgeException e) {
+      discard(index);
+      throw e;
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to build {} : {}", index, e.getMessage());
+      discard(index);
+      throw failure("Unable to build " + index);
+    }
+
+    LOGGER.info("Alias {} now points at {}, built in {} ms", alias, index, System.currentTimeMillis() - started);
+
+    try {
+      deleteOldGenerations(alias);
+    } catch (IllegalStateException e) {
+      LOGGER.warn("Unable to delete old generations of {} : {}", alias, e.getMessage());
+    }
+
+    return index;
+  }
+
+  /**
+   * Returns the generations of the given alias, newest first.
+   *
+   * @param alias the read alias.
+   * @return a {@link java.util.List} object.
+   */
+  public List<String> getGenerations(String alias) {
+    return generations(execute(new GetAliases.Builder().build()), alias);
+  }
+
+  /**
+   * Returns the name of the generation of the given alias created at the given time.
+   *
+   * @param alias the read alias.
+   * @param millis the creation time.
+   * @return a {@link java.lang.String} object.
+   */
+  static String generationName(String alias, long millis) {
+    SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return alias + GENERATION_SEPARATOR + format.format(new Date(millis));
+  }
+
+  /**
+   * Returns the current time, overridden in tests.
+   *
+   * @return a long.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private String createBody(String mappings) {
+
+    JsonObject body = new JsonParser().parse(mappings).getAsJsonObject();
+    JsonObject index = new JsonObject();
+    index.addProperty("number_of_shards", shards);
+    index.addProperty("number_of_replicas", replicas);
+    index.addProperty("refresh_interval", refreshInterval);
+    JsonObject settings = new JsonObject();
+    settings.add("index", index);
+    body.add("settings", settings);
+    return body.toString();
+  }
+
+  private void load(String sourceIndex, String type, String index) throws DigitalBridgeException {
+
+    // the session restores the settings the generation was created with, and refreshes, also if the copy fails
+    BulkIngestSession session = bulkIngestSessionFactory.open(index);
+    ReindexReport report;
+
+    try {
+      try {
+        report = reindexEngine.reindex(sourceIndex, type, index);
+      } finally {
+        session.close();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failure("Reindex into " + index + " interrupted");
+    }
+
+    if (!report.isComplete()) {
+      throw failure("Reindex into " + index + " is incomplete");
+    }
+  }
+
+  private void awaitReplicas(String index) {
+
+    JsonObject health = execute(new IndexHealth.Builder().addIndex(index).setParameter("wait_for_status", "green")
+        .setParameter("timeout", healthTimeout).build());
+
+    if (health.has("timed_out") && health.get("timed_out").getAsBoolean()) {
+      LOGGER.warn("Replicas of {} not allocated within {}, swapping in status {}", index, healthTimeout,
+          health.get("status").getAsString());
+    }
+  }
+
+  private void warm(String index, String type) {
+
+    for (String field : warmFields) {
+      String source = "{\"aggs\":{\"warm\":{\"terms\":{\"field\":\"" + field + "\"}}}}";
+      execute(new Search.Builder(source).addIndex(index).addType(type).setParameter(Parameters.SIZE, 0).build());
+    }
+  }
+
+  private void swap(String alias, String index) {
+
+    JsonObject aliases = execute(new GetAliases.Builder().build());
+
+    if (aliases.has(alias)) {
+      // an index named like the alias is left over from reindexing in place, it has to go before the alias can exist
+      LOGGER.warn("Deleting index {} to replace it with an alias", alias);
+      execute(new DeleteIndex.Builder(alias).build());
+    }
+
+    List<AliasMapping> mappings = new ArrayList<AliasMapping>();
+
+    for (Entry<String, JsonElement> entry : aliases.entrySet()) {
+      JsonObject indexAliases = entry.getValue().getAsJsonObject().getAsJsonObject("aliases");
+      if (indexAliases != null && indexAliases.has(alias)) {
+        mappings.add(new RemoveAliasMapping.Builder(entry.getKey(), alias).build());
+      }
+    }
+
+    mappings.add(new AddAliasMapping.Builder(index, alias).build());
+    execute(new ModifyAliases.Builder(mappings).build());
+  }
+
+  private void deleteOldGenerations(String alias) {
+
+    JsonObject aliases = execute(new GetAliases.Builder().build());
+    List<String> generations = generations(aliases, alias);
+
+    for (String generation : generations.subList(Math.min(keepGenerations, generations.size()), generations.size())) {
+
+      JsonObject indexAliases = aliases.getAsJsonObject(generation).getAsJsonObject("aliases");
+
+      if (indexAliases == null || !indexAliases.has(alias)) {
+        LOGGER.info("Deleting old generation {}", generation);
+        execute(new DeleteIndex.Builder(generation).build());
+      }
+    }
+  }
+
+  private static List<String> generations(JsonObject aliases, String alias) {
+
+    List<String> generations = new ArrayList<String>();
+
+    for (Entry<String, JsonElement> entry : aliases.entrySet()) {
+      if (entry.getKey().startsWith(alias + GENERATION_SEPARATOR)) {
+        generations.add(entry.getKey());
+      }
+    }
+
+    // the timestamp suffix sorts chronologically
+    Collections.sort(generations, Collections.reverseOrder());
+    return generations;
+  }
+
+  private void discard(String index) {
+    try {
+      execute(new DeleteIndex.Builder(index).build());
+    } catch (IllegalStateException e) {
+      LOGGER.warn("Unable to delete failed generation {} : {}", index, e.getMessage());
+    }
+  }
+
+  private JsonObject execute(Action<? extends JestResult> action) {
+
+    JestResult result;
+
+    try {
+      result = jestClient.execute(action);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+
+    if (!result.isSucceeded()) {
+      throw new IllegalStateException(result.getErrorMessage());
+    }
+
+    return result.getJsonObject();
+  }
+
+  private static DigitalBridgeException failure(String message) {
+    DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+    bean.setFaultCode("1013");
+    bean.setFaultString(message);
+    return new DigitalBridgeException(bean);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>shards</code>.
+   * </p>
+   *
+   * @param shards an int.
+   */
+  public void setShards(int shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>replicas</code>.
+   * </p>
+   *
+   * @param replicas the replicas of a generation once loaded.
+   */
+  public void setReplicas(int replicas) {
+    this.replicas = replicas;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>refreshInterval</code>.
+   * </p>
+   *
+   * @param refreshInterval the refresh interval of a generation once loaded, e.g. <code>1s</code>.
+   */
+  public void setRefreshInterval(String refreshInterval) {
+    this.refreshInterval = refreshInterval;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>healthTimeout</code>.
+   * </p>
+   *
+   * @param healthTimeout how long to wait for replicas, e.g. <code>60s</code>.
+   */
+  public void setHealthTimeout(String healthTimeout) {
+    this.healthTimeout = healthTimeout;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>keepGenerations</code>.
+   * </p>
+   *
+   * @param keepGenerations generations kept including the one the alias points at, at least 1.
+   */
+  public void setKeepGenerations(int keepGenerations) {
+    Assert.isTrue(keepGenerations > 0, "At least one generation must be kept!");
+    this.keepGenerations = keepGenerations;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>warmFields</code>.
+   * </p>
+   *
+   * @param warmFields the fields whose field data is loaded before the swap.
+   */
+  public void setWarmFields(List<String> warmFields) {
+    this.warmFields = new ArrayList<String>(warmFields);
+  }
+}
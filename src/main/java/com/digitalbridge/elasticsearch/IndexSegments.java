@@ -0,0 +1,53 @@
+package com.digitalbridge.elasticsearch;
+
+import io.searchbox.action.AbstractMultiIndexActionBuilder;
+import io.searchbox.action.GenericResultAbstractAction;
+
+/**
+ * <p>
+ * IndexSegments class. Reads the Lucene segments of the given indices with <code>GET /{index}/_segments</code>, which
+ * the Jest version in use does not provide.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class IndexSegments extends GenericResultAbstractAction {
+
+  /**
+   * <p>
+   * Constructor for IndexSegments.
+   * </p>
+   *
+   * @param builder a {@link com.digitalbridge.elasticsearch.IndexSegments.Builder} object.
+   */
+  protected IndexSegments(Builder builder) {
+    super(builder);
+    indexName = builder.getJoinedIndices();
+    setURI(buildURI());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getRestMethodName() {
+    return "GET";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String buildURI() {
+    return super.buildURI() + "/_segments";
+  }
+
+  /**
+   * Builder of {@link IndexSegments}, all indices are read if none is added.
+   */
+  public static class Builder extends AbstractMultiIndexActionBuilder<IndexSegments, Builder> {
+
+    /** {@inheritDoc} */
+    @Override
+    public IndexSegments build() {
+      return new IndexSegments(this);
+    }
+  }
+}
@@ -0,0 +1,507 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Get;
+import io.searchbox.core.Index;
+import io.searchbox.indices.Optimize;
+import io.searchbox.indices.Stats;
+
+/**
+ * <p>
+ * MergeScheduler class. Force merges only the indices that need it instead of optimizing everything on a fixed rate.
+ * Every {@code checkIntervalMillis} inside the off-peak window it reads <code>_stats</code> and <code>_segments</code>
+ * of the configured indices and picks the index with the most segments per shard among those that
+ * </p>
+ * <ul>
+ * <li>have more than {@code maxSegmentsPerShard} segments in a shard copy, merged down to {@code targetSegments}, or
+ * more than {@code maxDeletedRatio} deleted documents, whose deletes are expunged,</li>
+ * <li>had no index or delete operation for {@code quietMillis}.</li>
+ * </ul>
+ * <p>
+ * At most one merge runs per cluster: nothing is started while a merge is running on any of the indices, and the
+ * scheduler has to take a lock document in {@code lockIndex} first, so several application instances do not merge
+ * concurrently. The lock is kept for {@code lockTtlMillis} as the merge runs in the background.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class MergeScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MergeScheduler.class);
+
+  private static final Pattern WINDOW = Pattern.compile("(\\d{1,2}):(\\d{2})-(\\d{1,2}):(\\d{2})");
+  private static final String LOCK_TYPE = "lock";
+  private static final String LOCK_ID = "merge";
+  private static final int CONFLICT = 409;
+
+  private final JestClient jestClient;
+  private final List<String> indices;
+  private final String owner;
+
+  private final ConcurrentMap<String, WriteMark> writes = new ConcurrentHashMap<String, WriteMark>();
+
+  private int maxSegmentsPerShard = 20;
+  private double maxDeletedRatio = 0.1;
+  private int targetSegments = 1;
+  private long quietMillis = 30 * 60000;
+  private long checkIntervalMillis = 10 * 60000;
+  private int windowStartMinute = -1;
+  private int windowEndMinute = -1;
+  private TimeZone timeZone = TimeZone.getTimeZone("UTC");
+  private String lockIndex = "digitalbridge-locks";
+  private long lockTtlMillis = 60 * 60000;
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * <p>
+   * Constructor for MergeScheduler.
+   * </p>
+   *
+   * @param jestClient must not be {@literal null}.
+   * @param indices the indices or aliases to keep merged, must not be empty.
+   */
+  public MergeScheduler(JestClient jestClient, List<String> indices) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    Assert.notEmpty(indices, "Indices must not be empty!");
+    this.jestClient = jestClient;
+    this.indices = new ArrayList<String>(indices);
+    this.owner = hostName() + "-" + UUID.randomUUID();
+  }
+
+  /**
+   * Starts checking the indices every {@code checkIntervalMillis}.
+   */
+  public synchronized void start() {
+
+    if (scheduler != null) {
+      return;
+    }
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-merge-scheduler-"));
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          if (isInWindow(currentTimeMillis())) {
+            mergeNext();
+          } else {
+            // keep the write marks current so the first check of the window knows about recent writes
+            readStats();
+          }
+        } catch (RuntimeException e) {
+          LOGGER.warn("Unable to check indices for merging : {}", e.getMessage());
+        }
+      }
+    }, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops checking the indices, a merge already started keeps running in the cluster.
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /**
+   * Starts merging the index most in need of it, regardless of the off-peak window.
+   *
+   * @return the merged index or {@literal null} if no index qualifies, a merge is running or the lock is taken.
+   */
+  public synchronized String mergeNext() {
+
+    long now = currentTimeMillis();
+    JsonObject stats = readStats();
+
+    for (Entry<String, JsonElement> index : stats.getAsJsonObject("indices").entrySet()) {
+      if (getLong(index.getValue(), "total", "merges", "current") > 0) {
+        LOGGER.debug("Not merging, a merge is running on {}", index.getKey());
+        return null;
+      }
+    }
+
+    Candidate candidate = selectCandidate(stats, execute(new IndexSegments.Builder().addIndex(indices).build()), now);
+
+    if (candidate == null) {
+      return null;
+    }
+
+    if (!acquireLock(now)) {
+      LOGGER.debug("Not merging {}, another instance holds the merge lock", candidate.index);
+      return null;
+    }
+
+    Optimize.Builder optimize = new Optimize.Builder().addIndex(candidate.index).waitForMerge(false);
+
+    if (candidate.expungeDeletes) {
+      optimize.onlyExpungeDeletes(true);
+    } else {
+      optimize.maxNumSegments(targetSegments);
+    }
+
+    execute(optimize.build());
+    LOGGER.info("Merging {} : {} segments per shard, {}% deleted documents", candidate.index, candidate.segments,
+        Math.round(candidate.deletedRatio * 100));
+    return candidate.index;
+  }
+
+  /**
+   * Picks the index to merge from the given <code>_stats</code> and <code>_segments</code> responses.
+   *
+   * @param stats a <code>_stats</code> response.
+   * @param segments a <code>_segments</code> response.
+   * @param now the current time.
+   * @return the index with the most segments per shard needing a merge, or {@literal null}.
+   */
+  Candidate selectCandidate(JsonObject stats, JsonObject segments, long now) {
+
+    Candidate selected = null;
+
+    for (Entry<String, JsonElement> index : stats.getAsJsonObject("indices").entrySet()) {
+
+      String name = index.getKey();
+      WriteMark mark = writes.get(name);
+
+      if (mark == null || now - mark.changedAt < quietMillis) {
+        LOGGER.debug("Not merging {}, it was written within the last {} ms", name, quietMillis);
+        continue;
+      }
+
+      long docs = getLong(index.getValue(), "primaries", "docs", "count");
+      long deleted = getLong(index.getValue(), "primaries", "docs", "deleted");
+      double deletedRatio = docs + deleted == 0 ? 0 : (double) deleted / (docs + deleted);
+      int maxSegments = maxShardSegments(segments, name);
+
+      Candidate candidate = null;
+
+      if (maxSegments > maxSegmentsPerShard) {
+        candidate = new Candidate(name, maxSegments, deletedRatio, false);
+      } else if (deletedRatio > maxDeletedRatio) {
+        candidate = new Candidate(name, maxSegments, deletedRatio, true);
+      }
+
+      if (candidate != null && (selected == null || candidate.segments > selected.segments)) {
+        selected = candidate;
+      }
+    }
+
+    return selected;
+  }
+
+  /**
+   * <p>
+   * isInWindow.
+   * </p>
+   *
+   * @param millis a point in time.
+   * @return {@literal true} if no window is configured or the given time lies within it.
+   */
+  boolean isInWindow(long millis) {
+
+    if (windowStartMinute < 0) {
+      return true;
+    }
+
+    Calendar calendar = Calendar.getInstance(timeZone);
+    calendar.setTimeInMillis(millis);
+    int minute = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+
+    if (windowStartMinute <= windowEndMinute) {
+      return minute >= windowStartMinute && minute < windowEndMinute;
+    }
+
+    // the window spans midnight
+    return minute >= windowStartMinute || minute < windowEndMinute;
+  }
+
+  /**
+   * Returns the current time, overridden in tests.
+   *
+   * @return a long.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private JsonObject readStats() {
+
+    long now = currentTimeMillis();
+    JsonObject stats = execute(new Stats.Builder().addIndex(indices).build());
+
+    for (Entry<String, JsonElement> index : stats.getAsJsonObject("indices").entrySet()) {
+
+      long operations = getLong(index.getValue(), "primaries", "indexing", "index_total")
+          + getLong(index.getValue(), "primaries", "indexing", "delete_total");
+      WriteMark mark = writes.get(index.getKey());
+
+      // an index seen for the first time counts as just written
+      if (mark == null || mark.operations != operations) {
+        writes.put(index.getKey(), new WriteMark(operations, now));
+      }
+    }
+
+    return stats;
+  }
+
+  private boolean acquireLock(long now) {
+
+    Map<String, Object> lock = new HashMap<String, Object>(3);
+    lock.put("owner", owner);
+    lock.put("acquiredAt", now);
+    lock.put("expiresAt", now + lockTtlMillis);
+
+    JestResult created = send(new Index.Builder(lock).index(lockIndex).type(LOCK_TYPE).id(LOCK_ID)
+        .setParameter("op_type", "create").build());
+
+    if (created.isSucceeded()) {
+      return true;
+    }
+
+    if (created.getResponseCode() != CONFLICT) {
+      throw new IllegalStateException(created.getErrorMessage());
+    }
+
+    JsonObject current = execute(new Get.Builder(lockIndex, LOCK_ID).type(LOCK_TYPE).build());
+
+    if (getLong(current, "_source", "expiresAt") > now) {
+      return false;
+    }
+
+    // take over the expired lock unless another instance was faster
+    JestResult replaced = send(new Index.Builder(lock).index(lockIndex).type(LOCK_TYPE).id(LOCK_ID)
+        .setParameter("version", current.get("_version").getAsLong()).build());
+    return replaced.isSucceeded();
+  }
+
+  private static int maxShardSegments(JsonObject segments, String index) {
+
+    JsonObject indexSegments = segments.getAsJsonObject("indices").getAsJsonObject(index);
+
+    if (indexSegments == null) {
+      return 0;
+    }
+
+    int max = 0;
+
+    for (Entry<String, JsonElement> shard : indexSegments.getAsJsonObject("shards").entrySet()) {
+      JsonArray copies = shard.getValue().getAsJsonArray();
+      for (JsonElement copy : copies) {
+        max = Math.max(max, (int) getLong(copy, "num_search_segments"));
+      }
+    }
+
+    return max;
+  }
+
+  private static long getLong(JsonElement element, String... path) {
+
+    JsonElement current = element;
+
+    for (String member : path) {
+      if (current == null || !current.isJsonObject()) {
+        return 0;
+      }
+      current = current.getAsJsonObject().get(member);
+    }
+
+    return current == null || current.isJsonNull() ? 0 : current.getAsLong();
+  }
+
+  private JsonObject execute(Action<? extends JestResult> action) {
+
+    JestResult result = send(action);
+
+    if (!result.isSucceeded()) {
+      throw new IllegalStateException(result.getErrorMessage());
+    }
+
+    return result.getJsonObject();
+  }
+
+  private JestResult send(Action<? extends JestResult> action) {
+    try {
+      return jestClient.execute(action);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  private static String hostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "unknown";
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>window</code>.
+   * </p>
+   *
+   * @param window the off-peak window as <code>HH:mm-HH:mm</code>, may span midnight; blank allows merging any time.
+   */
+  public void setWindow(String window) {
+
+    if (window == null || window.trim().length() == 0) {
+      windowStartMinute = -1;
+      windowEndMinute = -1;
+      return;
+    }
+
+    Matcher matcher = WINDOW.matcher(window.trim());
+    Assert.isTrue(matcher.matches(), "Merge window must look like HH:mm-HH:mm!");
+    windowStartMinute = Integer.parseInt(matcher.group(1)) * 60 + Integer.parseInt(matcher.group(2));
+    windowEndMinute = Integer.parseInt(matcher.group(3)) * 60 + Integer.parseInt(matcher.group(4));
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>timeZone</code>.
+   * </p>
+   *
+   * @param timeZone the time zone of the window, e.g. <code>UTC</code>.
+   */
+  public void setTimeZone(String timeZone) {
+    this.timeZone = TimeZone.getTimeZone(timeZone);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxSegmentsPerShard</code>.
+   * </p>
+   *
+   * @param maxSegmentsPerShard an int.
+   */
+  public void setMaxSegmentsPerShard(int maxSegmentsPerShard) {
+    this.maxSegmentsPerShard = maxSegmentsPerShard;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxDeletedRatio</code>.
+   * </p>
+   *
+   * @param maxDeletedRatio deleted documents over all documents, between 0 and 1.
+   */
+  public void setMaxDeletedRatio(double maxDeletedRatio) {
+    this.maxDeletedRatio = maxDeletedRatio;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>targetSegments</code>.
+   * </p>
+   *
+   * @param targetSegments an int.
+   */
+  public void setTargetSegments(int targetSegments) {
+    this.targetSegments = targetSegments;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>quietMillis</code>.
+   * </p>
+   *
+   * @param quietMillis a long.
+   */
+  public void setQuietMillis(long quietMillis) {
+    this.quietMillis = quietMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>checkIntervalMillis</code>.
+   * </p>
+   *
+   * @param checkIntervalMillis a long.
+   */
+  public void setCheckIntervalMillis(long checkIntervalMillis) {
+    this.checkIntervalMillis = checkIntervalMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>lockIndex</code>.
+   * </p>
+   *
+   * @param lockIndex a {@link java.lang.String} object.
+   */
+  public void setLockIndex(String lockIndex) {
+    this.lockIndex = lockIndex;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>lockTtlMillis</code>.
+   * </p>
+   *
+   * @param lockTtlMillis a long, should exceed the longest expected merge.
+   */
+  public void setLockTtlMillis(long lockTtlMillis) {
+    this.lockTtlMillis = lockTtlMillis;
+  }
+
+  static final class Candidate {
+
+    final String index;
+    final int segments;
+    final double deletedRatio;
+    final boolean expungeDeletes;
+
+    Candidate(String index, int segments, double deletedRatio, boolean expungeDeletes) {
+      this.index = index;
+      this.segments = segments;
+      this.deletedRatio = deletedRatio;
+      this.expungeDeletes = expungeDeletes;
+    }
+  }
+
+  private static final class WriteMark {
+
+    private final long operations;
+    private final long changedAt;
+
+    WriteMark(long operations, long changedAt) {
+      this.operations = operations;
+      this.changedAt = changedAt;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.common.joda.time.DateTime;
+import org.elasticsearch.common.joda.time.DateTimeZone;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.range.date.DateRangeBuilder;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.domain.FacetDateRange;
+
+import io.searchbox.core.search.aggregation.DateRangeAggregation;
+
+/**
+ * <p>
+ * MonthBuckets class. Rolling monthly date range facet: everything before the last {@code months} months, one bucket
+ * per month and one for the current month onwards, all in UTC.
+ * </p>
+ * <p>
+ * The buckets only change when a new UTC month starts, so they are computed once per month into an immutable
+ * {@link Snapshot} holding the pre-serialized <code>date_range</code> aggregation and the {@link FacetDateRange} key of
+ * every bucket. Elasticsearch returns range buckets in request order, so results are decoded by bucket index without
+ * parsing any dates. Callers must build the request and decode its response with the same snapshot. A rollover bumps
+ * the {@link IndexGeneration}, if one is set, so that results cached with the buckets of the previous month are stale.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class MonthBuckets {
+
+  private final String name;
+  private final String field;
+  private final int months;
+
+  private volatile Snapshot snapshot;
+  private IndexGeneration indexGeneration;
+
+  /**
+   * <p>
+   * Constructor for MonthBuckets.
+   * </p>
+   *
+   * @param name the aggregation name.
+   * @param field the date field to aggregate.
+   * @param months number of full month buckets before the current month.
+   */
+  public MonthBuckets(String name, String field, int months) {
+
+    Assert.hasText(name, "Name must not be empty!");
+    Assert.hasText(field, "Field must not be empty!");
+    this.name = name;
+    this.field = field;
+    this.months = months;
+  }
+
+  /**
+   * Returns the buckets of the current UTC month, computing them on the first call after a month rollover.
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.MonthBuckets.Snapshot} object.
+   */
+  public Snapshot current() {
+
+    long now = currentTimeMillis();
+    Snapshot current = snapshot;
+
+    if (current == null || now < current.validFrom || now >= current.validUntil) {
+      synchronized (this) {
+        current = snapshot;
+        if (current == null || now < current.validFrom || now >= current.validUntil) {
+          boolean rollover = current != null;
+          current = compute(new DateTime(now, DateTimeZone.UTC));
+          snapshot = current;
+          if (rollover && indexGeneration != null) {
+            indexGeneration.bump();
+          }
+        }
+      }
+    }
+
+    return current;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>indexGeneration</code>.
+   * </p>
+   *
+   * @param indexGeneration bumped on every month rollover, can be {@literal null}.
+   */
+  public void setIndexGeneration(IndexGeneration indexGeneration) {
+    this.indexGeneration = indexGeneration;
+  }
+
+  /**
+   * @return the current time in milliseconds, overridden by tests.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private Snapshot compute(DateTime now) {
+
+    DateTime startMonthDate = now.withDayOfMonth(1).withTimeAtStartOfDay();
+    DateRangeBuilder dateRangeBuilder = AggregationBuilders.dateRange(name).field(field);
+    FacetDateRange[] ranges = new FacetDateRange[months + 2];
+
+    DateTime first = startMonthDate.minusMonths(months);
+    dateRangeBuilder.addUnboundedTo(first);
+    ranges[0] = range(null, first);
+
+    for (int i = months; i > 0; i--) {
+      DateTime from = startMonthDate.minusMonths(i);
+      DateTime to = startMonthDate.minusMonths(i - 1).minusMillis(1);
+      dateRangeBuilder.addRange(from, to);
+      ranges[months - i + 1] = range(from, to);
+    }
+
+    dateRangeBuilder.addUnboundedFrom(startMonthDate);
+    ranges[months + 1] = range(startMonthDate, null);
+
+    String[] keys = new String[ranges.length];
+    for (int i = 0; i < ranges.length; i++) {
+      keys[i] = ranges[i].toString();
+    }
+
+    return new Snapshot(name, serialize(dateRangeBuilder), ranges, keys, startMonthDate.getMillis(),
+        startMonthDate.plusMonths(1).getMillis());
+  }
+
+  private static FacetDateRange range(DateTime from, DateTime to) {
+    FacetDateRange range = new FacetDateRange();
+    range.setStartDate(from);
+    range.setEndDate(to);
+    return range;
+  }
+
+  /**
+   * Serializes the body of the given aggregation, i.e. without its name, into an ordered map. The map is written as is
+   * by {@link Snapshot#aggregation()}, {@code XContentBuilder.rawField} can not be used as it breaks when the
+   * aggregation is the first one of a request.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> serialize(DateRangeBuilder dateRangeBuilder) {
+
+    try {
+      XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+      dateRangeBuilder.toXContent(builder, ToXContent.EMPTY_PARAMS);
+      Map<String, Object> source = XContentHelper.convertToMap(builder.endObject().bytes(), true).v2();
+      return Collections.unmodifiableMap((Map<String, Object>) source.get(name));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to serialize date range aggregation " + name, e);
+    }
+  }
+
+  /**
+   * Immutable month buckets valid for one UTC month.
+   */
+  public static final class Snapshot {
+
+    private final AbstractAggregationBuilder aggregation;
+    private final FacetDateRange[] ranges;
+    private final String[] keys;
+    private final long validFrom;
+    private final long validUntil;
+
+    Snapshot(String name, final Map<String, Object> source, FacetDateRange[] ranges, String[] keys, long validFrom,
+        long validUntil) {
+
+      this.aggregation = new AbstractAggregationBuilder(name, DateRangeAggregation.TYPE) {
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+          return builder.field(this.name).map(source);
+        }
+      };
+      this.ranges = ranges;
+      this.keys = keys;
+      this.validFrom = validFrom;
+      this.validUntil = validUntil;
+    }
+
+    /**
+     * @return the precomputed <code>date_range</code> aggregation, shared between requests.
+     */
+    public AbstractAggregationBuilder aggregation() {
+      return aggregation;
+    }
+
+    /**
+     * @return the ranges of the buckets in request order, must not be modified.
+     */
+    public FacetDateRange[] getRanges() {
+      return ranges;
+    }
+
+    /**
+     * Maps the non empty buckets of the given aggregation to their counts, keyed by
+     * {@link FacetDateRange#toString()}.
+     *
+     * @param aggregation the aggregation returned for {@link #aggregation()}.
+     * @return a {@link java.util.Map} object.
+     */
+    public Map<String, Long> decode(DateRangeAggregation aggregation) {
+
+      if (aggregation == null) {
+        return Collections.emptyMap();
+      }
+
+      List<DateRangeAggregation.DateRange> buckets = aggregation.getBuckets();
+      Assert.isTrue(buckets.size() == keys.length, "Expected " + keys.length + " date range buckets but got "
+          + buckets.size());
+
+      Map<String, Long> counts = new LinkedHashMap<String, Long>(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        long count = buckets.get(i).getCount();
+        if (count > 0) {
+          counts.put(keys[i], count);
+        }
+      }
+      return counts;
+    }
+  }
+}
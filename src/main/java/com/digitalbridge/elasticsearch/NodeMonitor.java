@@ -0,0 +1,255 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * <p>
+ * NodeMonitor class. Keeps a {@link NodeSelector} up to date: every {@code discoveryIntervalMillis} the HTTP enabled
+ * data nodes are read from <code>_nodes/http</code> of a node in rotation, and every {@code probeIntervalMillis} the
+ * nodes out of rotation are probed with a <code>GET /</code> and put back into rotation when they answer.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class NodeMonitor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NodeMonitor.class);
+
+  private static final Pattern ADDRESS = Pattern.compile("inet\\[[^/]*/([^\\]]+)\\]");
+
+  private final NodeSelector nodeSelector;
+  private final CloseableHttpClient httpClient;
+
+  private CredentialProvider credentialProvider;
+  private long discoveryIntervalMillis = 60000;
+  private long probeIntervalMillis = 5000;
+  private int probeTimeoutMillis = 1000;
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * <p>
+   * Constructor for NodeMonitor.
+   * </p>
+   *
+   * @param nodeSelector must not be {@literal null}.
+   * @param httpClient must not be {@literal null}.
+   */
+  public NodeMonitor(NodeSelector nodeSelector, CloseableHttpClient httpClient) {
+
+    Assert.notNull(nodeSelector, "NodeSelector must not be null!");
+    Assert.notNull(httpClient, "HttpClient must not be null!");
+    this.nodeSelector = nodeSelector;
+    this.httpClient = httpClient;
+  }
+
+  /**
+   * Starts discovery and probing; a discovery interval of {@code 0} only probes the configured nodes.
+   */
+  public synchronized void start() {
+
+    if (scheduler != null) {
+      return;
+    }
+
+    scheduler = Executors.newScheduledThreadPool(1, new CustomizableThreadFactory("es-node-monitor-"));
+
+    if (discoveryIntervalMillis > 0) {
+      scheduler.scheduleWithFixedDelay(new Runnable() {
+
+        @Override
+        public void run() {
+          discover();
+        }
+      }, 0, discoveryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        probe();
+      }
+    }, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops discovery and probing.
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /**
+   * Reads the HTTP enabled data nodes from the cluster and hands them to the selector.
+   */
+  public void discover() {
+
+    String node = nodeSelector.next();
+
+    try {
+      String body = get(node + "/_nodes/http", 0);
+      if (body != null) {
+        List<String> discovered = parseNodes(body);
+        if (!discovered.isEmpty()) {
+          nodeSelector.updateNodes(discovered);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to discover Elasticsearch nodes from {} : {}", node, e.getMessage());
+      nodeSelector.onFailure(node);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Unable to read Elasticsearch nodes from {} : {}", node, e.getMessage());
+    }
+  }
+
+  /**
+   * Probes the nodes out of rotation and closes the breaker of every node answering.
+   */
+  public void probe() {
+
+    for (String node : nodeSelector.getOpenNodes()) {
+      try {
+        if (get(node + "/", probeTimeoutMillis) != null) {
+          nodeSelector.close(node);
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Elasticsearch node {} still unreachable : {}", node, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Extracts the URLs of the HTTP enabled nodes holding data from a <code>_nodes/http</code> response.
+   *
+   * @param body the response body.
+   * @return a {@link java.util.List} object.
+   */
+  static List<String> parseNodes(String body) {
+
+    JsonObject nodes = new JsonParser().parse(body).getAsJsonObject().getAsJsonObject("nodes");
+    List<String> urls = new ArrayList<String>();
+
+    for (Entry<String, JsonElement> entry : nodes.entrySet()) {
+
+      JsonObject node = entry.getValue().getAsJsonObject();
+      JsonObject attributes = node.getAsJsonObject("attributes");
+
+      if (attributes != null
+          && ("false".equals(string(attributes, "data")) || "true".equals(string(attributes, "client")))) {
+        continue;
+      }
+
+      String address = string(node, "http_address");
+      Matcher matcher = address == null ? null : ADDRESS.matcher(address);
+
+      if (matcher != null && matcher.matches()) {
+        urls.add("http://" + matcher.group(1));
+      }
+    }
+
+    return urls;
+  }
+
+  private static String string(JsonObject object, String member) {
+    JsonElement element = object.get(member);
+    return element == null || element.isJsonNull() ? null : element.getAsString();
+  }
+
+  /**
+   * @return the body of a successful response or {@literal null}.
+   */
+  private String get(String url, int timeoutMillis) throws IOException {
+
+    HttpGet get = new HttpGet(url);
+
+    if (timeoutMillis > 0) {
+      get.setConfig(RequestConfig.custom().setConnectTimeout(timeoutMillis).setSocketTimeout(timeoutMillis).build());
+    }
+
+    Header authorization = credentialProvider == null ? null : credentialProvider.getAuthorizationHeader();
+    if (authorization != null) {
+      get.addHeader(authorization);
+    }
+
+    CloseableHttpResponse response = httpClient.execute(get);
+
+    try {
+      String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+      return response.getStatusLine().getStatusCode() < 300 ? body : null;
+    } finally {
+      response.close();
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>credentialProvider</code>.
+   * </p>
+   *
+   * @param credentialProvider a {@link com.digitalbridge.elasticsearch.CredentialProvider} object.
+   */
+  public void setCredentialProvider(CredentialProvider credentialProvider) {
+    this.credentialProvider = credentialProvider;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>discoveryIntervalMillis</code>.
+   * </p>
+   *
+   * @param discoveryIntervalMillis a long, {@code 0} disables discovery.
+   */
+  public void setDiscoveryIntervalMillis(long discoveryIntervalMillis) {
+    this.discoveryIntervalMillis = discoveryIntervalMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>probeIntervalMillis</code>.
+   * </p>
+   *
+   * @param probeIntervalMillis a long.
+   */
+  public void setProbeIntervalMillis(long probeIntervalMillis) {
+    this.probeIntervalMillis = probeIntervalMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>probeTimeoutMillis</code>.
+   * </p>
+   *
+   * @param probeTimeoutMillis a int.
+   */
+  public void setProbeTimeoutMillis(int probeTimeoutMillis) {
+    this.probeTimeoutMillis = probeTimeoutMillis;
+  }
+}
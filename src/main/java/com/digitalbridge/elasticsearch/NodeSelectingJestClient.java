@@ -0,0 +1,192 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.client.http.JestHttpClient;
+import io.searchbox.core.Count;
+import io.searchbox.core.Get;
+import io.searchbox.core.MultiGet;
+import io.searchbox.core.MultiSearch;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchScroll;
+
+/**
+ * <p>
+ * NodeSelectingJestClient class. {@link io.searchbox.client.http.JestHttpClient} sending every request to the node
+ * chosen by a {@link NodeSelector} and reporting the outcome back to it.
+ * </p>
+ * <p>
+ * A blocking request failing before the node received it (connection refused or connect timeout) is
+ * retried on the next node, at most once per known node. Other I/O errors, e.g. read timeouts, are not retried as the
+ * node may have applied the request. Asynchronous requests are balanced and reported but never retried.
+ * </p>
+ * <p>
+ * A 5xx answer counts as a failure of the node. Only searches and gets are timed against the slow call limit of the
+ * {@link NodeSelector}; bulks, health waits and admin actions may legitimately take longer.
+ * </p>
+ * <p>
+ * Every request not carrying its own <code>Authorization</code> header gets the default one of the
+ * {@link CredentialProvider}, so actions are built without headers.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class NodeSelectingJestClient extends JestHttpClient {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NodeSelectingJestClient.class);
+
+  private final NodeSelector nodeSelector;
+
+  private final ThreadLocal<String> selectedNode = new ThreadLocal<String>();
+
+  private CredentialProvider credentialProvider;
+
+  /**
+   * <p>
+   * Constructor for NodeSelectingJestClient.
+   * </p>
+   *
+   * @param nodeSelector must not be {@literal null}.
+   */
+  public NodeSelectingJestClient(NodeSelector nodeSelector) {
+
+    Assert.notNull(nodeSelector, "NodeSelector must not be null!");
+    this.nodeSelector = nodeSelector;
+  }
+
+  @Override
+  public <T extends JestResult> T execute(Action<T> action) throws IOException {
+
+    List<String> nodes = nodeSelector.getNodes();
+    IOException failure = null;
+
+    for (int attempt = 0; attempt < nodes.size(); attempt++) {
+
+      String node = nodeSelector.next();
+      long started = System.currentTimeMillis();
+      selectedNode.set(node);
+
+      try {
+        T result = super.execute(action);
+        record(node, action, result, System.currentTimeMillis() - started);
+        return result;
+      } catch (IOException e) {
+        nodeSelector.onFailure(node);
+        if (!isUnsent(e)) {
+          throw e;
+        }
+        LOGGER.warn("Elasticsearch node {} unreachable, trying next node : {}", node, e.getMessage());
+        failure = e;
+      } finally {
+        selectedNode.remove();
+      }
+    }
+
+    throw failure;
+  }
+
+  @Override
+  public <T extends JestResult> void executeAsync(final Action<T> action, final JestResultHandler<? super T> handler) {
+
+    final String node = nodeSelector.next();
+    final long started = System.currentTimeMillis();
+    selectedNode.set(node);
+
+    try {
+      super.executeAsync(action, new JestResultHandler<T>() {
+
+        @Override
+        public void completed(T result) {
+          record(node, action, result, System.currentTimeMillis() - started);
+          handler.completed(result);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+          nodeSelector.onFailure(node);
+          handler.failed(ex);
+        }
+      });
+    } finally {
+      selectedNode.remove();
+    }
+  }
+
+  private void record(String node, Action<?> action, JestResult result, long tookMillis) {
+
+    if (result != null && result.getResponseCode() >= 500) {
+      LOGGER.warn("Elasticsearch node {} answered {} : {}", node, result.getResponseCode(), result.getErrorMessage());
+      nodeSelector.onFailure(node);
+    } else if (isTimed(action)) {
+      nodeSelector.onSuccess(node, tookMillis);
+    } else {
+      nodeSelector.onSuccess(node);
+    }
+  }
+
+  private static boolean isTimed(Action<?> action) {
+    return action instanceof Search || action instanceof SearchScroll || action instanceof MultiSearch
+        || action instanceof Count || action instanceof Get || action instanceof MultiGet;
+  }
+
+  @Override
+  protected <T extends JestResult> HttpUriRequest prepareRequest(Action<T> action) {
+
+    HttpUriRequest request = super.prepareRequest(action);
+    Header authorization = credentialProvider == null ? null : credentialProvider.getAuthorizationHeader();
+
+    if (authorization != null && !request.containsHeader(CredentialProvider.AUTHORIZATION)) {
+      request.addHeader(authorization);
+    }
+
+    return request;
+  }
+
+  /**
+   * Returns the node selected for the current request; called by {@code prepareRequest}.
+   */
+  @Override
+  protected String getNextServer() {
+    String node = selectedNode.get();
+    return node != null ? node : nodeSelector.next();
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>nodeSelector</code>.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.elasticsearch.NodeSelector} object.
+   */
+  public NodeSelector getNodeSelector() {
+    return nodeSelector;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>credentialProvider</code>.
+   * </p>
+   *
+   * @param credentialProvider a {@link com.digitalbridge.elasticsearch.CredentialProvider} object.
+   */
+  public void setCredentialProvider(CredentialProvider credentialProvider) {
+    this.credentialProvider = credentialProvider;
+  }
+
+  private static boolean isUnsent(IOException e) {
+    return e instanceof ConnectException || e instanceof ConnectTimeoutException;
+  }
+}
@@ -0,0 +1,274 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * <p>
+ * NodeSelector class. Round-robin over the known Elasticsearch nodes, skipping nodes whose circuit breaker is open. A
+ * breaker opens after {@code failureThreshold} consecutive failed calls, or slow calls (slower than
+ * {@code slowCallMillis}) reported through {@link #onSuccess(String, long)}, and is only closed again by a successful
+ * health probe, see {@link NodeMonitor}. If every breaker is open the node
+ * open the longest is returned, so requests fail fast against the cluster instead of not being sent at all.
+ * </p>
+ * <p>
+ * The node list starts with the configured seed nodes and is replaced by {@link #updateNodes(Collection)} after a
+ * discovery; nodes keep their breaker state across updates. Instances are thread safe.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class NodeSelector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NodeSelector.class);
+
+  private final Set<String> seeds;
+  private final AtomicInteger cursor = new AtomicInteger();
+
+  private volatile List<Node> nodes;
+
+  private volatile int failureThreshold = 3;
+  private volatile long slowCallMillis = 5000;
+
+  /**
+   * <p>
+   * Constructor for NodeSelector.
+   * </p>
+   *
+   * @param seeds the configured node URLs, must not be empty.
+   */
+  public NodeSelector(Collection<String> seeds) {
+
+    Assert.notEmpty(seeds, "Seed nodes must not be empty!");
+    this.seeds = Collections.unmodifiableSet(new LinkedHashSet<String>(seeds));
+
+    List<Node> initial = new ArrayList<Node>(seeds.size());
+    for (String seed : this.seeds) {
+      initial.add(new Node(seed));
+    }
+    this.nodes = Collections.unmodifiableList(initial);
+  }
+
+  /**
+   * Returns the next node to send a request to.
+   *
+   * @return the node URL.
+   */
+  public String next() {
+
+    List<Node> current = nodes;
+    int start = cursor.getAndIncrement() & Integer.MAX_VALUE;
+    Node fallback = null;
+
+    for (int i = 0; i < current.size(); i++) {
+
+      Node node = current.get((start + i) % current.size());
+
+      if (!node.open) {
+        return node.url;
+      }
+
+      if (fallback == null || node.openedAt < fallback.openedAt) {
+        fallback = node;
+      }
+    }
+
+    return fallback.url;
+  }
+
+  /**
+   * Records a call answered by the given node, whatever it took.
+   *
+   * @param url the node URL.
+   */
+  public void onSuccess(String url) {
+
+    Node node = find(url);
+
+    if (node != null) {
+      node.failures.set(0);
+    }
+  }
+
+  /**
+   * Records a latency sensitive call answered by the given node; a call slower than {@code slowCallMillis} counts as
+   * failed.
+   *
+   * @param url the node URL.
+   * @param tookMillis the duration of the call.
+   */
+  public void onSuccess(String url, long tookMillis) {
+
+    Node node = find(url);
+
+    if (node == null) {
+      return;
+    }
+
+    if (tookMillis > slowCallMillis) {
+      LOGGER.warn("Elasticsearch node {} took {} ms", url, tookMillis);
+      onFailure(node);
+    } else {
+      node.failures.set(0);
+    }
+  }
+
+  /**
+   * Records a call the given node failed to answer.
+   *
+   * @param url the node URL.
+   */
+  public void onFailure(String url) {
+
+    Node node = find(url);
+
+    if (node != null) {
+      onFailure(node);
+    }
+  }
+
+  private void onFailure(Node node) {
+
+    if (node.failures.incrementAndGet() >= failureThreshold && !node.open) {
+      synchronized (node) {
+        if (!node.open) {
+          node.openedAt = System.currentTimeMillis();
+          node.open = true;
+          LOGGER.warn("Taking Elasticsearch node {} out of rotation after {} failures", node.url, node.failures.get());
+        }
+      }
+    }
+  }
+
+  /**
+   * Puts the given node back into rotation after a successful health probe.
+   *
+   * @param url the node URL.
+   */
+  public void close(String url) {
+
+    Node node = find(url);
+
+    if (node != null && node.open) {
+      synchronized (node) {
+        node.failures.set(0);
+        node.open = false;
+        LOGGER.info("Elasticsearch node {} is back in rotation", url);
+      }
+    }
+  }
+
+  /**
+   * Replaces the nodes with the given discovered nodes. The seed nodes are kept if nothing was discovered.
+   *
+   * @param urls the discovered node URLs.
+   */
+  public synchronized void updateNodes(Collection<String> urls) {
+
+    Set<String> wanted = new LinkedHashSet<String>(urls.isEmpty() ? seeds : urls);
+    Map<String, Node> existing = new LinkedHashMap<String, Node>();
+    for (Node node : nodes) {
+      existing.put(node.url, node);
+    }
+
+    if (existing.keySet().equals(wanted)) {
+      return;
+    }
+
+    List<Node> updated = new ArrayList<Node>(wanted.size());
+    for (String url : wanted) {
+      Node node = existing.get(url);
+      updated.add(node == null ? new Node(url) : node);
+    }
+
+    LOGGER.info("Elasticsearch nodes changed from {} to {}", existing.keySet(), wanted);
+    nodes = Collections.unmodifiableList(updated);
+  }
+
+  /**
+   * <p>
+   * getNodes.
+   * </p>
+   *
+   * @return all known node URLs.
+   */
+  public List<String> getNodes() {
+    List<String> urls = new ArrayList<String>();
+    for (Node node : nodes) {
+      urls.add(node.url);
+    }
+    return urls;
+  }
+
+  /**
+   * <p>
+   * getOpenNodes.
+   * </p>
+   *
+   * @return the URLs of the nodes out of rotation.
+   */
+  public List<String> getOpenNodes() {
+    List<String> urls = new ArrayList<String>();
+    for (Node node : nodes) {
+      if (node.open) {
+        urls.add(node.url);
+      }
+    }
+    return urls;
+  }
+
+  private Node find(String url) {
+    for (Node node : nodes) {
+      if (node.url.equals(url)) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>failureThreshold</code>.
+   * </p>
+   *
+   * @param failureThreshold consecutive failures opening the breaker of a node.
+   */
+  public void setFailureThreshold(int failureThreshold) {
+    this.failureThreshold = failureThreshold;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>slowCallMillis</code>.
+   * </p>
+   *
+   * @param slowCallMillis calls taking longer count as failures.
+   */
+  public void setSlowCallMillis(long slowCallMillis) {
+    this.slowCallMillis = slowCallMillis;
+  }
+
+  private static final class Node {
+
+    private final String url;
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    Node(String url) {
+      this.url = url;
+    }
+  }
+}
@@ -0,0 +1,471 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.digitalbridge.exception.DigitalBridgeExceptionBean;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.action.Action;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Count;
+import io.searchbox.core.DocumentResult;
+import io.searchbox.core.Index;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchScroll;
+import io.searchbox.params.Parameters;
+import io.searchbox.params.SearchType;
+
+/**
+ * <p>
+ * ReindexEngine class. Copies all documents of one index into another with reading and writing running in parallel.
+ * </p>
+ * <p>
+ * The source index is partitioned by shard: every shard is a slice scanned by its own scroll using the
+ * <code>_shards:n</code> search preference, with up to {@code readers} slices read concurrently. Readers pass every
+ * source through the configured {@link com.digitalbridge.elasticsearch.DocumentTransformer}s and put bulk sized
+ * batches of index actions on a bounded queue, which blocks them while the {@code writers} are behind. Writers send
+ * the batches through a {@link com.digitalbridge.elasticsearch.BulkSender}, retrying on 429 and 503. Progress is
+ * logged with docs/sec and ETA every {@code progressIntervalMillis}, and every slice is checked to have written as many
+ * documents as its scan reported.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class ReindexEngine {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReindexEngine.class);
+
+  private static final String SCROLL = "5m";
+  private static final String MATCH_ALL = "{\"query\":{\"match_all\":{}}}";
+
+  private static final Batch POISON = new Batch(null, Collections.<BulkableAction<DocumentResult>> emptyList());
+
+  private final JestClient jestClient;
+
+  private List<DocumentTransformer> transformers = Collections.emptyList();
+  private IndexGeneration indexGeneration;
+
+  private int readers;
+  private int writers = 2;
+  private int pageSize = 500;
+  private long maxBulkBytes = 5L * 1024 * 1024;
+  private int queueCapacity = 8;
+  private long progressIntervalMillis = 5000;
+  private long initialBackoffMillis = 100;
+  private long maxBackoffMillis = 30000;
+
+  /**
+   * <p>
+   * Constructor for ReindexEngine.
+   * </p>
+   *
+   * @param jestClient must not be {@literal null}.
+   */
+  public ReindexEngine(JestClient jestClient) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    this.jestClient = jestClient;
+  }
+
+  /**
+   * Copies all documents of the given type from one index into another.
+   *
+   * @param fromIndex the index to read.
+   * @param type the type to copy.
+   * @param toIndex the index to write.
+   * @return a {@link com.digitalbridge.elasticsearch.ReindexReport} object.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if the source index can not be read or the run was
+   *           interrupted.
+   */
+  public ReindexReport reindex(String fromIndex, String type, String toIndex) throws DigitalBridgeException {
+
+    long started = System.currentTimeMillis();
+
+    JsonObject count;
+
+    try {
+      count = execute(new Count.Builder().addIndex(fromIndex).addType(type).query(MATCH_ALL).build()).getJsonObject();
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to count documents of {} : {}", fromIndex, e.getMessage());
+      throw failure("Unable to read " + fromIndex);
+    }
+
+    int shards = count.getAsJsonObject("_shards").get("total").getAsInt();
+    long total = count.get("count").getAsLong();
+    int readerCount = readers <= 0 ? shards : Math.min(readers, shards);
+
+    LOGGER.info("Reindexing {} documents from {} to {} with {} readers over {} slices and {} writers", total,
+        fromIndex, toIndex, readerCount, shards, writers);
+
+    ReindexReport report = new ReindexReport(shards);
+    BulkSender bulkSender = new BulkSender(jestClient);
+    bulkSender.setIndexGeneration(indexGeneration);
+    bulkSender.setInitialBackoffMillis(initialBackoffMillis);
+    bulkSender.setMaxBackoffMillis(maxBackoffMillis);
+
+    BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(queueCapacity);
+    ExecutorService readerPool = Executors.newFixedThreadPool(readerCount,
+        new CustomizableThreadFactory("reindex-reader-"));
+    ExecutorService writerPool = Executors.newFixedThreadPool(writers,
+        new CustomizableThreadFactory("reindex-writer-"));
+    ScheduledExecutorService progressPool = Executors
+        .newSingleThreadScheduledExecutor(new CustomizableThreadFactory("reindex-progress-"));
+
+    try {
+
+      for (int i = 0; i < writers; i++) {
+        writerPool.execute(new Writer(queue, bulkSender));
+      }
+
+      List<Future<?>> reads = new ArrayList<Future<?>>(shards);
+
+      for (ReindexReport.Slice slice : report.getSlices()) {
+        reads.add(readerPool.submit(new Reader(slice, fromIndex, type, toIndex, queue)));
+      }
+
+      progressPool.scheduleAtFixedRate(new ProgressReporter(report, total, started), progressIntervalMillis,
+          progressIntervalMillis, TimeUnit.MILLISECONDS);
+
+      for (int i = 0; i < reads.size(); i++) {
+        try {
+          reads.get(i).get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Reading slice {} of {} failed : {}", i, fromIndex, e.getCause().getMessage());
+        }
+      }
+
+      for (int i = 0; i < writers; i++) {
+        queue.put(POISON);
+      }
+
+      writerPool.shutdown();
+      writerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failure("Reindex of " + fromIndex + " interrupted");
+    } finally {
+      readerPool.shutdownNow();
+      writerPool.shutdownNow();
+      progressPool.shutdownNow();
+    }
+
+    report.setElapsedMillis(System.currentTimeMillis() - started);
+
+    if (report.isComplete()) {
+      LOGGER.info("Reindexed {} documents in {} ms, {} docs/sec", report.getWritten(), report.getElapsedMillis(),
+          (long) report.getDocsPerSecond());
+    } else {
+      LOGGER.error("Reindex of {} to {} is incomplete : {}", fromIndex, toIndex, report);
+    }
+
+    return report;
+  }
+
+  private JestResult execute(Action<? extends JestResult> action) {
+
+    JestResult result;
+
+    try {
+      result = jestClient.execute(action);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+
+    if (!result.isSucceeded()) {
+      throw new IllegalStateException(result.getErrorMessage());
+    }
+
+    return result;
+  }
+
+  private static DigitalBridgeException failure(String message) {
+    DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+    bean.setFaultCode("1013");
+    bean.setFaultString(message);
+    return new DigitalBridgeException(bean);
+  }
+
+  private final class Reader implements Runnable {
+
+    private final ReindexReport.Slice slice;
+    private final String fromIndex;
+    private final String type;
+    private final String toIndex;
+    private final BlockingQueue<Batch> queue;
+
+    Reader(ReindexReport.Slice slice, String fromIndex, String type, String toIndex, BlockingQueue<Batch> queue) {
+      this.slice = slice;
+      this.fromIndex = fromIndex;
+      this.type = type;
+      this.toIndex = toIndex;
+      this.queue = queue;
+    }
+
+    @Override
+    public void run() {
+
+      Search search = new Search.Builder(MATCH_ALL).addIndex(fromIndex).addType(type)
+          .setParameter(Parameters.SEARCH_TYPE, SearchType.SCAN).setParameter(Parameters.SIZE, pageSize)
+          .setParameter(Parameters.SCROLL, SCROLL).setParameter("preference", "_shards:" + slice.getShard())
+          .build();
+      JsonObject result = execute(search).getJsonObject();
+
+      slice.setExpected(result.getAsJsonObject("hits").get("total").getAsLong());
+      String scrollId = result.get("_scroll_id").getAsString();
+
+      try {
+        while (true) {
+
+          result = execute(new SearchScroll.Builder(scrollId, SCROLL).build()).getJsonObject();
+          JsonArray hits = result.getAsJsonObject("hits").getAsJsonArray("hits");
+
+          if (hits.size() == 0) {
+            return;
+          }
+
+          scrollId = result.get("_scroll_id").getAsString();
+          slice.addRead(hits.size());
+          enqueue(hits);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void enqueue(JsonArray hits) throws InterruptedException {
+
+      List<BulkableAction<DocumentResult>> actions = new ArrayList<BulkableAction<DocumentResult>>();
+      long bytes = 0;
+
+      for (JsonElement hit : hits) {
+
+        JsonObject hitValue = hit.getAsJsonObject();
+        JsonObject source = hitValue.getAsJsonObject("_source");
+        for (DocumentTransformer transformer : transformers) {
+          transformer.transform(source);
+        }
+
+        long sourceBytes = source.toString().length();
+
+        if (!actions.isEmpty() && bytes + sourceBytes > maxBulkBytes) {
+          queue.put(new Batch(slice, actions));
+          actions = new ArrayList<BulkableAction<DocumentResult>>();
+          bytes = 0;
+        }
+
+        actions.add(new Index.Builder(source).index(toIndex).type(type).id(hitValue.get("_id").getAsString())
+            .build());
+        bytes += sourceBytes;
+      }
+
+      if (!actions.isEmpty()) {
+        queue.put(new Batch(slice, actions));
+      }
+    }
+  }
+
+  private static final class Writer implements Runnable {
+
+    private final BlockingQueue<Batch> queue;
+    private final BulkSender bulkSender;
+
+    Writer(BlockingQueue<Batch> queue, BulkSender bulkSender) {
+      this.queue = queue;
+      this.bulkSender = bulkSender;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+
+          Batch batch = queue.take();
+
+          if (batch == POISON) {
+            return;
+          }
+
+          try {
+            BulkSender.Result result = bulkSender.send(batch.actions);
+            batch.slice.addWritten(result.getIndexed());
+            batch.slice.addFailed(result.getFailed());
+          } catch (RuntimeException e) {
+            LOGGER.error("Bulk write for slice {} failed : {}", batch.slice.getShard(), e.getMessage());
+            batch.slice.addFailed(batch.actions.size());
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static final class ProgressReporter implements Runnable {
+
+    private final ReindexReport report;
+    private final long total;
+    private final long started;
+
+    ProgressReporter(ReindexReport report, long total, long started) {
+      this.report = report;
+      this.total = total;
+      this.started = started;
+    }
+
+    @Override
+    public void run() {
+
+      long written = report.getWritten();
+      long elapsed = Math.max(1, System.currentTimeMillis() - started);
+      double docsPerSecond = written * 1000d / elapsed;
+      long etaSeconds = docsPerSecond > 0 ? (long) ((total - written) / docsPerSecond) : -1;
+
+      LOGGER.info("Reindexed {} of {} documents, {} docs/sec, ETA {} s", written, total, (long) docsPerSecond,
+          etaSeconds);
+    }
+  }
+
+  private static final class Batch {
+
+    private final ReindexReport.Slice slice;
+    private final List<BulkableAction<DocumentResult>> actions;
+
+    Batch(ReindexReport.Slice slice, List<BulkableAction<DocumentResult>> actions) {
+      this.slice = slice;
+      this.actions = actions;
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>transformers</code>.
+   * </p>
+   *
+   * @param transformers applied in order to every copied source.
+   */
+  public void setTransformers(List<DocumentTransformer> transformers) {
+    this.transformers = transformers;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>indexGeneration</code>.
+   * </p>
+   *
+   * @param indexGeneration bumped by every bulk write of a run, can be {@literal null}.
+   */
+  public void setIndexGeneration(IndexGeneration indexGeneration) {
+    this.indexGeneration = indexGeneration;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>readers</code>.
+   * </p>
+   *
+   * @param readers number of concurrent scroll readers, {@code 0} for one per shard.
+   */
+  public void setReaders(int readers) {
+    this.readers = readers;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>writers</code>.
+   * </p>
+   *
+   * @param writers number of concurrent bulk writers.
+   */
+  public void setWriters(int writers) {
+    this.writers = writers;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>pageSize</code>.
+   * </p>
+   *
+   * @param pageSize number of documents per shard and scroll page.
+   */
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBulkBytes</code>.
+   * </p>
+   *
+   * @param maxBulkBytes maximum size of the sources of one bulk request.
+   */
+  public void setMaxBulkBytes(long maxBulkBytes) {
+    this.maxBulkBytes = maxBulkBytes;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>queueCapacity</code>.
+   * </p>
+   *
+   * @param queueCapacity number of bulk batches buffered between readers and writers.
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>progressIntervalMillis</code>.
+   * </p>
+   *
+   * @param progressIntervalMillis a long.
+   */
+  public void setProgressIntervalMillis(long progressIntervalMillis) {
+    this.progressIntervalMillis = progressIntervalMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>initialBackoffMillis</code>.
+   * </p>
+   *
+   * @param initialBackoffMillis a long.
+   */
+  public void setInitialBackoffMillis(long initialBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBackoffMillis</code>.
+   * </p>
+   *
+   * @param maxBackoffMillis a long.
+   */
+  public void setMaxBackoffMillis(long maxBackoffMillis) {
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+}
@@ -0,0 +1,192 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * ReindexReport class. Per slice document counts of a {@link com.digitalbridge.elasticsearch.ReindexEngine} run; a run
+ * is complete when every slice wrote as many documents as its scan reported.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class ReindexReport {
+
+  private final List<Slice> slices;
+  private long elapsedMillis;
+
+  ReindexReport(int sliceCount) {
+
+    List<Slice> list = new ArrayList<Slice>(sliceCount);
+
+    for (int i = 0; i < sliceCount; i++) {
+      list.add(new Slice(i));
+    }
+
+    this.slices = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>slices</code>.
+   * </p>
+   *
+   * @return a {@link java.util.List} object.
+   */
+  public List<Slice> getSlices() {
+    return slices;
+  }
+
+  /**
+   * <p>
+   * isComplete.
+   * </p>
+   *
+   * @return {@literal true} if every slice passed its count check.
+   */
+  public boolean isComplete() {
+
+    for (Slice slice : slices) {
+      if (!slice.isComplete()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * <p>
+   * getWritten.
+   * </p>
+   *
+   * @return the number of documents written over all slices.
+   */
+  public long getWritten() {
+
+    long written = 0;
+
+    for (Slice slice : slices) {
+      written += slice.getWritten();
+    }
+
+    return written;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>elapsedMillis</code>.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * <p>
+   * getDocsPerSecond.
+   * </p>
+   *
+   * @return the average write rate of the run.
+   */
+  public double getDocsPerSecond() {
+    return elapsedMillis == 0 ? 0 : getWritten() * 1000d / elapsedMillis;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return "ReindexReport [written=" + getWritten() + ", elapsedMillis=" + elapsedMillis + ", slices=" + slices + "]";
+  }
+
+  /**
+   * Counts of a single slice, i.e. one shard of the source index.
+   */
+  public static final class Slice {
+
+    private final int shard;
+    private volatile long expected = -1;
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    Slice(int shard) {
+      this.shard = shard;
+    }
+
+    /**
+     * @return the shard number.
+     */
+    public int getShard() {
+      return shard;
+    }
+
+    /**
+     * @return the number of documents the scan of the shard reported, {@code -1} if the scan did not start.
+     */
+    public long getExpected() {
+      return expected;
+    }
+
+    void setExpected(long expected) {
+      this.expected = expected;
+    }
+
+    /**
+     * @return the number of documents read from the shard.
+     */
+    public long getRead() {
+      return read.get();
+    }
+
+    void addRead(long count) {
+      read.addAndGet(count);
+    }
+
+    /**
+     * @return the number of documents written to the target index.
+     */
+    public long getWritten() {
+      return written.get();
+    }
+
+    void addWritten(long count) {
+      written.addAndGet(count);
+    }
+
+    /**
+     * @return the number of documents rejected by the target index.
+     */
+    public long getFailed() {
+      return failed.get();
+    }
+
+    void addFailed(long count) {
+      failed.addAndGet(count);
+    }
+
+    /**
+     * @return {@literal true} if all expected documents were read and written.
+     */
+    public boolean isComplete() {
+      return expected >= 0 && read.get() == expected && written.get() == expected;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return "[shard=" + shard + ", expected=" + expected + ", read=" + read + ", written=" + written + ", failed="
+          + failed + "]";
+    }
+  }
+}
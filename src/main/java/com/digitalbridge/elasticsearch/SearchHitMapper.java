@@ -0,0 +1,195 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.elasticsearch.common.joda.time.format.DateTimeFormatter;
+import org.elasticsearch.common.joda.time.format.ISODateTimeFormat;
+import org.springframework.data.mapping.Association;
+import org.springframework.data.mapping.AssociationHandler;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.util.ClassTypeInformation;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.domain.geo.GeoJsonPoint;
+import com.digitalbridge.mongodb.convert.CustomMappingMongoConverter;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * <p>
+ * SearchHitMapper class. Reads entities straight from the <code>_source</code> of search hits with the
+ * {@link com.digitalbridge.mongodb.convert.CustomMappingMongoConverter}, so search results need no second round trip
+ * to Mongo.
+ * </p>
+ * <p>
+ * The source is turned into the {@link com.mongodb.DBObject} the converter expects, guided by the mapping metadata:
+ * date strings become {@link java.util.Date}s, <code>geo_point</code> objects become GeoJSON points again and
+ * embedded documents are read in place of the {@link com.mongodb.DBRef}s they were denormalized from.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class SearchHitMapper {
+
+  private static final DateTimeFormatter DATE_PARSER = ISODateTimeFormat.dateTimeParser().withZoneUTC();
+
+  private final CustomMappingMongoConverter converter;
+  private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext;
+  private final Map<Class<?>, Map<String, MongoPersistentProperty>> fieldsByType = new ConcurrentHashMap<Class<?>, Map<String, MongoPersistentProperty>>();
+
+  /**
+   * <p>
+   * Constructor for SearchHitMapper.
+   * </p>
+   *
+   * @param converter must not be {@literal null}.
+   */
+  public SearchHitMapper(CustomMappingMongoConverter converter) {
+
+    Assert.notNull(converter, "Converter must not be null!");
+
+    this.converter = converter;
+    this.mappingContext = converter.getMappingContext();
+  }
+
+  /**
+   * Reads the given search hit into an instance of the given type.
+   *
+   * @param type must not be {@literal null}.
+   * @param hit a search hit carrying <code>_id</code> and <code>_source</code>.
+   * @param <T> the entity type.
+   * @return the entity or {@literal null} if the hit has no source.
+   */
+  public <T> T map(Class<T> type, JsonObject hit) {
+
+    JsonObject source = hit.getAsJsonObject("_source");
+
+    if (source == null) {
+      return null;
+    }
+
+    DBObject dbo = toDBObject(source, ClassTypeInformation.from(type));
+    dbo.put("_id", hit.get("_id").getAsString());
+
+    return converter.read(type, dbo);
+  }
+
+  private DBObject toDBObject(JsonObject json, TypeInformation<?> type) {
+
+    Map<String, MongoPersistentProperty> fields = fieldsOf(type.getType());
+    DBObject dbo = new BasicDBObject();
+
+    for (Entry<String, JsonElement> entry : json.entrySet()) {
+
+      MongoPersistentProperty property = fields.get(entry.getKey());
+      TypeInformation<?> valueType = property == null ? ClassTypeInformation.OBJECT : property.getTypeInformation();
+
+      dbo.put(entry.getKey(), toValue(entry.getValue(), valueType));
+    }
+
+    return dbo;
+  }
+
+  private Object toValue(JsonElement json, TypeInformation<?> type) {
+
+    if (json == null || json.isJsonNull()) {
+      return null;
+    }
+
+    if (json.isJsonArray()) {
+
+      TypeInformation<?> componentType = type.getComponentType();
+      BasicDBList list = new BasicDBList();
+
+      for (JsonElement element : json.getAsJsonArray()) {
+        list.add(toValue(element, componentType == null ? ClassTypeInformation.OBJECT : componentType));
+      }
+
+      return list;
+    }
+
+    if (json.isJsonObject()) {
+
+      JsonObject object = json.getAsJsonObject();
+
+      if (GeoJsonPoint.class.isAssignableFrom(type.getType()) && object.has("lat") && object.has("lon")) {
+        BasicDBList coordinates = new BasicDBList();
+        coordinates.add(object.get("lon").getAsDouble());
+        coordinates.add(object.get("lat").getAsDouble());
+        return new BasicDBObject("type", "Point").append("coordinates", coordinates);
+      }
+
+      return toDBObject(object, type);
+    }
+
+    return toSimpleValue(json.getAsJsonPrimitive(), type.getType());
+  }
+
+  private static Object toSimpleValue(JsonPrimitive primitive, Class<?> type) {
+
+    if (Date.class.isAssignableFrom(type)) {
+      return primitive.isNumber() ? new Date(primitive.getAsLong())
+          : DATE_PARSER.parseDateTime(primitive.getAsString()).toDate();
+    }
+
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    }
+
+    if (!primitive.isNumber()) {
+      return primitive.getAsString();
+    }
+
+    if (Integer.class.equals(type) || int.class.equals(type)) {
+      return primitive.getAsInt();
+    }
+
+    if (Long.class.equals(type) || long.class.equals(type)) {
+      return primitive.getAsLong();
+    }
+
+    return primitive.getAsDouble();
+  }
+
+  private Map<String, MongoPersistentProperty> fieldsOf(Class<?> type) {
+
+    Map<String, MongoPersistentProperty> fields = fieldsByType.get(type);
+
+    if (fields != null) {
+      return fields;
+    }
+
+    final Map<String, MongoPersistentProperty> result = new HashMap<String, MongoPersistentProperty>();
+    MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(type);
+
+    if (entity != null) {
+      entity.doWithProperties(new PropertyHandler<MongoPersistentProperty>() {
+        public void doWithPersistentProperty(MongoPersistentProperty property) {
+          result.put(property.getFieldName(), property);
+        }
+      });
+      entity.doWithAssociations(new AssociationHandler<MongoPersistentProperty>() {
+        public void doWithAssociation(Association<MongoPersistentProperty> association) {
+          result.put(association.getInverse().getFieldName(), association.getInverse());
+        }
+      });
+    }
+
+    fieldsByType.put(type, result);
+    return result;
+  }
+}
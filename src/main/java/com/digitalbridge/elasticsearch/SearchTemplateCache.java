@@ -0,0 +1,376 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.common.joda.time.format.DateTimeFormatter;
+import org.elasticsearch.common.joda.time.format.ISODateTimeFormat;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.AndFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeFilterBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.digitalbridge.domain.AssetSearchRequest;
+import com.digitalbridge.domain.AssetSearchRequest.DateRange;
+import com.digitalbridge.domain.AssetSearchRequest.GeoDistance;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * <p>
+ * SearchTemplateCache class. Compiles {@link com.digitalbridge.domain.AssetSearchRequest}s into search source JSON.
+ * </p>
+ * <p>
+ * Requests with the same shape, i.e. the same text fields, filtered fields, sort and source filtering, only differ in
+ * their values. The first request of a shape is built once with a {@link SearchSourceBuilder} using placeholder
+ * values; the resulting JSON is split at the placeholders into a template. Every further request of that shape renders
+ * the template by concatenating the literal parts with its JSON encoded values. Paging is not part of the template, it
+ * is passed as request parameters.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class SearchTemplateCache {
+
+  private static final String PLACEHOLDER = "__param%d__";
+  private static final Pattern PLACEHOLDER_PATTERN = Pattern
+      .compile("\\[\\s*\"__param(\\d+)__\"\\s*\\]|\"__param(\\d+)__\"");
+
+  private static final DateTimeFormatter DATE_FORMAT = ISODateTimeFormat.dateTime().withZoneUTC();
+
+  private final Map<String, Template> templates = new ConcurrentHashMap<String, Template>();
+  private final int maxTemplates;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * <p>
+   * Constructor for SearchTemplateCache.
+   * </p>
+   *
+   * @param maxTemplates maximum number of cached shapes, further shapes are compiled per request.
+   */
+  public SearchTemplateCache(int maxTemplates) {
+    this.maxTemplates = maxTemplates;
+  }
+
+  /**
+   * Renders the search source for the given request.
+   *
+   * @param request must not be {@literal null}.
+   * @return the search source JSON.
+   */
+  public String render(AssetSearchRequest request) {
+
+    String shape = shapeOf(request);
+    Template template = templates.get(shape);
+
+    if (template == null) {
+
+      misses.incrementAndGet();
+      template = compile(request);
+
+      if (templates.size() < maxTemplates) {
+        templates.put(shape, template);
+      }
+    } else {
+      hits.incrementAndGet();
+    }
+
+    return template.render(parametersOf(request));
+  }
+
+  /**
+   * <p>
+   * size.
+   * </p>
+   *
+   * @return the number of cached templates.
+   */
+  public int size() {
+    return templates.size();
+  }
+
+  /**
+   * <p>
+   * getHitCount.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * <p>
+   * getMissCount.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * The shape covers everything that changes the structure of the search source. Its parts are visited in the same
+   * order as by {@link #compile(AssetSearchRequest)} and {@link #parametersOf(AssetSearchRequest)}. Every collection is
+   * written with its size and every name with its length, so that names containing separators cannot make different
+   * structures share a shape.
+   */
+  private static String shapeOf(AssetSearchRequest request) {
+
+    StringBuilder shape = new StringBuilder(128);
+
+    if (StringUtils.isNotBlank(request.getText())) {
+      shape.append('t');
+      appendNames(shape, request.getTextFields());
+    }
+
+    shape.append('f');
+    appendNames(shape, sorted(request.getTermFilters()).keySet());
+    shape.append('d').append(request.getDateRanges().size()).append(':');
+
+    for (DateRange dateRange : request.getDateRanges()) {
+      appendName(shape, dateRange.getField());
+      shape.append(dateRange.getFrom() != null ? '>' : '.').append(dateRange.getTo() != null ? '<' : '.');
+    }
+
+    if (request.getGeoDistance() != null) {
+      shape.append('g');
+      appendName(shape, request.getGeoDistance().getField());
+    }
+
+    shape.append('s').append(request.getSort().size()).append(':');
+
+    for (Entry<String, Direction> order : request.getSort().entrySet()) {
+      appendName(shape, order.getKey());
+      appendName(shape, order.getValue() == null ? null : order.getValue().name());
+    }
+
+    shape.append('i');
+    appendNames(shape, request.getIncludes());
+    shape.append('h').append(request.isHydrate() ? '1' : '0');
+
+    return shape.toString();
+  }
+
+  private static void appendNames(StringBuilder shape, Collection<String> names) {
+
+    shape.append(names.size()).append(':');
+
+    for (String name : names) {
+      appendName(shape, name);
+    }
+  }
+
+  private static void appendName(StringBuilder shape, String name) {
+
+    if (name == null) {
+      shape.append('-');
+    } else {
+      shape.append(name.length()).append(':').append(name);
+    }
+  }
+
+  private static List<JsonElement> parametersOf(AssetSearchRequest request) {
+
+    List<JsonElement> parameters = new ArrayList<JsonElement>();
+
+    if (StringUtils.isNotBlank(request.getText())) {
+      parameters.add(new JsonPrimitive(request.getText()));
+    }
+
+    for (List<String> values : sorted(request.getTermFilters()).values()) {
+
+      JsonArray array = new JsonArray();
+
+      for (String value : values) {
+        array.add(new JsonPrimitive(value));
+      }
+
+      parameters.add(array);
+    }
+
+    for (DateRange dateRange : request.getDateRanges()) {
+      if (dateRange.getFrom() != null) {
+        parameters.add(formatDate(dateRange.getFrom()));
+      }
+      if (dateRange.getTo() != null) {
+        parameters.add(formatDate(dateRange.getTo()));
+      }
+    }
+
+    GeoDistance geoDistance = request.getGeoDistance();
+
+    if (geoDistance != null) {
+      JsonArray lonLat = new JsonArray();
+      lonLat.add(new JsonPrimitive(geoDistance.getLon()));
+      lonLat.add(new JsonPrimitive(geoDistance.getLat()));
+      parameters.add(lonLat);
+      parameters.add(new JsonPrimitive(geoDistance.getDistance()));
+    }
+
+    return parameters;
+  }
+
+  private static Template compile(AssetSearchRequest request) {
+
+    int parameter = 0;
+    QueryBuilder query;
+
+    if (StringUtils.isNotBlank(request.getText())) {
+      query = QueryBuilders.multiMatchQuery(placeholder(parameter++),
+          request.getTextFields().toArray(new String[request.getTextFields().size()]));
+    } else {
+      query = QueryBuilders.matchAllQuery();
+    }
+
+    AndFilterBuilder filters = FilterBuilders.andFilter();
+    boolean filtered = false;
+
+    for (String field : sorted(request.getTermFilters()).keySet()) {
+      filters.add(FilterBuilders.termsFilter(field, placeholder(parameter++)));
+      filtered = true;
+    }
+
+    for (DateRange dateRange : request.getDateRanges()) {
+
+      RangeFilterBuilder range = FilterBuilders.rangeFilter(dateRange.getField());
+
+      if (dateRange.getFrom() != null) {
+        range.gte(placeholder(parameter++));
+      }
+      if (dateRange.getTo() != null) {
+        range.lte(placeholder(parameter++));
+      }
+
+      filters.add(range);
+      filtered = true;
+    }
+
+    if (request.getGeoDistance() != null) {
+      filters.add(FilterBuilders.geoDistanceFilter(request.getGeoDistance().getField())
+          .geohash(placeholder(parameter++)).distance(placeholder(parameter++)));
+      filtered = true;
+    }
+
+    SearchSourceBuilder source = new SearchSourceBuilder()
+        .query(filtered ? QueryBuilders.filteredQuery(query, filters) : query);
+
+    for (Entry<String, Direction> sort : request.getSort().entrySet()) {
+      source.sort(SortBuilders.fieldSort(sort.getKey())
+          .order(Direction.DESC.equals(sort.getValue()) ? SortOrder.DESC : SortOrder.ASC));
+    }
+
+    if (request.isHydrate()) {
+      source.fetchSource(false);
+    } else if (!request.getIncludes().isEmpty()) {
+      source.fetchSource(request.getIncludes().toArray(new String[request.getIncludes().size()]), null);
+    }
+
+    return Template.parse(toJson(source));
+  }
+
+  private static String toJson(SearchSourceBuilder source) {
+    try {
+      XContentBuilder builder = XContentFactory.jsonBuilder();
+      source.toXContent(builder, ToXContent.EMPTY_PARAMS);
+      return builder.string();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to build search source", e);
+    }
+  }
+
+  private static <V> Map<String, V> sorted(Map<String, V> map) {
+    return map.size() < 2 ? map : new TreeMap<String, V>(map);
+  }
+
+  private static String placeholder(int index) {
+    return String.format(PLACEHOLDER, index);
+  }
+
+  private static JsonPrimitive formatDate(Date date) {
+    return new JsonPrimitive(DATE_FORMAT.print(date.getTime()));
+  }
+
+  /**
+   * Search source split at its parameters: <code>literals[0] param[slots[0]] literals[1] ...</code>.
+   */
+  private static final class Template {
+
+    private final String[] literals;
+    private final int[] slots;
+    private final int length;
+
+    private Template(String[] literals, int[] slots) {
+
+      this.literals = literals;
+      this.slots = slots;
+
+      int total = 0;
+      for (String literal : literals) {
+        total += literal.length();
+      }
+      this.length = total;
+    }
+
+    static Template parse(String json) {
+
+      List<String> literals = new ArrayList<String>();
+      List<Integer> slots = new ArrayList<Integer>();
+      Matcher matcher = PLACEHOLDER_PATTERN.matcher(json);
+      int last = 0;
+
+      while (matcher.find()) {
+        literals.add(json.substring(last, matcher.start()));
+        slots.add(Integer.valueOf(matcher.group(1) != null ? matcher.group(1) : matcher.group(2)));
+        last = matcher.end();
+      }
+
+      literals.add(json.substring(last));
+
+      int[] slotArray = new int[slots.size()];
+      for (int i = 0; i < slotArray.length; i++) {
+        slotArray[i] = slots.get(i);
+      }
+
+      return new Template(literals.toArray(new String[literals.size()]), slotArray);
+    }
+
+    String render(List<JsonElement> parameters) {
+
+      StringBuilder json = new StringBuilder(length + 32 * slots.length);
+      json.append(literals[0]);
+
+      for (int i = 0; i < slots.length; i++) {
+        json.append(parameters.get(slots[i]).toString()).append(literals[i + 1]);
+      }
+
+      return json.toString();
+    }
+  }
+}
@@ -0,0 +1,335 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.cluster.NodesStats;
+import io.searchbox.indices.Stats;
+
+/**
+ * <p>
+ * StatsCollector class. Samples <code>_stats</code> of the configured indices and the thread pools of
+ * <code>_nodes/stats</code> every {@code intervalMillis} and turns the counters into rates over the interval: indexing
+ * and query throughput and latency, merge time, cache evictions and hit ratio, thread pool rejections. The last
+ * {@code capacity} samples are kept, so a trend is visible before searches slow down or bulk requests get rejected.
+ * Counters going backwards, e.g. after a node restart, count as no activity.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class StatsCollector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatsCollector.class);
+
+  private final JestClient jestClient;
+  private final List<String> indices;
+
+  private int capacity = 360;
+  private long intervalMillis = 10000;
+
+  private final Deque<StatsSample> samples = new ArrayDeque<StatsSample>();
+  private Counters previous;
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * <p>
+   * Constructor for StatsCollector.
+   * </p>
+   *
+   * @param jestClient must not be {@literal null}.
+   * @param indices the indices or aliases to sample, must not be empty.
+   */
+  public StatsCollector(JestClient jestClient, List<String> indices) {
+
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    Assert.notEmpty(indices, "Indices must not be empty!");
+    this.jestClient = jestClient;
+    this.indices = new ArrayList<String>(indices);
+  }
+
+  /**
+   * Starts sampling every {@code intervalMillis}.
+   */
+  public synchronized void start() {
+
+    if (scheduler != null) {
+      return;
+    }
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-stats-collector-"));
+    scheduler.scheduleAtFixedRate(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          sample();
+        } catch (RuntimeException e) {
+          LOGGER.warn("Unable to sample Elasticsearch stats : {}", e.getMessage());
+        }
+      }
+    }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops sampling, the samples taken so far are kept.
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /**
+   * Takes a sample now and adds it to the recent samples, dropping the oldest one if {@code capacity} is reached.
+   *
+   * @return the new sample.
+   */
+  public StatsSample sample() {
+
+    JsonObject indexStats = execute(new Stats.Builder().addIndex(indices).build()).getAsJsonObject("_all");
+    JsonObject nodeStats = execute(new NodesStats.Builder().withThreadPool().build());
+    Counters current = new Counters(currentTimeMillis(), indexStats, nodeStats);
+
+    synchronized (samples) {
+      StatsSample sample = current.since(previous);
+      previous = current;
+
+      if (samples.size() >= capacity) {
+        samples.removeFirst();
+      }
+
+      samples.addLast(sample);
+      return sample;
+    }
+  }
+
+  /**
+   * Returns the recent samples, oldest first.
+   *
+   * @return a {@link java.util.List} object.
+   */
+  public List<StatsSample> getSamples() {
+    synchronized (samples) {
+      return new ArrayList<StatsSample>(samples);
+    }
+  }
+
+  /**
+   * Returns the latest sample.
+   *
+   * @return the latest sample or {@literal null} if none was taken yet.
+   */
+  public StatsSample getLatest() {
+    synchronized (samples) {
+      return samples.peekLast();
+    }
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>indices</code>.
+   * </p>
+   *
+   * @return the sampled indices or aliases.
+   */
+  public List<String> getIndices() {
+    return Collections.unmodifiableList(indices);
+  }
+
+  /**
+   * Returns the current time, overridden in tests.
+   *
+   * @return a long.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private JsonObject execute(Action<? extends JestResult> action) {
+
+    JestResult result;
+
+    try {
+      result = jestClient.execute(action);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+
+    if (!result.isSucceeded()) {
+      throw new IllegalStateException(result.getErrorMessage());
+    }
+
+    return result.getJsonObject();
+  }
+
+  private static long getLong(JsonElement element, String... path) {
+
+    JsonElement current = element;
+
+    for (String member : path) {
+      if (current == null || !current.isJsonObject()) {
+        return 0;
+      }
+      current = current.getAsJsonObject().get(member);
+    }
+
+    return current == null || current.isJsonNull() ? 0 : current.getAsLong();
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>capacity</code>.
+   * </p>
+   *
+   * @param capacity the number of samples kept, at least 1.
+   */
+  public void setCapacity(int capacity) {
+    Assert.isTrue(capacity > 0, "Capacity must be positive!");
+    this.capacity = capacity;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>intervalMillis</code>.
+   * </p>
+   *
+   * @param intervalMillis the time between two samples.
+   */
+  public void setIntervalMillis(long intervalMillis) {
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * The raw counters of one sample.
+   */
+  private static final class Counters {
+
+    private final long timestamp;
+    private final long docs;
+    private final long storeBytes;
+    private final long indexTotal;
+    private final long indexMillis;
+    private final long queryTotal;
+    private final long queryMillis;
+    private final long fetchTotal;
+    private final long fetchMillis;
+    private final long mergeMillis;
+    private final long filterCacheEvictions;
+    private final long fieldDataEvictions;
+    private final boolean queryCache;
+    private final long queryCacheHits;
+    private final long queryCacheMisses;
+    private final Map<String, Long> rejected = new TreeMap<String, Long>();
+    private final Map<String, Long> queued = new TreeMap<String, Long>();
+
+    Counters(long timestamp, JsonObject all, JsonObject nodes) {
+
+      JsonObject primaries = all == null ? null : all.getAsJsonObject("primaries");
+      JsonObject total = all == null ? null : all.getAsJsonObject("total");
+      this.timestamp = timestamp;
+      docs = getLong(primaries, "docs", "count");
+      storeBytes = getLong(total, "store", "size_in_bytes");
+      indexTotal = getLong(primaries, "indexing", "index_total");
+      indexMillis = getLong(primaries, "indexing", "index_time_in_millis");
+      queryTotal = getLong(total, "search", "query_total");
+      queryMillis = getLong(total, "search", "query_time_in_millis");
+      fetchTotal = getLong(total, "search", "fetch_total");
+      fetchMillis = getLong(total, "search", "fetch_time_in_millis");
+      mergeMillis = getLong(total, "merges", "total_time_in_millis");
+      filterCacheEvictions = getLong(total, "filter_cache", "evictions");
+      fieldDataEvictions = getLong(total, "fielddata", "evictions");
+      // the query cache only reports hits and misses from Elasticsearch 1.4 on
+      queryCache = total != null && total.has("query_cache") && total.getAsJsonObject("query_cache").has("hit_count");
+      queryCacheHits = getLong(total, "query_cache", "hit_count");
+      queryCacheMisses = getLong(total, "query_cache", "miss_count");
+
+      JsonObject nodeMap = nodes == null ? null : nodes.getAsJsonObject("nodes");
+
+      if (nodeMap != null) {
+        for (Entry<String, JsonElement> node : nodeMap.entrySet()) {
+          JsonObject pools = node.getValue().getAsJsonObject().getAsJsonObject("thread_pool");
+          if (pools != null) {
+            for (Entry<String, JsonElement> pool : pools.entrySet()) {
+              add(rejected, pool.getKey(), getLong(pool.getValue(), "rejected"));
+              add(queued, pool.getKey(), getLong(pool.getValue(), "queue"));
+            }
+          }
+        }
+      }
+    }
+
+    StatsSample since(Counters before) {
+
+      if (before == null) {
+        Map<String, Long> none = new TreeMap<String, Long>();
+        for (String pool : rejected.keySet()) {
+          none.put(pool, 0L);
+        }
+        return new StatsSample(timestamp, 0, docs, storeBytes, 0, 0, 0, 0, 0, 0, 0, 0, null, none, queued);
+      }
+
+      long interval = Math.max(1, timestamp - before.timestamp);
+      long indexed = delta(indexTotal, before.indexTotal);
+      long queries = delta(queryTotal, before.queryTotal);
+      long fetches = delta(fetchTotal, before.fetchTotal);
+      long lookups = delta(queryCacheHits, before.queryCacheHits) + delta(queryCacheMisses, before.queryCacheMisses);
+
+      Map<String, Long> rejections = new TreeMap<String, Long>();
+      for (Entry<String, Long> pool : rejected.entrySet()) {
+        Long last = before.rejected.get(pool.getKey());
+        rejections.put(pool.getKey(), delta(pool.getValue(), last == null ? 0 : last));
+      }
+
+      return new StatsSample(timestamp, interval, docs, storeBytes, perSecond(indexed, interval),
+          average(delta(indexMillis, before.indexMillis), indexed), perSecond(queries, interval),
+          average(delta(queryMillis, before.queryMillis), queries),
+          average(delta(fetchMillis, before.fetchMillis), fetches),
+          perSecond(delta(mergeMillis, before.mergeMillis), interval),
+          perSecond(delta(filterCacheEvictions, before.filterCacheEvictions), interval),
+          perSecond(delta(fieldDataEvictions, before.fieldDataEvictions), interval),
+          queryCache && lookups > 0 ? Double.valueOf((double) delta(queryCacheHits, before.queryCacheHits) / lookups)
+              : null, rejections, queued);
+    }
+
+    private static void add(Map<String, Long> totals, String key, long value) {
+      Long sum = totals.get(key);
+      totals.put(key, sum == null ? value : sum + value);
+    }
+
+    private static long delta(long now, long before) {
+      return Math.max(0, now - before);
+    }
+
+    private static double perSecond(long count, long intervalMillis) {
+      return count * 1000.0 / intervalMillis;
+    }
+
+    private static double average(long millis, long count) {
+      return count == 0 ? 0 : (double) millis / count;
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * <p>
+ * StatsSample class. One sample taken by the {@link StatsCollector}: the document count and store size at the time of
+ * the sample, and the rates over the interval since the previous sample. All rates of the first sample are
+ * <code>0</code>.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class StatsSample {
+
+  private final long timestamp;
+  private final long intervalMillis;
+  private final long docs;
+  private final long storeBytes;
+  private final double indexingPerSecond;
+  private final double indexingLatencyMillis;
+  private final double queriesPerSecond;
+  private final double queryLatencyMillis;
+  private final double fetchLatencyMillis;
+  private final double mergeMillisPerSecond;
+  private final double filterCacheEvictionsPerSecond;
+  private final double fieldDataEvictionsPerSecond;
+  private final Double queryCacheHitRatio;
+  private final Map<String, Long> threadPoolRejections;
+  private final Map<String, Long> threadPoolQueues;
+
+  StatsSample(long timestamp, long intervalMillis, long docs, long storeBytes, double indexingPerSecond,
+      double indexingLatencyMillis, double queriesPerSecond, double queryLatencyMillis, double fetchLatencyMillis,
+      double mergeMillisPerSecond, double filterCacheEvictionsPerSecond, double fieldDataEvictionsPerSecond,
+      Double queryCacheHitRatio, Map<String, Long> threadPoolRejections, Map<String, Long> threadPoolQueues) {
+    this.timestamp = timestamp;
+    this.intervalMillis = intervalMillis;
+    this.docs = docs;
+    this.storeBytes = storeBytes;
+    this.indexingPerSecond = indexingPerSecond;
+    this.indexingLatencyMillis = indexingLatencyMillis;
+    this.queriesPerSecond = queriesPerSecond;
+    this.queryLatencyMillis = queryLatencyMillis;
+    this.fetchLatencyMillis = fetchLatencyMillis;
+    this.mergeMillisPerSecond = mergeMillisPerSecond;
+    this.filterCacheEvictionsPerSecond = filterCacheEvictionsPerSecond;
+    this.fieldDataEvictionsPerSecond = fieldDataEvictionsPerSecond;
+    this.queryCacheHitRatio = queryCacheHitRatio;
+    this.threadPoolRejections = Collections.unmodifiableMap(threadPoolRejections);
+    this.threadPoolQueues = Collections.unmodifiableMap(threadPoolQueues);
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>timestamp</code>.
+   * </p>
+   *
+   * @return the time the sample was taken, in milliseconds since the epoch.
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>intervalMillis</code>.
+   * </p>
+   *
+   * @return the time since the previous sample, <code>0</code> for the first one.
+   */
+  public long getIntervalMillis() {
+    return intervalMillis;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>docs</code>.
+   * </p>
+   *
+   * @return the documents in the primaries.
+   */
+  public long getDocs() {
+    return docs;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>storeBytes</code>.
+   * </p>
+   *
+   * @return the size of all shard copies on disk.
+   */
+  public long getStoreBytes() {
+    return storeBytes;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>indexingPerSecond</code>.
+   * </p>
+   *
+   * @return the documents indexed into the primaries per second.
+   */
+  public double getIndexingPerSecond() {
+    return indexingPerSecond;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>indexingLatencyMillis</code>.
+   * </p>
+   *
+   * @return the average time spent indexing one document.
+   */
+  public double getIndexingLatencyMillis() {
+    return indexingLatencyMillis;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>queriesPerSecond</code>.
+   * </p>
+   *
+   * @return the shard level query phases per second.
+   */
+  public double getQueriesPerSecond() {
+    return queriesPerSecond;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>queryLatencyMillis</code>.
+   * </p>
+   *
+   * @return the average time of a shard level query phase.
+   */
+  public double getQueryLatencyMillis() {
+    return queryLatencyMillis;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>fetchLatencyMillis</code>.
+   * </p>
+   *
+   * @return the average time of a shard level fetch phase.
+   */
+  public double getFetchLatencyMillis() {
+    return fetchLatencyMillis;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>mergeMillisPerSecond</code>.
+   * </p>
+   *
+   * @return the merge time spent per second, over all shards.
+   */
+  public double getMergeMillisPerSecond() {
+    return mergeMillisPerSecond;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>filterCacheEvictionsPerSecond</code>.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getFilterCacheEvictionsPerSecond() {
+    return filterCacheEvictionsPerSecond;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>fieldDataEvictionsPerSecond</code>.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getFieldDataEvictionsPerSecond() {
+    return fieldDataEvictionsPerSecond;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>queryCacheHitRatio</code>.
+   * </p>
+   *
+   * @return the share of query cache lookups that hit, {@literal null} if the cluster does not report the query cache
+   *         or there were no lookups.
+   */
+  public Double getQueryCacheHitRatio() {
+    return queryCacheHitRatio;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>threadPoolRejections</code>.
+   * </p>
+   *
+   * @return the tasks rejected per thread pool during the interval, summed over all nodes.
+   */
+  public Map<String, Long> getThreadPoolRejections() {
+    return threadPoolRejections;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>threadPoolQueues</code>.
+   * </p>
+   *
+   * @return the tasks queued per thread pool at the time of the sample, summed over all nodes.
+   */
+  public Map<String, Long> getThreadPoolQueues() {
+    return threadPoolQueues;
+  }
+}
@@ -0,0 +1,142 @@
+package com.digitalbridge.elasticsearch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms.Order;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.util.Assert;
+
+import io.searchbox.core.search.aggregation.MetricAggregation;
+import io.searchbox.core.search.aggregation.TermsAggregation;
+import io.searchbox.core.search.aggregation.ValueCountAggregation;
+
+/**
+ * <p>
+ * TermsFacets class. Builds bounded terms aggregations and decodes their buckets. Only the top {@code size} terms are
+ * requested, each shard returns a few more than that ({@link #shardSize(int)}) to keep the counts accurate, and terms
+ * below {@code minDocCount} are dropped by Elasticsearch instead of the client.
+ * </p>
+ * <p>
+ * Elasticsearch 1.1 does not report how many values fell outside the returned buckets, so every terms aggregation is
+ * paired with a <code>value_count</code> aggregation on the same field and the difference is reported as the
+ * {@link #OTHER} bucket.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class TermsFacets {
+
+  /** Key of the bucket counting the values not returned. */
+  public static final String OTHER = "_other";
+
+  private static final String VALUE_COUNT_SUFFIX = "_count";
+
+  private final int size;
+  private final long minDocCount;
+  private final int shards;
+
+  /**
+   * <p>
+   * Constructor for TermsFacets.
+   * </p>
+   *
+   * @param size number of terms returned per facet.
+   * @param minDocCount minimum document count of a returned term.
+   * @param shards number of shards of the searched index.
+   */
+  public TermsFacets(int size, long minDocCount, int shards) {
+
+    Assert.isTrue(size > 0, "Size must be positive!");
+    this.size = size;
+    this.minDocCount = minDocCount;
+    this.shards = shards;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>size</code>.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of terms each shard should return for the given number of requested terms. A single shard is
+   * exact, otherwise the same <code>size * 1.5 + 10</code> heuristic Elasticsearch uses in later versions.
+   *
+   * @param requested the number of terms requested from the coordinating node.
+   * @return a int.
+   */
+  public int shardSize(int requested) {
+    if (shards <= 1) {
+      return requested;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, requested * 3L / 2 + 10);
+  }
+
+  /**
+   * Adds the terms aggregation and its value count aggregation for the top {@code size} terms of the given field.
+   *
+   * @param searchSourceBuilder must not be {@literal null}.
+   * @param name the aggregation name.
+   * @param field the field to aggregate.
+   */
+  public void addTo(SearchSourceBuilder searchSourceBuilder, String name, String field) {
+    addTo(searchSourceBuilder, name, field, size);
+  }
+
+  /**
+   * Adds the terms aggregation and its value count aggregation for the top {@code requested} terms of the given field.
+   *
+   * @param searchSourceBuilder must not be {@literal null}.
+   * @param name the aggregation name.
+   * @param field the field to aggregate.
+   * @param requested the number of terms to return.
+   */
+  public void addTo(SearchSourceBuilder searchSourceBuilder, String name, String field, int requested) {
+    searchSourceBuilder.aggregation(AggregationBuilders.terms(name).field(field).size(requested)
+        .shardSize(shardSize(requested)).minDocCount(minDocCount).order(Order.count(false)));
+    searchSourceBuilder.aggregation(AggregationBuilders.count(name + VALUE_COUNT_SUFFIX).field(field));
+  }
+
+  /**
+   * Decodes the buckets of the given terms aggregation, skipping the first {@code offset} terms. The values of all
+   * terms not returned after the offset are summed up in the {@link #OTHER} bucket.
+   *
+   * @param aggregations the aggregations of the search result.
+   * @param name the aggregation name.
+   * @param offset the number of leading terms to skip.
+   * @return term counts in descending order, followed by the {@link #OTHER} bucket if not empty.
+   */
+  public Map<String, Long> decode(MetricAggregation aggregations, String name, int offset) {
+
+    List<TermsAggregation.Entry> buckets = aggregations.getTermsAggregation(name).getBuckets();
+    Map<String, Long> counts = new LinkedHashMap<String, Long>(Math.max(buckets.size() - offset, 0) + 1);
+    long returned = 0;
+
+    for (int i = 0; i < buckets.size(); i++) {
+      TermsAggregation.Entry bucket = buckets.get(i);
+      returned += bucket.getCount();
+      if (i >= offset) {
+        counts.put(bucket.getKey(), bucket.getCount());
+      }
+    }
+
+    ValueCountAggregation valueCount = aggregations.getValueCountAggregation(name + VALUE_COUNT_SUFFIX);
+    if (valueCount != null && valueCount.getValueCount() != null) {
+      long other = valueCount.getValueCount() - returned;
+      if (other > 0) {
+        counts.put(OTHER, other);
+      }
+    }
+
+    return counts;
+  }
+}
@@ -0,0 +1,38 @@
+package com.digitalbridge.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.digitalbridge.mongodb.convert.DbRefCache;
+
+/**
+ * <p>
+ * DbRefCacheMetrics class. Publishes the counters of the shared {@link com.digitalbridge.mongodb.convert.DbRefCache}
+ * to the actuator <code>/metrics</code> endpoint.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Component
+public class DbRefCacheMetrics {
+
+  @Autowired private DbRefCache dbRefCache;
+
+  @Autowired private GaugeService gaugeService;
+
+  /**
+   * <p>
+   * publish.
+   * </p>
+   */
+  @Scheduled(fixedRate = 10000)
+  public void publish() {
+    gaugeService.submit("dbref.cache.size", dbRefCache.size());
+    gaugeService.submit("dbref.cache.hits", dbRefCache.getHitCount());
+    gaugeService.submit("dbref.cache.misses", dbRefCache.getMissCount());
+    gaugeService.submit("dbref.cache.evictions", dbRefCache.getEvictionCount());
+  }
+}
@@ -0,0 +1,63 @@
+package com.digitalbridge.metrics;
+
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.digitalbridge.elasticsearch.HttpTransport;
+import com.google.gson.JsonObject;
+
+import io.searchbox.client.JestResult;
+import io.searchbox.client.http.JestHttpClient;
+
+/**
+ * <p>
+ * ElasticSearchHealthIndicator class. Reports the Elasticsearch cluster next to the Mongo indicator on the actuator
+ * <code>/health</code> endpoint: <code>DOWN</code> if the cluster is red or does not answer, <code>UP</code> otherwise
+ * with the cluster status, the shard counts and the usage of the HTTP connection pool as details. Disabled with
+ * <code>health.elasticsearch.enabled=false</code>.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Component
+@ConditionalOnExpression("${health.elasticsearch.enabled:true}")
+public class ElasticSearchHealthIndicator extends AbstractHealthIndicator {
+
+  @Autowired private JestHttpClient jestClient;
+
+  @Autowired private HttpTransport httpTransport;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doHealthCheck(Health.Builder builder) throws Exception {
+
+    JestResult result = jestClient.execute(new io.searchbox.cluster.Health.Builder().build());
+
+    if (!result.isSucceeded()) {
+      builder.down().withDetail("error", result.getErrorMessage());
+      return;
+    }
+
+    JsonObject health = result.getJsonObject();
+    String status = health.get("status").getAsString();
+
+    if ("red".equals(status)) {
+      builder.down();
+    } else {
+      builder.up();
+    }
+
+    builder.withDetail("cluster", health.get("cluster_name").getAsString()).withDetail("status", status)
+        .withDetail("nodes", health.get("number_of_nodes").getAsInt())
+        .withDetail("activeShards", health.get("active_shards").getAsInt())
+        .withDetail("unassignedShards", health.get("unassigned_shards").getAsInt());
+
+    PoolStats pool = httpTransport.getPoolStats();
+    builder.withDetail("httpPoolLeased", pool.getLeased()).withDetail("httpPoolMax", pool.getMax());
+  }
+}
@@ -0,0 +1,179 @@
+package com.digitalbridge.metrics;
+
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.Gson;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestResult;
+
+/**
+ * <p>
+ * ElasticSearchMetrics class. Records the requests sent by
+ * {@link com.digitalbridge.service.ElasticSearchOperations} per action type (<code>search</code>, <code>index</code>,
+ * ...) and publishes them to the actuator <code>/metrics</code> endpoint:
+ * </p>
+ * <ul>
+ * <li><code>counter.elasticsearch.&lt;action&gt;.status.&lt;code&gt;</code> per HTTP status, <code>io-error</code>
+ * when no response arrived, so 404 (index missing) and 503 (cluster block) can be alerted on,</li>
+ * <li><code>gauge.elasticsearch.&lt;action&gt;.latency.p50/p95/p99/max</code> in milliseconds over the last publish
+ * interval,</li>
+ * <li><code>gauge.elasticsearch.&lt;action&gt;.bytes-out/bytes-in</code>, the total size of request and response
+ * bodies, uncompressed,</li>
+ * <li><code>gauge.elasticsearch.requests.in-flight</code>.</li>
+ * </ul>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Component
+public class ElasticSearchMetrics {
+
+  private static final String PREFIX = "elasticsearch.";
+
+  private final CounterService counterService;
+  private final GaugeService gaugeService;
+
+  private final Gson gson = new Gson();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final ConcurrentMap<Class<?>, ActionMetrics> actions = new ConcurrentHashMap<Class<?>, ActionMetrics>();
+
+  /**
+   * <p>
+   * Constructor for ElasticSearchMetrics.
+   * </p>
+   *
+   * @param counterService a {@link org.springframework.boot.actuate.metrics.CounterService} object.
+   * @param gaugeService a {@link org.springframework.boot.actuate.metrics.GaugeService} object.
+   */
+  @Autowired
+  public ElasticSearchMetrics(CounterService counterService, GaugeService gaugeService) {
+    this.counterService = counterService;
+    this.gaugeService = gaugeService;
+  }
+
+  /**
+   * Counts a request as in flight.
+   *
+   * @return the start time to pass to {@link #finished(Action, JestResult, long)}.
+   */
+  public long started() {
+    inFlight.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  /**
+   * Records a finished request.
+   *
+   * @param action the action sent.
+   * @param result the result or {@literal null} if the request failed without a response.
+   * @param started the value returned by {@link #started()}.
+   */
+  public void finished(Action<?> action, JestResult result, long started) {
+
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    inFlight.decrementAndGet();
+
+    ActionMetrics metrics = metrics(action.getClass());
+    metrics.latency.record(millis);
+    updateMax(metrics.maxMillis, millis);
+
+    String data = action.getData(gson);
+    if (data != null) {
+      metrics.bytesOut.addAndGet(data.length());
+    }
+
+    if (result == null) {
+      counterService.increment(metrics.name + ".status.io-error");
+      return;
+    }
+
+    String response = result.getJsonString();
+    if (response != null) {
+      metrics.bytesIn.addAndGet(response.length());
+    }
+    counterService.increment(metrics.name + ".status." + result.getResponseCode());
+  }
+
+  /**
+   * <p>
+   * getInFlight.
+   * </p>
+   *
+   * @return the requests sent and not answered yet.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * <p>
+   * publish.
+   * </p>
+   */
+  @Scheduled(fixedRate = 10000)
+  public void publish() {
+
+    gaugeService.submit(PREFIX + "requests.in-flight", inFlight.get());
+
+    for (Entry<Class<?>, ActionMetrics> entry : actions.entrySet()) {
+      ActionMetrics metrics = entry.getValue();
+      long[] snapshot = metrics.latency.snapshotAndReset();
+      gaugeService.submit(metrics.name + ".latency.p50", metrics.latency.percentile(snapshot, 0.5));
+      gaugeService.submit(metrics.name + ".latency.p95", metrics.latency.percentile(snapshot, 0.95));
+      gaugeService.submit(metrics.name + ".latency.p99", metrics.latency.percentile(snapshot, 0.99));
+      gaugeService.submit(metrics.name + ".latency.max", metrics.maxMillis.getAndSet(0));
+      gaugeService.submit(metrics.name + ".bytes-out", metrics.bytesOut.get());
+      gaugeService.submit(metrics.name + ".bytes-in", metrics.bytesIn.get());
+    }
+  }
+
+  private ActionMetrics metrics(Class<?> type) {
+
+    ActionMetrics metrics = actions.get(type);
+
+    if (metrics == null) {
+      ActionMetrics created = new ActionMetrics(PREFIX + type.getSimpleName().toLowerCase());
+      metrics = actions.putIfAbsent(type, created);
+      if (metrics == null) {
+        metrics = created;
+      }
+    }
+
+    return metrics;
+  }
+
+  private static void updateMax(AtomicLong max, long value) {
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * The metrics of one action type.
+   */
+  private static final class ActionMetrics {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    ActionMetrics(String name) {
+      this.name = name;
+    }
+  }
+}
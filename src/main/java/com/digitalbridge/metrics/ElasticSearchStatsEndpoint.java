@@ -0,0 +1,45 @@
+package com.digitalbridge.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import com.digitalbridge.elasticsearch.StatsCollector;
+
+/**
+ * <p>
+ * ElasticSearchStatsEndpoint class. Exposes the recent samples of the
+ * {@link com.digitalbridge.elasticsearch.StatsCollector} as the sensitive actuator endpoint
+ * <code>/elasticsearchstats</code>, latest sample first and the whole series after it.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Component
+public class ElasticSearchStatsEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+  @Autowired private StatsCollector statsCollector;
+
+  /**
+   * <p>
+   * Constructor for ElasticSearchStatsEndpoint.
+   * </p>
+   */
+  public ElasticSearchStatsEndpoint() {
+    super("elasticsearchstats");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Map<String, Object> invoke() {
+    Map<String, Object> stats = new LinkedHashMap<String, Object>();
+    stats.put("indices", statsCollector.getIndices());
+    stats.put("latest", statsCollector.getLatest());
+    stats.put("samples", statsCollector.getSamples());
+    return stats;
+  }
+}
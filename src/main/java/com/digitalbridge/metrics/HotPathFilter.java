@@ -0,0 +1,91 @@
+package com.digitalbridge.metrics;
+
+import java.io.IOException;
+import java.util.Random;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * <p>
+ * HotPathFilter class. Samples {@code sampleRate} of the requests for the {@link HotPathTimer} and logs the breakdown
+ * of every sampled request taking {@code slowRequestMillis} or longer, e.g.
+ * </p>
+ *
+ * <pre>
+ * Slow request GET /assetwrapper/search took 1834 ms : elasticsearch.Search=1 x 1210.4 ms,
+ *     repository.assetWrapperRepository.findByIdIn=1 x 560.2 ms, converter.read.AssetWrapper=20 x 540.8 ms, ...
+ * </pre>
+ * <p>
+ * A sample rate of <code>0</code> disables the timer altogether.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class HotPathFilter extends OncePerRequestFilter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HotPathFilter.class);
+
+  private final Random random = new Random();
+
+  private double sampleRate;
+  private long slowRequestMillis = 1000;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    if (sampleRate <= 0 || sampleRate < 1 && random.nextDouble() >= sampleRate) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    long started = System.currentTimeMillis();
+    HotPathTimer.begin();
+
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      HotPathTimer.Breakdown breakdown = HotPathTimer.end();
+      long elapsed = System.currentTimeMillis() - started;
+
+      if (breakdown != null && elapsed >= slowRequestMillis) {
+        LOGGER.warn("Slow request {} {} took {} ms : {}", request.getMethod(), request.getRequestURI(), elapsed,
+            breakdown);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>sampleRate</code>.
+   * </p>
+   *
+   * @param sampleRate the share of requests timed, from <code>0</code> (disabled) to <code>1</code> (all).
+   */
+  public void setSampleRate(double sampleRate) {
+    Assert.isTrue(sampleRate >= 0 && sampleRate <= 1, "Sample rate must be between 0 and 1!");
+    this.sampleRate = sampleRate;
+    HotPathTimer.setEnabled(sampleRate > 0);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>slowRequestMillis</code>.
+   * </p>
+   *
+   * @param slowRequestMillis sampled requests taking this long or longer are logged with their breakdown.
+   */
+  public void setSlowRequestMillis(long slowRequestMillis) {
+    this.slowRequestMillis = slowRequestMillis;
+  }
+}
@@ -0,0 +1,46 @@
+package com.digitalbridge.metrics;
+
+import java.util.Map.Entry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * HotPathMetrics class. Publishes the step histograms of the {@link HotPathTimer} to the actuator <code>/metrics</code>
+ * endpoint as <code>gauge.hotpath.&lt;step&gt;.count/p50-us/p99-us</code> over the last publish interval. Steps not
+ * run during the interval are skipped.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Component
+public class HotPathMetrics {
+
+  @Autowired private GaugeService gaugeService;
+
+  /**
+   * <p>
+   * publish.
+   * </p>
+   */
+  @Scheduled(fixedRate = 10000)
+  public void publish() {
+
+    for (Entry<String, LatencyHistogram> entry : HotPathTimer.getHistograms().entrySet()) {
+
+      long[] snapshot = entry.getValue().snapshotAndReset();
+      long count = LatencyHistogram.count(snapshot);
+
+      if (count > 0) {
+        String name = "hotpath." + entry.getKey();
+        gaugeService.submit(name + ".count", count);
+        gaugeService.submit(name + ".p50-us", entry.getValue().percentile(snapshot, 0.5));
+        gaugeService.submit(name + ".p99-us", entry.getValue().percentile(snapshot, 0.99));
+      }
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.digitalbridge.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * HotPathTimer class. Times the steps of sampled requests (converter reads and writes per entity type, DBRef fetches
+ * per collection, cascade saves, repository methods and Elasticsearch calls) into a histogram per step and a
+ * breakdown of the current request. Steps are only timed on a thread inside {@link #begin()} / {@link #end()}, and
+ * with timing disabled {@link #start()} is a single volatile read, so the calls can stay on the hot paths.
+ * </p>
+ * <p>
+ * Usage:
+ * </p>
+ *
+ * <pre>
+ * long started = HotPathTimer.start();
+ * try {
+ *   ...
+ * } finally {
+ *   HotPathTimer.stop(started, "converter.read", type);
+ * }
+ * </pre>
+ * <p>
+ * Timings are inclusive: a converter read includes the DBRef fetches it triggers.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public final class HotPathTimer {
+
+  private static final ThreadLocal<Breakdown> CURRENT = new ThreadLocal<Breakdown>();
+  private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS =
+      new ConcurrentHashMap<String, LatencyHistogram>();
+
+  private static volatile boolean enabled;
+
+  private HotPathTimer() {
+  }
+
+  /**
+   * Enables or disables timing, e.g. when the sample rate is set to 0.
+   *
+   * @param enabled a boolean.
+   */
+  public static void setEnabled(boolean enabled) {
+    HotPathTimer.enabled = enabled;
+  }
+
+  /**
+   * <p>
+   * isEnabled.
+   * </p>
+   *
+   * @return a boolean.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Starts timing the steps of the current thread until {@link #end()}.
+   */
+  public static void begin() {
+    if (enabled) {
+      CURRENT.set(new Breakdown());
+    }
+  }
+
+  /**
+   * Stops timing the steps of the current thread.
+   *
+   * @return the breakdown of the steps since {@link #begin()} or {@literal null} if timing was disabled.
+   */
+  public static Breakdown end() {
+    Breakdown breakdown = CURRENT.get();
+    CURRENT.remove();
+    return breakdown;
+  }
+
+  /**
+   * Starts timing a step.
+   *
+   * @return the value to pass to {@code stop}, <code>0</code> if the step is not timed.
+   */
+  public static long start() {
+    return enabled && CURRENT.get() != null ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Stops timing a step.
+   *
+   * @param started the value returned by {@link #start()}.
+   * @param step the kind of step, e.g. <code>converter.read</code>.
+   * @param type the type the step worked on, its simple name completes the step name.
+   */
+  public static void stop(long started, String step, Class<?> type) {
+    if (started != 0) {
+      record(step + "." + type.getSimpleName(), System.nanoTime() - started);
+    }
+  }
+
+  /**
+   * Stops timing a step.
+   *
+   * @param started the value returned by {@link #start()}.
+   * @param step the kind of step, e.g. <code>dbref.fetch</code>.
+   * @param name completes the step name, e.g. the collection.
+   */
+  public static void stop(long started, String step, String name) {
+    if (started != 0) {
+      record(step + "." + name, System.nanoTime() - started);
+    }
+  }
+
+  /**
+   * Returns the histograms of all steps timed so far, in microseconds.
+   *
+   * @return a {@link java.util.Map} object.
+   */
+  public static Map<String, LatencyHistogram> getHistograms() {
+    return Collections.unmodifiableMap(HISTOGRAMS);
+  }
+
+  private static void record(String name, long nanos) {
+
+    Breakdown breakdown = CURRENT.get();
+
+    if (breakdown != null) {
+      breakdown.add(name, nanos);
+    }
+
+    LatencyHistogram histogram = HISTOGRAMS.get(name);
+
+    if (histogram == null) {
+      LatencyHistogram created = new LatencyHistogram(LatencyHistogram.MICROS);
+      histogram = HISTOGRAMS.putIfAbsent(name, created);
+      if (histogram == null) {
+        histogram = created;
+      }
+    }
+
+    histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  /**
+   * The steps timed on one thread, with count and total time per step.
+   */
+  public static final class Breakdown {
+
+    private final Map<String, long[]> steps = new HashMap<String, long[]>();
+
+    void add(String name, long nanos) {
+      long[] step = steps.get(name);
+      if (step == null) {
+        step = new long[2];
+        steps.put(name, step);
+      }
+      step[0]++;
+      step[1] += nanos;
+    }
+
+    /**
+     * Returns the number of times the given step ran.
+     *
+     * @param name the step name, e.g. <code>converter.read.AssetWrapper</code>.
+     * @return a long.
+     */
+    public long getCount(String name) {
+      long[] step = steps.get(name);
+      return step == null ? 0 : step[0];
+    }
+
+    /**
+     * Returns the total time spent in the given step.
+     *
+     * @param name the step name, e.g. <code>converter.read.AssetWrapper</code>.
+     * @return the time in milliseconds.
+     */
+    public double getMillis(String name) {
+      long[] step = steps.get(name);
+      return step == null ? 0 : step[1] / 1000000.0;
+    }
+
+    /**
+     * Lists the steps, most time spent first, as <code>name=count x millis ms</code>.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    @Override
+    public String toString() {
+
+      List<Entry<String, long[]>> sorted = new ArrayList<Entry<String, long[]>>(steps.entrySet());
+      Collections.sort(sorted, new Comparator<Entry<String, long[]>>() {
+
+        @Override
+        public int compare(Entry<String, long[]> o1, Entry<String, long[]> o2) {
+          return o1.getValue()[1] < o2.getValue()[1] ? 1 : o1.getValue()[1] == o2.getValue()[1] ? 0 : -1;
+        }
+      });
+
+      StringBuilder builder = new StringBuilder();
+
+      for (Entry<String, long[]> step : sorted) {
+        if (builder.length() > 0) {
+          builder.append(", ");
+        }
+        builder.append(step.getKey()).append('=').append(step.getValue()[0]).append(" x ")
+            .append(String.format("%.1f", step.getValue()[1] / 1000000.0)).append(" ms");
+      }
+
+      return builder.toString();
+    }
+  }
+}
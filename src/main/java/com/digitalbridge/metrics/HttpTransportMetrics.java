@@ -0,0 +1,46 @@
+package com.digitalbridge.metrics;
+
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.digitalbridge.elasticsearch.HttpTransport;
+
+/**
+ * <p>
+ * HttpTransportMetrics class. Publishes the connection pool usage and lease wait times of the Elasticsearch
+ * {@link com.digitalbridge.elasticsearch.HttpTransport} to the actuator <code>/metrics</code> endpoint. A saturation
+ * close to 100 together with growing pending leases means the pool is too small for the load.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+@Component
+public class HttpTransportMetrics {
+
+  @Autowired private HttpTransport httpTransport;
+
+  @Autowired private GaugeService gaugeService;
+
+  /**
+   * <p>
+   * publish.
+   * </p>
+   */
+  @Scheduled(fixedRate = 10000)
+  public void publish() {
+    PoolStats stats = httpTransport.getPoolStats();
+    gaugeService.submit("elasticsearch.http.pool.leased", stats.getLeased());
+    gaugeService.submit("elasticsearch.http.pool.pending", stats.getPending());
+    gaugeService.submit("elasticsearch.http.pool.available", stats.getAvailable());
+    gaugeService.submit("elasticsearch.http.pool.saturation", stats.getMax() == 0 ? 0
+        : 100.0 * stats.getLeased() / stats.getMax());
+    gaugeService.submit("elasticsearch.http.lease.count", httpTransport.getLeaseCount());
+    gaugeService.submit("elasticsearch.http.lease.wait-ms", httpTransport.getLeaseWaitMillis());
+    gaugeService.submit("elasticsearch.http.lease.max-wait-ms", httpTransport.getAndResetMaxLeaseWaitMillis());
+    gaugeService.submit("elasticsearch.http.lease.timeouts", httpTransport.getLeaseTimeoutCount());
+  }
+}
@@ -0,0 +1,120 @@
+package com.digitalbridge.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * LatencyHistogram class. Counts latencies into fixed buckets and an overflow bucket, so recording is a single atomic
+ * increment. Percentiles are reported as the upper bound of the bucket they fall into. The unit is the one of the
+ * bounds, {@link #MILLIS} for remote calls and {@link #MICROS} for in-process work.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class LatencyHistogram {
+
+  /** Bounds from 1 ms up to 10 s. */
+  public static final long[] MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+  /** Bounds from 10 microseconds up to 1 s. */
+  public static final long[] MICROS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000,
+      250000, 1000000 };
+
+  private final long[] bounds;
+  private final AtomicLongArray counts;
+
+  /**
+   * <p>
+   * Constructor for LatencyHistogram counting milliseconds.
+   * </p>
+   */
+  public LatencyHistogram() {
+    this(MILLIS);
+  }
+
+  /**
+   * <p>
+   * Constructor for LatencyHistogram.
+   * </p>
+   *
+   * @param bounds the ascending upper bounds of the buckets, an overflow bucket is added.
+   */
+  public LatencyHistogram(long[] bounds) {
+    this.bounds = bounds.clone();
+    this.counts = new AtomicLongArray(bounds.length + 1);
+  }
+
+  /**
+   * <p>
+   * record.
+   * </p>
+   *
+   * @param value the latency to count, in the unit of the bounds.
+   */
+  public void record(long value) {
+    int bucket = 0;
+    while (bucket < bounds.length && value > bounds[bucket]) {
+      bucket++;
+    }
+    counts.incrementAndGet(bucket);
+  }
+
+  /**
+   * Returns the counts recorded since the previous call and starts counting from zero.
+   *
+   * @return the count per bucket, the overflow bucket last.
+   */
+  public long[] snapshotAndReset() {
+    long[] snapshot = new long[counts.length()];
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = counts.getAndSet(i, 0);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the latency below which the given share of the counted latencies fall.
+   *
+   * @param snapshot counts taken by {@link #snapshotAndReset()}.
+   * @param quantile between <code>0</code> and <code>1</code>, e.g. <code>0.99</code>.
+   * @return the upper bound of the bucket, the largest bound for the overflow bucket and <code>0</code> if nothing was
+   *         counted.
+   */
+  public long percentile(long[] snapshot, double quantile) {
+
+    long total = count(snapshot);
+
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    int bucket = 0;
+
+    while (bucket < bounds.length) {
+      seen += snapshot[bucket];
+      if (seen >= rank) {
+        break;
+      }
+      bucket++;
+    }
+
+    return bounds[Math.min(bucket, bounds.length - 1)];
+  }
+
+  /**
+   * Returns the number of latencies in the given snapshot.
+   *
+   * @param snapshot counts taken by {@link #snapshotAndReset()}.
+   * @return a long.
+   */
+  public static long count(long[] snapshot) {
+    long total = 0;
+    for (long count : snapshot) {
+      total += count;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,65 @@
+package com.digitalbridge.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+/**
+ * <p>
+ * RepositoryTimingPostProcessor class. Adds an interceptor to the Spring Data repository proxies timing every method
+ * with the {@link HotPathTimer} as <code>repository.&lt;bean name&gt;.&lt;method&gt;</code>.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class RepositoryTimingPostProcessor implements BeanPostProcessor {
+
+  /** {@inheritDoc} */
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+    return bean;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+    if (bean instanceof Repository && bean instanceof Advised && !((Advised) bean).isFrozen()) {
+      ((Advised) bean).addAdvice(0, new TimingInterceptor("repository." + beanName));
+    }
+
+    return bean;
+  }
+
+  /**
+   * Times the invocations of one repository.
+   */
+  private static final class TimingInterceptor implements MethodInterceptor {
+
+    private final String step;
+
+    TimingInterceptor(String step) {
+      this.step = step;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+      long started = HotPathTimer.start();
+
+      try {
+        return invocation.proceed();
+      } finally {
+        HotPathTimer.stop(started, step, invocation.getMethod().getName());
+      }
+    }
+  }
+}
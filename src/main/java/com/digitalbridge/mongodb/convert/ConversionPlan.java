@@ -0,0 +1,214 @@
+package com.digitalbridge.mongodb.convert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.mapping.Association;
+import org.springframework.data.mapping.AssociationHandler;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The metadata {@link com.digitalbridge.mongodb.convert.CustomMappingMongoConverter} needs to read and write one
+ * entity type, resolved once: which properties are read and written, their field names, type information, SpEL
+ * expressions and the custom conversions of their declared types. Reading and writing a document then walks flat
+ * arrays instead of calling back through the
+ * {@link org.springframework.data.mongodb.core.mapping.MongoPersistentEntity} for every document. Plans are
+ * immutable and depend on the {@link org.springframework.data.mongodb.core.convert.CustomConversions} they were built
+ * with.
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+final class ConversionPlan {
+
+  private static final PropertyPlan[] NO_PROPERTIES = new PropertyPlan[0];
+
+  private final MongoPersistentEntity<?> entity;
+  private final MongoPersistentProperty idProperty;
+  private final PropertyPlan[] readProperties;
+  private final PropertyPlan[] writeProperties;
+  private final PropertyPlan[] associations;
+
+  private ConversionPlan(MongoPersistentEntity<?> entity, List<PropertyPlan> readProperties,
+      List<PropertyPlan> writeProperties, List<PropertyPlan> associations) {
+
+    this.entity = entity;
+    this.idProperty = entity.getIdProperty();
+    this.readProperties = readProperties.toArray(NO_PROPERTIES);
+    this.writeProperties = writeProperties.toArray(NO_PROPERTIES);
+    this.associations = associations.toArray(NO_PROPERTIES);
+  }
+
+  /**
+   * Builds the plan of the given entity.
+   *
+   * @param entity must not be {@literal null}.
+   * @param conversions must not be {@literal null}.
+   * @return a {@link com.digitalbridge.mongodb.convert.ConversionPlan} object.
+   */
+  static ConversionPlan of(final MongoPersistentEntity<?> entity, final CustomConversions conversions) {
+
+    Assert.notNull(entity, "MongoPersistentEntity must not be null!");
+    Assert.notNull(conversions, "CustomConversions must not be null!");
+
+    final MongoPersistentProperty idProperty = entity.getIdProperty();
+    final List<PropertyPlan> readProperties = new ArrayList<PropertyPlan>();
+    final List<PropertyPlan> writeProperties = new ArrayList<PropertyPlan>();
+    final List<PropertyPlan> associations = new ArrayList<PropertyPlan>();
+
+    entity.doWithProperties(new PropertyHandler<MongoPersistentProperty>() {
+      public void doWithPersistentProperty(MongoPersistentProperty property) {
+
+        if (property.equals(idProperty)) {
+          return;
+        }
+
+        PropertyPlan plan = new PropertyPlan(property, conversions);
+
+        if (!entity.isConstructorArgument(property)) {
+          readProperties.add(plan);
+        }
+
+        if (property.isWritable()) {
+          writeProperties.add(plan);
+        }
+      }
+    });
+
+    entity.doWithAssociations(new AssociationHandler<MongoPersistentProperty>() {
+      public void doWithAssociation(Association<MongoPersistentProperty> association) {
+        associations.add(new PropertyPlan(association.getInverse(), conversions));
+      }
+    });
+
+    return new ConversionPlan(entity, readProperties, writeProperties, associations);
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>entity</code>.
+   * </p>
+   *
+   * @return a {@link org.springframework.data.mongodb.core.mapping.MongoPersistentEntity} object.
+   */
+  MongoPersistentEntity<?> getEntity() {
+    return entity;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>idProperty</code>.
+   * </p>
+   *
+   * @return the id property, {@literal null} if the entity has none.
+   */
+  MongoPersistentProperty getIdProperty() {
+    return idProperty;
+  }
+
+  /**
+   * @return the properties other than the id read after the instance was created, i.e. those not set through the
+   *         constructor.
+   */
+  PropertyPlan[] getReadProperties() {
+    return readProperties;
+  }
+
+  /**
+   * @return the writable properties other than the id.
+   */
+  PropertyPlan[] getWriteProperties() {
+    return writeProperties;
+  }
+
+  /**
+   * @return the inverse properties of the associations.
+   */
+  PropertyPlan[] getAssociations() {
+    return associations;
+  }
+
+  /**
+   * How one property is read and written. The conversion of a value is only resolved up front for values of exactly
+   * the declared type of the property, {@link #matches(Class)} tells whether a value is one of them.
+   */
+  static final class PropertyPlan {
+
+    private final MongoPersistentProperty property;
+    private final String fieldName;
+    private final boolean nested;
+    private final String spelExpression;
+    private final TypeInformation<?> typeInformation;
+    private final boolean lazyDbRef;
+
+    private final Class<?> valueType;
+    private final boolean simpleType;
+    private final Class<?> customWriteTarget;
+
+    PropertyPlan(MongoPersistentProperty property, CustomConversions conversions) {
+
+      this.property = property;
+      this.fieldName = property.getFieldName();
+      this.nested = fieldName.contains(".");
+      this.spelExpression = property.getSpelExpression();
+      this.typeInformation = property.getTypeInformation();
+      this.lazyDbRef = property.getDBRef() != null && property.getDBRef().lazy();
+
+      this.valueType = ClassUtils.resolvePrimitiveIfNecessary(property.getRawType());
+      this.simpleType = conversions.isSimpleType(valueType);
+      this.customWriteTarget = conversions.getCustomWriteTarget(valueType, null);
+    }
+
+    MongoPersistentProperty getProperty() {
+      return property;
+    }
+
+    String getFieldName() {
+      return fieldName;
+    }
+
+    /**
+     * @return whether the field name is a path into nested documents.
+     */
+    boolean isNested() {
+      return nested;
+    }
+
+    String getSpelExpression() {
+      return spelExpression;
+    }
+
+    TypeInformation<?> getTypeInformation() {
+      return typeInformation;
+    }
+
+    boolean isLazyDbRef() {
+      return lazyDbRef;
+    }
+
+    /**
+     * @param type the class of a value of the property.
+     * @return whether {@link #isSimpleType()} and {@link #getCustomWriteTarget()} apply to values of the given type.
+     */
+    boolean matches(Class<?> type) {
+      return type == valueType;
+    }
+
+    boolean isSimpleType() {
+      return simpleType;
+    }
+
+    /**
+     * @return the type values of the declared type are converted to on write, {@literal null} if none.
+     */
+    Class<?> getCustomWriteTarget() {
+      return customWriteTarget;
+    }
+  }
+}
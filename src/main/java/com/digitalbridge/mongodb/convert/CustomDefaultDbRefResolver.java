@@ -7,6 +7,17 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -29,6 +40,10 @@ import org.springframework.objenesis.ObjenesisStd;
 import org.springframework.util.Assert;
 import org.springframework.util.ReflectionUtils;
 
+import com.digitalbridge.metrics.HotPathTimer;
+import com.digitalbridge.util.MongoClientVersion;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.DBRef;
 
@@ -45,6 +60,10 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
   private final MongoDbFactory mongoDbFactory;
   private final PersistenceExceptionTranslator exceptionTranslator;
   private final ObjenesisStd objenesis;
+  private final ThreadLocal<DbRefBatch> currentBatch = new ThreadLocal<DbRefBatch>();
+  private final ConcurrentMap<Class<?>, Class<?>> enhancedTypes = new ConcurrentHashMap<Class<?>, Class<?>>();
+
+  private DbRefCache sharedCache = new DbRefCache(0, 0);
 
   /**
    * Creates a new {@link org.springframework.data.mongodb.core.convert.DefaultDbRefResolver} with the given
@@ -61,6 +80,29 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
     this.objenesis = new ObjenesisStd(true);
   }
 
+  /**
+   * Configures the shared second level {@link DbRefCache} consulted before referenced documents are fetched from the
+   * database. Defaults to a disabled cache.
+   *
+   * @param sharedCache must not be {@literal null}.
+   */
+  public void setSharedCache(DbRefCache sharedCache) {
+
+    Assert.notNull(sharedCache, "DbRefCache must not be null!");
+    this.sharedCache = sharedCache;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>sharedCache</code>.
+   * </p>
+   *
+   * @return a {@link com.digitalbridge.mongodb.convert.DbRefCache} object.
+   */
+  public DbRefCache getSharedCache() {
+    return sharedCache;
+  }
+
   /*
    * (non-Javadoc)
    * @see org.springframework.data.mongodb.core.convert.DbRefResolver#resolveDbRef(org.springframework.data.mongodb.core.mapping.MongoPersistentProperty, org.springframework.data.mongodb.core.convert.DbRefResolverCallback)
@@ -104,7 +146,175 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
    * @return a {@link com.mongodb.DBObject} object.
    */
   public DBObject fetch(DBRef dbRef) {
-    return ReflectiveDBRefResolver.fetch(mongoDbFactory, dbRef);
+
+    DbRefBatch batch = currentBatch.get();
+
+    if (batch != null && batch.isFetched(dbRef)) {
+      return batch.lookup(dbRef);
+    }
+
+    DBObject document = sharedCache.get(dbRef);
+
+    if (document == null) {
+      long epoch = sharedCache.currentEpoch();
+      long started = HotPathTimer.start();
+      document = ReflectiveDBRefResolver.fetch(mongoDbFactory, dbRef);
+      HotPathTimer.stop(started, "dbref.fetch", dbRef.getCollectionName());
+      sharedCache.put(dbRef, document, epoch);
+    }
+
+    return document;
+  }
+
+  /**
+   * Fetches the documents referenced by the given {@link com.mongodb.DBRef}s issuing a single {@code $in} query per
+   * referenced collection. Documents already prefetched by the current {@link DbRefBatch} are not fetched again.
+   *
+   * @param dbRefs must not be {@literal null}.
+   * @return the referenced documents in the order of the given references, {@literal null} for missing ones.
+   */
+  public List<DBObject> bulkFetch(List<DBRef> dbRefs) {
+
+    Assert.notNull(dbRefs, "DBRefs to fetch must not be null!");
+
+    if (dbRefs.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    DbRefBatch batch = currentBatch.get();
+    Map<String, Set<Object>> idsByCollection = new LinkedHashMap<String, Set<Object>>();
+    Map<String, Map<Object, DBObject>> fetched = new HashMap<String, Map<Object, DBObject>>();
+
+    for (DBRef dbRef : dbRefs) {
+
+      if (batch != null && batch.isFetched(dbRef)) {
+        continue;
+      }
+
+      DBObject cached = sharedCache.get(dbRef);
+
+      if (cached != null) {
+        documentsOf(fetched, dbRef.getCollectionName()).put(dbRef.getId(), cached);
+        continue;
+      }
+
+      Set<Object> ids = idsByCollection.get(dbRef.getCollectionName());
+
+      if (ids == null) {
+        ids = new LinkedHashSet<Object>();
+        idsByCollection.put(dbRef.getCollectionName(), ids);
+      }
+
+      ids.add(dbRef.getId());
+    }
+
+    long epoch = sharedCache.currentEpoch();
+
+    for (Entry<String, Set<Object>> entry : idsByCollection.entrySet()) {
+
+      long started = HotPathTimer.start();
+      Map<Object, DBObject> documents = findByIds(entry.getKey(), new ArrayList<Object>(entry.getValue()));
+      HotPathTimer.stop(started, "dbref.bulk-fetch", entry.getKey());
+
+      for (DBObject document : documents.values()) {
+        sharedCache.put(new DBRef(entry.getKey(), document.get("_id")), document, epoch);
+      }
+
+      documentsOf(fetched, entry.getKey()).putAll(documents);
+    }
+
+    List<DBObject> result = new ArrayList<DBObject>(dbRefs.size());
+
+    for (DBRef dbRef : dbRefs) {
+
+      Map<Object, DBObject> documents = fetched.get(dbRef.getCollectionName());
+      DBObject document = documents == null ? null : documents.get(dbRef.getId());
+      result.add(document == null && batch != null ? batch.lookup(dbRef) : document);
+    }
+
+    if (batch != null) {
+      batch.register(dbRefs, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Opens a {@link DbRefBatch} for the current thread or joins the one already open. Every call must be paired with a
+   * call to {@link DbRefBatch#close()}.
+   *
+   * @return a {@link com.digitalbridge.mongodb.convert.DbRefBatch} object.
+   */
+  public DbRefBatch openBatch() {
+
+    DbRefBatch batch = currentBatch.get();
+
+    if (batch != null) {
+      return batch.join();
+    }
+
+    batch = new DbRefBatch(this);
+    currentBatch.set(batch);
+    return batch;
+  }
+
+  /**
+   * Returns the {@link DbRefBatch} bound to the current thread.
+   *
+   * @return the current batch or {@literal null} if none is open.
+   */
+  DbRefBatch currentBatch() {
+    return currentBatch.get();
+  }
+
+  void unbind(DbRefBatch batch) {
+
+    if (currentBatch.get() == batch) {
+      currentBatch.remove();
+    }
+  }
+
+  private static Map<Object, DBObject> documentsOf(Map<String, Map<Object, DBObject>> fetched, String collection) {
+
+    Map<Object, DBObject> documents = fetched.get(collection);
+
+    if (documents == null) {
+      documents = new HashMap<Object, DBObject>();
+      fetched.put(collection, documents);
+    }
+
+    return documents;
+  }
+
+  private Map<Object, DBObject> findByIds(String collectionName, List<Object> ids) {
+
+    Map<Object, DBObject> documents = new HashMap<Object, DBObject>(ids.size());
+
+    if (!MongoClientVersion.isMongo3Driver()) {
+      for (Object id : ids) {
+
+        DBObject document = ReflectiveDBRefResolver.fetch(mongoDbFactory, new DBRef(collectionName, id));
+
+        if (document != null) {
+          documents.put(id, document);
+        }
+      }
+      return documents;
+    }
+
+    DBObject query = new BasicDBObject("_id", new BasicDBObject("$in", ids));
+    DBCursor cursor = mongoDbFactory.getDb().getCollection(collectionName).find(query);
+
+    try {
+      while (cursor.hasNext()) {
+        DBObject document = cursor.next();
+        documents.put(document.get("_id"), document);
+      }
+    } finally {
+      cursor.close();
+    }
+
+    return documents;
   }
 
   /**
@@ -121,6 +331,11 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
 
     Class<?> propertyType = property.getType();
     LazyLoadingInterceptor interceptor = new LazyLoadingInterceptor(property, dbref, exceptionTranslator, callback);
+    DbRefBatch batch = currentBatch.get();
+
+    if (batch != null) {
+      interceptor.joinGroup(this, batch.getLazyDbRefGroup());
+    }
 
     if (!propertyType.isInterface()) {
 
@@ -144,19 +359,27 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
   }
 
   /**
-   * Returns the CGLib enhanced type for the given source type.
+   * Returns the CGLib enhanced type for the given source type, created once per type.
    * 
    * @param type
    * @return
    */
   private Class<?> getEnhancedTypeFor(Class<?> type) {
 
+    Class<?> enhancedType = enhancedTypes.get(type);
+
+    if (enhancedType != null) {
+      return enhancedType;
+    }
+
     Enhancer enhancer = new Enhancer();
     enhancer.setSuperclass(type);
     enhancer.setCallbackType(org.springframework.cglib.proxy.MethodInterceptor.class);
     enhancer.setInterfaces(new Class[] { LazyLoadingProxy.class });
 
-    return enhancer.createClass();
+    enhancedType = enhancer.createClass();
+    Class<?> existing = enhancedTypes.putIfAbsent(type, enhancedType);
+    return existing == null ? enhancedType : existing;
   }
 
   /**
@@ -191,6 +414,9 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
     private Object result;
     private DBRef dbref;
 
+    private transient CustomDefaultDbRefResolver resolver;
+    private transient LazyDbRefGroup group;
+
     static {
       try {
         INITIALIZE_METHOD = LazyLoadingProxy.class.getMethod("getTarget");
@@ -222,6 +448,20 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
       this.property = property;
     }
 
+    /**
+     * Resolves the proxy against the documents of the given {@link LazyDbRefGroup}, which are fetched together when
+     * the first proxy of the group gets resolved.
+     * 
+     * @param resolver must not be {@literal null}.
+     * @param group must not be {@literal null}.
+     */
+    void joinGroup(CustomDefaultDbRefResolver resolver, LazyDbRefGroup group) {
+
+      this.resolver = resolver;
+      this.group = group;
+      group.join();
+    }
+
     /*
      * (non-Javadoc)
      * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
@@ -380,7 +620,7 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
 
         try {
 
-          return callback.resolve(property);
+          return group == null ? callback.resolve(property) : resolveInGroup();
 
         } catch (RuntimeException ex) {
 
@@ -391,6 +631,22 @@ public class CustomDefaultDbRefResolver implements DbRefResolver {
 
       return result;
     }
+
+    private Object resolveInGroup() {
+
+      DbRefBatch batch = resolver.openBatch();
+
+      try {
+        group.prefetch(batch);
+        Object value = callback.resolve(property);
+        batch.resolve();
+        return value;
+      } finally {
+        batch.close();
+        group.release();
+        group = null;
+      }
+    }
   }
 
 }
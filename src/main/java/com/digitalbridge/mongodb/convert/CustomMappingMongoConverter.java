@@ -8,6 +8,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,10 +22,7 @@ import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.data.convert.CollectionFactory;
 import org.springframework.data.convert.EntityInstantiator;
-import org.springframework.data.mapping.Association;
-import org.springframework.data.mapping.AssociationHandler;
 import org.springframework.data.mapping.PreferredConstructor.Parameter;
-import org.springframework.data.mapping.PropertyHandler;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mapping.model.DefaultSpELExpressionEvaluator;
 import org.springframework.data.mapping.model.MappingException;
@@ -35,6 +34,7 @@ import org.springframework.data.mapping.model.SpELExpressionEvaluator;
 import org.springframework.data.mapping.model.SpELExpressionParameterValueProvider;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.convert.AbstractMongoConverter;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
 import org.springframework.data.mongodb.core.convert.DbRefProxyHandler;
 import org.springframework.data.mongodb.core.convert.DbRefResolverCallback;
 import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
@@ -50,7 +50,8 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 
-import com.digitalbridge.mongodb.data.mapping.BeanWrapper;
+import com.digitalbridge.metrics.HotPathTimer;
+import com.digitalbridge.mongodb.data.mapping.CachingPropertyAccessorFactory;
 import com.digitalbridge.mongodb.data.mapping.ConvertingPropertyAccessor;
 import com.digitalbridge.mongodb.data.mapping.PersistentPropertyAccessor;
 import com.mongodb.BasicDBList;
@@ -80,12 +81,18 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
   protected final SpelExpressionParser spelExpressionParser = new SpelExpressionParser();
   protected final QueryMapper idMapper;
   protected final CustomDefaultDbRefResolver dbRefResolver;
+  protected final CachingPropertyAccessorFactory propertyAccessorFactory =
+      new CachingPropertyAccessorFactory();
 
   protected ApplicationContext applicationContext;
   protected MongoTypeMapper typeMapper;
   protected String mapKeyDotReplacement = null;
 
   private SpELContext spELContext;
+  private DbRefProxyHandler dbRefProxyHandler;
+
+  private final ConcurrentMap<Class<?>, ConversionPlan> conversionPlans =
+      new ConcurrentHashMap<Class<?>, ConversionPlan>();
 
   /**
    * Creates a new {@link org.springframework.data.mongodb.core.convert.MappingMongoConverter} given the new
@@ -109,6 +116,7 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     this.idMapper = new QueryMapper(this);
 
     this.spELContext = new SpELContext(DBObjectPropertyAccessor.INSTANCE);
+    this.dbRefProxyHandler = new DefaultDbRefProxyHandler(spELContext, mappingContext, this);
   }
 
   /**
@@ -171,6 +179,18 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
 
     this.applicationContext = applicationContext;
     this.spELContext = new SpELContext(this.spELContext, applicationContext);
+    this.dbRefProxyHandler = new DefaultDbRefProxyHandler(spELContext, mappingContext, this);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * Drops the conversion plans built with the previous conversions.
+   */
+  @Override
+  public void setCustomConversions(CustomConversions conversions) {
+    super.setCustomConversions(conversions);
+    conversionPlans.clear();
   }
 
   /**
@@ -196,7 +216,18 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
    * @return a S object.
    */
   protected <S extends Object> S read(TypeInformation<S> type, DBObject dbo) {
-    return read(type, dbo, ObjectPath.ROOT);
+
+    long started = HotPathTimer.start();
+    DbRefBatch batch = dbRefResolver.openBatch();
+
+    try {
+      S result = read(type, dbo, ObjectPath.ROOT);
+      batch.resolve();
+      return result;
+    } finally {
+      batch.close();
+      HotPathTimer.stop(started, "converter.read", type.getType());
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -258,10 +289,11 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     EntityInstantiator instantiator = instantiators.getInstantiatorFor(entity);
     S instance = instantiator.createInstance(entity, provider);
 
-    final PersistentPropertyAccessor accessor = new ConvertingPropertyAccessor(getPropertyAccessor(instance),
+    final PersistentPropertyAccessor accessor = new ConvertingPropertyAccessor(getPropertyAccessor(entity, instance),
         conversionService);
 
-    final MongoPersistentProperty idProperty = entity.getIdProperty();
+    ConversionPlan plan = getConversionPlan(entity);
+    MongoPersistentProperty idProperty = plan.getIdProperty();
     final S result = instance;
 
     // make sure id property is set before all other properties
@@ -273,52 +305,109 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     }
 
     final ObjectPath currentPath = path.push(result, entity, idValue);
+    DBObjectAccessor source = null;
 
     // Set properties not already set in the constructor
-    entity.doWithProperties(new PropertyHandler<MongoPersistentProperty>() {
-      public void doWithPersistentProperty(MongoPersistentProperty prop) {
+    for (ConversionPlan.PropertyPlan property : plan.getReadProperties()) {
 
-        // we skip the id property since it was already set
-        if (idProperty != null && idProperty.equals(prop)) {
-          return;
-        }
+      if (property.isNested()) {
+        source = source == null ? new DBObjectAccessor(dbo) : source;
+      }
 
-        if (!dbo.containsField(prop.getFieldName()) || entity.isConstructorArgument(prop)) {
-          return;
-        }
+      if (property.isNested() ? !source.hasValue(property.getProperty())
+          : !dbo.containsField(property.getFieldName())) {
+        continue;
+      }
+
+      Object value;
 
-        accessor.setProperty(prop, getValueInternal(prop, dbo, evaluator, currentPath));
+      if (property.getSpelExpression() != null) {
+        value = evaluator.evaluate(property.getSpelExpression());
+      } else if (property.isNested()) {
+        value = source.get(property.getProperty());
+      } else {
+        value = dbo.get(property.getFieldName());
       }
-    });
+
+      accessor.setProperty(property.getProperty(),
+          value == null ? null : readValue(value, property.getTypeInformation(), currentPath));
+    }
 
     // Handle associations
-    entity.doWithAssociations(new AssociationHandler<MongoPersistentProperty>() {
-      public void doWithAssociation(Association<MongoPersistentProperty> association) {
+    DbRefResolverCallback callback = null;
 
-        final MongoPersistentProperty property = association.getInverse();
-        Object value = dbo.get(property.getFieldName());
+    for (ConversionPlan.PropertyPlan association : plan.getAssociations()) {
 
-        if (value == null) {
-          return;
-        }
+      final MongoPersistentProperty property = association.getProperty();
+      Object value = dbo.get(association.getFieldName());
+
+      if (value == null) {
+        continue;
+      }
+
+      final DBRef dbref = value instanceof DBRef ? (DBRef) value : null;
+      final DbRefProxyHandler handler = dbRefProxyHandler;
+
+      if (callback == null) {
+        callback = new DefaultDbRefResolverCallback(dbo, currentPath, evaluator, this);
+      }
+
+      final DbRefResolverCallback resolverCallback = callback;
 
-        DBRef dbref = value instanceof DBRef ? (DBRef) value : null;
+      DbRefBatch batch = dbRefResolver.currentBatch();
 
-        DbRefProxyHandler handler = (DbRefProxyHandler) new DefaultDbRefProxyHandler(spELContext, mappingContext,
-            CustomMappingMongoConverter.this);
-        DbRefResolverCallback callback = new DefaultDbRefResolverCallback(dbo, currentPath, evaluator,
-            CustomMappingMongoConverter.this);
+      // defer eager references so that the whole batch gets fetched with one query per collection
+      if (batch != null && !association.isLazyDbRef()) {
+        batch.defer(value, new Runnable() {
+          public void run() {
+            accessor.setProperty(property, dbRefResolver.resolveDbRef(property, dbref, resolverCallback, handler));
+          }
+        });
+        continue;
+      }
 
-        accessor.setProperty(property, dbRefResolver.resolveDbRef(property, dbref, callback, handler));
+      // lazy references read within the batch are fetched together once the first of them is touched
+      if (batch != null) {
+        batch.getLazyDbRefGroup().collect(value);
       }
-    });
+
+      accessor.setProperty(property, dbRefResolver.resolveDbRef(property, dbref, resolverCallback, handler));
+    }
 
     return result;
   }
 
-  private PersistentPropertyAccessor getPropertyAccessor(Object bean) {
+  /**
+   * Returns the {@link com.digitalbridge.mongodb.convert.ConversionPlan} of the given entity, building it on first use.
+   *
+   * @param entity must not be {@literal null}.
+   * @return a {@link com.digitalbridge.mongodb.convert.ConversionPlan} object.
+   */
+  ConversionPlan getConversionPlan(MongoPersistentEntity<?> entity) {
+
+    ConversionPlan plan = conversionPlans.get(entity.getType());
+
+    if (plan == null || plan.getEntity() != entity) {
+      plan = ConversionPlan.of(entity, conversions);
+      conversionPlans.put(entity.getType(), plan);
+    }
+
+    return plan;
+  }
+
+  /**
+   * Opens a {@link com.digitalbridge.mongodb.convert.DbRefBatch} for the current thread. All eager
+   * {@link com.mongodb.DBRef}s of documents read until {@link DbRefBatch#resolve()} is called are fetched in bulk.
+   *
+   * @return a {@link com.digitalbridge.mongodb.convert.DbRefBatch} object, never {@literal null}.
+   */
+  public DbRefBatch openDbRefBatch() {
+    return dbRefResolver.openBatch();
+  }
+
+  private PersistentPropertyAccessor getPropertyAccessor(MongoPersistentEntity<?> entity, Object bean) {
     Assert.notNull(bean, "Target bean must not be null!");
-    return new BeanWrapper<Object>(bean);
+    return propertyAccessorFactory.getPropertyAccessor(entity, bean);
   }
 
   /* 
@@ -366,8 +455,13 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     }
 
     Object target = obj instanceof LazyLoadingProxy ? ((LazyLoadingProxy) obj).getTarget() : obj;
+    long started = HotPathTimer.start();
 
-    writeInternal(target, dbo, type);
+    try {
+      writeInternal(target, dbo, type);
+    } finally {
+      HotPathTimer.stop(started, "converter.write", entityType);
+    }
   }
 
   /**
@@ -427,8 +521,9 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
       throw new MappingException("No mapping metadata found for entity of type " + obj.getClass().getName());
     }
 
-    final PersistentPropertyAccessor accessor = getPropertyAccessor(obj);
-    final MongoPersistentProperty idProperty = entity.getIdProperty();
+    PersistentPropertyAccessor accessor = getPropertyAccessor(entity, obj);
+    ConversionPlan plan = getConversionPlan(entity);
+    MongoPersistentProperty idProperty = plan.getIdProperty();
 
     if (!dbo.containsField("_id") && null != idProperty) {
 
@@ -441,38 +536,44 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     }
 
     // Write the properties
-    entity.doWithProperties(new PropertyHandler<MongoPersistentProperty>() {
-      public void doWithPersistentProperty(MongoPersistentProperty prop) {
+    for (ConversionPlan.PropertyPlan property : plan.getWriteProperties()) {
 
-        if (prop.equals(idProperty) || !prop.isWritable()) {
-          return;
-        }
+      Object propertyObj = accessor.getProperty(property.getProperty());
 
-        Object propertyObj = accessor.getProperty(prop);
+      if (null == propertyObj) {
+        continue;
+      }
 
-        if (null != propertyObj) {
+      if (!property.matches(propertyObj.getClass())) {
+        if (!conversions.isSimpleType(propertyObj.getClass())) {
+          writePropertyInternal(propertyObj, dbo, property.getProperty());
+        } else {
+          writeSimpleInternal(propertyObj, dbo, property.getProperty());
+        }
+      } else if (!property.isSimpleType()) {
+        writePropertyInternal(propertyObj, dbo, property.getProperty());
+      } else {
+        Class<?> customTarget = property.getCustomWriteTarget();
+        Object value = customTarget != null ? conversionService.convert(propertyObj, customTarget)
+            : propertyObj instanceof Enum ? ((Enum<?>) propertyObj).name() : propertyObj;
 
-          if (!conversions.isSimpleType(propertyObj.getClass())) {
-            writePropertyInternal(propertyObj, dbo, prop);
-          } else {
-            writeSimpleInternal(propertyObj, dbo, prop);
-          }
+        if (property.isNested()) {
+          new DBObjectAccessor(dbo).put(property.getProperty(), value);
+        } else {
+          dbo.put(property.getFieldName(), value);
         }
       }
-    });
-
-    entity.doWithAssociations(new AssociationHandler<MongoPersistentProperty>() {
+    }
 
-      public void doWithAssociation(Association<MongoPersistentProperty> association) {
+    for (ConversionPlan.PropertyPlan association : plan.getAssociations()) {
 
-        MongoPersistentProperty inverseProp = association.getInverse();
-        Object propertyObj = accessor.getProperty(inverseProp);
+      MongoPersistentProperty inverseProp = association.getProperty();
+      Object propertyObj = accessor.getProperty(inverseProp);
 
-        if (null != propertyObj) {
-          writePropertyInternal(propertyObj, dbo, inverseProp);
-        }
+      if (null != propertyObj) {
+        writePropertyInternal(propertyObj, dbo, inverseProp);
       }
-    });
+    }
   }
 
   /**
@@ -897,7 +998,7 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     if (target.getClass().equals(idProperty.getType())) {
       id = target;
     } else {
-      PersistentPropertyAccessor accessor = getPropertyAccessor(target);
+      PersistentPropertyAccessor accessor = getPropertyAccessor(targetEntity, target);
       id = accessor.getProperty(idProperty);
     }
 
@@ -945,13 +1046,25 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     Collection<Object> items = targetType.getType().isArray() ? new ArrayList<Object>()
         : CollectionFactory.createCollection(collectionType, rawComponentType, sourceValue.size());
 
+    List<DBObject> referencedDocuments = DBRef.class.equals(rawComponentType) ? Collections.<DBObject> emptyList()
+        : readRefs(sourceValue, path);
+    int refIndex = 0;
+
     for (int i = 0; i < sourceValue.size(); i++) {
 
       Object dbObjItem = sourceValue.get(i);
 
       if (dbObjItem instanceof DBRef) {
-        items.add(
-            DBRef.class.equals(rawComponentType) ? dbObjItem : read(componentType, readRef((DBRef) dbObjItem), path));
+
+        if (DBRef.class.equals(rawComponentType)) {
+          items.add(dbObjItem);
+          continue;
+        }
+
+        DBRef dbRef = (DBRef) dbObjItem;
+        Object existing = path.getPathItem(dbRef.getId(), dbRef.getCollectionName());
+        items.add(existing != null ? existing
+            : readReference(dbRef, referencedDocuments.get(refIndex++), componentType, path));
       } else if (dbObjItem instanceof DBObject) {
         items.add(read(componentType, (DBObject) dbObjItem, path));
       } else {
@@ -962,6 +1075,33 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
     return getPotentiallyConvertedSimpleRead(items, targetType.getType());
   }
 
+  /**
+   * Fetches all {@link DBRef}s contained in the given {@link BasicDBList} that are not already part of the given
+   * {@link ObjectPath} with one query per referenced collection.
+   * 
+   * @param sourceValue must not be {@literal null}.
+   * @param path must not be {@literal null}.
+   * @return the referenced documents in list order.
+   */
+  private List<DBObject> readRefs(BasicDBList sourceValue, ObjectPath path) {
+
+    List<DBRef> refs = new ArrayList<DBRef>(sourceValue.size());
+
+    for (Object element : sourceValue) {
+
+      if (element instanceof DBRef) {
+
+        DBRef dbRef = (DBRef) element;
+
+        if (path.getPathItem(dbRef.getId(), dbRef.getCollectionName()) == null) {
+          refs.add(dbRef);
+        }
+      }
+    }
+
+    return dbRefResolver.bulkFetch(refs);
+  }
+
   /**
    * Reads the given {@link com.mongodb.DBObject} into a {@link java.util.Map}. will recursively resolve nested
    * {@link java.util.Map}s as well.
@@ -1259,7 +1399,35 @@ public class CustomMappingMongoConverter extends AbstractMongoConverter
       return (T) object;
     }
 
-    return (T) (object != null ? object : read(type, readRef(dbref), path));
+    return (T) readReference(dbref, readRef(dbref), type, path);
+  }
+
+  /**
+   * Reads the given referenced document unless an instance for the same collection and id was already read within the
+   * current {@link DbRefBatch}, in which case that instance is returned.
+   * 
+   * @param dbref must not be {@literal null}.
+   * @param document can be {@literal null}.
+   * @param type must not be {@literal null}.
+   * @param path must not be {@literal null}.
+   * @return
+   */
+  private Object readReference(DBRef dbref, DBObject document, TypeInformation<?> type, ObjectPath path) {
+
+    DbRefBatch batch = dbRefResolver.currentBatch();
+    Object entity = batch == null ? null : batch.getEntity(dbref);
+
+    if (entity != null && type.getType().isInstance(entity)) {
+      return entity;
+    }
+
+    entity = read(type, document, path);
+
+    if (batch != null && entity != null) {
+      batch.putEntity(dbref, entity);
+    }
+
+    return entity;
   }
 
   /**
@@ -1,12 +1,14 @@
 package com.digitalbridge.mongodb.convert;
 
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 
@@ -22,6 +24,9 @@ import com.mongodb.DBObject;
  */
 class DBObjectAccessor {
 
+  /** Segments of the dotted field names seen so far, bounded by the mapping metadata. */
+  private static final ConcurrentMap<String, String[]> PATHS = new ConcurrentHashMap<String, String[]>();
+
   private final BasicDBObject dbObject;
 
   /**
@@ -42,7 +47,8 @@ class DBObjectAccessor {
    * Puts the given value into the backing {@link com.mongodb.DBObject} based on the coordinates defined through the
    * given {@link org.springframework.data.mongodb.core.mapping.MongoPersistentProperty}. By default this will be the
    * plain field name. But field names might also consist of path traversals so we might need to create intermediate
-   * {@link com.mongodb.BasicDBObject}s.
+   * {@link com.mongodb.BasicDBObject}s. Intermediate documents already present are reused so that values written
+   * before for other fields of the same path are kept.
    *
    * @param prop must not be {@literal null}.
    * @param value a {@link java.lang.Object} object.
@@ -52,26 +58,29 @@ class DBObjectAccessor {
     Assert.notNull(prop, "MongoPersistentProperty must not be null!");
     String fieldName = prop.getFieldName();
 
-    if (!fieldName.contains(".")) {
+    if (fieldName.indexOf('.') < 0) {
       dbObject.put(fieldName, value);
       return;
     }
 
-    Iterator<String> parts = Arrays.asList(fieldName.split("\\.")).iterator();
+    String[] path = getPath(fieldName);
     DBObject dbObject = this.dbObject;
+    int last = path.length - 1;
 
-    while (parts.hasNext()) {
+    for (int i = 0; i < last; i++) {
 
-      String part = parts.next();
+      Object existing = dbObject.get(path[i]);
 
-      if (parts.hasNext()) {
+      if (existing instanceof DBObject && !(existing instanceof BasicDBList)) {
+        dbObject = (DBObject) existing;
+      } else {
         BasicDBObject nestedDbObject = new BasicDBObject();
-        dbObject.put(part, nestedDbObject);
+        dbObject.put(path[i], nestedDbObject);
         dbObject = nestedDbObject;
-      } else {
-        dbObject.put(part, value);
       }
     }
+
+    dbObject.put(path[last], value);
   }
 
   /**
@@ -87,24 +96,65 @@ class DBObjectAccessor {
 
     String fieldName = property.getFieldName();
 
-    if (!fieldName.contains(".")) {
+    if (fieldName.indexOf('.') < 0) {
       return this.dbObject.get(fieldName);
     }
 
-    Iterator<String> parts = Arrays.asList(fieldName.split("\\.")).iterator();
+    String[] path = getPath(fieldName);
+    Map<String, Object> source = getParent(path);
+    return source == null ? null : source.get(path[path.length - 1]);
+  }
+
+  /**
+   * Returns whether the backing {@link com.mongodb.DBObject} contains the field the given
+   * {@link org.springframework.data.mongodb.core.mapping.MongoPersistentProperty} refers to, resolving path
+   * expressions in the field name like {@link #get(MongoPersistentProperty)}.
+   *
+   * @param property must not be {@literal null}.
+   * @return a boolean.
+   */
+  public boolean hasValue(MongoPersistentProperty property) {
+
+    String fieldName = property.getFieldName();
+
+    if (fieldName.indexOf('.') < 0) {
+      return this.dbObject.containsField(fieldName);
+    }
+
+    String[] path = getPath(fieldName);
+    Map<String, Object> source = getParent(path);
+    return source != null && source.containsKey(path[path.length - 1]);
+  }
+
+  /**
+   * Returns the document holding the last segment of the given path, {@literal null} if one of the segments before
+   * does not refer to a document.
+   */
+  private Map<String, Object> getParent(String[] path) {
+
     Map<String, Object> source = this.dbObject;
-    Object result = null;
+    int last = path.length - 1;
 
-    while (source != null && parts.hasNext()) {
+    for (int i = 0; i < last && source != null; i++) {
+      source = getAsMap(source.get(path[i]));
+    }
 
-      result = source.get(parts.next());
+    return source;
+  }
 
-      if (parts.hasNext()) {
-        source = getAsMap(result);
-      }
+  /**
+   * Returns the segments of the given dotted field name, split once per field name.
+   */
+  private static String[] getPath(String fieldName) {
+
+    String[] path = PATHS.get(fieldName);
+
+    if (path == null) {
+      path = StringUtils.delimitedListToStringArray(fieldName, ".");
+      PATHS.putIfAbsent(fieldName, path);
     }
 
-    return result;
+    return path;
   }
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,208 @@
+package com.digitalbridge.mongodb.convert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+/**
+ * Thread bound unit of work collecting {@link DBRef}s of all documents read within a single bulk read (e.g. one
+ * {@code MongoTemplate.find}). Resolution of eager associations is deferred until {@link #resolve()} is called, which
+ * fetches all collected references with one {@code $in} query per collection and then replays the deferred
+ * resolutions against the prefetched documents. References discovered while replaying are collected and fetched in
+ * the next round, so every nesting level costs one query per collection.
+ * <p>
+ * The batch also serves as first level identity map: an entity read for a given collection and id is handed out again
+ * for every further reference to it within the same conversion. Lazy references are collected into a
+ * {@link LazyDbRefGroup} shared by the proxies created for them.
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public final class DbRefBatch {
+
+  private final CustomDefaultDbRefResolver resolver;
+
+  private final Map<String, Map<Object, DBObject>> prefetched = new HashMap<String, Map<Object, DBObject>>();
+  private final Map<String, Map<Object, Object>> entities = new HashMap<String, Map<Object, Object>>();
+  private List<DBRef> pendingRefs = new ArrayList<DBRef>();
+  private List<Runnable> pendingTasks = new ArrayList<Runnable>();
+  private LazyDbRefGroup lazyDbRefGroup;
+
+  private int depth = 1;
+
+  DbRefBatch(CustomDefaultDbRefResolver resolver) {
+
+    Assert.notNull(resolver, "DbRefResolver must not be null!");
+    this.resolver = resolver;
+  }
+
+  /**
+   * Defers the given resolution task until the batch is resolved. The given raw value is scanned for {@link DBRef}s
+   * that need to be fetched before the task can run.
+   *
+   * @param value the raw association value, either a {@link DBRef} or a {@link BasicDBList} of them.
+   * @param task must not be {@literal null}.
+   */
+  void defer(Object value, Runnable task) {
+
+    Assert.notNull(task, "Task must not be null!");
+
+    collect(value);
+    pendingTasks.add(task);
+  }
+
+  /**
+   * Returns the group of the lazy references read within this batch.
+   *
+   * @return a {@link com.digitalbridge.mongodb.convert.LazyDbRefGroup} object, never {@literal null}.
+   */
+  LazyDbRefGroup getLazyDbRefGroup() {
+
+    if (lazyDbRefGroup == null) {
+      lazyDbRefGroup = new LazyDbRefGroup(resolver);
+    }
+
+    return lazyDbRefGroup;
+  }
+
+  /**
+   * Returns the prefetched document for the given {@link DBRef} or {@literal null} if it was not fetched by this batch.
+   *
+   * @param ref must not be {@literal null}.
+   * @return a {@link com.mongodb.DBObject} object.
+   */
+  DBObject lookup(DBRef ref) {
+
+    Map<Object, DBObject> documents = prefetched.get(ref.getCollectionName());
+    return documents == null ? null : documents.get(ref.getId());
+  }
+
+  /**
+   * Returns whether the given {@link DBRef} was already looked up by this batch, even if the document did not exist.
+   *
+   * @param ref must not be {@literal null}.
+   * @return a boolean.
+   */
+  boolean isFetched(DBRef ref) {
+
+    Map<Object, DBObject> documents = prefetched.get(ref.getCollectionName());
+    return documents != null && documents.containsKey(ref.getId());
+  }
+
+  /**
+   * Returns the entity already read for the given {@link DBRef} within this batch.
+   *
+   * @param ref must not be {@literal null}.
+   * @return the entity or {@literal null} if the reference was not resolved yet.
+   */
+  Object getEntity(DBRef ref) {
+
+    Map<Object, Object> collection = entities.get(ref.getCollectionName());
+    return collection == null ? null : collection.get(ref.getId());
+  }
+
+  /**
+   * Registers the entity read for the given {@link DBRef}.
+   *
+   * @param ref must not be {@literal null}.
+   * @param entity must not be {@literal null}.
+   */
+  void putEntity(DBRef ref, Object entity) {
+
+    Map<Object, Object> collection = entities.get(ref.getCollectionName());
+
+    if (collection == null) {
+      collection = new HashMap<Object, Object>();
+      entities.put(ref.getCollectionName(), collection);
+    }
+
+    collection.put(ref.getId(), entity);
+  }
+
+  /**
+   * Registers the given documents as prefetched. Missing documents are registered with a {@literal null} value to avoid
+   * fetching them again.
+   *
+   * @param refs must not be {@literal null}.
+   * @param documents must not be {@literal null}, same order as {@code refs}.
+   */
+  void register(List<DBRef> refs, List<DBObject> documents) {
+
+    for (int i = 0; i < refs.size(); i++) {
+
+      DBRef ref = refs.get(i);
+      Map<Object, DBObject> collection = prefetched.get(ref.getCollectionName());
+
+      if (collection == null) {
+        collection = new LinkedHashMap<Object, DBObject>();
+        prefetched.put(ref.getCollectionName(), collection);
+      }
+
+      collection.put(ref.getId(), documents.get(i));
+    }
+  }
+
+  /**
+   * Fetches all pending references and runs the deferred resolutions until no more references are pending. Calling
+   * this on a nested batch is a no-op as the outermost batch resolves everything.
+   */
+  public void resolve() {
+
+    if (depth > 1) {
+      return;
+    }
+
+    while (!pendingTasks.isEmpty()) {
+
+      List<DBRef> refs = pendingRefs;
+      List<Runnable> tasks = pendingTasks;
+
+      pendingRefs = new ArrayList<DBRef>();
+      pendingTasks = new ArrayList<Runnable>();
+
+      resolver.bulkFetch(refs);
+
+      for (Runnable task : tasks) {
+        task.run();
+      }
+    }
+  }
+
+  /**
+   * Closes the batch and unbinds it from the current thread. Must be called in a {@literal finally} block.
+   */
+  public void close() {
+
+    if (--depth > 0) {
+      return;
+    }
+
+    resolver.unbind(this);
+  }
+
+  DbRefBatch join() {
+    depth++;
+    return this;
+  }
+
+  private void collect(Object value) {
+
+    if (value instanceof DBRef) {
+      pendingRefs.add((DBRef) value);
+    } else if (value instanceof BasicDBList) {
+      for (Object element : (BasicDBList) value) {
+        if (element instanceof DBRef) {
+          pendingRefs.add((DBRef) element);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,349 @@
+package com.digitalbridge.mongodb.convert;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+/**
+ * Shared, size and time bounded LRU cache of documents referenced through {@link com.mongodb.DBRef}s. Entries are
+ * keyed on collection name and id and expire {@code ttlMillis} after they were stored. A cache created with a maximum
+ * size of {@code 0} is disabled and never stores anything.
+ * <p>
+ * Documents are copied when stored and when returned, so callers never share mutable state through the cache. Every
+ * invalidation moves the cache to a new epoch; documents read from the database are stored with the epoch taken before
+ * the read and are dropped if an invalidation happened meanwhile, as they may predate the change that caused it.
+ * <p>
+ * The cache keeps hit, miss and eviction counters so it can be sized from production numbers.
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class DbRefCache {
+
+  private final int maxSize;
+  private final long ttlMillis;
+  private final LinkedHashMap<CacheKey, CacheEntry> entries;
+  private long epoch;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * <p>
+   * Constructor for DbRefCache.
+   * </p>
+   *
+   * @param maxSize maximum number of cached documents, {@code 0} disables the cache.
+   * @param ttlMillis time to live of an entry in milliseconds.
+   */
+  public DbRefCache(final int maxSize, long ttlMillis) {
+
+    this.maxSize = maxSize;
+    this.ttlMillis = ttlMillis;
+    this.entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+
+        if (size() > DbRefCache.this.maxSize) {
+          evictions.incrementAndGet();
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * <p>
+   * isEnabled.
+   * </p>
+   *
+   * @return {@literal true} if the cache stores documents at all.
+   */
+  public boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * Returns the cached document for the given {@link com.mongodb.DBRef}.
+   *
+   * @param ref must not be {@literal null}.
+   * @return a copy of the cached document or {@literal null} if absent or expired.
+   */
+  public DBObject get(DBRef ref) {
+
+    if (!isEnabled()) {
+      return null;
+    }
+
+    CacheKey key = new CacheKey(ref.getCollectionName(), ref.getId());
+
+    synchronized (entries) {
+
+      CacheEntry entry = entries.get(key);
+
+      if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+        entries.remove(key);
+        evictions.incrementAndGet();
+        entry = null;
+      }
+
+      if (entry == null) {
+        misses.incrementAndGet();
+        return null;
+      }
+
+      hits.incrementAndGet();
+      return copyOf(entry.document);
+    }
+  }
+
+  /**
+   * <p>
+   * currentEpoch.
+   * </p>
+   *
+   * @return the epoch to pass to {@link #put(DBRef, DBObject, long)} for a document about to be read.
+   */
+  public long currentEpoch() {
+    synchronized (entries) {
+      return epoch;
+    }
+  }
+
+  /**
+   * Stores a copy of the given document for the given {@link com.mongodb.DBRef}. {@literal null} documents are not
+   * cached.
+   *
+   * @param ref must not be {@literal null}.
+   * @param document can be {@literal null}.
+   * @see #put(DBRef, DBObject, long)
+   */
+  public void put(DBRef ref, DBObject document) {
+    put(ref, document, currentEpoch());
+  }
+
+  /**
+   * Stores a copy of the given document for the given {@link com.mongodb.DBRef} unless the cache was invalidated since
+   * the given epoch. {@literal null} documents are not cached.
+   *
+   * @param ref must not be {@literal null}.
+   * @param document can be {@literal null}.
+   * @param readEpoch the {@link #currentEpoch()} taken before the document was read.
+   * @return {@literal true} if the document was stored.
+   */
+  public boolean put(DBRef ref, DBObject document, long readEpoch) {
+
+    if (!isEnabled() || document == null) {
+      return false;
+    }
+
+    CacheEntry entry = new CacheEntry(copyOf(document), System.currentTimeMillis() + ttlMillis);
+
+    synchronized (entries) {
+
+      if (readEpoch != epoch) {
+        return false;
+      }
+
+      entries.put(new CacheKey(ref.getCollectionName(), ref.getId()), entry);
+      return true;
+    }
+  }
+
+  /**
+   * Removes the document with the given id stored in the given collection.
+   *
+   * @param collection must not be {@literal null}.
+   * @param id must not be {@literal null}.
+   */
+  public void evict(String collection, Object id) {
+
+    if (!isEnabled()) {
+      return;
+    }
+
+    synchronized (entries) {
+      epoch++;
+      if (entries.remove(new CacheKey(collection, id)) != null) {
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Removes the documents with the given id from all collections. Used when the collection of a removed document is
+   * not known.
+   *
+   * @param id must not be {@literal null}.
+   */
+  public void evictId(Object id) {
+
+    if (!isEnabled()) {
+      return;
+    }
+
+    synchronized (entries) {
+
+      epoch++;
+      Iterator<CacheKey> keys = entries.keySet().iterator();
+
+      while (keys.hasNext()) {
+        if (id.equals(keys.next().id)) {
+          keys.remove();
+          evictions.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes all documents of the given collection, e.g. after a multi document update.
+   *
+   * @param collection must not be {@literal null}.
+   */
+  public void evictCollection(String collection) {
+
+    if (!isEnabled()) {
+      return;
+    }
+
+    synchronized (entries) {
+
+      epoch++;
+      Iterator<CacheKey> keys = entries.keySet().iterator();
+
+      while (keys.hasNext()) {
+        if (collection.equals(keys.next().collection)) {
+          keys.remove();
+          evictions.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * clear.
+   * </p>
+   */
+  public void clear() {
+    synchronized (entries) {
+      epoch++;
+      entries.clear();
+    }
+  }
+
+  /**
+   * <p>
+   * size.
+   * </p>
+   *
+   * @return the number of cached documents including not yet purged expired ones.
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * <p>
+   * getHitCount.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * <p>
+   * getMissCount.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * <p>
+   * getEvictionCount.
+   * </p>
+   *
+   * @return a long, counting size based, expired and invalidated removals.
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  private static DBObject copyOf(DBObject document) {
+
+    if (document instanceof BasicDBObject) {
+      return (DBObject) ((BasicDBObject) document).copy();
+    }
+
+    BasicDBObject copy = new BasicDBObject();
+    copy.putAll(document);
+    return (DBObject) copy.copy();
+  }
+
+  private static final class CacheKey {
+
+    private final String collection;
+    private final Object id;
+
+    CacheKey(String collection, Object id) {
+      this.collection = collection;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+      if (this == obj) {
+        return true;
+      }
+
+      if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+
+      CacheKey that = (CacheKey) obj;
+      return collection.equals(that.collection) && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * collection.hashCode() + id.hashCode();
+    }
+  }
+
+  private static final class CacheEntry {
+
+    private final DBObject document;
+    private final long expiresAt;
+
+    CacheEntry(DBObject document, long expiresAt) {
+      this.document = document;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+  }
+}
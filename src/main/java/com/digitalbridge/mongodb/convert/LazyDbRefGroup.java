@@ -0,0 +1,92 @@
+package com.digitalbridge.mongodb.convert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+/**
+ * The lazy {@link DBRef}s of all documents read within one {@link DbRefBatch}. The first lazy loading proxy of the
+ * group that gets resolved fetches the documents of all its siblings with one {@code $in} query per collection, the
+ * others resolve against these documents instead of querying one by one. The documents are dropped once every proxy
+ * of the group was resolved.
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+final class LazyDbRefGroup {
+
+  private final CustomDefaultDbRefResolver resolver;
+
+  private final List<DBRef> refs = new ArrayList<DBRef>();
+  private List<DBRef> fetchedRefs;
+  private List<DBObject> documents;
+  private boolean fetched;
+  private int unresolved;
+
+  LazyDbRefGroup(CustomDefaultDbRefResolver resolver) {
+
+    Assert.notNull(resolver, "DbRefResolver must not be null!");
+    this.resolver = resolver;
+  }
+
+  /**
+   * Adds the references of the given raw association value to the group.
+   *
+   * @param value the raw association value, either a {@link DBRef} or a {@link BasicDBList} of them.
+   */
+  synchronized void collect(Object value) {
+
+    if (value instanceof DBRef) {
+      refs.add((DBRef) value);
+    } else if (value instanceof BasicDBList) {
+      for (Object element : (BasicDBList) value) {
+        if (element instanceof DBRef) {
+          refs.add((DBRef) element);
+        }
+      }
+    }
+  }
+
+  /**
+   * Registers a proxy resolving against the group.
+   */
+  synchronized void join() {
+    unresolved++;
+  }
+
+  /**
+   * Makes the documents of the group available to the given batch, fetching them on first use.
+   *
+   * @param batch the batch the proxy resolves in, must not be {@literal null}.
+   */
+  synchronized void prefetch(DbRefBatch batch) {
+
+    if (!fetched) {
+      fetched = true;
+      fetchedRefs = new ArrayList<DBRef>(refs);
+      // registers the documents with the current batch, references collected later are fetched one by one
+      documents = resolver.bulkFetch(fetchedRefs);
+      return;
+    }
+
+    if (documents != null) {
+      batch.register(fetchedRefs, documents);
+    }
+  }
+
+  /**
+   * Called once a proxy of the group was resolved.
+   */
+  synchronized void release() {
+
+    if (--unresolved <= 0 && fetched) {
+      fetchedRefs = null;
+      documents = null;
+    }
+  }
+}
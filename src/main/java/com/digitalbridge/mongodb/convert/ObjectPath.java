@@ -1,8 +1,10 @@
 package com.digitalbridge.mongodb.convert;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.util.Assert;
@@ -16,7 +18,8 @@ import com.mongodb.DBObject;
  * to already resolved ones.
  * <p>
  * An immutable ordered set of target objects for {@link DBObject} to {@link Object} conversions. Object paths can be
- * constructed by the {@link #toObjectPath(Object)} method and extended via {@link #push(Object)}.
+ * constructed by the {@link #toObjectPath(Object)} method and extended via {@link #push(Object)}. A path only links to
+ * its parent, so pushing does not copy it, and deep paths find items by collection and id through a hashed index.
  * 
  * @since 1.6
  */
@@ -25,25 +28,34 @@ public class ObjectPath {
   /** Constant <code>ROOT</code> */
   public static final ObjectPath ROOT = new ObjectPath();
 
-  private final List<ObjectPathItem> items;
+  /** Paths deeper than this look items up through a hashed index instead of walking their parents. */
+  static final int INDEX_DEPTH = 8;
+
+  private final ObjectPath parent;
+  private final ObjectPathItem item;
+  private final int depth;
+
+  // built on the first lookup of a deep path, paths are immutable so it never goes stale
+  private volatile Map<PathKey, Object> index;
 
   private ObjectPath() {
-    this.items = Collections.emptyList();
+    this.parent = null;
+    this.item = null;
+    this.depth = 0;
   }
 
   /**
    * Creates a new {@link ObjectPath} from the given parent {@link ObjectPath} by adding the provided
-   * {@link ObjectPathItem} to it.
+   * {@link ObjectPathItem} to it. The parent is shared, not copied.
    * 
-   * @param parent can be {@literal null}.
+   * @param parent must not be {@literal null}.
    * @param item
    */
   private ObjectPath(ObjectPath parent, ObjectPath.ObjectPathItem item) {
 
-    List<ObjectPath.ObjectPathItem> items = new ArrayList<ObjectPath.ObjectPathItem>(parent.items);
-    items.add(item);
-
-    this.items = Collections.unmodifiableList(items);
+    this.parent = parent;
+    this.item = item;
+    this.depth = parent.depth + 1;
   }
 
   /**
@@ -77,24 +89,54 @@ public class ObjectPath {
     Assert.notNull(id, "Id must not be null!");
     Assert.hasText(collection, "Collection name must not be null!");
 
-    for (ObjectPathItem item : items) {
+    PathKey key = new PathKey(collection, id);
 
-      Object object = item.getObject();
+    if (depth > INDEX_DEPTH) {
+      return getIndex().get(key);
+    }
 
-      if (object == null) {
-        continue;
-      }
+    Object result = null;
 
-      if (item.getIdValue() == null) {
-        continue;
+    // the item closest to the root wins, as when the path was a list
+    for (ObjectPath path = this; path.item != null; path = path.parent) {
+      if (path.item.matches(key)) {
+        result = path.item.getObject();
       }
+    }
+
+    return result;
+  }
+
+  private Map<PathKey, Object> getIndex() {
+
+    Map<PathKey, Object> index = this.index;
+
+    if (index != null) {
+      return index;
+    }
+
+    // start from the closest parent already indexed, sibling paths share it
+    List<ObjectPathItem> unindexed = new ArrayList<ObjectPathItem>();
+    ObjectPath path = this;
+
+    while (path.item != null && path.index == null) {
+      unindexed.add(path.item);
+      path = path.parent;
+    }
+
+    index = path.index == null ? new HashMap<PathKey, Object>() : new HashMap<PathKey, Object>(path.index);
+
+    for (int i = unindexed.size() - 1; i >= 0; i--) {
 
-      if (collection.equals(item.getCollection()) && id.equals(item.getIdValue())) {
-        return object;
+      ObjectPathItem item = unindexed.get(i);
+
+      if (item.getKey() != null && !index.containsKey(item.getKey())) {
+        index.put(item.getKey(), item.getObject());
       }
     }
 
-    return null;
+    this.index = index;
+    return index;
   }
 
   /**
@@ -104,7 +146,7 @@ public class ObjectPath {
    * @return a {@link java.lang.Object} object.
    */
   public Object getCurrentObject() {
-    return items.isEmpty() ? null : items.get(items.size() - 1).getObject();
+    return item == null ? null : item.getObject();
   }
 
   /* 
@@ -115,14 +157,14 @@ public class ObjectPath {
   @Override
   public String toString() {
 
-    if (items.isEmpty()) {
+    if (item == null) {
       return "[empty]";
     }
 
-    List<String> strings = new ArrayList<String>(items.size());
+    LinkedList<String> strings = new LinkedList<String>();
 
-    for (ObjectPathItem item : items) {
-      strings.add(item.object.toString());
+    for (ObjectPath path = this; path.item != null; path = path.parent) {
+      strings.addFirst(path.item.object.toString());
     }
 
     return StringUtils.collectionToDelimitedString(strings, " -> ");
@@ -136,6 +178,7 @@ public class ObjectPath {
     private final Object object;
     private final Object idValue;
     private final String collection;
+    private final PathKey key;
 
     /**
      * Creates a new {@link ObjectPathItem}.
@@ -149,6 +192,7 @@ public class ObjectPath {
       this.object = object;
       this.idValue = idValue;
       this.collection = collection;
+      this.key = object == null || idValue == null || collection == null ? null : new PathKey(collection, idValue);
     }
 
     public Object getObject() {
@@ -162,5 +206,53 @@ public class ObjectPath {
     public String getCollection() {
       return collection;
     }
+
+    /**
+     * @return the key the item can be looked up by, {@literal null} if it has no object or id.
+     */
+    PathKey getKey() {
+      return key;
+    }
+
+    boolean matches(PathKey other) {
+      return key != null && key.equals(other);
+    }
+  }
+
+  /**
+   * Collection and id of an {@link ObjectPathItem}, the hash code is computed once.
+   */
+  private static final class PathKey {
+
+    private final String collection;
+    private final Object id;
+    private final int hashCode;
+
+    PathKey(String collection, Object id) {
+
+      this.collection = collection;
+      this.id = id;
+      this.hashCode = 31 * collection.hashCode() + id.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+      if (this == obj) {
+        return true;
+      }
+
+      if (!(obj instanceof PathKey)) {
+        return false;
+      }
+
+      PathKey that = (PathKey) obj;
+      return hashCode == that.hashCode && collection.equals(that.collection) && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
   }
 }
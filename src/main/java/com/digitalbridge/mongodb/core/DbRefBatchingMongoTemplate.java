@@ -0,0 +1,148 @@
+package com.digitalbridge.mongodb.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.digitalbridge.mongodb.convert.CustomMappingMongoConverter;
+import com.digitalbridge.mongodb.convert.DbRefBatch;
+import com.digitalbridge.mongodb.convert.DbRefCache;
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+
+/**
+ * {@link org.springframework.data.mongodb.core.MongoTemplate} that reads all documents returned by a single find
+ * within one {@link com.digitalbridge.mongodb.convert.DbRefBatch}, so the {@link com.mongodb.DBRef}s of a whole page
+ * are resolved with one {@code $in} query per referenced collection instead of one query per reference.
+ * <p>
+ * As eager associations are only set once the whole page has been read, the {@link AfterConvertEvent}s of a find are
+ * held back and published after the batch is resolved, so listeners see the associations populated.
+ * <p>
+ * Updates, find-and-modify and find-and-remove do not publish mapping events, so the template evicts the affected
+ * collection from the shared {@link com.digitalbridge.mongodb.convert.DbRefCache} itself.
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class DbRefBatchingMongoTemplate extends MongoTemplate {
+
+  private final CustomMappingMongoConverter converter;
+  private final ThreadLocal<List<MongoMappingEvent<?>>> deferredEvents = new ThreadLocal<List<MongoMappingEvent<?>>>();
+  private DbRefCache dbRefCache = new DbRefCache(0, 0);
+
+  /**
+   * <p>
+   * Constructor for DbRefBatchingMongoTemplate.
+   * </p>
+   *
+   * @param mongoDbFactory must not be {@literal null}.
+   * @param converter must not be {@literal null}.
+   */
+  public DbRefBatchingMongoTemplate(MongoDbFactory mongoDbFactory, CustomMappingMongoConverter converter) {
+    super(mongoDbFactory, converter);
+    this.converter = converter;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+
+    DbRefBatch batch = converter.openDbRefBatch();
+    List<MongoMappingEvent<?>> events = deferredEvents.get();
+    boolean outermost = events == null;
+
+    if (outermost) {
+      events = new ArrayList<MongoMappingEvent<?>>();
+      deferredEvents.set(events);
+    }
+
+    try {
+      List<T> result = super.find(query, entityClass, collectionName);
+      batch.resolve();
+
+      if (outermost) {
+        deferredEvents.remove();
+        for (MongoMappingEvent<?> event : events) {
+          super.maybeEmitEvent(event);
+        }
+      }
+
+      return result;
+    } finally {
+      if (outermost) {
+        deferredEvents.remove();
+      }
+      batch.close();
+    }
+  }
+
+  /**
+   * Holds back {@link AfterConvertEvent}s raised within a {@link #find(Query, Class, String)} until the eager
+   * associations of the page are resolved.
+   */
+  @Override
+  protected <T> void maybeEmitEvent(MongoMappingEvent<T> event) {
+
+    List<MongoMappingEvent<?>> events = deferredEvents.get();
+
+    if (events != null && event instanceof AfterConvertEvent) {
+      events.add(event);
+    } else {
+      super.maybeEmitEvent(event);
+    }
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>dbRefCache</code>.
+   * </p>
+   *
+   * @param dbRefCache a {@link com.digitalbridge.mongodb.convert.DbRefCache} object.
+   */
+  public void setDbRefCache(DbRefCache dbRefCache) {
+    this.dbRefCache = dbRefCache;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected WriteResult doUpdate(String collectionName, Query query, Update update, Class<?> entityClass,
+      boolean upsert, boolean multi) {
+
+    try {
+      return super.doUpdate(collectionName, query, update, entityClass, upsert, multi);
+    } finally {
+      dbRefCache.evictCollection(collectionName);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected <T> T doFindAndModify(String collectionName, DBObject query, DBObject fields, DBObject sort,
+      Class<T> entityClass, Update update, FindAndModifyOptions options) {
+
+    try {
+      return super.doFindAndModify(collectionName, query, fields, sort, entityClass, update, options);
+    } finally {
+      dbRefCache.evictCollection(collectionName);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected <T> T doFindAndRemove(String collectionName, DBObject query, DBObject fields, DBObject sort,
+      Class<T> entityClass) {
+
+    try {
+      return super.doFindAndRemove(collectionName, query, fields, sort, entityClass);
+    } finally {
+      dbRefCache.evictCollection(collectionName);
+    }
+  }
+}
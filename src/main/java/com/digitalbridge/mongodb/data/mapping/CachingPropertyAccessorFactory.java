@@ -0,0 +1,296 @@
+package com.digitalbridge.mongodb.data.mapping;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.data.mapping.Association;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.SimpleAssociationHandler;
+import org.springframework.data.mapping.SimplePropertyHandler;
+import org.springframework.data.mapping.model.MappingException;
+import org.springframework.util.Assert;
+
+/**
+ * Creates {@link com.digitalbridge.mongodb.data.mapping.PersistentPropertyAccessor}s that resolve the fields and
+ * accessor methods of an entity type once and cache them, instead of looking them up per accessor like
+ * {@link BeanWrapper} does. Fields are made accessible once and then read and written through
+ * {@link java.lang.reflect.Field}, getters and setters are called by index through a CGLIB {@link FastClass} of the
+ * type. No accessor classes are generated: generated classes can not write private fields on Java 6, so access per
+ * property still costs about as much as with {@link BeanWrapper}. Types that can not be handled, e.g. non-public
+ * ones, fall back to {@link BeanWrapper}.
+ *
+ * @version 1:0
+ * @author rajakolli
+ */
+public class CachingPropertyAccessorFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CachingPropertyAccessorFactory.class);
+
+  /** Marks types that fall back to {@link BeanWrapper}. */
+  private static final EntityAccessor UNSUPPORTED = new EntityAccessor(null);
+
+  private final ConcurrentMap<Class<?>, EntityAccessor> accessors = new ConcurrentHashMap<Class<?>, EntityAccessor>();
+
+  /**
+   * Returns a {@link com.digitalbridge.mongodb.data.mapping.PersistentPropertyAccessor} for the given bean.
+   *
+   * @param entity the entity of the bean, must not be {@literal null}.
+   * @param bean must not be {@literal null}.
+   * @return a {@link com.digitalbridge.mongodb.data.mapping.PersistentPropertyAccessor} object.
+   */
+  public PersistentPropertyAccessor getPropertyAccessor(PersistentEntity<?, ?> entity, Object bean) {
+
+    Assert.notNull(entity, "PersistentEntity must not be null!");
+    Assert.notNull(bean, "Bean must not be null!");
+
+    if (!entity.getType().isInstance(bean)) {
+      return new BeanWrapper<Object>(bean);
+    }
+
+    EntityAccessor accessor = getEntityAccessor(entity);
+    return accessor == UNSUPPORTED ? new BeanWrapper<Object>(bean) : new CachingPropertyAccessor(accessor, bean);
+  }
+
+  /**
+   * Returns whether accessors of the given entity use the cached handles rather than {@link BeanWrapper}.
+   *
+   * @param entity must not be {@literal null}.
+   * @return a boolean.
+   */
+  public boolean isSupported(PersistentEntity<?, ?> entity) {
+    return getEntityAccessor(entity) != UNSUPPORTED;
+  }
+
+  private EntityAccessor getEntityAccessor(PersistentEntity<?, ?> entity) {
+
+    Class<?> type = entity.getType();
+    EntityAccessor accessor = accessors.get(type);
+
+    if (accessor == null) {
+      accessor = createEntityAccessor(entity);
+      EntityAccessor existing = accessors.putIfAbsent(type, accessor);
+      accessor = existing == null ? accessor : existing;
+    }
+
+    return accessor;
+  }
+
+  private static EntityAccessor createEntityAccessor(PersistentEntity<?, ?> entity) {
+
+    final Class<?> type = entity.getType();
+
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return UNSUPPORTED;
+    }
+
+    try {
+      final EntityAccessor accessor = new EntityAccessor(type);
+
+      entity.doWithProperties(new SimplePropertyHandler() {
+
+        @Override
+        public void doWithPersistentProperty(PersistentProperty<?> property) {
+          accessor.add(property);
+        }
+      });
+      entity.doWithAssociations(new SimpleAssociationHandler() {
+
+        @Override
+        public void doWithAssociation(Association<? extends PersistentProperty<?>> association) {
+          accessor.add(association.getInverse());
+        }
+      });
+
+      return accessor;
+    } catch (RuntimeException e) {
+      LOGGER.warn("Falling back to BeanWrapper to access properties of {} : {}", type.getName(), e.getMessage());
+      return UNSUPPORTED;
+    } catch (LinkageError e) {
+      LOGGER.warn("Falling back to BeanWrapper to access properties of {} : {}", type.getName(), e.getMessage());
+      return UNSUPPORTED;
+    }
+  }
+
+  /**
+   * The property handles of one entity type, read only once built.
+   */
+  private static final class EntityAccessor {
+
+    private final Class<?> type;
+    private final Map<PersistentProperty<?>, PropertyHandle> handles =
+        new IdentityHashMap<PersistentProperty<?>, PropertyHandle>();
+
+    // only created for types with properties accessed through getters and setters
+    private FastClass fastClass;
+
+    EntityAccessor(Class<?> type) {
+      this.type = type;
+    }
+
+    void add(PersistentProperty<?> property) {
+
+      if (!property.usePropertyAccess()) {
+        Field field = property.getField();
+        field.setAccessible(true);
+        handles.put(property, new FieldHandle(field));
+        return;
+      }
+
+      handles.put(property, new AccessorMethodsHandle(index(property.getGetter()), index(property.getSetter())));
+    }
+
+    private int index(Method method) {
+
+      if (method == null) {
+        return -1;
+      }
+
+      if (!Modifier.isPublic(method.getModifiers())) {
+        throw new IllegalStateException("Accessor " + method + " is not public");
+      }
+
+      if (fastClass == null) {
+        fastClass = FastClass.create(type.getClassLoader(), type);
+      }
+
+      return fastClass.getIndex(method.getName(), method.getParameterTypes());
+    }
+
+    PropertyHandle get(PersistentProperty<?> property) {
+      return handles.get(property);
+    }
+  }
+
+  /**
+   * Reads and writes one property of a bean.
+   */
+  private abstract static class PropertyHandle {
+
+    abstract Object get(FastClass fastClass, Object bean) throws IllegalAccessException, InvocationTargetException;
+
+    abstract void set(FastClass fastClass, Object bean, Object value) throws IllegalAccessException,
+        InvocationTargetException;
+  }
+
+  /**
+   * Accesses a field opened when the entity accessor was built.
+   */
+  private static final class FieldHandle extends PropertyHandle {
+
+    private final Field field;
+
+    FieldHandle(Field field) {
+      this.field = field;
+    }
+
+    @Override
+    Object get(FastClass fastClass, Object bean) throws IllegalAccessException {
+      return field.get(bean);
+    }
+
+    @Override
+    void set(FastClass fastClass, Object bean, Object value) throws IllegalAccessException {
+      field.set(bean, value);
+    }
+  }
+
+  /**
+   * Calls the getter and setter by their index in the generated {@link FastClass}, <code>-1</code> if missing.
+   */
+  private static final class AccessorMethodsHandle extends PropertyHandle {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final int getter;
+    private final int setter;
+
+    AccessorMethodsHandle(int getter, int setter) {
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    @Override
+    Object get(FastClass fastClass, Object bean) throws InvocationTargetException {
+      return getter < 0 ? null : fastClass.invoke(getter, bean, NO_ARGUMENTS);
+    }
+
+    @Override
+    void set(FastClass fastClass, Object bean, Object value) throws InvocationTargetException {
+      if (setter >= 0) {
+        fastClass.invoke(setter, bean, new Object[] { value });
+      }
+    }
+  }
+
+  /**
+   * {@link com.digitalbridge.mongodb.data.mapping.PersistentPropertyAccessor} over the handles of an entity type,
+   * delegating properties it has no handle for to a {@link BeanWrapper}.
+   */
+  private static final class CachingPropertyAccessor implements PersistentPropertyAccessor {
+
+    private final EntityAccessor accessor;
+    private final Object bean;
+
+    CachingPropertyAccessor(EntityAccessor accessor, Object bean) {
+      this.accessor = accessor;
+      this.bean = bean;
+    }
+
+    @Override
+    public void setProperty(PersistentProperty<?> property, Object value) {
+
+      Assert.notNull(property, "PersistentProperty must not be null!");
+      PropertyHandle handle = accessor.get(property);
+
+      if (handle == null) {
+        new BeanWrapper<Object>(bean).setProperty(property, value);
+        return;
+      }
+
+      try {
+        handle.set(accessor.fastClass, bean, value);
+      } catch (IllegalAccessException e) {
+        throw new MappingException("Could not set object property!", e);
+      } catch (InvocationTargetException e) {
+        throw new MappingException("Could not set object property!", e.getTargetException());
+      } catch (IllegalArgumentException e) {
+        throw new MappingException("Could not set object property!", e);
+      }
+    }
+
+    @Override
+    public Object getProperty(PersistentProperty<?> property) {
+
+      Assert.notNull(property, "PersistentProperty must not be null!");
+      PropertyHandle handle = accessor.get(property);
+
+      if (handle == null) {
+        return new BeanWrapper<Object>(bean).getProperty(property);
+      }
+
+      try {
+        return handle.get(accessor.fastClass, bean);
+      } catch (IllegalAccessException e) {
+        throw new MappingException(String.format("Could not read property %s of %s!", property, bean), e);
+      } catch (InvocationTargetException e) {
+        throw new MappingException(String.format("Could not read property %s of %s!", property, bean),
+            e.getTargetException());
+      }
+    }
+
+    @Override
+    public Object getBean() {
+      return bean;
+    }
+  }
+}
@@ -11,6 +11,7 @@ import org.springframework.util.ReflectionUtils.FieldCallback;
 
 import com.digitalbridge.annotation.CascadeSave;
 import com.digitalbridge.annotation.CascadeSaveList;
+import com.digitalbridge.metrics.HotPathTimer;
 
 /**
  * <p>
@@ -67,7 +68,9 @@ public class CascadeCallback implements FieldCallback {
         throw new MappingException("Cannot perform cascade save on child object without id set");
       }
 
+      long started = HotPathTimer.start();
       getMongoOperations().save(fieldValue);
+      HotPathTimer.stop(started, "cascade.save", fieldValue.getClass());
     }
   }
 
@@ -0,0 +1,60 @@
+package com.digitalbridge.mongodb.event;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+
+import com.digitalbridge.mongodb.convert.DbRefCache;
+import com.mongodb.DBObject;
+
+/**
+ * <p>
+ * DbRefCacheEvictionListener class. Evicts saved and deleted documents from the shared
+ * {@link com.digitalbridge.mongodb.convert.DbRefCache} so references never resolve to stale documents.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1 : 0
+ */
+public class DbRefCacheEvictionListener extends AbstractMongoEventListener<Object> {
+
+  @Autowired private MongoOperations mongoOperations;
+
+  private final DbRefCache dbRefCache;
+
+  /**
+   * <p>
+   * Constructor for DbRefCacheEvictionListener.
+   * </p>
+   *
+   * @param dbRefCache a {@link com.digitalbridge.mongodb.convert.DbRefCache} object.
+   */
+  public DbRefCacheEvictionListener(DbRefCache dbRefCache) {
+    this.dbRefCache = dbRefCache;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void onAfterSave(Object source, DBObject dbo) {
+
+    Object id = dbo.get("_id");
+
+    if (id != null) {
+      dbRefCache.evict(mongoOperations.getCollectionName(source.getClass()), id);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void onAfterDelete(DBObject dbo) {
+
+    Object id = dbo.get("_id");
+
+    if (id == null || id instanceof DBObject) {
+      // removal by criteria, the removed ids are unknown
+      dbRefCache.clear();
+    } else {
+      dbRefCache.evictId(id);
+    }
+  }
+}
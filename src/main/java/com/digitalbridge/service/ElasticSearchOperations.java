@@ -2,20 +2,16 @@ package com.digitalbridge.service;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.elasticsearch.common.Base64;
-import org.elasticsearch.common.joda.time.DateTime;
-import org.elasticsearch.common.joda.time.DateTimeZone;
-import org.elasticsearch.common.joda.time.format.ISODateTimeFormat;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.index.query.AndFilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
@@ -24,31 +20,50 @@ import org.elasticsearch.index.query.OrFilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeFilterBuilder;
-import org.elasticsearch.search.aggregations.AggregationBuilders;
-import org.elasticsearch.search.aggregations.bucket.range.date.DateRangeBuilder;
-import org.elasticsearch.search.aggregations.bucket.terms.Terms.Order;
-import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Direction;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.security.access.annotation.Secured;
-import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import com.digitalbridge.domain.AssetSearchRequest;
 import com.digitalbridge.domain.AssetWrapper;
 import com.digitalbridge.domain.FacetDateRange;
+import com.digitalbridge.elasticsearch.FacetCache;
+import com.digitalbridge.elasticsearch.IndexGeneration;
+import com.digitalbridge.elasticsearch.IndexLifecycleManager;
+import com.digitalbridge.elasticsearch.MergeScheduler;
+import com.digitalbridge.elasticsearch.MonthBuckets;
+import com.digitalbridge.elasticsearch.SearchHitMapper;
+import com.digitalbridge.elasticsearch.SearchTemplateCache;
+import com.digitalbridge.elasticsearch.StatsCollector;
+import com.digitalbridge.elasticsearch.StatsSample;
+import com.digitalbridge.elasticsearch.TermsFacets;
 import com.digitalbridge.exception.DigitalBridgeException;
 import com.digitalbridge.exception.DigitalBridgeExceptionBean;
+import com.digitalbridge.metrics.ElasticSearchMetrics;
+import com.digitalbridge.metrics.HotPathTimer;
 import com.digitalbridge.mongodb.repository.AssetWrapperRepository;
 import com.digitalbridge.util.Constants;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -56,22 +71,15 @@ import com.google.gson.JsonSyntaxException;
 
 import io.searchbox.action.Action;
 import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
 import io.searchbox.client.http.JestHttpClient;
-import io.searchbox.core.Bulk;
-import io.searchbox.core.Bulk.Builder;
 import io.searchbox.core.Delete;
 import io.searchbox.core.DocumentResult;
-import io.searchbox.core.Index;
 import io.searchbox.core.Search;
 import io.searchbox.core.SearchResult;
-import io.searchbox.core.SearchScroll;
 import io.searchbox.core.search.aggregation.DateRangeAggregation;
-import io.searchbox.core.search.aggregation.DateRangeAggregation.DateRange;
-import io.searchbox.core.search.aggregation.TermsAggregation;
 import io.searchbox.indices.CreateIndex;
-import io.searchbox.indices.Optimize;
 import io.searchbox.indices.Refresh;
-import io.searchbox.indices.Stats;
 import io.searchbox.indices.mapping.PutMapping;
 import io.searchbox.params.Parameters;
 import io.searchbox.params.SearchType;
@@ -93,16 +101,47 @@ public class ElasticSearchOperations {
   private static final String INDEX_NAME = "digitalbridge";
   private static final String TYPE = "assetwrapper";
 
-  private static final int PAGE_SIZE = 1000;
-
   private static final String TO_INDEX = "digitalbridge_alias";
 
-  private static final int SIZE = Integer.MAX_VALUE;
+  private static final String ASSET_MAPPINGS = "{\"mappings\":{\"assetwrapper\":{\"properties\":{\"address\":{\"properties\":{\"building\":{\"type\":\"string\"},\"location\":{\"type\":\"geo_point\"},\"street\":{\"type\":\"string\"},\"zipcode\":{\"type\":\"string\"}}},\"assetName\":{\"type\":\"string\"},\"borough\":{\"type\":\"string\"},\"cuisine\":{\"type\":\"string\"},\"notes\":{\"properties\":{\"date\":{\"type\":\"date\",\"format\":\"dateOptionalTime\"},\"note\":{\"type\":\"string\"},\"score\":{\"type\":\"long\"}}},\"orginalAssetId\":{\"type\":\"string\"}}}}}";
+
+  private static final Map<String, String> FACET_FIELDS = new LinkedHashMap<String, String>(2);
+
+  static {
+    FACET_FIELDS.put("MyCuisine", "cuisine");
+    FACET_FIELDS.put("MyBorough", "borough");
+  }
 
   @Autowired JestHttpClient jestClient;
 
   @Autowired AssetWrapperRepository assetWrapperRepository;
 
+  @Autowired IndexLifecycleManager indexLifecycleManager;
+
+  @Autowired SearchHitMapper searchHitMapper;
+
+  @Autowired SearchTemplateCache searchTemplateCache;
+
+  @Autowired FacetCache facetCache;
+
+  @Autowired IndexGeneration indexGeneration;
+
+  @Autowired TermsFacets termsFacets;
+
+  @Autowired MonthBuckets monthBuckets;
+
+  @Autowired MergeScheduler mergeScheduler;
+
+  @Autowired StatsCollector statsCollector;
+
+  @Autowired ElasticSearchMetrics elasticSearchMetrics;
+
+  @Autowired MongoOperations mongoOperations;
+
+  @Autowired @Qualifier("elasticSearchCallbackExecutor") TaskExecutor callbackExecutor;
+
+  @Autowired Environment env;
+
   /**
    * <p>
    * performElasticSearch.
@@ -134,7 +173,6 @@ public class ElasticSearchOperations {
         // multiple index or types can be added.
         .addIndex(indexName).addType(typeName)
         // .addSort(new Sort("assetName", Sort.Sorting.DESC))
-        .setHeader(getHeader())
         // .refresh(true)
         .build();
     // https://github.com/searchbox-io/Jest/tree/master/jest/src/test/java/io/searchbox/core
@@ -182,6 +220,208 @@ public class ElasticSearchOperations {
 
   }
 
+  /**
+   * <p>
+   * searchAssets. Reads the assets straight from the <code>_source</code> of the hits, in relevance order and paged by
+   * Elasticsearch. With <code>hydrate</code> the hits only supply the ids and the assets are loaded from Mongo.
+   * </p>
+   *
+   * @param text the text to match against name and cuisine.
+   * @param page zero based page number.
+   * @param size page size.
+   * @param hydrate whether to load the assets from Mongo instead of the search source.
+   * @return a {@link org.springframework.data.domain.Page} object.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if any.
+   */
+  @Secured({ "ROLE_USER" })
+  @RequestMapping(value = "/searchAssets", method = { RequestMethod.POST, RequestMethod.GET })
+  public Page<AssetWrapper> searchAssets(@RequestParam(value = "q", defaultValue = "garden") String text,
+      @RequestParam(value = "page", defaultValue = "0") int page,
+      @RequestParam(value = "size", defaultValue = "10") int size,
+      @RequestParam(value = "hydrate", defaultValue = "false") boolean hydrate) throws DigitalBridgeException {
+    AssetSearchRequest request = new AssetSearchRequest();
+    request.setText(text);
+    request.setPage(page);
+    request.setSize(size);
+    request.setHydrate(hydrate);
+    return search(request);
+  }
+
+  /**
+   * <p>
+   * search. Runs a typed search; the search source is rendered from a template cached per query shape.
+   * </p>
+   *
+   * @param request a {@link com.digitalbridge.domain.AssetSearchRequest} object.
+   * @return a {@link org.springframework.data.domain.Page} object.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if any.
+   */
+  @Secured({ "ROLE_USER" })
+  @RequestMapping(value = "/search", method = RequestMethod.POST)
+  public Page<AssetWrapper> search(@RequestBody AssetSearchRequest request) throws DigitalBridgeException {
+    Pageable pageable = pageRequest(request);
+    return searchAssets(INDEX_NAME, TYPE, searchTemplateCache.render(request), pageable, request.isHydrate());
+  }
+
+  /**
+   * <p>
+   * searchAssets.
+   * </p>
+   *
+   * @param indexName a {@link java.lang.String} object.
+   * @param typeName a {@link java.lang.String} object.
+   * @param searchSource the search source JSON without paging.
+   * @param pageable a {@link org.springframework.data.domain.Pageable} object.
+   * @param hydrate whether to load the assets from Mongo instead of the search source.
+   * @return a {@link org.springframework.data.domain.Page} object.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if any.
+   */
+  protected Page<AssetWrapper> searchAssets(String indexName, String typeName, String searchSource, Pageable pageable,
+      boolean hydrate) throws DigitalBridgeException {
+    return toPage(handleResult(assetSearch(indexName, typeName, searchSource, pageable)), pageable, hydrate);
+  }
+
+  /**
+   * <p>
+   * searchAsync. Non blocking variant of {@link #search(AssetSearchRequest)}, the container thread is released while
+   * the search is in flight.
+   * </p>
+   *
+   * @param request a {@link com.digitalbridge.domain.AssetSearchRequest} object.
+   * @return a {@link org.springframework.web.context.request.async.DeferredResult} object.
+   */
+  @Secured({ "ROLE_USER" })
+  @RequestMapping(value = "/async/search", method = RequestMethod.POST)
+  public DeferredResult<Page<AssetWrapper>> searchAsync(@RequestBody final AssetSearchRequest request) {
+    final DeferredResult<Page<AssetWrapper>> deferredResult = new DeferredResult<Page<AssetWrapper>>(
+        getAsyncTimeout());
+    final Pageable pageable;
+    try {
+      pageable = pageRequest(request);
+    } catch (DigitalBridgeException e) {
+      deferredResult.setErrorResult(e);
+      return deferredResult;
+    }
+    handleResultAsync(assetSearch(INDEX_NAME, TYPE, searchTemplateCache.render(request), pageable),
+        new JestResultHandler<JestResult>() {
+
+          @Override
+          public void completed(JestResult result) {
+            try {
+              deferredResult.setResult(toPage(result, pageable, request.isHydrate()));
+            } catch (DigitalBridgeException e) {
+              deferredResult.setErrorResult(e);
+            } catch (RuntimeException e) {
+              deferredResult.setErrorResult(e);
+            }
+          }
+
+          @Override
+          public void failed(Exception ex) {
+            deferredResult.setErrorResult(ex);
+          }
+        });
+    return deferredResult;
+  }
+
+  /**
+   * <p>
+   * searchAssetsAsync. Non blocking variant of {@link #searchAssets(String, int, int, boolean)}.
+   * </p>
+   *
+   * @param text the text to match against name and cuisine.
+   * @param page zero based page number.
+   * @param size page size.
+   * @param hydrate whether to load the assets from Mongo instead of the search source.
+   * @return a {@link org.springframework.web.context.request.async.DeferredResult} object.
+   */
+  @Secured({ "ROLE_USER" })
+  @RequestMapping(value = "/async/searchAssets", method = { RequestMethod.POST, RequestMethod.GET })
+  public DeferredResult<Page<AssetWrapper>> searchAssetsAsync(
+      @RequestParam(value = "q", defaultValue = "garden") String text,
+      @RequestParam(value = "page", defaultValue = "0") int page,
+      @RequestParam(value = "size", defaultValue = "10") int size,
+      @RequestParam(value = "hydrate", defaultValue = "false") boolean hydrate) {
+    AssetSearchRequest request = new AssetSearchRequest();
+    request.setText(text);
+    request.setPage(page);
+    request.setSize(size);
+    request.setHydrate(hydrate);
+    return searchAsync(request);
+  }
+
+  private static Pageable pageRequest(AssetSearchRequest request) throws DigitalBridgeException {
+    if (request.getPage() < 0 || request.getSize() <= 0) {
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1016");
+      bean.setFaultString("InvalidPageRequest");
+      throw new DigitalBridgeException(bean);
+    }
+    return new PageRequest(request.getPage(), request.getSize());
+  }
+
+  private Search assetSearch(String indexName, String typeName, String searchSource, Pageable pageable) {
+    return new Search.Builder(searchSource).addIndex(indexName).addType(typeName)
+        .setParameter("from", pageable.getOffset()).setParameter(Parameters.SIZE, pageable.getPageSize()).build();
+  }
+
+  private Page<AssetWrapper> toPage(JestResult result, Pageable pageable, boolean hydrate)
+      throws DigitalBridgeException {
+
+    if (result == null) {
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1004");
+      bean.setFaultString("IOError");
+      throw new DigitalBridgeException(bean);
+    }
+
+    if (!result.isSucceeded()) {
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1017");
+      bean.setFaultString(result.getErrorMessage());
+      throw new DigitalBridgeException(bean);
+    }
+
+    JsonObject hits = result.getJsonObject().getAsJsonObject("hits");
+    JsonArray hitArray = hits.getAsJsonArray("hits");
+    List<AssetWrapper> content = new ArrayList<AssetWrapper>(hitArray.size());
+    if (hydrate) {
+      List<String> assetIds = new ArrayList<String>(hitArray.size());
+      for (JsonElement hit : hitArray) {
+        assetIds.add(hit.getAsJsonObject().get("_id").getAsString());
+      }
+      content = findAssetsInOrder(assetIds);
+    } else {
+      for (JsonElement hit : hitArray) {
+        AssetWrapper assetWrapper = searchHitMapper.map(AssetWrapper.class, hit.getAsJsonObject());
+        if (assetWrapper != null) {
+          content.add(assetWrapper);
+        }
+      }
+    }
+    return new PageImpl<AssetWrapper>(content, pageable, hits.get("total").getAsLong());
+  }
+
+  /**
+   * Loads the assets with the given ids with a single <code>$in</code> query, keeping the order of the ids.
+   */
+  private List<AssetWrapper> findAssetsInOrder(List<String> assetIds) {
+    List<AssetWrapper> assets = mongoOperations.find(Query.query(Criteria.where("id").in(assetIds)),
+        AssetWrapper.class);
+    Map<String, AssetWrapper> assetsById = new HashMap<String, AssetWrapper>(assets.size());
+    for (AssetWrapper asset : assets) {
+      assetsById.put(asset.getId(), asset);
+    }
+    List<AssetWrapper> result = new ArrayList<AssetWrapper>(assetIds.size());
+    for (String assetId : assetIds) {
+      AssetWrapper asset = assetsById.get(assetId);
+      if (asset != null) {
+        result.add(asset);
+      }
+    }
+    return result;
+  }
+
   /**
    * <p>
    * termFacetSearch.
@@ -195,13 +435,179 @@ public class ElasticSearchOperations {
    */
   @Secured({ "ROLE_USER" })
   @RequestMapping(value = "/termFacetSearch", method = { RequestMethod.POST, RequestMethod.GET })
-  public Map<String, Map<String, Long>> termFacetSearch(Map<String, Object[]> termFilters, boolean refresh)
+  public Map<String, Map<String, Long>> termFacetSearch(final Map<String, Object[]> termFilters, final boolean refresh)
       throws DigitalBridgeException, IOException {
+    if (refresh) {
+      // the search refreshes the index first, so anything cached before may miss documents
+      indexGeneration.bump();
+    }
+    // a month rollover bumps the generation, so it has to be noticed before the cache is consulted
+    monthBuckets.current();
+    return facetCache.get(termFilters, new FacetCache.Loader() {
+
+      @Override
+      public Map<String, Map<String, Long>> load() throws DigitalBridgeException {
+        return loadFacets(termFilters, refresh);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * loadFacets. Runs the facet search against Elasticsearch, bypassing the facet cache.
+   * </p>
+   *
+   * @param termFilters a {@link java.util.Map} object.
+   * @param refresh a boolean.
+   * @return a {@link java.util.Map} object.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if any.
+   */
+  protected Map<String, Map<String, Long>> loadFacets(Map<String, Object[]> termFilters, boolean refresh)
+      throws DigitalBridgeException {
+    MonthBuckets.Snapshot months = monthBuckets.current();
+    SearchResult searchResult = (SearchResult) handleResult(facetSearch(termFilters, refresh, months));
+    return decodeFacets(searchResult, months);
+  }
+
+  /**
+   * <p>
+   * termFacetSearchAsync. Non blocking variant of {@link #termFacetSearch(Map, boolean)}, sharing its facet cache.
+   * </p>
+   *
+   * @param termFilters a {@link java.util.Map} object.
+   * @param refresh a boolean.
+   * @return a {@link org.springframework.web.context.request.async.DeferredResult} object.
+   */
+  @Secured({ "ROLE_USER" })
+  @RequestMapping(value = "/async/termFacetSearch", method = { RequestMethod.POST, RequestMethod.GET })
+  public DeferredResult<Map<String, Map<String, Long>>> termFacetSearchAsync(final Map<String, Object[]> termFilters,
+      final boolean refresh) {
+    final DeferredResult<Map<String, Map<String, Long>>> deferredResult =
+        new DeferredResult<Map<String, Map<String, Long>>>(getAsyncTimeout());
+    if (refresh) {
+      indexGeneration.bump();
+    }
+    monthBuckets.current();
+    facetCache.getAsync(termFilters, new FacetCache.AsyncLoader() {
+
+      @Override
+      public void load(final FacetCache.Callback callback) {
+        final MonthBuckets.Snapshot months = monthBuckets.current();
+        handleResultAsync(facetSearch(termFilters, refresh, months), new JestResultHandler<SearchResult>() {
+
+          @Override
+          public void completed(SearchResult result) {
+            try {
+              callback.completed(decodeFacets(result, months));
+            } catch (RuntimeException e) {
+              callback.failed(e);
+            }
+          }
+
+          @Override
+          public void failed(Exception ex) {
+            callback.failed(ex);
+          }
+        });
+      }
+    }, new FacetCache.Callback() {
+
+      @Override
+      public void completed(Map<String, Map<String, Long>> facets) {
+        deferredResult.setResult(facets);
+      }
+
+      @Override
+      public void failed(Exception e) {
+        deferredResult.setErrorResult(e);
+      }
+    });
+    return deferredResult;
+  }
+
+  private Search facetSearch(Map<String, Object[]> termFilters, boolean refresh, MonthBuckets.Snapshot months) {
+    SearchSourceBuilder searchSourceBuilder = facetQuery(termFilters);
+    for (Entry<String, String> facet : FACET_FIELDS.entrySet()) {
+      termsFacets.addTo(searchSourceBuilder, facet.getKey(), facet.getValue());
+    }
+    searchSourceBuilder.aggregation(months.aggregation());
+
+    return new Search.Builder(searchSourceBuilder.toString()).addIndex(INDEX_NAME).addType(TYPE)
+        .setParameter(Parameters.SIZE, 0).refresh(refresh)
+        .setSearchType(SearchType.DFS_QUERY_THEN_FETCH).build();
+  }
+
+  private Map<String, Map<String, Long>> decodeFacets(SearchResult searchResult, MonthBuckets.Snapshot months) {
+    Map<String, Map<String, Long>> resultMap = Collections.emptyMap();
+    if (searchResult != null && searchResult.isSucceeded()) {
+      resultMap = new LinkedHashMap<String, Map<String, Long>>(Constants.THREE);
+      for (String facet : FACET_FIELDS.keySet()) {
+        Map<String, Long> facetMap = termsFacets.decode(searchResult.getAggregations(), facet, 0);
+        if (MapUtils.isNotEmpty(facetMap)) {
+          resultMap.put(facet, facetMap);
+        }
+      }
+
+      DateRangeAggregation dateRangeTerm = searchResult.getAggregations().getDateRangeAggregation("MyDateRange");
+      Map<String, Long> dateRangeMap = months.decode(dateRangeTerm);
+      if (MapUtils.isNotEmpty(dateRangeMap)) {
+        resultMap.put(dateRangeTerm.getName(), dateRangeMap);
+      }
+      resultMap = Collections.unmodifiableMap(resultMap);
+    }
+    return resultMap;
+  }
+
+  /**
+   * <p>
+   * termFacetValues. Pages through the values of a single terms facet beyond the top values returned by
+   * {@link #termFacetSearch(Map, boolean)}.
+   * </p>
+   *
+   * @param facet the facet name, e.g. <code>MyCuisine</code>.
+   * @param termFilters a {@link java.util.Map} object.
+   * @param page zero based page number.
+   * @param size page size.
+   * @return the term counts of the page followed by the count of all later values.
+   * @throws com.digitalbridge.exception.DigitalBridgeException if any.
+   */
+  @Secured({ "ROLE_USER" })
+  @RequestMapping(value = "/termFacetValues/{facet}", method = { RequestMethod.POST, RequestMethod.GET })
+  public Map<String, Long> termFacetValues(@PathVariable("facet") String facet, Map<String, Object[]> termFilters,
+      @RequestParam(value = "page", defaultValue = "0") int page,
+      @RequestParam(value = "size", defaultValue = "10") int size) throws DigitalBridgeException {
+
+    String field = FACET_FIELDS.get(facet);
+    if (field == null || page < 0 || size <= 0) {
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1014");
+      bean.setFaultString("InvalidFacetRequest");
+      throw new DigitalBridgeException(bean);
+    }
+
+    int offset = page * size;
+    SearchSourceBuilder searchSourceBuilder = facetQuery(termFilters);
+    termsFacets.addTo(searchSourceBuilder, facet, field, offset + size);
+
+    Search search = new Search.Builder(searchSourceBuilder.toString()).addIndex(INDEX_NAME).addType(TYPE)
+        .setParameter(Parameters.SIZE, 0).build();
+
+    SearchResult searchResult = (SearchResult) handleResult(search);
+    if (searchResult == null || !searchResult.isSucceeded()) {
+      return Collections.emptyMap();
+    }
+    return termsFacets.decode(searchResult.getAggregations(), facet, offset);
+  }
+
+  /**
+   * Builds the facet query matching all documents restricted by the given term and date range filters.
+   */
+  private SearchSourceBuilder facetQuery(Map<String, Object[]> termFilters) {
 
     SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
     QueryBuilder queryBuilder = QueryBuilders.boolQuery().must(QueryBuilders.matchAllQuery());
     AndFilterBuilder queryFilters = FilterBuilders.andFilter();
-    if (!termFilters.isEmpty() && termFilters != null) {
+    if (termFilters != null && !termFilters.isEmpty()) {
       for (Entry<String, Object[]> termFilter : termFilters.entrySet()) {
         if (isKeyDateRangeKey(termFilter.getKey())) {
           FacetDateRange[] facetDateRange = convertObjectToFacetDateRange(termFilter.getValue());
@@ -217,80 +623,13 @@ public class ElasticSearchOperations {
           queryFilters.add(FilterBuilders.termsFilter(termFilter.getKey(), termFilter.getValue()));
         }
       }
-      // searchSourceBuilder.query(QueryBuilders.filteredQuery(queryBuilder, queryFilters));
       FilteredQueryBuilder filterQuery = new FilteredQueryBuilder(queryBuilder,
           FilterBuilders.boolFilter().must(queryFilters));
       searchSourceBuilder.query(filterQuery);
     } else {
       searchSourceBuilder.query(queryBuilder);
     }
-
-    TermsBuilder cuisineTermsBuilder = AggregationBuilders.terms("MyCuisine").field("cuisine").size(SIZE)
-        .order(Order.count(false));
-    TermsBuilder boroughTermsBuilder = AggregationBuilders.terms("MyBorough").field("borough").size(SIZE)
-        .order(Order.count(false));
-    DateRangeBuilder dateRangeBuilder = AggregationBuilders.dateRange("MyDateRange").field("lDate");
-    addDateRange(dateRangeBuilder);
-
-    searchSourceBuilder.aggregation(cuisineTermsBuilder);
-    searchSourceBuilder.aggregation(boroughTermsBuilder);
-    searchSourceBuilder.aggregation(dateRangeBuilder);
-
-    Search search = new Search.Builder(searchSourceBuilder.toString()).addIndex(INDEX_NAME).addType(TYPE)
-        .setHeader(getHeader()).refresh(refresh).setSearchType(SearchType.DFS_QUERY_THEN_FETCH).build();
-
-    SearchResult searchResult = null;
-    Map<String, Map<String, Long>> resultMap = Collections.emptyMap();
-
-    searchResult = (SearchResult) handleResult(search);
-    if (searchResult.isSucceeded()) {
-      TermsAggregation cuisineTerm = searchResult.getAggregations().getTermsAggregation("MyCuisine");
-      Collection<io.searchbox.core.search.aggregation.TermsAggregation.Entry> cusineBuckets = cuisineTerm.getBuckets();
-      Map<String, Long> cuisineMap = new LinkedHashMap<String, Long>(cusineBuckets.size());
-      for (io.searchbox.core.search.aggregation.TermsAggregation.Entry bucket : cusineBuckets) {
-        Long count = bucket.getCount();
-        if (count > 0) {
-          cuisineMap.put(bucket.getKey(), bucket.getCount());
-        }
-      }
-
-      TermsAggregation boroughTerm = searchResult.getAggregations().getTermsAggregation("MyBorough");
-      Collection<io.searchbox.core.search.aggregation.TermsAggregation.Entry> boroughBuckets = boroughTerm.getBuckets();
-      Map<String, Long> boroughMap = new LinkedHashMap<String, Long>(boroughBuckets.size());
-      for (io.searchbox.core.search.aggregation.TermsAggregation.Entry bucket : boroughBuckets) {
-        long count = bucket.getCount();
-        if (count > 0) {
-          boroughMap.put(bucket.getKey(), bucket.getCount());
-        }
-      }
-
-      DateRangeAggregation dateRangeTerm = searchResult.getAggregations().getDateRangeAggregation("MyDateRange");
-      List<DateRange> dateRangeBuckets = dateRangeTerm.getBuckets();
-      Map<String, Long> dateRangeMap = new LinkedHashMap<String, Long>(dateRangeBuckets.size());
-      for (DateRange dateRange : dateRangeBuckets) {
-        long count = dateRange.getCount();
-        if (count > 0) {
-          FacetDateRange facetDateRange = new FacetDateRange();
-          facetDateRange.setStartDate(
-              DateTime.parse(dateRange.getFromAsString(), ISODateTimeFormat.dateTimeParser().withOffsetParsed()));
-          facetDateRange.setEndDate(
-              DateTime.parse(dateRange.getToAsString(), ISODateTimeFormat.dateTimeParser().withOffsetParsed()));
-          dateRangeMap.put(facetDateRange.toString(), dateRange.getCount());
-        }
-      }
-
-      resultMap = new LinkedHashMap<String, Map<String, Long>>(Constants.THREE);
-      if (MapUtils.isNotEmpty(cuisineMap)) {
-        resultMap.put(cuisineTerm.getName(), cuisineMap);
-      }
-      if (MapUtils.isNotEmpty(boroughMap)) {
-        resultMap.put(boroughTerm.getName(), boroughMap);
-      }
-      if (MapUtils.isNotEmpty(dateRangeMap)) {
-        resultMap.put(dateRangeTerm.getName(), dateRangeMap);
-      }
-    }
-    return resultMap;
+    return searchSourceBuilder;
   }
 
   /**
@@ -319,30 +658,16 @@ public class ElasticSearchOperations {
     return facetDateRange;
   }
 
-  /**
-   * @param dateRangeBuilder
-   */
-  private void addDateRange(DateRangeBuilder dateRangeBuilder) {
-    DateTime startMonthDate = new DateTime(DateTimeZone.UTC).withDayOfMonth(Constants.ONE).withTimeAtStartOfDay();
-    dateRangeBuilder.addUnboundedTo(startMonthDate.minusMonths(Constants.TWELVE));
-    for (int i = Constants.TWELVE; i > Constants.ZERO; i--) {
-      dateRangeBuilder.addRange(startMonthDate.minusMonths(i),
-          startMonthDate.minusMonths(i - 1).minusMillis(Constants.ONE));
-    }
-    dateRangeBuilder.addUnboundedFrom(startMonthDate);
-  }
-
   /**
    * <p>
-   * createGeoPointMapping.
+   * createGeoPointMapping. Updates the generation the read alias points at; new generations built by
+   * {@link #reindex()} are created with these mappings.
    * </p>
    */
   @Secured({ "ROLE_ADMIN" })
   @RequestMapping(value = "/createGeoPointMapping")
   public void createGeoPointMapping() {
-    String expectedMappingSource = "{\"mappings\":{\"assetwrapper\":{\"properties\":{\"address\":{\"properties\":{\"building\":{\"type\":\"string\"},\"location\":{\"type\":\"geo_point\"},\"street\":{\"type\":\"string\"},\"zipcode\":{\"type\":\"string\"}}},\"assetName\":{\"type\":\"string\"},\"borough\":{\"type\":\"string\"},\"cuisine\":{\"type\":\"string\"},\"notes\":{\"properties\":{\"date\":{\"type\":\"date\",\"format\":\"dateOptionalTime\"},\"note\":{\"type\":\"string\"},\"score\":{\"type\":\"long\"}}},\"orginalAssetId\":{\"type\":\"string\"}}}}}";
-    PutMapping putMapping = new PutMapping.Builder(TO_INDEX, null, expectedMappingSource).setHeader(getHeader())
-        .build();
+    PutMapping putMapping = new PutMapping.Builder(TO_INDEX, null, ASSET_MAPPINGS).build();
     try {
       JestResult val = jestClient.execute(putMapping);
       LOGGER.info(val.isSucceeded() ? "created Index Successfully" : "Failed to create Index");
@@ -366,9 +691,9 @@ public class ElasticSearchOperations {
   public JestResult createIndexes(@PathVariable("indexName") String indexName, @PathVariable("type") String type)
       throws DigitalBridgeException {
     ImmutableSettings.Builder settingsBuilder = ImmutableSettings.settingsBuilder();
-    settingsBuilder.put("number_of_shards", 5);
-    settingsBuilder.put("number_of_replicas", 1);
-    CreateIndex indexBuilder = new CreateIndex.Builder(indexName.toLowerCase()).setHeader(getHeader())
+    settingsBuilder.put("number_of_shards", env.getProperty("elasticsearch.lifecycle.shards", Integer.class, 5));
+    settingsBuilder.put("number_of_replicas", env.getProperty("elasticsearch.lifecycle.replicas", Integer.class, 1));
+    CreateIndex indexBuilder = new CreateIndex.Builder(indexName.toLowerCase())
         .settings(settingsBuilder.build().getAsMap()).build();
     return handleResult(indexBuilder);
   }
@@ -391,9 +716,9 @@ public class ElasticSearchOperations {
     try {
       Delete deleteBuilder = null;
       if (StringUtils.isNotBlank(type)) {
-        deleteBuilder = new Delete.Builder(type).index(indexName.toLowerCase()).setHeader(getHeader()).build();
+        deleteBuilder = new Delete.Builder(type).index(indexName.toLowerCase()).build();
       } else {
-        deleteBuilder = new Delete.Builder(indexName.toLowerCase()).setHeader(getHeader()).build();
+        deleteBuilder = new Delete.Builder(indexName.toLowerCase()).build();
       }
       res = jestClient.execute(deleteBuilder);
       LOGGER.info(res.getJsonString());
@@ -409,17 +734,24 @@ public class ElasticSearchOperations {
 
   /**
    * <p>
-   * optimizeIndex.
+   * optimizeIndex. Starts merging the index most in need of it now instead of waiting for the off-peak window of the
+   * {@link com.digitalbridge.elasticsearch.MergeScheduler}.
    * </p>
    *
+   * @return the merged index or {@literal null} if no index needs merging or a merge is already running.
    * @throws com.digitalbridge.exception.DigitalBridgeException if any.
    */
   @RequestMapping(value = "optimizeIndex")
-  /*5000 = 5 seconds*/
-  @Scheduled(fixedRate = 60000 * 60)
-  public void optimizeIndex() throws DigitalBridgeException {
-    Optimize optimize = new Optimize.Builder().maxNumSegments(1).setHeader(getHeader()).build();
-    handleResult(optimize);
+  public String optimizeIndex() throws DigitalBridgeException {
+    try {
+      return mergeScheduler.mergeNext();
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to merge indices : {}", e.getMessage());
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1004");
+      bean.setFaultString("IOError");
+      throw new DigitalBridgeException(bean);
+    }
   }
 
   /**
@@ -436,16 +768,20 @@ public class ElasticSearchOperations {
   public JestResult refreshIndex(@PathVariable("indexName") String indexName) throws DigitalBridgeException {
     Refresh refresh = null;
     if (indexName != null && indexName.trim().length() > 0) {
-      refresh = new Refresh.Builder().addIndex(indexName).setHeader(getHeader()).build();
+      refresh = new Refresh.Builder().addIndex(indexName).build();
     } else {
-      refresh = new Refresh.Builder().setHeader(getHeader()).build();
+      refresh = new Refresh.Builder().build();
     }
-    return handleResult(refresh);
+    JestResult result = handleResult(refresh);
+    indexGeneration.bump();
+    return result;
   }
 
   /**
    * <p>
-   * elasticSearchStats.
+   * elasticSearchStats. Returns the latest sample of the {@link com.digitalbridge.elasticsearch.StatsCollector}, taking
+   * one if none was taken yet. The recent samples are exposed by the <code>/elasticsearchstats</code> actuator
+   * endpoint.
    * </p>
    *
    * @return a {@link com.google.gson.JsonObject} object.
@@ -454,100 +790,31 @@ public class ElasticSearchOperations {
   @Secured({ "ROLE_ADMIN" })
   @RequestMapping(value = "elasticSearchStats")
   public JsonObject elasticSearchStats() throws DigitalBridgeException {
-    Stats stats = new Stats.Builder().setHeader(getHeader()).build();
-    JsonObject statsJson = null;
-    JestResult result = handleResult(stats);
-    // confirm that response has all the default stats types
-    JsonObject jsonResult = result.getJsonObject();
-    statsJson = jsonResult.getAsJsonObject("indices").getAsJsonObject(INDEX_NAME).getAsJsonObject("total");
-    Assert.notNull(statsJson);
-    Assert.notNull(statsJson);
-    Assert.notNull(statsJson.getAsJsonObject("docs"));
-    Assert.notNull(statsJson.getAsJsonObject("store"));
-    Assert.notNull(statsJson.getAsJsonObject("indexing"));
-    Assert.notNull(statsJson.getAsJsonObject("get"));
-    Assert.notNull(statsJson.getAsJsonObject("search"));
-    return statsJson;
+    try {
+      StatsSample sample = statsCollector.getLatest();
+      return new Gson().toJsonTree(sample == null ? statsCollector.sample() : sample).getAsJsonObject();
+    } catch (IllegalStateException e) {
+      LOGGER.error("Unable to sample Elasticsearch stats : {}", e.getMessage());
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1004");
+      bean.setFaultString("IOError");
+      throw new DigitalBridgeException(bean);
+    }
   }
 
   /**
    * <p>
-   * reindex.
+   * reindex. Builds a new generation of the read alias from the primary index and swaps the alias to it once it is
+   * complete and warm.
    * </p>
    *
+   * @return the name of the new generation.
    * @throws com.digitalbridge.exception.DigitalBridgeException if any.
    */
   @Secured({ "ROLE_ADMIN" })
   @RequestMapping(value = "reindex")
-  public void reindex() throws DigitalBridgeException {
-    SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-    searchSourceBuilder.query(QueryBuilders.matchAllQuery());
-    Search search = new Search.Builder(searchSourceBuilder.toString()).addIndex(INDEX_NAME).addType(TYPE)
-        .setParameter(Parameters.SEARCH_TYPE, SearchType.SCAN).setParameter(Parameters.SIZE, PAGE_SIZE)
-        .setParameter(Parameters.SCROLL, "5m").setHeader(getHeader()).build();
-    LOGGER.debug(search.getData(null));
-    JestResult result = handleResult(search);
-    String scrollId = result.getJsonObject().get("_scroll_id").getAsString();
-
-    int currentResultSize = 0;
-    int pageNumber = 1;
-    do {
-      SearchScroll scroll = new SearchScroll.Builder(scrollId, "5m").setHeader(getHeader()).build();
-      result = handleResult(scroll);
-      scrollId = result.getJsonObject().get("_scroll_id").getAsString();
-      JsonArray hits = result.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits");
-      currentResultSize = hits.size();
-      LOGGER.info("finished scrolling page # " + pageNumber++ + " which had " + currentResultSize + " results.");
-
-      Builder bulkIndexBuilder = new Bulk.Builder().setHeader(getHeader()).defaultIndex(TO_INDEX).defaultType(TYPE);
-      boolean somethingToIndex = false;
-      for (int i = 0; i < currentResultSize; i++) {
-        JsonObject hitValue = hits.get(i).getAsJsonObject();
-        String sourceId = hitValue.get("_id").getAsString();
-        JsonObject source = hitValue.get("_source").getAsJsonObject();
-
-        // we are transforming the source, before adding it to the bulk
-        // index queue
-        for (Entry<String, JsonElement> sourceElement : source.entrySet()) {
-          if (sourceElement.getKey().equals("address")) {
-            JsonObject addressValues = sourceElement.getValue().getAsJsonObject();
-            for (Entry<String, JsonElement> addressElement : addressValues.entrySet()) {
-              if (addressElement.getKey().equalsIgnoreCase("location")) {
-                String lat = null, lon = null;
-                JsonObject locationValues = addressElement.getValue().getAsJsonObject();
-                for (Entry<String, JsonElement> locationElement : locationValues.entrySet()) {
-                  if (locationElement.getKey().equalsIgnoreCase("coordinates")) {
-                    String loccoord = locationElement.getValue().toString().replace("[", "").replace("]", "");
-                    lat = loccoord.split(",")[0].trim();
-                    lon = loccoord.split(",")[1].trim();
-                  }
-                }
-                locationValues.remove("type");
-                locationValues.remove("coordinates");
-                locationValues.addProperty("lat", lat);
-                locationValues.addProperty("lon", lon);
-              }
-            }
-            break;
-          }
-        }
-        Index index = new Index.Builder(source).index(TO_INDEX).type(TYPE).id(sourceId).setHeader(getHeader()).build();
-        bulkIndexBuilder = bulkIndexBuilder.addAction(index);
-        somethingToIndex = true;
-      }
-      if (somethingToIndex) {
-        Bulk bulk = bulkIndexBuilder.build();
-        handleResult(bulk);
-      } else {
-        LOGGER.info("there weren't any results to index in this set/page");
-      }
-    } while (currentResultSize > PAGE_SIZE);
-  }
-
-  private Map<String, Object> getHeader() {
-    Map<String, Object> map = new HashMap<String, Object>(1);
-    map.put("Authorization", "Basic " + Base64.encodeBytes("admin:admin_pw".getBytes()));
-    return map;
+  public String reindex() throws DigitalBridgeException {
+    return indexLifecycleManager.rebuild(INDEX_NAME, TYPE, TO_INDEX, ASSET_MAPPINGS);
   }
 
   /**
@@ -562,30 +829,116 @@ public class ElasticSearchOperations {
   @SuppressWarnings({ "unchecked", "rawtypes" })
   protected JestResult handleResult(Action action) throws DigitalBridgeException {
     JestResult jestResult = null;
+    long started = elasticSearchMetrics.started();
+    long timed = HotPathTimer.start();
     try {
       jestResult = jestClient.execute(action);
-      if (!jestResult.isSucceeded()) {
-        if (jestResult.getResponseCode() == Constants.CLUSTERBLOCKEXCEPTIONCODE) {
-          LOGGER.error(jestResult.getErrorMessage());
-          DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
-          bean.setFaultCode("1011");
-          bean.setFaultString("ClusterBlockException");
-          throw new DigitalBridgeException(bean);
-        } else if (jestResult.getResponseCode() == Constants.INDEXMISSINGCODE) {
-          LOGGER.error(jestResult.getErrorMessage());
-          DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
-          bean.setFaultCode("1012");
-          bean.setFaultString("IndexMissingException");
-          throw new DigitalBridgeException(bean);
-        } else {
-          LOGGER.error(jestResult.getJsonString());
-          LOGGER.error("Error :{}", jestResult.getErrorMessage());
-        }
-      }
     } catch (IOException e) {
       LOGGER.error("IOException occured while attempting to perform ElasticSearch Operation : {}", e.getMessage());
+    } finally {
+      elasticSearchMetrics.finished(action, jestResult, started);
+      HotPathTimer.stop(timed, "elasticsearch", action.getClass());
+    }
+    if (jestResult != null) {
+      checkResult(jestResult);
     }
     return jestResult;
   }
 
+  /**
+   * <p>
+   * handleResultAsync. Executes the action on the asynchronous HTTP client. The handler is invoked on the
+   * <code>elasticSearchCallbackExecutor</code> so result processing never blocks the HTTP client's I/O threads; errors
+   * are translated like in {@link #handleResult(Action)}, I/O errors are reported as <code>1004</code>. When the
+   * executor is saturated the handler fails right away with <code>1018</code> instead of waiting for a callback that
+   * never comes.
+   * </p>
+   *
+   * @param action a {@link io.searchbox.action.Action} object.
+   * @param handler a {@link io.searchbox.client.JestResultHandler} object.
+   * @param <T> the result type.
+   */
+  protected <T extends JestResult> void handleResultAsync(final Action<T> action,
+      final JestResultHandler<? super T> handler) {
+    final long started = elasticSearchMetrics.started();
+    jestClient.executeAsync(action, new JestResultHandler<T>() {
+
+      @Override
+      public void completed(final T result) {
+        elasticSearchMetrics.finished(action, result, started);
+        dispatch(handler, new Runnable() {
+
+          @Override
+          public void run() {
+            try {
+              checkResult(result);
+            } catch (DigitalBridgeException e) {
+              handler.failed(e);
+              return;
+            }
+            handler.completed(result);
+          }
+        });
+      }
+
+      @Override
+      public void failed(final Exception ex) {
+        elasticSearchMetrics.finished(action, null, started);
+        dispatch(handler, new Runnable() {
+
+          @Override
+          public void run() {
+            LOGGER.error("Exception occured while attempting to perform ElasticSearch Operation : {}",
+                ex.getMessage());
+            DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+            bean.setFaultCode("1004");
+            bean.setFaultString("IOError");
+            handler.failed(new DigitalBridgeException(bean));
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Runs the given callback on the callback executor. Called on the HTTP client's I/O thread, so a rejection must not
+   * escape into it.
+   */
+  private void dispatch(JestResultHandler<?> handler, Runnable callback) {
+    try {
+      callbackExecutor.execute(callback);
+    } catch (RejectedExecutionException e) {
+      LOGGER.error("Elasticsearch callback executor saturated, failing request : {}", e.getMessage());
+      DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+      bean.setFaultCode("1018");
+      bean.setFaultString("ServiceUnavailable");
+      handler.failed(new DigitalBridgeException(bean));
+    }
+  }
+
+  private void checkResult(JestResult jestResult) throws DigitalBridgeException {
+    if (!jestResult.isSucceeded()) {
+      if (jestResult.getResponseCode() == Constants.CLUSTERBLOCKEXCEPTIONCODE) {
+        LOGGER.error(jestResult.getErrorMessage());
+        DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+        bean.setFaultCode("1011");
+        bean.setFaultString("ClusterBlockException");
+        throw new DigitalBridgeException(bean);
+      } else if (jestResult.getResponseCode() == Constants.INDEXMISSINGCODE) {
+        LOGGER.error(jestResult.getErrorMessage());
+        DigitalBridgeExceptionBean bean = new DigitalBridgeExceptionBean();
+        bean.setFaultCode("1012");
+        bean.setFaultString("IndexMissingException");
+        throw new DigitalBridgeException(bean);
+      } else {
+        LOGGER.error(jestResult.getJsonString());
+        LOGGER.error("Error :{}", jestResult.getErrorMessage());
+      }
+    }
+  }
+
+  private long getAsyncTimeout() {
+    return env.getProperty("elasticsearch.async.timeout-ms", Long.class, 30000L);
+  }
+
 }
@@ -0,0 +1,243 @@
+package com.digitalbridge.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.elasticsearch.common.joda.time.format.DateTimeFormatter;
+import org.elasticsearch.common.joda.time.format.ISODateTimeFormat;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.util.Assert;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+/**
+ * <p>
+ * AssetWrapperDocumentSource class. Builds the <code>assetwrapper</code> search documents straight from the raw Mongo
+ * documents, embedding the referenced <code>address</code> and <code>notes</code>. Referenced documents are loaded with
+ * one <code>$in</code> query per collection for all requested assets, GeoJSON points are written as
+ * <code>geo_point</code> objects.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class AssetWrapperDocumentSource implements SyncDocumentSource {
+
+  private static final String ASSETWRAPPER = "assetwrapper";
+  private static final String ADDRESS = "address";
+  private static final String NOTES = "notes";
+
+  private static final DateTimeFormatter DATE_FORMAT = ISODateTimeFormat.dateTime().withZoneUTC();
+
+  private final MongoDbFactory mongoDbFactory;
+
+  /**
+   * <p>
+   * Constructor for AssetWrapperDocumentSource.
+   * </p>
+   *
+   * @param mongoDbFactory must not be {@literal null}.
+   */
+  public AssetWrapperDocumentSource(MongoDbFactory mongoDbFactory) {
+
+    Assert.notNull(mongoDbFactory, "MongoDbFactory must not be null!");
+    this.mongoDbFactory = mongoDbFactory;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getRootCollectionName() {
+    return ASSETWRAPPER;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Set<Object> findReferencingIds(String collectionName, Collection<Object> ids) {
+
+    if (ids.isEmpty() || !(ADDRESS.equals(collectionName) || NOTES.equals(collectionName))) {
+      return Collections.emptySet();
+    }
+
+    DBObject query = new BasicDBObject(collectionName + ".$id", new BasicDBObject("$in", new ArrayList<Object>(ids)));
+    DBCursor cursor = mongoDbFactory.getDb().getCollection(ASSETWRAPPER).find(query, new BasicDBObject("_id", 1));
+    Set<Object> result = new LinkedHashSet<Object>();
+
+    try {
+      while (cursor.hasNext()) {
+        result.add(cursor.next().get("_id"));
+      }
+    } finally {
+      cursor.close();
+    }
+
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Map<Object, JsonObject> loadDocuments(Collection<Object> ids) {
+
+    if (ids.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    DB db = mongoDbFactory.getDb();
+    List<DBObject> assets = findByIds(db, ASSETWRAPPER, ids);
+
+    Set<Object> addressIds = new LinkedHashSet<Object>();
+    Set<Object> noteIds = new LinkedHashSet<Object>();
+
+    for (DBObject asset : assets) {
+      collectRefIds(asset.get(ADDRESS), addressIds);
+      collectRefIds(asset.get(NOTES), noteIds);
+    }
+
+    Map<String, Map<Object, DBObject>> referenced = new HashMap<String, Map<Object, DBObject>>(2);
+    referenced.put(ADDRESS, byId(findByIds(db, ADDRESS, addressIds)));
+    referenced.put(NOTES, byId(findByIds(db, NOTES, noteIds)));
+
+    Map<Object, JsonObject> result = new LinkedHashMap<Object, JsonObject>(assets.size());
+
+    for (DBObject asset : assets) {
+      result.put(asset.get("_id"), toJsonObject(asset, referenced));
+    }
+
+    return result;
+  }
+
+  private static List<DBObject> findByIds(DB db, String collectionName, Collection<Object> ids) {
+
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    DBObject query = new BasicDBObject("_id", new BasicDBObject("$in", new ArrayList<Object>(ids)));
+    DBCursor cursor = db.getCollection(collectionName).find(query);
+
+    try {
+      return cursor.toArray();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static Map<Object, DBObject> byId(List<DBObject> documents) {
+
+    Map<Object, DBObject> result = new HashMap<Object, DBObject>(documents.size());
+
+    for (DBObject document : documents) {
+      result.put(document.get("_id"), document);
+    }
+
+    return result;
+  }
+
+  private static void collectRefIds(Object value, Set<Object> ids) {
+
+    if (value instanceof DBRef) {
+      ids.add(((DBRef) value).getId());
+    } else if (value instanceof BasicDBList) {
+      for (Object element : (BasicDBList) value) {
+        collectRefIds(element, ids);
+      }
+    }
+  }
+
+  private static JsonObject toJsonObject(DBObject dbo, Map<String, Map<Object, DBObject>> referenced) {
+
+    if (isGeoJsonPoint(dbo)) {
+      return toGeoPoint((List<?>) dbo.get("coordinates"));
+    }
+
+    JsonObject json = new JsonObject();
+
+    for (String key : dbo.keySet()) {
+      if (!"_id".equals(key) && !"_class".equals(key)) {
+        json.add(key, toJson(dbo.get(key), referenced));
+      }
+    }
+
+    return json;
+  }
+
+  private static JsonElement toJson(Object value, Map<String, Map<Object, DBObject>> referenced) {
+
+    if (value == null) {
+      return JsonNull.INSTANCE;
+    }
+
+    if (value instanceof DBRef) {
+
+      DBRef ref = (DBRef) value;
+      Map<Object, DBObject> documents = referenced.get(ref.getCollectionName());
+      DBObject document = documents == null ? null : documents.get(ref.getId());
+
+      return document == null ? JsonNull.INSTANCE : toJsonObject(document, referenced);
+    }
+
+    if (value instanceof BasicDBList) {
+
+      JsonArray array = new JsonArray();
+
+      for (Object element : (BasicDBList) value) {
+        JsonElement json = toJson(element, referenced);
+        if (!json.isJsonNull()) {
+          array.add(json);
+        }
+      }
+
+      return array;
+    }
+
+    if (value instanceof DBObject) {
+      return toJsonObject((DBObject) value, referenced);
+    }
+
+    if (value instanceof Number) {
+      return new JsonPrimitive((Number) value);
+    }
+
+    if (value instanceof Boolean) {
+      return new JsonPrimitive((Boolean) value);
+    }
+
+    if (value instanceof Date) {
+      return new JsonPrimitive(DATE_FORMAT.print(((Date) value).getTime()));
+    }
+
+    return new JsonPrimitive(value.toString());
+  }
+
+  private static boolean isGeoJsonPoint(DBObject dbo) {
+    return "Point".equals(dbo.get("type")) && dbo.get("coordinates") instanceof List;
+  }
+
+  /**
+   * GeoJSON stores <code>[lon, lat]</code>, the <code>geo_point</code> object form is unambiguous.
+   */
+  private static JsonObject toGeoPoint(List<?> coordinates) {
+
+    JsonObject point = new JsonObject();
+    point.addProperty("lat", (Number) coordinates.get(1));
+    point.addProperty("lon", (Number) coordinates.get(0));
+    return point;
+  }
+}
@@ -0,0 +1,125 @@
+package com.digitalbridge.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.BSONTimestamp;
+import org.springframework.util.Assert;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+
+/**
+ * <p>
+ * MongoOplogSource class. Tails <code>local.oplog.rs</code> of the replica set with a tailable, await-data cursor
+ * restricted to the given collections of one database.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class MongoOplogSource implements OplogSource {
+
+  private static final String OPLOG_COLLECTION = "oplog.rs";
+  private static final long IDLE_SLEEP_MILLIS = 100;
+
+  private final Mongo mongo;
+  private final List<String> namespaces;
+
+  private DBCursor cursor;
+
+  /**
+   * <p>
+   * Constructor for MongoOplogSource.
+   * </p>
+   *
+   * @param mongo must not be {@literal null}.
+   * @param databaseName the database to follow.
+   * @param collectionNames the collections to follow.
+   */
+  public MongoOplogSource(Mongo mongo, String databaseName, String... collectionNames) {
+
+    Assert.notNull(mongo, "Mongo must not be null!");
+    Assert.hasText(databaseName, "DatabaseName must not be empty!");
+
+    this.mongo = mongo;
+    this.namespaces = new ArrayList<String>(collectionNames.length);
+
+    for (String collectionName : collectionNames) {
+      namespaces.add(databaseName + "." + collectionName);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @SuppressWarnings("deprecation")
+  public void open(BSONTimestamp resumeAfter) {
+
+    close();
+
+    DB local = mongo.getDB("local");
+    DBCollection oplog = local.getCollection(OPLOG_COLLECTION);
+
+    if (resumeAfter == null) {
+      resumeAfter = lastTimestamp(oplog);
+    }
+
+    DBObject query = new BasicDBObject("ns", new BasicDBObject("$in", namespaces));
+
+    if (resumeAfter != null) {
+      query.put("ts", new BasicDBObject("$gt", resumeAfter));
+    }
+
+    cursor = oplog.find(query).sort(new BasicDBObject("$natural", 1)).addOption(Bytes.QUERYOPTION_TAILABLE)
+        .addOption(Bytes.QUERYOPTION_AWAITDATA).addOption(Bytes.QUERYOPTION_OPLOGREPLAY);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public OplogEntry poll(long maxWaitMillis) throws InterruptedException {
+
+    Assert.state(cursor != null, "OplogSource is not open!");
+
+    long deadline = System.currentTimeMillis() + maxWaitMillis;
+
+    do {
+
+      DBObject next = cursor.tryNext();
+
+      if (next != null) {
+        return OplogEntry.fromDBObject(next);
+      }
+
+      Thread.sleep(Math.min(IDLE_SLEEP_MILLIS, Math.max(1, deadline - System.currentTimeMillis())));
+
+    } while (System.currentTimeMillis() < deadline);
+
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+
+    if (cursor != null) {
+      cursor.close();
+      cursor = null;
+    }
+  }
+
+  private static BSONTimestamp lastTimestamp(DBCollection oplog) {
+
+    DBCursor last = oplog.find().sort(new BasicDBObject("$natural", -1)).limit(1);
+
+    try {
+      return last.hasNext() ? (BSONTimestamp) last.next().get("ts") : null;
+    } finally {
+      last.close();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.digitalbridge.sync;
+
+import org.bson.types.BSONTimestamp;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.util.Assert;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * <p>
+ * MongoSyncCheckpointStore class. Keeps the checkpoint as a single document of the <code>syncCheckpoint</code>
+ * collection, keyed on the name of the synchronisation.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class MongoSyncCheckpointStore implements SyncCheckpointStore {
+
+  private static final String COLLECTION = "syncCheckpoint";
+
+  private final MongoDbFactory mongoDbFactory;
+  private final String name;
+
+  /**
+   * <p>
+   * Constructor for MongoSyncCheckpointStore.
+   * </p>
+   *
+   * @param mongoDbFactory must not be {@literal null}.
+   * @param name the name of the synchronisation the checkpoint belongs to.
+   */
+  public MongoSyncCheckpointStore(MongoDbFactory mongoDbFactory, String name) {
+
+    Assert.notNull(mongoDbFactory, "MongoDbFactory must not be null!");
+    Assert.hasText(name, "Name must not be empty!");
+
+    this.mongoDbFactory = mongoDbFactory;
+    this.name = name;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public BSONTimestamp load() {
+
+    DBObject checkpoint = collection().findOne(new BasicDBObject("_id", name));
+    return checkpoint == null ? null : (BSONTimestamp) checkpoint.get("ts");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void save(BSONTimestamp timestamp) {
+
+    Assert.notNull(timestamp, "Timestamp must not be null!");
+    collection().save(new BasicDBObject("_id", name).append("ts", timestamp));
+  }
+
+  private DBCollection collection() {
+    return mongoDbFactory.getDb().getCollection(COLLECTION);
+  }
+}
@@ -0,0 +1,127 @@
+package com.digitalbridge.sync;
+
+import org.bson.types.BSONTimestamp;
+import org.springframework.util.Assert;
+
+import com.mongodb.DBObject;
+
+/**
+ * <p>
+ * OplogEntry class. Immutable view of a single replica set oplog entry, reduced to the parts the synchronisation needs.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public final class OplogEntry {
+
+  /** Constant <code>INSERT="i"</code> */
+  public static final String INSERT = "i";
+  /** Constant <code>UPDATE="u"</code> */
+  public static final String UPDATE = "u";
+  /** Constant <code>DELETE="d"</code> */
+  public static final String DELETE = "d";
+
+  private final BSONTimestamp timestamp;
+  private final String operation;
+  private final String namespace;
+  private final Object documentId;
+
+  /**
+   * <p>
+   * Constructor for OplogEntry.
+   * </p>
+   *
+   * @param timestamp must not be {@literal null}.
+   * @param operation one of {@link #INSERT}, {@link #UPDATE} or {@link #DELETE}.
+   * @param namespace the <code>database.collection</code> the entry applies to.
+   * @param documentId the id of the changed document.
+   */
+  public OplogEntry(BSONTimestamp timestamp, String operation, String namespace, Object documentId) {
+
+    Assert.notNull(timestamp, "Timestamp must not be null!");
+    Assert.notNull(namespace, "Namespace must not be null!");
+
+    this.timestamp = timestamp;
+    this.operation = operation;
+    this.namespace = namespace;
+    this.documentId = documentId;
+  }
+
+  /**
+   * Creates an {@link OplogEntry} from a raw <code>local.oplog.rs</code> document. The document id is taken from the
+   * update selector (<code>o2</code>) for updates and from the object (<code>o</code>) otherwise.
+   *
+   * @param dbo must not be {@literal null}.
+   * @return a {@link com.digitalbridge.sync.OplogEntry} object.
+   */
+  public static OplogEntry fromDBObject(DBObject dbo) {
+
+    String operation = (String) dbo.get("op");
+    DBObject source = (DBObject) (UPDATE.equals(operation) ? dbo.get("o2") : dbo.get("o"));
+    Object documentId = source == null ? null : source.get("_id");
+
+    return new OplogEntry((BSONTimestamp) dbo.get("ts"), operation, (String) dbo.get("ns"), documentId);
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>timestamp</code>.
+   * </p>
+   *
+   * @return a {@link org.bson.types.BSONTimestamp} object.
+   */
+  public BSONTimestamp getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>operation</code>.
+   * </p>
+   *
+   * @return a {@link java.lang.String} object.
+   */
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>namespace</code>.
+   * </p>
+   *
+   * @return a {@link java.lang.String} object.
+   */
+  public String getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * <p>
+   * getCollectionName.
+   * </p>
+   *
+   * @return the collection part of the namespace.
+   */
+  public String getCollectionName() {
+    return namespace.substring(namespace.indexOf('.') + 1);
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>documentId</code>.
+   * </p>
+   *
+   * @return the id of the changed document, {@literal null} for commands.
+   */
+  public Object getDocumentId() {
+    return documentId;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return operation + " " + namespace + " " + documentId + " @" + timestamp;
+  }
+}
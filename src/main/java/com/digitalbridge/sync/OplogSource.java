@@ -0,0 +1,36 @@
+package com.digitalbridge.sync;
+
+import org.bson.types.BSONTimestamp;
+
+/**
+ * <p>
+ * OplogSource interface. Abstraction over the tailed oplog so the synchronisation can be driven by an in-process source
+ * in tests.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public interface OplogSource {
+
+  /**
+   * Opens the source so that {@link #poll(long)} returns entries written after the given timestamp.
+   *
+   * @param resumeAfter the last timestamp already applied, {@literal null} to start at the current end of the oplog.
+   */
+  void open(BSONTimestamp resumeAfter);
+
+  /**
+   * Returns the next entry, waiting at most the given time for one to arrive.
+   *
+   * @param maxWaitMillis maximum time to wait in milliseconds.
+   * @return the next {@link com.digitalbridge.sync.OplogEntry} or {@literal null} if none arrived in time.
+   * @throws java.lang.InterruptedException if interrupted while waiting.
+   */
+  OplogEntry poll(long maxWaitMillis) throws InterruptedException;
+
+  /**
+   * Releases the resources held by the source, it may be opened again afterwards.
+   */
+  void close();
+}
@@ -0,0 +1,481 @@
+package com.digitalbridge.sync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.types.BSONTimestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.digitalbridge.elasticsearch.BulkSender;
+import com.digitalbridge.elasticsearch.IndexGeneration;
+import com.google.gson.JsonObject;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Delete;
+import io.searchbox.core.DocumentResult;
+import io.searchbox.core.Index;
+
+/**
+ * <p>
+ * OplogSyncService class. Keeps an Elasticsearch index in sync with Mongo by tailing the oplog.
+ * </p>
+ * <p>
+ * Changes are collected into a batch of dirty root document ids; changes of referenced documents are mapped to the root
+ * documents embedding them. A batch is flushed once it holds {@code maxBatchActions} ids or is
+ * {@code maxBatchDelayMillis} old: the current documents are loaded and sent as {@link io.searchbox.core.Bulk}
+ * requests of at most {@code maxBatchBytes}, documents that no longer exist are deleted. Requests and items rejected
+ * with 429 or 503 are retried by the {@link com.digitalbridge.elasticsearch.BulkSender}. The oplog is not read while a
+ * batch is being retried, so rejections throttle the reader instead of dropping changes. The resume timestamp is saved
+ * only after a batch is acknowledged, so a restart replays at most one batch. A batch with actions still rejected
+ * after the last retry and errors opening the oplog are retried from the checkpoint with back-off. Documents
+ * Elasticsearch refuses with a non retryable error, e.g. a mapping error, are logged and skipped, as sending them
+ * again would only hold back every later change.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public class OplogSyncService implements Runnable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OplogSyncService.class);
+
+  private static final int DELETE_ACTION_BYTES = 64;
+
+  private final OplogSource oplogSource;
+  private final SyncDocumentSource documentSource;
+  private final SyncCheckpointStore checkpointStore;
+  private final BulkSender bulkSender;
+  private final String indexName;
+  private final String typeName;
+
+  private int maxBatchActions = 1000;
+  private long maxBatchBytes = 5L * 1024 * 1024;
+  private long maxBatchDelayMillis = 1000;
+  private long initialBackoffMillis = 100;
+  private long maxBackoffMillis = 30000;
+
+  private final Set<Object> dirtyIds = new LinkedHashSet<Object>();
+  private final Map<String, Set<Object>> dirtyReferences = new HashMap<String, Set<Object>>();
+  private int pendingEntries;
+  private BSONTimestamp pendingTimestamp;
+  private long batchStartedAt;
+
+  private final AtomicLong entryCount = new AtomicLong();
+  private final AtomicLong indexedCount = new AtomicLong();
+  private final AtomicLong deletedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong retryCount = new AtomicLong();
+
+  private volatile boolean running;
+  private Thread worker;
+
+  /**
+   * <p>
+   * Constructor for OplogSyncService.
+   * </p>
+   *
+   * @param oplogSource must not be {@literal null}.
+   * @param documentSource must not be {@literal null}.
+   * @param checkpointStore must not be {@literal null}.
+   * @param jestClient must not be {@literal null}.
+   * @param indexName the index to write to.
+   * @param typeName the type to write to.
+   */
+  public OplogSyncService(OplogSource oplogSource, SyncDocumentSource documentSource,
+      SyncCheckpointStore checkpointStore, JestClient jestClient, String indexName, String typeName) {
+
+    Assert.notNull(oplogSource, "OplogSource must not be null!");
+    Assert.notNull(documentSource, "SyncDocumentSource must not be null!");
+    Assert.notNull(checkpointStore, "SyncCheckpointStore must not be null!");
+    Assert.notNull(jestClient, "JestClient must not be null!");
+    Assert.hasText(indexName, "IndexName must not be empty!");
+    Assert.hasText(typeName, "TypeName must not be empty!");
+
+    this.oplogSource = oplogSource;
+    this.documentSource = documentSource;
+    this.checkpointStore = checkpointStore;
+    this.bulkSender = new BulkSender(jestClient);
+    this.indexName = indexName;
+    this.typeName = typeName;
+  }
+
+  /**
+   * Starts tailing the oplog in a background thread, resuming after the saved checkpoint.
+   */
+  public synchronized void start() {
+
+    if (running) {
+      return;
+    }
+
+    running = true;
+    worker = new Thread(this, "oplog-sync-" + indexName);
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * Stops the background thread. A batch not flushed yet is replayed from the checkpoint on the next start.
+   *
+   * @throws java.lang.InterruptedException if interrupted while waiting for the thread to end.
+   */
+  public synchronized void stop() throws InterruptedException {
+
+    running = false;
+
+    if (worker != null) {
+      worker.interrupt();
+      worker.join(maxBackoffMillis);
+      worker = null;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void run() {
+
+    long backoff = initialBackoffMillis;
+    boolean open = false;
+
+    try {
+      while (running) {
+        try {
+          if (!open) {
+            oplogSource.open(checkpointStore.load());
+            open = true;
+          }
+          process(maxBatchDelayMillis);
+          backoff = initialBackoffMillis;
+        } catch (RuntimeException e) {
+          LOGGER.error("Oplog synchronisation failed, resuming from last checkpoint in {} ms : {}", backoff,
+              e.getMessage(), e);
+          clearBatch();
+          if (open) {
+            open = false;
+            closeQuietly();
+          }
+          Thread.sleep(backoff);
+          backoff = Math.min(backoff * 2, maxBackoffMillis);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (open) {
+        closeQuietly();
+      }
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      oplogSource.close();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Unable to close the oplog cursor : {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Reads at most one oplog entry, waiting at most the given time, and flushes the batch once it is full or old enough.
+   *
+   * @param maxWaitMillis maximum time to wait for an entry.
+   * @throws java.lang.InterruptedException if interrupted while waiting or backing off.
+   */
+  public void process(long maxWaitMillis) throws InterruptedException {
+
+    long wait = maxWaitMillis;
+
+    if (pendingEntries > 0) {
+      wait = Math.min(wait, Math.max(0, batchStartedAt + maxBatchDelayMillis - System.currentTimeMillis()));
+    }
+
+    OplogEntry entry = oplogSource.poll(wait);
+
+    if (entry != null) {
+      add(entry);
+    }
+
+    if (pendingEntries > 0 && (dirtyCount() >= maxBatchActions
+        || System.currentTimeMillis() - batchStartedAt >= maxBatchDelayMillis)) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends the current batch to Elasticsearch and saves its last oplog timestamp once it is acknowledged. If actions ran
+   * out of retries the checkpoint is not moved and the batch is kept, so that it is sent again instead of leaving the
+   * index behind Mongo. Actions rejected with a non retryable error are logged and do not hold the checkpoint back.
+   *
+   * @throws java.lang.InterruptedException if interrupted while backing off.
+   * @throws java.lang.IllegalStateException if actions of the batch ran out of retries.
+   */
+  public void flush() throws InterruptedException {
+
+    if (pendingEntries == 0) {
+      return;
+    }
+
+    Set<Object> ids = new LinkedHashSet<Object>(dirtyIds);
+
+    for (Entry<String, Set<Object>> references : dirtyReferences.entrySet()) {
+      ids.addAll(documentSource.findReferencingIds(references.getKey(), references.getValue()));
+    }
+
+    Map<Object, JsonObject> documents = documentSource.loadDocuments(ids);
+
+    List<BulkableAction<DocumentResult>> chunk = new ArrayList<BulkableAction<DocumentResult>>();
+    long chunkBytes = 0;
+    int exhausted = 0;
+    int rejected = 0;
+
+    for (Object id : ids) {
+
+      JsonObject document = documents.get(id);
+      BulkableAction<DocumentResult> action;
+      long bytes;
+
+      if (document != null) {
+        action = new Index.Builder(document).index(indexName).type(typeName).id(id.toString()).build();
+        bytes = document.toString().length();
+      } else {
+        action = new Delete.Builder(id.toString()).index(indexName).type(typeName).build();
+        bytes = DELETE_ACTION_BYTES;
+      }
+
+      if (!chunk.isEmpty() && (chunkBytes + bytes > maxBatchBytes || chunk.size() >= maxBatchActions)) {
+        BulkSender.Result result = send(chunk);
+        exhausted += result.getExhausted();
+        rejected += result.getRejected();
+        chunk = new ArrayList<BulkableAction<DocumentResult>>();
+        chunkBytes = 0;
+      }
+
+      chunk.add(action);
+      chunkBytes += bytes;
+    }
+
+    if (!chunk.isEmpty()) {
+      BulkSender.Result result = send(chunk);
+      exhausted += result.getExhausted();
+      rejected += result.getRejected();
+    }
+
+    if (exhausted > 0) {
+      throw new IllegalStateException(exhausted + " of " + ids.size()
+          + " bulk actions ran out of retries, checkpoint not moved to " + pendingTimestamp);
+    }
+
+    if (rejected > 0) {
+      LOGGER.warn("Skipping {} of {} documents rejected by Elasticsearch, checkpoint moved to {}", rejected,
+          ids.size(), pendingTimestamp);
+    }
+
+    checkpointStore.save(pendingTimestamp);
+    LOGGER.debug("Synchronised {} oplog entries as {} documents up to {}", pendingEntries, ids.size(),
+        pendingTimestamp);
+    clearBatch();
+  }
+
+  private void add(OplogEntry entry) {
+
+    entryCount.incrementAndGet();
+
+    if (entry.getDocumentId() != null) {
+
+      String collectionName = entry.getCollectionName();
+
+      if (documentSource.getRootCollectionName().equals(collectionName)) {
+        dirtyIds.add(entry.getDocumentId());
+      } else {
+
+        Set<Object> references = dirtyReferences.get(collectionName);
+
+        if (references == null) {
+          references = new LinkedHashSet<Object>();
+          dirtyReferences.put(collectionName, references);
+        }
+
+        references.add(entry.getDocumentId());
+      }
+    }
+
+    if (pendingEntries++ == 0) {
+      batchStartedAt = System.currentTimeMillis();
+    }
+
+    pendingTimestamp = entry.getTimestamp();
+  }
+
+  private int dirtyCount() {
+
+    int count = dirtyIds.size();
+
+    for (Set<Object> references : dirtyReferences.values()) {
+      count += references.size();
+    }
+
+    return count;
+  }
+
+  private void clearBatch() {
+    dirtyIds.clear();
+    dirtyReferences.clear();
+    pendingEntries = 0;
+    pendingTimestamp = null;
+  }
+
+  private BulkSender.Result send(List<BulkableAction<DocumentResult>> actions) throws InterruptedException {
+
+    BulkSender.Result result = bulkSender.send(actions);
+
+    indexedCount.addAndGet(result.getIndexed());
+    deletedCount.addAndGet(result.getDeleted());
+    failedCount.addAndGet(result.getFailed());
+    retryCount.addAndGet(result.getRetried());
+    return result;
+  }
+
+  /**
+   * <p>
+   * setMaxBulkAttempts.
+   * </p>
+   *
+   * @param maxBulkAttempts the number of bulk requests sent for an action before the batch is retried from the
+   *          checkpoint.
+   */
+  public void setMaxBulkAttempts(int maxBulkAttempts) {
+    bulkSender.setMaxAttempts(maxBulkAttempts);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>indexGeneration</code>.
+   * </p>
+   *
+   * @param indexGeneration bumped by every flushed batch, can be {@literal null}.
+   */
+  public void setIndexGeneration(IndexGeneration indexGeneration) {
+    bulkSender.setIndexGeneration(indexGeneration);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBatchActions</code>.
+   * </p>
+   *
+   * @param maxBatchActions a int.
+   */
+  public void setMaxBatchActions(int maxBatchActions) {
+    this.maxBatchActions = maxBatchActions;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBatchBytes</code>.
+   * </p>
+   *
+   * @param maxBatchBytes a long.
+   */
+  public void setMaxBatchBytes(long maxBatchBytes) {
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBatchDelayMillis</code>.
+   * </p>
+   *
+   * @param maxBatchDelayMillis a long.
+   */
+  public void setMaxBatchDelayMillis(long maxBatchDelayMillis) {
+    this.maxBatchDelayMillis = maxBatchDelayMillis;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>initialBackoffMillis</code>.
+   * </p>
+   *
+   * @param initialBackoffMillis a long.
+   */
+  public void setInitialBackoffMillis(long initialBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+    bulkSender.setInitialBackoffMillis(initialBackoffMillis);
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>maxBackoffMillis</code>.
+   * </p>
+   *
+   * @param maxBackoffMillis a long.
+   */
+  public void setMaxBackoffMillis(long maxBackoffMillis) {
+    this.maxBackoffMillis = maxBackoffMillis;
+    bulkSender.setMaxBackoffMillis(maxBackoffMillis);
+  }
+
+  /**
+   * <p>
+   * getEntryCount.
+   * </p>
+   *
+   * @return the number of oplog entries read.
+   */
+  public long getEntryCount() {
+    return entryCount.get();
+  }
+
+  /**
+   * <p>
+   * getIndexedCount.
+   * </p>
+   *
+   * @return the number of documents indexed.
+   */
+  public long getIndexedCount() {
+    return indexedCount.get();
+  }
+
+  /**
+   * <p>
+   * getDeletedCount.
+   * </p>
+   *
+   * @return the number of documents deleted.
+   */
+  public long getDeletedCount() {
+    return deletedCount.get();
+  }
+
+  /**
+   * <p>
+   * getFailedCount.
+   * </p>
+   *
+   * @return the number of bulk actions failed with a non retryable error.
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * <p>
+   * getRetryCount.
+   * </p>
+   *
+   * @return the number of bulk actions retried.
+   */
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+}
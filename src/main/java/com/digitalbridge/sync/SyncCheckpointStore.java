@@ -0,0 +1,32 @@
+package com.digitalbridge.sync;
+
+import org.bson.types.BSONTimestamp;
+
+/**
+ * <p>
+ * SyncCheckpointStore interface. Persists the timestamp of the last oplog entry that was applied to Elasticsearch.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public interface SyncCheckpointStore {
+
+  /**
+   * <p>
+   * load.
+   * </p>
+   *
+   * @return the last saved timestamp or {@literal null} if the synchronisation never ran.
+   */
+  BSONTimestamp load();
+
+  /**
+   * <p>
+   * save.
+   * </p>
+   *
+   * @param timestamp must not be {@literal null}.
+   */
+  void save(BSONTimestamp timestamp);
+}
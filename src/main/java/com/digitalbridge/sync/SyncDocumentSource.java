@@ -0,0 +1,46 @@
+package com.digitalbridge.sync;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonObject;
+
+/**
+ * <p>
+ * SyncDocumentSource interface. Loads the denormalized search documents for the root collection of a synchronisation
+ * and maps changes of referenced collections back to the root documents embedding them.
+ * </p>
+ *
+ * @author rajakolli
+ * @version 1:0
+ */
+public interface SyncDocumentSource {
+
+  /**
+   * <p>
+   * getRootCollectionName.
+   * </p>
+   *
+   * @return the name of the collection whose documents are indexed.
+   */
+  String getRootCollectionName();
+
+  /**
+   * Returns the ids of all root documents referencing one of the given documents of the given collection.
+   *
+   * @param collectionName a referenced collection.
+   * @param ids the ids of the changed documents.
+   * @return a {@link java.util.Set} of root document ids, never {@literal null}.
+   */
+  Set<Object> findReferencingIds(String collectionName, Collection<Object> ids);
+
+  /**
+   * Loads the denormalized documents with the given ids. Ids of documents that no longer exist are absent from the
+   * returned map.
+   *
+   * @param ids the root document ids.
+   * @return a {@link java.util.Map} of search documents keyed on the root document id.
+   */
+  Map<Object, JsonObject> loadDocuments(Collection<Object> ids);
+}
@@ -43,16 +43,12 @@ public final class Constants {
   public static final long MAXAGE = 31536000;
 
   /*JestClient*/
-  /** Constant <code>CONNTIMEOUT=150</code> */
-  public static final int CONNTIMEOUT = 150;
-  /** Constant <code>READTIMEOUT=300</code> */
-  public static final int READTIMEOUT = 300;
-  /** Constant <code>MAXTOTALCONNECTION=20</code> */
-  public static final int MAXTOTALCONNECTION = 20;
   /** Constant <code>INDEXMISSINGCODE=404</code> */
   public static final int INDEXMISSINGCODE = 404;
   /** Constant <code>CLUSTERBLOCKEXCEPTIONCODE=503</code> */
   public static final int CLUSTERBLOCKEXCEPTIONCODE = 503;
+  /** Constant <code>TOOMANYREQUESTSCODE=429</code> */
+  public static final int TOOMANYREQUESTSCODE = 429;
   
   public static final List<String> DATEFIELDLIST = Arrays.asList("lDate");
 
@@ -0,0 +1,182 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.core.Index;
+
+public class BulkIngestSessionTest {
+
+  @Test
+  public final void testSettingsAreSwitchedAndRestored() throws DigitalBridgeException, InterruptedException {
+    FakeIndex index = new FakeIndex();
+    BulkIngestSessionFactory factory = new BulkIngestSessionFactory(index);
+    factory.setInitialBatchSize(10);
+    factory.setMinBatchSize(5);
+
+    BulkIngestSession session = factory.open("digitalbridge");
+    assertEquals("-1", index.settings.get("index.refresh_interval"));
+    assertEquals("0", index.settings.get("index.number_of_replicas"));
+    try {
+      for (int i = 0; i < 25; i++) {
+        session.add(new Index.Builder("{}").index("digitalbridge").type("assetwrapper").id("" + i).build());
+      }
+    } finally {
+      session.close();
+    }
+
+    assertEquals(25, session.getIndexed());
+    // the first request was full and fast, the second one grew by the minimum size
+    assertEquals(Arrays.asList(10, 15), index.bulkSizes);
+    assertEquals("30s", index.settings.get("index.refresh_interval"));
+    assertEquals("2", index.settings.get("index.number_of_replicas"));
+    assertEquals("200mb", index.settings.get("index.translog.flush_threshold_size"));
+    assertTrue(index.refreshed);
+  }
+
+  @Test
+  public final void testSettingsAreRestoredWhenLoadFails() throws DigitalBridgeException, InterruptedException {
+    FakeIndex index = new FakeIndex();
+    index.failBulk = true;
+    BulkIngestSession session = new BulkIngestSessionFactory(index).open("digitalbridge");
+
+    try {
+      try {
+        session.add(new Index.Builder("{}").index("digitalbridge").type("assetwrapper").id("1").build());
+      } finally {
+        session.close();
+      }
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("30s", index.settings.get("index.refresh_interval"));
+      assertEquals("2", index.settings.get("index.number_of_replicas"));
+    }
+  }
+
+  @Test
+  public final void testUnrestorableSettingFailsOpen() {
+    FakeIndex index = new FakeIndex();
+    BulkIngestSessionFactory factory = new BulkIngestSessionFactory(index);
+    Map<String, String> ingestSettings = new LinkedHashMap<String, String>();
+    ingestSettings.put("index.refresh_interval", "-1");
+    ingestSettings.put("index.merge.scheduler.max_thread_count", "1");
+    ingestSettings.put("index.merge.policy.segments_per_tier", "30");
+    factory.setIngestSettings(ingestSettings);
+
+    try {
+      factory.open("digitalbridge");
+      fail("Expected DigitalBridgeException");
+    } catch (DigitalBridgeException e) {
+      assertEquals("1015", e.getFaultBean().getFaultCode());
+      assertEquals("30s", index.settings.get("index.refresh_interval"));
+      assertFalse(index.settings.containsKey("index.merge.scheduler.max_thread_count"));
+    }
+  }
+
+  @Test
+  public final void testBatchSizeAdapts() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 120, 1000);
+
+    batchSize.onBatch(100, 100, 0);
+    assertEquals(110, batchSize.get());
+    batchSize.onBatch(110, 100, 0);
+    batchSize.onBatch(120, 100, 0);
+    assertEquals(120, batchSize.get());
+    batchSize.onBatch(50, 100, 0);
+    assertEquals(120, batchSize.get());
+    batchSize.onBatch(120, 700, 0);
+    assertEquals(120, batchSize.get());
+    batchSize.onBatch(120, 1500, 0);
+    assertEquals(60, batchSize.get());
+    batchSize.onBatch(60, 100, 3);
+    assertEquals(30, batchSize.get());
+    for (int i = 0; i < 5; i++) {
+      batchSize.onBatch(30, 5000, 0);
+    }
+    assertEquals(10, batchSize.get());
+  }
+
+  /**
+   * Holds the flat settings of a single index with <code>refresh_interval=30s</code> and two replicas.
+   */
+  private static class FakeIndex extends StubJestClient {
+
+    private final Map<String, String> settings = new LinkedHashMap<String, String>();
+    private final List<Integer> bulkSizes = new ArrayList<Integer>();
+    private boolean failBulk;
+    private boolean refreshed;
+
+    FakeIndex() {
+      settings.put("index.refresh_interval", "30s");
+      settings.put("index.number_of_replicas", "2");
+      settings.put("index.number_of_shards", "5");
+      on("GET", "^digitalbridge/_settings", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject index = new JsonObject();
+          index.add("settings", new Gson().toJsonTree(settings));
+          JsonObject body = new JsonObject();
+          body.add("digitalbridge", index);
+          return Response.ok(body);
+        }
+      });
+      on("PUT", "^digitalbridge/_settings", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          for (Map.Entry<String, JsonElement> entry : request.json().entrySet()) {
+            settings.put(entry.getKey(), entry.getValue().getAsString());
+          }
+          return Response.ok("{}");
+        }
+      });
+      on("POST", "^digitalbridge/_refresh", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          refreshed = true;
+          return Response.ok("{}");
+        }
+      });
+      on("POST", "/_bulk", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          if (failBulk) {
+            throw new IllegalStateException("Node lost");
+          }
+          JsonArray items = new JsonArray();
+          String[] lines = request.lines();
+          for (int i = 0; i < lines.length; i += 2) {
+            JsonObject response = new JsonObject();
+            response.addProperty("status", 201);
+            JsonObject item = new JsonObject();
+            item.add("index", response);
+            items.add(item);
+          }
+          bulkSizes.add(items.size());
+          JsonObject body = new JsonObject();
+          body.add("items", items);
+          return Response.ok(body);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.core.DocumentResult;
+import io.searchbox.core.Index;
+
+public class BulkSenderTest {
+
+  private StubJestClient jestClient;
+  private BulkSender bulkSender;
+
+  @Before
+  public void setUp() {
+    jestClient = new StubJestClient();
+    bulkSender = new BulkSender(jestClient);
+    bulkSender.setInitialBackoffMillis(1);
+    bulkSender.setMaxAttempts(3);
+  }
+
+  @Test
+  public final void testUnreachableClusterFailsAfterMaxAttempts() throws InterruptedException {
+    BulkSender.Result result = bulkSender.send(actions("a1", "a2"));
+
+    assertEquals(3, jestClient.getRequests().size());
+    assertEquals(2, result.getFailed());
+    assertEquals(2, result.getExhausted());
+    assertEquals(4, result.getRetried());
+    assertEquals(0, result.getIndexed());
+  }
+
+  @Test
+  public final void testRejectedRequestFailsAfterMaxAttempts() throws InterruptedException {
+    for (int i = 0; i < 5; i++) {
+      jestClient.once("POST", "_bulk", 503, "{\"error\":\"ClusterBlockException\",\"status\":503}");
+    }
+
+    BulkSender.Result result = bulkSender.send(actions("a1"));
+
+    assertEquals(3, jestClient.getRequests().size());
+    assertEquals(1, result.getFailed());
+  }
+
+  @Test
+  public final void testRejectedItemsAreRetried() throws InterruptedException {
+    jestClient.once("POST", "_bulk", 200, "{\"items\":[{\"index\":{\"_id\":\"a1\",\"status\":201}},"
+        + "{\"index\":{\"_id\":\"a2\",\"status\":429}}]}");
+    jestClient.once("POST", "_bulk", 200, "{\"items\":[{\"index\":{\"_id\":\"a2\",\"status\":201}}]}");
+
+    BulkSender.Result result = bulkSender.send(actions("a1", "a2"));
+
+    assertEquals(2, jestClient.getRequests().size());
+    assertEquals(2, result.getIndexed());
+    assertEquals(1, result.getRetried());
+    assertEquals(0, result.getFailed());
+  }
+
+  @Test
+  public final void testActionsWithoutItemAreFailed() throws InterruptedException {
+    jestClient.once("POST", "_bulk", 200, "{\"items\":[{\"index\":{\"_id\":\"a1\",\"status\":201}}]}");
+
+    BulkSender.Result result = bulkSender.send(actions("a1", "a2", "a3"));
+
+    assertEquals(1, jestClient.getRequests().size());
+    assertEquals(1, result.getIndexed());
+    assertEquals(2, result.getFailed());
+    assertEquals(2, result.getExhausted());
+  }
+
+  @Test
+  public final void testInvalidItemIsRejectedWithoutRetry() throws InterruptedException {
+    jestClient.once("POST", "_bulk", 200, "{\"items\":[{\"index\":{\"_id\":\"a1\",\"status\":400,"
+        + "\"error\":\"MapperParsingException[failed to parse [address.location]]\"}},"
+        + "{\"index\":{\"_id\":\"a2\",\"status\":201}}]}");
+
+    BulkSender.Result result = bulkSender.send(actions("a1", "a2"));
+
+    assertEquals(1, jestClient.getRequests().size());
+    assertEquals(1, result.getIndexed());
+    assertEquals(1, result.getRejected());
+    assertEquals(0, result.getExhausted());
+    assertEquals(0, result.getRetried());
+  }
+
+  private static List<BulkableAction<DocumentResult>> actions(String... ids) {
+    List<BulkableAction<DocumentResult>> actions = new ArrayList<BulkableAction<DocumentResult>>();
+    for (String id : ids) {
+      actions.add(new Index.Builder(Collections.singletonMap("id", id)).index("digitalbridge").type("assetwrapper")
+          .id(id).build());
+    }
+    return actions;
+  }
+}
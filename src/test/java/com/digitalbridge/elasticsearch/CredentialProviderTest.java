@@ -0,0 +1,140 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import io.searchbox.core.Search;
+
+public class CredentialProviderTest {
+
+  @Test
+  public final void testHeadersArePrecomputed() {
+    CredentialProvider credentialProvider = new CredentialProvider();
+    credentialProvider.load(credentials("admin", "admin_pw"));
+
+    assertEquals("Basic YWRtaW46YWRtaW5fcHc=", credentialProvider.getAuthorizationHeader().getValue());
+    assertSame(credentialProvider.getAuthorizationHeader(), credentialProvider.getAuthorizationHeader());
+    assertSame(credentialProvider.getHeaders(CredentialProvider.DEFAULT),
+        credentialProvider.getHeaders(CredentialProvider.DEFAULT));
+    assertTrue(credentialProvider.getHeaders("reader").isEmpty());
+    assertNull(credentialProvider.getAuthorizationHeader("reader"));
+  }
+
+  @Test
+  public final void testRefreshRotatesCredentials() throws IOException {
+    File file = File.createTempFile("es-credentials", ".properties");
+    file.deleteOnExit();
+    write(file, credentials("admin", "old"));
+
+    CredentialProvider credentialProvider = new CredentialProvider();
+    credentialProvider.setLocation(new FileSystemResource(file));
+    assertTrue(credentialProvider.refresh());
+    assertFalse(credentialProvider.refresh());
+    String old = credentialProvider.getAuthorizationHeader().getValue();
+
+    write(file, credentials("admin", "new"));
+    assertTrue(file.setLastModified(file.lastModified() + 1000));
+    assertTrue(credentialProvider.refresh());
+
+    assertFalse(old.equals(credentialProvider.getAuthorizationHeader().getValue()));
+  }
+
+  @Test
+  public final void testRefreshKeepsDefaultCredential() throws IOException {
+    File file = File.createTempFile("es-credentials", ".properties");
+    file.deleteOnExit();
+    write(file, credentials("admin", "admin_pw"));
+
+    CredentialProvider credentialProvider = new CredentialProvider();
+    credentialProvider.setLocation(new FileSystemResource(file));
+    assertTrue(credentialProvider.refresh());
+    String configured = credentialProvider.getAuthorizationHeader().getValue();
+
+    Properties readerOnly = new Properties();
+    readerOnly.setProperty("reader.username", "reader");
+    write(file, readerOnly);
+    assertTrue(file.setLastModified(file.lastModified() + 1000));
+    assertFalse(credentialProvider.refresh());
+    assertEquals(configured, credentialProvider.getAuthorizationHeader().getValue());
+    assertNull(credentialProvider.getAuthorizationHeader("reader"));
+
+    write(file, credentials("admin", "new"));
+    assertTrue(file.setLastModified(file.lastModified() + 2000));
+    assertTrue(credentialProvider.refresh());
+    assertFalse(configured.equals(credentialProvider.getAuthorizationHeader().getValue()));
+  }
+
+  @Test
+  public final void testClientSendsDefaultCredential() throws IOException {
+    final AtomicReference<String> authorization = new AtomicReference<String>();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1);
+    server.createContext("/", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+        byte[] body = "{\"hits\":{\"total\":0,\"hits\":[]}}".getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    server.start();
+    HttpTransport transport = new HttpTransport();
+    transport.start();
+
+    try {
+      CredentialProvider credentialProvider = new CredentialProvider();
+      credentialProvider.load(credentials("admin", "admin_pw"));
+      NodeSelectingJestClient client = new NodeSelectingJestClient(
+          new NodeSelector(Arrays.asList("http://localhost:" + server.getAddress().getPort())));
+      client.setGson(new Gson());
+      client.setHttpClient(transport.getHttpClient());
+      client.setCredentialProvider(credentialProvider);
+
+      client.execute(new Search.Builder("{}").addIndex("digitalbridge").build());
+
+      assertEquals(credentialProvider.getAuthorizationHeader().getValue(), authorization.get());
+    } finally {
+      transport.stop();
+      server.stop(0);
+    }
+  }
+
+  private static Properties credentials(String username, String password) {
+    Properties properties = new Properties();
+    properties.setProperty("default.username", username);
+    properties.setProperty("default.password", password);
+    return properties;
+  }
+
+  private static void write(File file, Properties properties) throws IOException {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      properties.store(out, null);
+    } finally {
+      out.close();
+    }
+  }
+}
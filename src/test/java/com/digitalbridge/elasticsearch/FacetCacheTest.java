@@ -0,0 +1,178 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+
+public class FacetCacheTest {
+
+  private final IndexGeneration indexGeneration = new IndexGeneration();
+  private final FacetCache cache = new FacetCache(indexGeneration, 10);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public final void testKeyIgnoresKeyAndValueOrder() throws DigitalBridgeException {
+    Map<String, Object[]> first = new LinkedHashMap<String, Object[]>();
+    first.put("cuisine", new Object[] { "Thai", "Indian" });
+    first.put("borough", new Object[] { "Bronx" });
+    Map<String, Object[]> second = new LinkedHashMap<String, Object[]>();
+    second.put("borough", new Object[] { "Bronx" });
+    second.put("cuisine", new Object[] { "Indian", "Thai", "Indian" });
+
+    assertEquals(FacetCache.normalize(first), FacetCache.normalize(second));
+    assertSame(cache.get(first, loader()), cache.get(second, loader()));
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public final void testGenerationBumpInvalidates() throws DigitalBridgeException {
+    Map<String, Object[]> filters = Collections.emptyMap();
+    cache.get(filters, loader());
+    indexGeneration.bump();
+    cache.get(filters, loader());
+    cache.get(filters, loader());
+
+    assertEquals(2, loads.get());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public final void testBulkWritesInvalidateOnceRefreshed() throws DigitalBridgeException {
+    ClockedGeneration generation = new ClockedGeneration(10000L);
+    FacetCache refreshed = new FacetCache(generation, 10);
+    Map<String, Object[]> filters = Collections.emptyMap();
+
+    generation.bumpAfterRefresh();
+    generation.now = 11000L;
+    refreshed.get(filters, loader());
+    generation.bumpAfterRefresh();
+    generation.now = 11999L;
+    refreshed.get(filters, loader());
+    assertEquals(1, loads.get());
+    assertEquals(0L, generation.current());
+
+    generation.now = 12000L;
+    refreshed.get(filters, loader());
+    generation.now = 12999L;
+    refreshed.get(filters, loader());
+    assertEquals(2, loads.get());
+    assertEquals(1L, generation.current());
+
+    generation.now = 13000L;
+    refreshed.get(filters, loader());
+    assertEquals(3, loads.get());
+    assertEquals(2L, generation.current());
+    generation.now = 60000L;
+    assertEquals(2L, generation.current());
+  }
+
+  @Test
+  public final void testContinuousWritesStillInvalidate() throws DigitalBridgeException {
+    ClockedGeneration generation = new ClockedGeneration(0L);
+    FacetCache refreshed = new FacetCache(generation, 10);
+    Map<String, Object[]> filters = Collections.emptyMap();
+    long lastBump = 0;
+    long seen = 0;
+
+    // one flush every 250 ms for 20 s, a facet request in between each
+    for (generation.now = 0; generation.now < 20000L; generation.now += 250L) {
+      generation.bumpAfterRefresh();
+      refreshed.get(filters, loader());
+      if (generation.current() != seen) {
+        seen = generation.current();
+        lastBump = generation.now;
+      }
+      assertTrue(generation.now - lastBump <= 2000L);
+    }
+
+    assertTrue(seen >= 9);
+    assertEquals(seen + 1, loads.get());
+  }
+
+  @Test
+  public final void testConcurrentLoadsAreCoalesced() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final FacetCache.Loader slowLoader = new FacetCache.Loader() {
+
+      @Override
+      public Map<String, Map<String, Long>> load() {
+        loads.incrementAndGet();
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return Collections.singletonMap("MyCuisine", Collections.singletonMap("Thai", 1L));
+      }
+    };
+    Callable<Map<String, Map<String, Long>>> call = new Callable<Map<String, Map<String, Long>>>() {
+
+      @Override
+      public Map<String, Map<String, Long>> call() throws DigitalBridgeException {
+        return cache.get(Collections.<String, Object[]> emptyMap(), slowLoader);
+      }
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<Map<String, Map<String, Long>>> leader = executor.submit(call);
+      started.await(5, TimeUnit.SECONDS);
+      Future<Map<String, Map<String, Long>>> follower1 = executor.submit(call);
+      Future<Map<String, Map<String, Long>>> follower2 = executor.submit(call);
+      while (cache.getCoalescedCount() < 2) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      assertSame(leader.get(), follower1.get());
+      assertSame(leader.get(), follower2.get());
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private FacetCache.Loader loader() {
+    return new FacetCache.Loader() {
+
+      @Override
+      public Map<String, Map<String, Long>> load() {
+        loads.incrementAndGet();
+        return Collections.singletonMap("MyBorough", Collections.singletonMap("Bronx", 1L));
+      }
+    };
+  }
+
+  private static class ClockedGeneration extends IndexGeneration {
+
+    private long now;
+
+    ClockedGeneration(long now) {
+      this.now = now;
+      setRefreshIntervalMillis(1000L);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+  }
+}
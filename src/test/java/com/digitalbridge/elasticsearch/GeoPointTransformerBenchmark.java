@@ -0,0 +1,107 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares {@link GeoPointTransformer} against the entrySet / replace / split rewrite the {@link ReindexEngine} used
+ * before, over a payload of 25k AssetWrapper-shaped sources. Timing dependent, hence only run by the
+ * <code>benchmark</code> profile.
+ */
+public class GeoPointTransformerBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GeoPointTransformerBenchmark.class);
+
+  private static final int DOCUMENTS = 25000;
+
+  @Test
+  public final void testCompiledPathAgainstEntrySetRewrite() {
+    GeoPointTransformer transformer = new GeoPointTransformer("address.location");
+
+    long rewrite = 0;
+    long compiled = 0;
+
+    // the first rounds warm up
+    for (int round = 0; round < 3; round++) {
+      List<JsonObject> sources = sources();
+      long started = System.nanoTime();
+      for (JsonObject source : sources) {
+        entrySetRewrite(source);
+      }
+      rewrite = System.nanoTime() - started;
+      assertEquals(DOCUMENTS, rewritten(sources));
+
+      sources = sources();
+      started = System.nanoTime();
+      for (JsonObject source : sources) {
+        transformer.transform(source);
+      }
+      compiled = System.nanoTime() - started;
+      assertEquals(DOCUMENTS, rewritten(sources));
+    }
+
+    LOGGER.info("{} sources rewritten: entrySet/replace/split {} ms, compiled path {} ms", DOCUMENTS,
+        rewrite / 1000000, compiled / 1000000);
+  }
+
+  /**
+   * The rewrite the reindex used before the transform stage, verbatim.
+   */
+  private static void entrySetRewrite(JsonObject source) {
+
+    JsonElement address = source.get("address");
+
+    if (address == null || !address.isJsonObject()) {
+      return;
+    }
+
+    for (Entry<String, JsonElement> addressElement : address.getAsJsonObject().entrySet()) {
+      if (addressElement.getKey().equalsIgnoreCase("location")) {
+        String lat = null, lon = null;
+        JsonObject locationValues = addressElement.getValue().getAsJsonObject();
+        for (Entry<String, JsonElement> locationElement : locationValues.entrySet()) {
+          if (locationElement.getKey().equalsIgnoreCase("coordinates")) {
+            String loccoord = locationElement.getValue().toString().replace("[", "").replace("]", "");
+            lat = loccoord.split(",")[0].trim();
+            lon = loccoord.split(",")[1].trim();
+          }
+        }
+        locationValues.remove("type");
+        locationValues.remove("coordinates");
+        locationValues.addProperty("lat", lat);
+        locationValues.addProperty("lon", lon);
+      }
+    }
+  }
+
+  private static List<JsonObject> sources() {
+    JsonParser parser = new JsonParser();
+    List<JsonObject> sources = new ArrayList<JsonObject>(DOCUMENTS);
+    for (int i = 0; i < DOCUMENTS; i++) {
+      sources.add(parser.parse("{\"aName\":\"Asset " + i + "\",\"borough\":\"Bronx\",\"cuisine\":\"Bakery\","
+          + "\"address\":{\"building\":\"" + i + "\",\"street\":\"Morris Park Ave\",\"zipcode\":\"10462\","
+          + "\"location\":{\"type\":\"Point\",\"coordinates\":[-73.8" + i + ",40.8" + i + "]}},"
+          + "\"notes\":[],\"rating\":" + i % 5 + "}").getAsJsonObject());
+    }
+    return sources;
+  }
+
+  private static int rewritten(List<JsonObject> sources) {
+    int count = 0;
+    for (JsonObject source : sources) {
+      count += source.getAsJsonObject("address").getAsJsonObject("location").has("lat") ? 1 : 0;
+    }
+    return count;
+  }
+}
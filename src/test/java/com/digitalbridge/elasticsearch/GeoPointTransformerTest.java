@@ -0,0 +1,41 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class GeoPointTransformerTest {
+
+  private final GeoPointTransformer transformer = new GeoPointTransformer("address.location");
+
+  @Test
+  public final void testGeoJsonPointIsRewrittenAsLatLon() {
+    JsonObject source = parse(
+        "{\"aName\":\"Morris Park Bake Shop\",\"address\":{\"building\":\"1007\",\"location\":{\"type\":\"Point\",\"coordinates\":[-73.856077,40.848447]}}}");
+
+    transformer.transform(source);
+
+    JsonObject location = source.getAsJsonObject("address").getAsJsonObject("location");
+    assertEquals("{\"lat\":40.848447,\"lon\":-73.856077}", location.toString());
+    assertEquals(40.848447, location.get("lat").getAsDouble(), 0);
+    assertFalse(location.has("coordinates"));
+  }
+
+  @Test
+  public final void testSourceWithoutPointIsUnchanged() {
+    String json = "{\"aName\":\"Wendy'S\",\"address\":{\"building\":\"469\"}}";
+    JsonObject source = parse(json);
+
+    transformer.transform(source);
+
+    assertEquals(parse(json), source);
+  }
+
+  private static JsonObject parse(String json) {
+    return new JsonParser().parse(json).getAsJsonObject();
+  }
+}
@@ -0,0 +1,121 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpTransportTest {
+
+  private final List<String> encodings = Collections.synchronizedList(new ArrayList<String>());
+  private final List<String> bodies = Collections.synchronizedList(new ArrayList<String>());
+  private final List<Integer> clientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+
+  private HttpServer server;
+  private HttpTransport transport;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 10);
+    server.createContext("/", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream in = "gzip".equals(encoding) ? new GZIPInputStream(exchange.getRequestBody())
+            : exchange.getRequestBody();
+        encodings.add(encoding);
+        bodies.add(read(in));
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] body = "{\"ok\":true}".getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    server.start();
+
+    transport = new HttpTransport();
+    transport.setMaxTotal(2);
+    transport.setCompressRequests(true);
+    transport.setCompressMinBytes(100);
+    transport.start();
+  }
+
+  @After
+  public void tearDown() {
+    transport.stop();
+    server.stop(0);
+  }
+
+  @Test
+  public final void testLargeBodiesAreGzipped() throws IOException {
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      large.append("{\"index\":{}}\n");
+    }
+
+    post("{}");
+    post(large.toString());
+
+    assertNull(encodings.get(0));
+    assertEquals("{}", bodies.get(0));
+    assertEquals("gzip", encodings.get(1));
+    assertEquals(large.toString(), bodies.get(1));
+  }
+
+  @Test
+  public final void testConnectionsAreKeptAliveAndCounted() throws IOException {
+    post("{}");
+    post("{}");
+    post("{}");
+
+    // all three requests were sent over the same connection
+    assertEquals(3, Collections.frequency(clientPorts, clientPorts.get(0)));
+    assertEquals(3, transport.getLeaseCount());
+    assertEquals(0, transport.getLeaseTimeoutCount());
+    assertEquals(0, transport.getPoolStats().getLeased());
+    assertEquals(1, transport.getPoolStats().getAvailable());
+  }
+
+  private void post(String body) throws IOException {
+    HttpPost post = new HttpPost("http://localhost:" + server.getAddress().getPort() + "/digitalbridge/_search");
+    post.setEntity(new StringEntity(body, "UTF-8"));
+    CloseableHttpResponse response = transport.getHttpClient().execute(post);
+    try {
+      assertEquals("{\"ok\":true}", EntityUtils.toString(response.getEntity()));
+    } finally {
+      response.close();
+    }
+  }
+
+  private static String read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      out.write(buffer, 0, read);
+    }
+    return out.toString("UTF-8");
+  }
+}
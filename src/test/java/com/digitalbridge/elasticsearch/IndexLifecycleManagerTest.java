@@ -0,0 +1,220 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.searchbox.client.JestClient;
+
+public class IndexLifecycleManagerTest {
+
+  private static final String ALIAS = "digitalbridge_alias";
+  private static final String MAPPINGS = "{\"mappings\":{\"assetwrapper\":{\"properties\":{}}}}";
+
+  @Test
+  public final void testRebuildSwapsAliasAndDeletesOldGenerations() throws DigitalBridgeException {
+    FakeCluster cluster = new FakeCluster();
+    cluster.create("digitalbridge_alias_v20150101000000");
+    cluster.create("digitalbridge_alias_v20150201000000", ALIAS);
+    IndexLifecycleManager manager = manager(cluster, 10, 10);
+
+    String index = manager.rebuild("digitalbridge", "assetwrapper", ALIAS, MAPPINGS);
+
+    assertEquals(IndexLifecycleManager.generationName(ALIAS, 0).length(), index.length());
+    assertEquals(new TreeSet<String>(Arrays.asList(ALIAS)), cluster.indices.get(index));
+    assertEquals(Arrays.asList(index, "digitalbridge_alias_v20150201000000"), manager.getGenerations(ALIAS));
+    assertTrue(cluster.indices.get("digitalbridge_alias_v20150201000000").isEmpty());
+    assertEquals(1, cluster.aliasUpdates);
+
+    JsonObject created = cluster.bodies.get(0).getAsJsonObject("settings").getAsJsonObject("index");
+    assertEquals("1s", created.get("refresh_interval").getAsString());
+    assertEquals(1, created.get("number_of_replicas").getAsInt());
+    assertTrue(cluster.bodies.get(0).has("mappings"));
+    JsonObject ingest = cluster.bodies.get(1);
+    assertEquals("-1", ingest.get("index.refresh_interval").getAsString());
+    assertEquals("0", ingest.get("index.number_of_replicas").getAsString());
+    JsonObject restored = cluster.bodies.get(2);
+    assertEquals("1s", restored.get("index.refresh_interval").getAsString());
+    assertEquals("1", restored.get("index.number_of_replicas").getAsString());
+    assertEquals(1, cluster.refreshes);
+  }
+
+  @Test
+  public final void testIndexNamedLikeAliasIsReplaced() throws DigitalBridgeException {
+    FakeCluster cluster = new FakeCluster();
+    cluster.create(ALIAS);
+    IndexLifecycleManager manager = manager(cluster, 3, 3);
+
+    String index = manager.rebuild("digitalbridge", "assetwrapper", ALIAS, MAPPINGS);
+
+    assertFalse(cluster.indices.containsKey(ALIAS));
+    assertTrue(cluster.indices.get(index).contains(ALIAS));
+  }
+
+  @Test
+  public final void testIncompleteGenerationIsDiscarded() {
+    FakeCluster cluster = new FakeCluster();
+    cluster.create("digitalbridge_alias_v20150201000000", ALIAS);
+    IndexLifecycleManager manager = manager(cluster, 10, 9);
+
+    try {
+      manager.rebuild("digitalbridge", "assetwrapper", ALIAS, MAPPINGS);
+      fail("Expected DigitalBridgeException");
+    } catch (DigitalBridgeException e) {
+      assertEquals(Arrays.asList("digitalbridge_alias_v20150201000000"), manager.getGenerations(ALIAS));
+      assertTrue(cluster.indices.get("digitalbridge_alias_v20150201000000").contains(ALIAS));
+      assertEquals(0, cluster.aliasUpdates);
+    }
+  }
+
+  private static IndexLifecycleManager manager(FakeCluster cluster, long expected, long written) {
+    return new IndexLifecycleManager(cluster, new FixedReindexEngine(cluster, expected, written),
+        new BulkIngestSessionFactory(cluster));
+  }
+
+  private static class FixedReindexEngine extends ReindexEngine {
+
+    private final long expected;
+    private final long written;
+
+    FixedReindexEngine(JestClient jestClient, long expected, long written) {
+      super(jestClient);
+      this.expected = expected;
+      this.written = written;
+    }
+
+    @Override
+    public ReindexReport reindex(String fromIndex, String type, String toIndex) {
+      ReindexReport report = new ReindexReport(1);
+      report.getSlices().get(0).setExpected(expected);
+      report.getSlices().get(0).addRead(written);
+      report.getSlices().get(0).addWritten(written);
+      return report;
+    }
+  }
+
+  /**
+   * Keeps indices and their aliases in memory and records the bodies of index creations and settings updates. The
+   * flat settings of the last created index are answered to every settings request.
+   */
+  private static class FakeCluster extends StubJestClient {
+
+    private final Map<String, Set<String>> indices = new TreeMap<String, Set<String>>();
+    private final List<JsonObject> bodies = new ArrayList<JsonObject>();
+    private final JsonObject settings = new JsonObject();
+    private int aliasUpdates;
+    private int refreshes;
+
+    FakeCluster() {
+      on("POST", "^[^/]+$", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject data = request.json();
+          bodies.add(data);
+          for (Map.Entry<String, JsonElement> entry : data.getAsJsonObject("settings").getAsJsonObject("index")
+              .entrySet()) {
+            settings.addProperty("index." + entry.getKey(), entry.getValue().getAsString());
+          }
+          create(request.getUri());
+          return Response.ok("{}");
+        }
+      });
+      on("PUT", "/_settings", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject data = request.json();
+          bodies.add(data);
+          for (Map.Entry<String, JsonElement> entry : data.entrySet()) {
+            settings.add(entry.getKey(), entry.getValue());
+          }
+          return Response.ok("{}");
+        }
+      });
+      on("GET", "/_settings", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject index = new JsonObject();
+          index.add("settings", settings);
+          JsonObject body = new JsonObject();
+          body.add(request.getUri().substring(0, request.getUri().indexOf('/')), index);
+          return Response.ok(body);
+        }
+      });
+      on("POST", "/_refresh", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          refreshes++;
+          return Response.ok("{}");
+        }
+      });
+      on("GET", "/_cluster/health/", 200, "{\"status\":\"green\"}");
+      on("DELETE", "", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          indices.remove(request.getUri());
+          return Response.ok("{}");
+        }
+      });
+      on("GET", "_aliases$", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject body = new JsonObject();
+          for (Map.Entry<String, Set<String>> index : indices.entrySet()) {
+            JsonObject aliases = new JsonObject();
+            for (String alias : index.getValue()) {
+              aliases.add(alias, new JsonObject());
+            }
+            JsonObject entry = new JsonObject();
+            entry.add("aliases", aliases);
+            body.add(index.getKey(), entry);
+          }
+          return Response.ok(body);
+        }
+      });
+      on("POST", "_aliases$", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          aliasUpdates++;
+          for (JsonElement element : request.json().getAsJsonArray("actions")) {
+            JsonObject change = element.getAsJsonObject();
+            boolean add = change.has("add");
+            JsonObject mapping = change.getAsJsonObject(add ? "add" : "remove");
+            Set<String> aliases = indices.get(mapping.get("index").getAsString());
+            if (add) {
+              aliases.add(mapping.get("alias").getAsString());
+            } else {
+              aliases.remove(mapping.get("alias").getAsString());
+            }
+          }
+          return Response.ok("{}");
+        }
+      });
+    }
+
+    void create(String index, String... aliases) {
+      indices.put(index, new TreeSet<String>(Arrays.asList(aliases)));
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.searchbox.client.JestClient;
+
+public class MergeSchedulerTest {
+
+  private static final long QUIET = 60000;
+
+  @Test
+  public final void testMergesOnlyQuietIndicesOverThreshold() {
+    FakeCluster cluster = new FakeCluster();
+    cluster.index("busy", 50, 0, 100);
+    cluster.index("fragmented", 30, 0, 100);
+    cluster.index("merged", 1, 0, 100);
+    TestScheduler scheduler = new TestScheduler(cluster, "busy", "fragmented", "merged");
+
+    assertNull(scheduler.mergeNext());
+    scheduler.now += QUIET;
+    cluster.index("busy", 50, 0, 101);
+
+    assertEquals("fragmented", scheduler.mergeNext());
+    assertEquals(1, cluster.optimized.size());
+    assertTrue(cluster.optimized.get(0), cluster.optimized.get(0).startsWith("fragmented/_optimize"));
+    assertTrue(cluster.optimized.get(0), cluster.optimized.get(0).contains("max_num_segments=1"));
+  }
+
+  @Test
+  public final void testExpungesDeletes() {
+    FakeCluster cluster = new FakeCluster();
+    cluster.index("digitalbridge", 5, 20, 100);
+    TestScheduler scheduler = new TestScheduler(cluster, "digitalbridge");
+    scheduler.mergeNext();
+    scheduler.now += QUIET;
+
+    assertEquals("digitalbridge", scheduler.mergeNext());
+    assertTrue(cluster.optimized.get(0), cluster.optimized.get(0).contains("only_expunge_deletes=true"));
+  }
+
+  @Test
+  public final void testOneMergePerCluster() {
+    FakeCluster cluster = new FakeCluster();
+    cluster.index("digitalbridge", 50, 0, 100);
+    TestScheduler first = new TestScheduler(cluster, "digitalbridge");
+    TestScheduler second = new TestScheduler(cluster, "digitalbridge");
+    first.mergeNext();
+    second.mergeNext();
+    first.now += QUIET;
+    second.now += QUIET;
+
+    cluster.merging = true;
+    assertNull(first.mergeNext());
+    cluster.merging = false;
+
+    assertEquals("digitalbridge", first.mergeNext());
+    assertNull(second.mergeNext());
+
+    second.now += 2 * 3600000;
+    assertEquals("digitalbridge", second.mergeNext());
+    assertEquals(2, cluster.optimized.size());
+  }
+
+  @Test
+  public final void testWindow() {
+    MergeScheduler scheduler = new MergeScheduler(new FakeCluster(), Arrays.asList("digitalbridge"));
+    assertTrue(scheduler.isInWindow(0));
+
+    scheduler.setWindow("23:30-02:00");
+    assertTrue(scheduler.isInWindow(minutes(23 * 60 + 45)));
+    assertTrue(scheduler.isInWindow(minutes(60)));
+    assertFalse(scheduler.isInWindow(minutes(2 * 60)));
+    assertFalse(scheduler.isInWindow(minutes(12 * 60)));
+
+    scheduler.setWindow("01:00-05:00");
+    assertTrue(scheduler.isInWindow(minutes(60)));
+    assertFalse(scheduler.isInWindow(minutes(30)));
+  }
+
+  private static long minutes(int minuteOfDay) {
+    return 10L * 24 * 3600000 + minuteOfDay * 60000L;
+  }
+
+  private static class TestScheduler extends MergeScheduler {
+
+    private long now = 1000;
+
+    TestScheduler(JestClient jestClient, String... indices) {
+      super(jestClient, Arrays.asList(indices));
+      setQuietMillis(QUIET);
+      setMaxSegmentsPerShard(20);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  /**
+   * Answers <code>_stats</code>, <code>_segments</code> and the lock document requests from in memory state.
+   */
+  private static class FakeCluster extends StubJestClient {
+
+    private final JsonObject stats = new JsonObject();
+    private final JsonObject segments = new JsonObject();
+    private final List<String> optimized = new ArrayList<String>();
+    private boolean merging;
+    private JsonObject lock;
+    private long lockVersion;
+
+    FakeCluster() {
+      stats.add("indices", new JsonObject());
+      segments.add("indices", new JsonObject());
+      on("GET", "/_stats", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject body = new JsonParser().parse(stats.toString()).getAsJsonObject();
+          for (String name : keys(body)) {
+            JsonObject merges = new JsonObject();
+            merges.addProperty("current", merging ? 1 : 0);
+            JsonObject total = new JsonObject();
+            total.add("merges", merges);
+            body.getAsJsonObject("indices").getAsJsonObject(name).add("total", total);
+          }
+          return Response.ok(body);
+        }
+      });
+      on("GET", "/_segments", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          return Response.ok(segments);
+        }
+      });
+      on("PUT", "^digitalbridge-locks/", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          boolean create = request.getUri().contains("op_type=create");
+          if (create && lock != null || !create && !request.getUri().contains("version=" + lockVersion)) {
+            return new Response(409, "{}");
+          }
+          lock = request.json();
+          lockVersion++;
+          return Response.ok("{}");
+        }
+      });
+      on("GET", "^digitalbridge-locks/", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject body = new JsonObject();
+          body.add("_source", lock);
+          body.addProperty("_version", lockVersion);
+          return Response.ok(body);
+        }
+      });
+      on("POST", "/_optimize", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          optimized.add(request.getUri());
+          return Response.ok("{}");
+        }
+      });
+    }
+
+    void index(String name, int segmentCount, int deleted, int operations) {
+      stats.getAsJsonObject("indices").add(name, new JsonParser().parse("{\"primaries\":{\"docs\":{\"count\":100,"
+          + "\"deleted\":" + deleted + "},\"indexing\":{\"index_total\":" + operations + ",\"delete_total\":0}}}"));
+      JsonObject copy = new JsonObject();
+      copy.addProperty("num_search_segments", segmentCount);
+      JsonArray copies = new JsonArray();
+      copies.add(copy);
+      JsonObject shards = new JsonObject();
+      shards.add("0", copies);
+      JsonObject index = new JsonObject();
+      index.add("shards", shards);
+      segments.getAsJsonObject("indices").add(name, index);
+    }
+
+    private static Set<String> keys(JsonObject body) {
+      Set<String> names = new HashSet<String>();
+      for (Entry<String, JsonElement> entry : body.getAsJsonObject("indices").entrySet()) {
+        names.add(entry.getKey());
+      }
+      return names;
+    }
+  }
+}
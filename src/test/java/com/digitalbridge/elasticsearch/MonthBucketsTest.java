@@ -0,0 +1,102 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+
+import org.elasticsearch.common.joda.time.DateTime;
+import org.elasticsearch.common.joda.time.DateTimeZone;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.range.date.DateRangeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import com.digitalbridge.domain.FacetDateRange;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.searchbox.core.search.aggregation.DateRangeAggregation;
+
+public class MonthBucketsTest {
+
+  private long now = new DateTime(2015, 4, 17, 10, 30, DateTimeZone.UTC).getMillis();
+
+  private final MonthBuckets monthBuckets = new MonthBuckets("MyDateRange", "lDate", 12) {
+
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+  };
+
+  @Test
+  public final void testSnapshotIsReusedWithinMonth() {
+    MonthBuckets.Snapshot first = monthBuckets.current();
+    now = new DateTime(2015, 4, 30, 23, 59, DateTimeZone.UTC).getMillis();
+    assertSame(first, monthBuckets.current());
+
+    now = new DateTime(2015, 5, 1, 0, 0, DateTimeZone.UTC).getMillis();
+    MonthBuckets.Snapshot next = monthBuckets.current();
+    assertNotSame(first, next);
+    assertEquals(new DateTime(2015, 5, 1, 0, 0, DateTimeZone.UTC), next.getRanges()[13].getStartDate());
+  }
+
+  @Test
+  public final void testRolloverBumpsGeneration() {
+    IndexGeneration indexGeneration = new IndexGeneration();
+    monthBuckets.setIndexGeneration(indexGeneration);
+    monthBuckets.current();
+    now = new DateTime(2015, 4, 30, 23, 59, DateTimeZone.UTC).getMillis();
+    monthBuckets.current();
+    assertEquals(0L, indexGeneration.current());
+
+    now = new DateTime(2015, 5, 1, 0, 0, DateTimeZone.UTC).getMillis();
+    monthBuckets.current();
+    monthBuckets.current();
+    assertEquals(1L, indexGeneration.current());
+  }
+
+  @Test
+  public final void testAggregationMatchesBuilder() {
+    DateTime startMonthDate = new DateTime(2015, 4, 1, 0, 0, DateTimeZone.UTC);
+    DateRangeBuilder expected = AggregationBuilders.dateRange("MyDateRange").field("lDate");
+    expected.addUnboundedTo(startMonthDate.minusMonths(12));
+    for (int i = 12; i > 0; i--) {
+      expected.addRange(startMonthDate.minusMonths(i), startMonthDate.minusMonths(i - 1).minusMillis(1));
+    }
+    expected.addUnboundedFrom(startMonthDate);
+
+    assertEquals(parse(new SearchSourceBuilder().aggregation(expected).toString()),
+        parse(new SearchSourceBuilder().aggregation(monthBuckets.current().aggregation()).toString()));
+  }
+
+  @Test
+  public final void testDecodeByIndex() {
+    JsonArray buckets = new JsonArray();
+    for (int i = 0; i < 14; i++) {
+      JsonObject bucket = new JsonObject();
+      bucket.addProperty("doc_count", i == 0 || i == 12 ? 3 : 0);
+      buckets.add(bucket);
+    }
+    JsonObject aggregation = new JsonObject();
+    aggregation.add("buckets", buckets);
+
+    MonthBuckets.Snapshot snapshot = monthBuckets.current();
+    Map<String, Long> counts = snapshot.decode(new DateRangeAggregation("MyDateRange", aggregation));
+
+    assertEquals(2, counts.size());
+    FacetDateRange[] ranges = snapshot.getRanges();
+    assertNull(ranges[0].getStartDate());
+    assertEquals(Long.valueOf(3), counts.get(ranges[0].toString()));
+    assertEquals(new DateTime(2015, 3, 1, 0, 0, DateTimeZone.UTC), ranges[12].getStartDate());
+    assertEquals(Long.valueOf(3), counts.get(ranges[12].toString()));
+  }
+
+  private static JsonObject parse(String json) {
+    return new JsonParser().parse(json).getAsJsonObject();
+  }
+}
@@ -0,0 +1,210 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import io.searchbox.cluster.Health;
+import io.searchbox.core.Search;
+
+public class NodeSelectingJestClientTest {
+
+  private final List<HttpServer> servers = new ArrayList<HttpServer>();
+  private final List<AtomicInteger> hits = new ArrayList<AtomicInteger>();
+
+  private HttpTransport transport;
+  private NodeSelector nodeSelector;
+  private NodeSelectingJestClient client;
+  private String deadNode;
+
+  private volatile int status = 200;
+  private volatile long delayMillis;
+
+  @Before
+  public void setUp() throws IOException {
+    String first = startNode();
+    deadNode = reservePort();
+    String second = startNode();
+
+    transport = new HttpTransport();
+    transport.start();
+
+    nodeSelector = new NodeSelector(Arrays.asList(first, deadNode, second));
+    nodeSelector.setFailureThreshold(1);
+    client = new NodeSelectingJestClient(nodeSelector);
+    client.setGson(new Gson());
+    client.setHttpClient(transport.getHttpClient());
+  }
+
+  @After
+  public void tearDown() {
+    transport.stop();
+    for (HttpServer server : servers) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public final void testFailsOverAndTakesDeadNodeOutOfRotation() throws IOException {
+    for (int i = 0; i < 10; i++) {
+      assertTrue(client.execute(search()).isSucceeded());
+    }
+
+    assertEquals(Arrays.asList(deadNode), nodeSelector.getOpenNodes());
+    assertEquals(10, hits.get(0).get() + hits.get(1).get());
+    assertTrue(hits.get(0).get() >= 4);
+    assertTrue(hits.get(1).get() >= 4);
+  }
+
+  @Test
+  public final void testProbePutsRecoveredNodeBackIntoRotation() throws IOException {
+    client.execute(search());
+    client.execute(search());
+    assertEquals(Arrays.asList(deadNode), nodeSelector.getOpenNodes());
+
+    NodeMonitor monitor = new NodeMonitor(nodeSelector, transport.getHttpClient());
+    monitor.probe();
+    assertEquals(Arrays.asList(deadNode), nodeSelector.getOpenNodes());
+
+    startNode(Integer.parseInt(deadNode.substring(deadNode.lastIndexOf(':') + 1)));
+    monitor.probe();
+    assertTrue(nodeSelector.getOpenNodes().isEmpty());
+
+    for (int i = 0; i < 6; i++) {
+      client.execute(search());
+    }
+    assertTrue(hits.get(2).get() > 0);
+  }
+
+  @Test
+  public final void testAllNodesDownFails() throws IOException {
+    for (HttpServer server : servers) {
+      server.stop(0);
+    }
+    try {
+      client.execute(search());
+    } catch (IOException e) {
+      assertEquals(3, nodeSelector.getOpenNodes().size());
+      return;
+    }
+    throw new AssertionError("Expected IOException");
+  }
+
+  @Test
+  public final void testServerErrorTakesNodeOutOfRotation() throws IOException {
+    status = 500;
+
+    for (int i = 0; i < 3; i++) {
+      client.execute(search());
+    }
+
+    assertEquals(3, nodeSelector.getOpenNodes().size());
+  }
+
+  @Test
+  public final void testOnlySlowSearchesCountAsFailures() throws IOException {
+    nodeSelector.setSlowCallMillis(10);
+    delayMillis = 50;
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(client.execute(new Health.Builder().build()).isSucceeded());
+    }
+    assertEquals(Arrays.asList(deadNode), nodeSelector.getOpenNodes());
+
+    client.execute(search());
+    client.execute(search());
+    assertEquals(3, nodeSelector.getOpenNodes().size());
+  }
+
+  @Test
+  public final void testDiscoveryReplacesNodes() throws IOException {
+    final String discovered = "http://127.0.0.1:" + servers.get(0).getAddress().getPort();
+    servers.get(0).createContext("/_nodes/http", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        respond(exchange, "{\"nodes\":{\"a\":{\"http_address\":\"inet[/" + discovered.substring(7) + "]\"},"
+            + "\"b\":{\"http_address\":\"inet[/127.0.0.1:1]\",\"attributes\":{\"data\":\"false\"}}}}");
+      }
+    });
+    nodeSelector.updateNodes(Arrays.asList("http://localhost:" + servers.get(0).getAddress().getPort()));
+
+    new NodeMonitor(nodeSelector, transport.getHttpClient()).discover();
+
+    assertEquals(Arrays.asList(discovered), nodeSelector.getNodes());
+  }
+
+  private static Search search() {
+    return new Search.Builder("{\"query\":{\"match_all\":{}}}").addIndex("digitalbridge").build();
+  }
+
+  private String startNode() throws IOException {
+    return startNode(0);
+  }
+
+  private String startNode(int port) throws IOException {
+    final AtomicInteger counter = new AtomicInteger();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 10);
+    server.createContext("/", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        counter.incrementAndGet();
+        try {
+          Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        respond(exchange, status, "{\"took\":1,\"hits\":{\"total\":0,\"hits\":[]}}");
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    servers.add(server);
+    hits.add(counter);
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  private static String reservePort() throws IOException {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+    return "http://localhost:" + port;
+  }
+
+  private static void respond(HttpExchange exchange, String json) throws IOException {
+    respond(exchange, 200, json);
+  }
+
+  private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+    byte[] body = json.getBytes("UTF-8");
+    InputStream in = exchange.getRequestBody();
+    while (in.read() != -1) {
+      // drain the request
+    }
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(body);
+    out.close();
+  }
+}
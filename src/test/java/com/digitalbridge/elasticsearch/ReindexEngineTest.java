@@ -0,0 +1,152 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ReindexEngineTest {
+
+  @Test
+  public final void testAllSlicesAreCopied() throws DigitalBridgeException {
+    FakeJestClient jestClient = new FakeJestClient(2, 5, 2);
+    ReindexEngine reindexEngine = new ReindexEngine(jestClient);
+    reindexEngine.setInitialBackoffMillis(1);
+
+    ReindexReport report = reindexEngine.reindex("from", "assetwrapper", "to");
+
+    assertTrue(report.toString(), report.isComplete());
+    assertEquals(10, report.getWritten());
+    assertEquals(2, report.getSlices().size());
+    assertEquals(5, report.getSlices().get(1).getExpected());
+  }
+
+  @Test
+  public final void testRejectedBulkIsRetried() throws DigitalBridgeException {
+    FakeJestClient jestClient = new FakeJestClient(3, 4, 3);
+    jestClient.rejections.set(2);
+    ReindexEngine reindexEngine = new ReindexEngine(jestClient);
+    reindexEngine.setInitialBackoffMillis(1);
+    reindexEngine.setWriters(3);
+
+    ReindexReport report = reindexEngine.reindex("from", "assetwrapper", "to");
+
+    assertTrue(report.toString(), report.isComplete());
+    assertEquals(12, report.getWritten());
+  }
+
+  @Test
+  public final void testCountMismatchIsReported() throws DigitalBridgeException {
+    FakeJestClient jestClient = new FakeJestClient(2, 3, 2);
+    jestClient.reportedTotal = 4;
+    ReindexEngine reindexEngine = new ReindexEngine(jestClient);
+
+    ReindexReport report = reindexEngine.reindex("from", "assetwrapper", "to");
+
+    assertFalse(report.isComplete());
+  }
+
+  /**
+   * Serves {@code shards} shards of {@code docsPerShard} documents in pages of {@code pageSize}, the scroll id encodes
+   * shard and offset. The first {@link #rejections} bulk requests are answered with 429.
+   */
+  private static class FakeJestClient extends StubJestClient {
+
+    private final int shards;
+    private final int docsPerShard;
+    private final int pageSize;
+    private final AtomicInteger rejections = new AtomicInteger();
+    private volatile int reportedTotal = -1;
+
+    FakeJestClient(final int shards, final int docsPerShard, final int pageSize) {
+      this.shards = shards;
+      this.docsPerShard = docsPerShard;
+      this.pageSize = pageSize;
+      on("POST", "/_count", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          JsonObject shardInfo = new JsonObject();
+          shardInfo.addProperty("total", shards);
+          JsonObject body = new JsonObject();
+          body.add("_shards", shardInfo);
+          body.addProperty("count", shards * docsPerShard);
+          return Response.ok(body);
+        }
+      });
+      on("POST", "/_search\\?", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          String uri = request.getUri();
+          int shard = Integer.parseInt(uri.substring(uri.lastIndexOf("%3A") + 3));
+          JsonObject body = new JsonObject();
+          body.add("hits", hits(reportedTotal < 0 ? docsPerShard : reportedTotal, new JsonArray()));
+          body.addProperty("_scroll_id", shard + ":0");
+          return Response.ok(body);
+        }
+      });
+      on("GET", "/_search/scroll", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          String uri = request.getUri();
+          String[] scrollId = uri.substring(uri.indexOf("scroll_id=") + 10, uri.indexOf('&')).split("%3A");
+          int shard = Integer.parseInt(scrollId[0]);
+          int offset = Integer.parseInt(scrollId[1]);
+          JsonArray hits = new JsonArray();
+          for (int i = offset; i < Math.min(offset + pageSize, docsPerShard); i++) {
+            JsonObject source = new JsonObject();
+            source.addProperty("aName", "asset " + i);
+            JsonObject hit = new JsonObject();
+            hit.addProperty("_id", shard + "-" + i);
+            hit.add("_source", source);
+            hits.add(hit);
+          }
+          JsonObject body = new JsonObject();
+          body.add("hits", hits(docsPerShard, hits));
+          body.addProperty("_scroll_id", shard + ":" + (offset + pageSize));
+          return Response.ok(body);
+        }
+      });
+      on("POST", "/_bulk", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          if (rejections.getAndDecrement() > 0) {
+            return new Response(429, "{}");
+          }
+          JsonArray items = new JsonArray();
+          for (String line : request.lines()) {
+            JsonObject json = new JsonParser().parse(line).getAsJsonObject();
+            if (json.has("index") && json.entrySet().size() == 1) {
+              JsonObject response = new JsonObject();
+              response.addProperty("status", 201);
+              JsonObject item = new JsonObject();
+              item.add("index", response);
+              items.add(item);
+            }
+          }
+          JsonObject body = new JsonObject();
+          body.add("items", items);
+          return Response.ok(body);
+        }
+      });
+    }
+
+    private static JsonObject hits(int total, JsonArray hits) {
+      JsonObject result = new JsonObject();
+      result.addProperty("total", total);
+      result.add("hits", hits);
+      return result;
+    }
+  }
+}
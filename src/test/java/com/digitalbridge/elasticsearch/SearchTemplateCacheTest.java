@@ -0,0 +1,85 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.digitalbridge.domain.AssetSearchRequest;
+import com.digitalbridge.domain.AssetSearchRequest.DateRange;
+import com.digitalbridge.domain.AssetSearchRequest.GeoDistance;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class SearchTemplateCacheTest {
+
+  private final SearchTemplateCache cache = new SearchTemplateCache(10);
+
+  @Test
+  public final void testRequestsOfSameShapeShareTemplate() {
+    String first = cache.render(request("garden", "indian", "2km"));
+    String second = cache.render(request("pizza \"best\"", "italian", "5km"));
+
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(parse(first.replace("garden", "pizza \\\"best\\\"").replace("indian", "italian").replace("2km", "5km")),
+        parse(second));
+  }
+
+  @Test
+  public final void testRenderedSourceHasAllParts() {
+    JsonObject source = parse(cache.render(request("garden", "indian", "2km")));
+    JsonObject filtered = source.getAsJsonObject("query").getAsJsonObject("filtered");
+
+    assertEquals("garden", filtered.getAsJsonObject("query").getAsJsonObject("multi_match").get("query").getAsString());
+    String filters = filtered.getAsJsonObject("filter").toString();
+    assertEquals(true, filters.contains("{\"terms\":{\"cuisine\":[\"indian\",\"thai\"]}}"));
+    assertEquals(true, filters.contains("\"address.location\":[-73.9,40.7]"));
+    assertEquals(true, filters.contains("\"from\":\"1970-01-01T00:00:00.000Z\""));
+    assertEquals("desc", source.getAsJsonArray("sort").get(0).getAsJsonObject().getAsJsonObject("lDate").get("order")
+        .getAsString());
+  }
+
+  @Test
+  public final void testDifferentShapesGetOwnTemplates() {
+    cache.render(request("garden", "indian", "2km"));
+    AssetSearchRequest request = request("garden", "indian", "2km");
+    request.setGeoDistance(null);
+    cache.render(request);
+
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public final void testNamesWithSeparatorsDoNotShareTemplate() {
+    AssetSearchRequest joined = new AssetSearchRequest();
+    joined.getTermFilters().put("borough, cuisine", Arrays.asList("indian"));
+    AssetSearchRequest split = new AssetSearchRequest();
+    split.getTermFilters().put("borough", Arrays.asList("bronx"));
+    split.getTermFilters().put("cuisine", Arrays.asList("indian"));
+
+    String first = cache.render(joined);
+    String second = cache.render(split);
+
+    assertEquals(2, cache.size());
+    assertEquals(true, first.contains("\"borough, cuisine\""));
+    assertEquals(true, second.contains("\"bronx\""));
+  }
+
+  private static AssetSearchRequest request(String text, String cuisine, String distance) {
+    AssetSearchRequest request = new AssetSearchRequest();
+    request.setText(text);
+    request.getTermFilters().put("cuisine", Arrays.asList(cuisine, "thai"));
+    request.getDateRanges().add(new DateRange("lDate", new Date(0), null));
+    request.setGeoDistance(new GeoDistance(40.7, -73.9, distance));
+    request.getSort().put("lDate", Direction.DESC);
+    return request;
+  }
+
+  private static JsonObject parse(String json) {
+    return new JsonParser().parse(json).getAsJsonObject();
+  }
+}
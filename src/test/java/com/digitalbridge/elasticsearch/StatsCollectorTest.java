@@ -0,0 +1,161 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+
+import io.searchbox.client.JestClient;
+
+public class StatsCollectorTest {
+
+  private static final double DELTA = 0.0001;
+
+  @Test
+  public final void testComputesRatesBetweenSamples() {
+    FakeCluster cluster = new FakeCluster();
+    TestCollector collector = new TestCollector(cluster);
+
+    cluster.set(1000, 100, 200, 50, 500, 0, 10, 0);
+    StatsSample first = collector.sample();
+    assertEquals(0, first.getIntervalMillis());
+    assertEquals(0, first.getIndexingPerSecond(), DELTA);
+    assertEquals(Long.valueOf(0), first.getThreadPoolRejections().get("bulk"));
+    assertNull(first.getQueryCacheHitRatio());
+
+    collector.now += 10000;
+    cluster.set(1500, 1100, 700, 150, 1500, 2000, 16, 4);
+    StatsSample second = collector.sample();
+    assertEquals(10000, second.getIntervalMillis());
+    assertEquals(1500, second.getDocs());
+    assertEquals(100, second.getIndexingPerSecond(), DELTA);
+    assertEquals(0.5, second.getIndexingLatencyMillis(), DELTA);
+    assertEquals(10, second.getQueriesPerSecond(), DELTA);
+    assertEquals(10, second.getQueryLatencyMillis(), DELTA);
+    assertEquals(200, second.getMergeMillisPerSecond(), DELTA);
+    // two nodes reporting 16 rejections each, 10 each before
+    assertEquals(Long.valueOf(12), second.getThreadPoolRejections().get("bulk"));
+    assertEquals(Long.valueOf(4), second.getThreadPoolQueues().get("bulk"));
+  }
+
+  @Test
+  public final void testCounterResetCountsAsNoActivity() {
+    FakeCluster cluster = new FakeCluster();
+    TestCollector collector = new TestCollector(cluster);
+
+    cluster.set(1000, 100, 200, 50, 500, 0, 10, 0);
+    collector.sample();
+    collector.now += 10000;
+    cluster.set(1000, 10, 20, 5, 50, 0, 0, 0);
+
+    StatsSample sample = collector.sample();
+    assertEquals(0, sample.getIndexingPerSecond(), DELTA);
+    assertEquals(0, sample.getQueriesPerSecond(), DELTA);
+    assertEquals(Long.valueOf(0), sample.getThreadPoolRejections().get("bulk"));
+  }
+
+  @Test
+  public final void testKeepsOnlyTheRecentSamples() {
+    FakeCluster cluster = new FakeCluster();
+    TestCollector collector = new TestCollector(cluster);
+    collector.setCapacity(3);
+
+    for (int i = 0; i < 5; i++) {
+      cluster.set(i, i, i, i, i, 0, 0, 0);
+      collector.now += 1000;
+      collector.sample();
+    }
+
+    List<StatsSample> samples = collector.getSamples();
+    assertEquals(3, samples.size());
+    assertEquals(2, samples.get(0).getDocs());
+    assertSame(samples.get(2), collector.getLatest());
+  }
+
+  private static class TestCollector extends StatsCollector {
+
+    private long now = 1000000;
+
+    TestCollector(JestClient jestClient) {
+      super(jestClient, Arrays.asList("digitalbridge"));
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  /**
+   * Answers <code>_stats</code> and <code>_nodes/stats</code> of a cluster with two identical nodes.
+   */
+  private static class FakeCluster extends StubJestClient {
+
+    private JsonObject stats;
+    private JsonObject nodes;
+
+    FakeCluster() {
+      on("GET", "/_stats", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          return Response.ok(stats);
+        }
+      });
+      on("GET", "^/_nodes/", new Responder() {
+
+        @Override
+        public Response respond(Request request) {
+          return Response.ok(nodes);
+        }
+      });
+    }
+
+    void set(long docs, long indexTotal, long indexMillis, long queryTotal, long queryMillis, long mergeMillis,
+        long rejected, long queue) {
+
+      JsonObject primaries = new JsonObject();
+      primaries.add("docs", object("count", docs));
+      JsonObject indexing = object("index_total", indexTotal);
+      indexing.addProperty("index_time_in_millis", indexMillis);
+      primaries.add("indexing", indexing);
+
+      JsonObject total = new JsonObject();
+      JsonObject search = object("query_total", queryTotal);
+      search.addProperty("query_time_in_millis", queryMillis);
+      total.add("search", search);
+      total.add("merges", object("total_time_in_millis", mergeMillis));
+
+      JsonObject all = new JsonObject();
+      all.add("primaries", primaries);
+      all.add("total", total);
+      stats = new JsonObject();
+      stats.add("_all", all);
+
+      JsonObject bulk = object("rejected", rejected);
+      bulk.addProperty("queue", queue / 2);
+      JsonObject pools = new JsonObject();
+      pools.add("bulk", bulk);
+      pools.add("search", object("rejected", 0));
+      JsonObject node = new JsonObject();
+      node.add("thread_pool", pools);
+      JsonObject nodeMap = new JsonObject();
+      nodeMap.add("node1", node);
+      nodeMap.add("node2", node);
+      nodes = new JsonObject();
+      nodes.add("nodes", nodeMap);
+    }
+
+    private static JsonObject object(String name, long value) {
+      JsonObject object = new JsonObject();
+      object.addProperty(name, value);
+      return object;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package com.digitalbridge.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+
+/**
+ * {@link JestClient} answering requests by HTTP method and URI, without a cluster. A route matches when the method is
+ * equal and the URI pattern is found in the URI of the action. Routes added with {@code once} answer a single request
+ * and are tried first, in the order they were added; routes added with {@code on} answer every matching request.
+ * Requests no route matches fail with an {@link IOException}, as if the cluster was unreachable. Every request is
+ * recorded. Instances are thread safe, responders are called concurrently.
+ */
+public class StubJestClient implements JestClient {
+
+  private final Gson gson = new Gson();
+  private final List<Route> once = new ArrayList<Route>();
+  private final List<Route> routes = new ArrayList<Route>();
+  private final List<Request> requests = new ArrayList<Request>();
+
+  /**
+   * Answers every request matching the given method and URI pattern with the given responder.
+   */
+  public StubJestClient on(String method, String uri, Responder responder) {
+    synchronized (this) {
+      routes.add(new Route(method, uri, responder));
+    }
+    return this;
+  }
+
+  /**
+   * Answers every request matching the given method and URI pattern with the given status and body.
+   */
+  public StubJestClient on(String method, String uri, int status, String body) {
+    return on(method, uri, fixed(status, body));
+  }
+
+  /**
+   * Answers the next request matching the given method and URI pattern with the given status and body.
+   */
+  public StubJestClient once(String method, String uri, int status, String body) {
+    synchronized (this) {
+      once.add(new Route(method, uri, fixed(status, body)));
+    }
+    return this;
+  }
+
+  /**
+   * Returns the requests received so far, in order.
+   */
+  public synchronized List<Request> getRequests() {
+    return new ArrayList<Request>(requests);
+  }
+
+  /**
+   * Returns the requests received so far matching the given method and URI pattern, in order.
+   */
+  public synchronized List<Request> getRequests(String method, String uri) {
+    Route route = new Route(method, uri, null);
+    List<Request> matching = new ArrayList<Request>();
+    for (Request request : requests) {
+      if (route.matches(request)) {
+        matching.add(request);
+      }
+    }
+    return matching;
+  }
+
+  @Override
+  public <T extends JestResult> T execute(Action<T> action) throws IOException {
+    Request request = new Request(action.getRestMethodName(), action.getURI(), action.getData(gson));
+    Responder responder = null;
+
+    synchronized (this) {
+      requests.add(request);
+      for (Iterator<Route> it = once.iterator(); it.hasNext() && responder == null;) {
+        Route route = it.next();
+        if (route.matches(request)) {
+          it.remove();
+          responder = route.responder;
+        }
+      }
+      for (Iterator<Route> it = routes.iterator(); it.hasNext() && responder == null;) {
+        Route route = it.next();
+        if (route.matches(request)) {
+          responder = route.responder;
+        }
+      }
+    }
+
+    if (responder == null) {
+      throw new IOException("Connection refused: no route for " + request);
+    }
+
+    Response response = responder.respond(request);
+    return action.createNewElasticSearchResult(response.body, response.status, null, gson);
+  }
+
+  @Override
+  public <T extends JestResult> void executeAsync(Action<T> action, JestResultHandler<? super T> handler) {
+    T result;
+    try {
+      result = execute(action);
+    } catch (Exception e) {
+      handler.failed(e);
+      return;
+    }
+    handler.completed(result);
+  }
+
+  @Override
+  public void shutdownClient() {
+  }
+
+  @Override
+  public void setServers(Set<String> servers) {
+  }
+
+  private static Responder fixed(final int status, final String body) {
+    return new Responder() {
+
+      @Override
+      public Response respond(Request request) {
+        return new Response(status, body);
+      }
+    };
+  }
+
+  /**
+   * Computes the answer to a request.
+   */
+  public interface Responder {
+
+    Response respond(Request request) throws IOException;
+  }
+
+  /**
+   * A request received by the stub.
+   */
+  public static final class Request {
+
+    private final String method;
+    private final String uri;
+    private final String body;
+
+    Request(String method, String uri, String body) {
+      this.method = method;
+      this.uri = uri;
+      this.body = body;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public String getUri() {
+      return uri;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    /**
+     * Returns the body parsed as a JSON object.
+     */
+    public JsonObject json() {
+      return new JsonParser().parse(body).getAsJsonObject();
+    }
+
+    /**
+     * Returns the lines of a bulk body.
+     */
+    public String[] lines() {
+      return body.split("\n");
+    }
+
+    @Override
+    public String toString() {
+      return method + " " + uri;
+    }
+  }
+
+  /**
+   * The status and body answered to a request.
+   */
+  public static final class Response {
+
+    private final int status;
+    private final String body;
+
+    public Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+
+    public static Response ok(Object body) {
+      return new Response(200, body.toString());
+    }
+  }
+
+  private static final class Route {
+
+    private final String method;
+    private final Pattern uri;
+    private final Responder responder;
+
+    Route(String method, String uri, Responder responder) {
+      this.method = method;
+      this.uri = Pattern.compile(uri);
+      this.responder = responder;
+    }
+
+    boolean matches(Request request) {
+      return method.equals(request.method) && uri.matcher(request.uri).find();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.digitalbridge.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.searchbox.core.search.aggregation.RootAggregation;
+
+public class TermsFacetsTest {
+
+  private static final String AGGREGATIONS = "{\"MyCuisine\":{\"buckets\":["
+      + "{\"key\":\"American\",\"doc_count\":50},{\"key\":\"Chinese\",\"doc_count\":20},"
+      + "{\"key\":\"Indian\",\"doc_count\":5}]},\"MyCuisine_count\":{\"value\":80}}";
+
+  private final TermsFacets termsFacets = new TermsFacets(2, 1, 5);
+
+  @Test
+  public final void testShardSizeHeuristic() {
+    assertEquals(25, termsFacets.shardSize(10));
+    assertEquals(10, new TermsFacets(10, 1, 1).shardSize(10));
+  }
+
+  @Test
+  public final void testAggregationIsBoundedOnServer() {
+    SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+    termsFacets.addTo(searchSourceBuilder, "MyCuisine", "cuisine");
+
+    JsonObject aggregations = new JsonParser().parse(searchSourceBuilder.toString()).getAsJsonObject()
+        .getAsJsonObject("aggregations");
+    JsonObject terms = aggregations.getAsJsonObject("MyCuisine").getAsJsonObject("terms");
+    assertEquals(2, terms.get("size").getAsInt());
+    assertEquals(13, terms.get("shard_size").getAsInt());
+    assertEquals(1, terms.get("min_doc_count").getAsInt());
+    assertEquals("cuisine",
+        aggregations.getAsJsonObject("MyCuisine_count").getAsJsonObject("value_count").get("field").getAsString());
+  }
+
+  @Test
+  public final void testDecodeReportsOtherBucket() {
+    Map<String, Long> counts = termsFacets.decode(aggregations(), "MyCuisine", 0);
+
+    assertEquals(Arrays.asList("American", "Chinese", "Indian", TermsFacets.OTHER),
+        Arrays.asList(counts.keySet().toArray()));
+    assertEquals(Long.valueOf(5), counts.get(TermsFacets.OTHER));
+  }
+
+  @Test
+  public final void testDecodeSkipsOffset() {
+    Map<String, Long> counts = termsFacets.decode(aggregations(), "MyCuisine", 2);
+
+    assertEquals(2, counts.size());
+    assertEquals(Long.valueOf(5), counts.get("Indian"));
+    assertFalse(counts.containsKey("American"));
+  }
+
+  private static RootAggregation aggregations() {
+    return new RootAggregation("aggs", new JsonParser().parse(AGGREGATIONS).getAsJsonObject());
+  }
+}
@@ -0,0 +1,48 @@
+package com.digitalbridge.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.digitalbridge.domain.AssetWrapper;
+
+public class HotPathTimerTest {
+
+  @After
+  public void tearDown() {
+    HotPathTimer.end();
+    HotPathTimer.setEnabled(false);
+  }
+
+  @Test
+  public final void testDisabledTimerTimesNothing() {
+    HotPathTimer.setEnabled(false);
+    HotPathTimer.begin();
+
+    assertEquals(0, HotPathTimer.start());
+    assertNull(HotPathTimer.end());
+  }
+
+  @Test
+  public final void testOnlySampledThreadsAreTimed() {
+    HotPathTimer.setEnabled(true);
+    assertEquals(0, HotPathTimer.start());
+
+    HotPathTimer.begin();
+    for (int i = 0; i < 3; i++) {
+      HotPathTimer.stop(HotPathTimer.start(), "converter.read", AssetWrapper.class);
+    }
+    HotPathTimer.stop(HotPathTimer.start(), "dbref.fetch", "address");
+    HotPathTimer.Breakdown breakdown = HotPathTimer.end();
+
+    assertEquals(3, breakdown.getCount("converter.read.AssetWrapper"));
+    assertEquals(1, breakdown.getCount("dbref.fetch.address"));
+    assertEquals(0, breakdown.getCount("cascade.save.Address"));
+    assertTrue(breakdown.toString(), breakdown.toString().contains("converter.read.AssetWrapper=3 x "));
+    assertTrue(HotPathTimer.getHistograms().containsKey("dbref.fetch.address"));
+    assertEquals(0, HotPathTimer.start());
+  }
+}
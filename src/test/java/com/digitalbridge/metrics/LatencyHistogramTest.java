@@ -0,0 +1,46 @@
+package com.digitalbridge.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public final void testPercentilesReportBucketBounds() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      histogram.record(3);
+    }
+    for (int i = 0; i < 9; i++) {
+      histogram.record(80);
+    }
+    histogram.record(60000);
+
+    long[] snapshot = histogram.snapshotAndReset();
+    assertEquals(5, histogram.percentile(snapshot, 0.5));
+    assertEquals(100, histogram.percentile(snapshot, 0.95));
+    assertEquals(100, histogram.percentile(snapshot, 0.99));
+    assertEquals(10000, histogram.percentile(snapshot, 1));
+  }
+
+  @Test
+  public final void testSnapshotStartsANewInterval() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(0);
+    assertEquals(1, histogram.percentile(histogram.snapshotAndReset(), 0.5));
+    assertEquals(0, histogram.percentile(histogram.snapshotAndReset(), 0.5));
+  }
+
+  @Test
+  public final void testCustomBounds() {
+    LatencyHistogram histogram = new LatencyHistogram(LatencyHistogram.MICROS);
+    histogram.record(40);
+    histogram.record(2000000);
+
+    long[] snapshot = histogram.snapshotAndReset();
+    assertEquals(2, LatencyHistogram.count(snapshot));
+    assertEquals(50, histogram.percentile(snapshot, 0.5));
+    assertEquals(1000000, histogram.percentile(snapshot, 1));
+  }
+}
@@ -0,0 +1,158 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+
+public class ConversionPlanTest {
+
+  private MongoMappingContext mappingContext;
+  private CustomMappingMongoConverter converter;
+
+  @Before
+  public void setUp() {
+    mappingContext = new MongoMappingContext();
+    converter = new CustomMappingMongoConverter(new CustomDefaultDbRefResolver(new UnusedMongoDbFactory()),
+        mappingContext);
+    converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+    converter.setCustomConversions(new CustomConversions(Collections.emptyList()));
+    converter.afterPropertiesSet();
+  }
+
+  @Test
+  public final void testPlanSkipsIdAndConstructorArguments() {
+    MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(Listing.class);
+    ConversionPlan plan = converter.getConversionPlan(entity);
+
+    assertSame(plan, converter.getConversionPlan(entity));
+    assertEquals("id", plan.getIdProperty().getName());
+    assertEquals(Arrays.asList("price", "status", "tags", "city", "owner"), names(plan.getReadProperties()));
+    assertEquals(Arrays.asList("name", "price", "status", "tags", "city", "owner"), names(plan.getWriteProperties()));
+    assertEquals(0, plan.getAssociations().length);
+  }
+
+  @Test
+  public final void testWriteAndReadBack() {
+    Listing listing = new Listing("loft");
+    listing.id = "1";
+    listing.price = 250;
+    listing.status = Status.OPEN;
+    listing.tags = new ArrayList<String>(Arrays.asList("quiet", "sunny"));
+    listing.city = "Pune";
+    listing.owner = new Owner();
+    listing.owner.email = "owner@example.com";
+
+    DBObject dbo = new BasicDBObject();
+    converter.write(listing, dbo);
+
+    assertEquals("1", dbo.get("_id"));
+    assertEquals(250, dbo.get("price"));
+    assertEquals("OPEN", dbo.get("status"));
+    assertEquals("Pune", ((DBObject) dbo.get("address")).get("city"));
+    assertEquals("owner@example.com", ((DBObject) dbo.get("owner")).get("email"));
+
+    Listing read = converter.read(Listing.class, dbo);
+
+    assertEquals("1", read.id);
+    assertEquals("loft", read.getName());
+    assertEquals(250, read.price);
+    assertEquals(Status.OPEN, read.status);
+    assertEquals(listing.tags, read.tags);
+    assertEquals("Pune", read.city);
+    assertEquals("owner@example.com", read.owner.email);
+  }
+
+  @Test
+  public final void testValuesOfSubtypesAreNotWrittenAsDeclaredType() {
+    Listing listing = new Listing("loft");
+    listing.owner = new Agent();
+    listing.owner.email = "agent@example.com";
+    ((Agent) listing.owner).agency = "acme";
+
+    DBObject dbo = new BasicDBObject();
+    converter.write(listing, dbo);
+    DBObject owner = (DBObject) dbo.get("owner");
+
+    assertEquals("acme", owner.get("agency"));
+    assertEquals("agent@example.com", owner.get("email"));
+    assertFalse(dbo.containsField("status"));
+    assertFalse(dbo.containsField("address"));
+  }
+
+  private static List<String> names(ConversionPlan.PropertyPlan[] properties) {
+    List<String> names = new ArrayList<String>();
+    for (ConversionPlan.PropertyPlan property : properties) {
+      names.add(property.getProperty().getName());
+    }
+    return names;
+  }
+
+  public enum Status {
+    OPEN, CLOSED
+  }
+
+  public static class Owner {
+    public String email;
+  }
+
+  public static class Agent extends Owner {
+    public String agency;
+  }
+
+  public static class Listing {
+
+    @Id public String id;
+    private final String name;
+    public int price;
+    public Status status;
+    public List<String> tags;
+    @Field("address.city") public String city;
+    public Owner owner;
+
+    @PersistenceConstructor
+    public Listing(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private static class UnusedMongoDbFactory implements MongoDbFactory {
+
+    public DB getDb() {
+      throw new UnsupportedOperationException();
+    }
+
+    public DB getDb(String dbName) {
+      throw new UnsupportedOperationException();
+    }
+
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+      return new MongoExceptionTranslator();
+    }
+  }
+}
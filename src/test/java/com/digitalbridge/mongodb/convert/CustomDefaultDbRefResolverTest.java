@@ -0,0 +1,83 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+public class CustomDefaultDbRefResolverTest {
+
+  private FakeMongoDbFactory mongoDbFactory;
+  private CustomDefaultDbRefResolver resolver;
+
+  @Before
+  public void setUp() {
+    mongoDbFactory = new FakeMongoDbFactory();
+    for (int i = 1; i <= 3; i++) {
+      mongoDbFactory.insert("book", new BasicDBObject("_id", "b" + i).append("title", "Book " + i));
+      mongoDbFactory.insert("author", new BasicDBObject("_id", "a" + i).append("name", "Author " + i));
+    }
+    resolver = new CustomDefaultDbRefResolver(mongoDbFactory);
+  }
+
+  @Test
+  public final void testBulkFetchIssuesOneInQueryPerCollection() {
+    List<DBObject> documents = resolver.bulkFetch(Arrays.asList(new DBRef("book", "b2"), new DBRef("author", "a1"),
+        new DBRef("book", "b1"), new DBRef("book", "b2"), new DBRef("book", "b9")));
+
+    assertEquals(Arrays.asList("book", "author"), mongoDbFactory.getQueriedCollections());
+    assertEquals(Arrays.<Object> asList("b2", "b1", "b9"), inIds(mongoDbFactory.getQueries().get(0)));
+    assertEquals(Arrays.<Object> asList("a1"), inIds(mongoDbFactory.getQueries().get(1)));
+
+    assertEquals(5, documents.size());
+    assertEquals("Book 2", documents.get(0).get("title"));
+    assertEquals("Author 1", documents.get(1).get("name"));
+    assertEquals("Book 1", documents.get(2).get("title"));
+    assertEquals("Book 2", documents.get(3).get("title"));
+    assertNull(documents.get(4));
+  }
+
+  @Test
+  public final void testBulkFetchSkipsCachedDocuments() {
+    DbRefCache cache = new DbRefCache(100, 60000);
+    cache.put(new DBRef("book", "b1"), new BasicDBObject("_id", "b1").append("title", "Cached"));
+    resolver.setSharedCache(cache);
+
+    List<DBObject> documents = resolver.bulkFetch(Arrays.asList(new DBRef("book", "b1"), new DBRef("book", "b3")));
+
+    assertEquals(Arrays.<Object> asList("b3"), inIds(mongoDbFactory.getQueries().get(0)));
+    assertEquals("Cached", documents.get(0).get("title"));
+    assertEquals("Book 3", documents.get(1).get("title"));
+  }
+
+  @Test
+  public final void testBatchFetchesEveryReferenceOnce() {
+    DbRefBatch batch = resolver.openBatch();
+
+    try {
+      resolver.bulkFetch(Arrays.asList(new DBRef("book", "b1"), new DBRef("book", "b9")));
+      List<DBObject> documents = resolver.bulkFetch(Arrays.asList(new DBRef("book", "b1"), new DBRef("book", "b9")));
+
+      assertEquals("Book 1", documents.get(0).get("title"));
+      assertNull(documents.get(1));
+      assertEquals("Book 1", resolver.fetch(new DBRef("book", "b1")).get("title"));
+      assertNull(resolver.fetch(new DBRef("book", "b9")));
+    } finally {
+      batch.close();
+    }
+
+    assertEquals(1, mongoDbFactory.getQueries().size());
+  }
+
+  private static List<?> inIds(DBObject query) {
+    return (List<?>) ((DBObject) query.get("_id")).get("$in");
+  }
+}
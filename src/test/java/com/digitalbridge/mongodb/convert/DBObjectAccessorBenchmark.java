@@ -0,0 +1,102 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import com.digitalbridge.mongodb.convert.DBObjectAccessorTest.FlatAsset;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Compares the nested lookups of {@link DBObjectAccessor} against splitting the dotted field name on every read.
+ * Timing dependent, hence only run by the <code>benchmark</code> profile.
+ */
+public class DBObjectAccessorBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DBObjectAccessorBenchmark.class);
+
+  private static final int ITERATIONS = 200000;
+
+  private final MongoMappingContext mappingContext = new MongoMappingContext();
+
+  @Test
+  public final void testAccessorAgainstSplittingFieldNames() {
+    final List<MongoPersistentProperty> properties = properties();
+    DBObject dbo = DBObjectAccessorTest.document();
+    DBObjectAccessor accessor = new DBObjectAccessor(dbo);
+
+    long splitting = 0;
+    long precompiled = 0;
+    int found = 0;
+
+    // the first round warms up
+    for (int round = 0; round < 2; round++) {
+      long started = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        for (MongoPersistentProperty property : properties) {
+          found += splitAndGet(dbo, property.getFieldName()) == null ? 0 : 1;
+        }
+      }
+      splitting = System.nanoTime() - started;
+
+      started = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        for (MongoPersistentProperty property : properties) {
+          found -= accessor.get(property) == null ? 0 : 1;
+        }
+      }
+      precompiled = System.nanoTime() - started;
+    }
+
+    LOGGER.info("{} x {} fields read: splitting {} ns/op, precompiled paths {} ns/op", ITERATIONS,
+        properties.size(), splitting / ITERATIONS, precompiled / ITERATIONS);
+    assertEquals(0, found);
+  }
+
+  /**
+   * The lookup the accessor used before path segments were cached.
+   */
+  @SuppressWarnings("unchecked")
+  private static Object splitAndGet(DBObject dbo, String fieldName) {
+
+    if (!fieldName.contains(".")) {
+      return dbo.get(fieldName);
+    }
+
+    Iterator<String> parts = Arrays.asList(fieldName.split("\\.")).iterator();
+    Map<String, Object> source = (BasicDBObject) dbo;
+    Object result = null;
+
+    while (source != null && parts.hasNext()) {
+      result = source.get(parts.next());
+      if (parts.hasNext()) {
+        source = result instanceof Map ? (Map<String, Object>) result : null;
+      }
+    }
+
+    return result;
+  }
+
+  private List<MongoPersistentProperty> properties() {
+    final List<MongoPersistentProperty> properties = new ArrayList<MongoPersistentProperty>();
+    mappingContext.getPersistentEntity(FlatAsset.class).doWithProperties(
+        new PropertyHandler<MongoPersistentProperty>() {
+          public void doWithPersistentProperty(MongoPersistentProperty property) {
+            properties.add(property);
+          }
+        });
+    return properties;
+  }
+}
@@ -0,0 +1,76 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+public class DBObjectAccessorTest {
+
+  private final MongoMappingContext mappingContext = new MongoMappingContext();
+
+  @Test
+  public final void testNestedPutKeepsSiblings() {
+    DBObject dbo = new BasicDBObject();
+    DBObjectAccessor accessor = new DBObjectAccessor(dbo);
+
+    accessor.put(property("building"), "1007");
+    accessor.put(property("street"), "Morris Park Ave");
+    accessor.put(property("locationType"), "Point");
+
+    DBObject address = (DBObject) dbo.get("address");
+    assertEquals("1007", address.get("building"));
+    assertEquals("Morris Park Ave", address.get("street"));
+    assertEquals("Point", ((DBObject) address.get("location")).get("type"));
+  }
+
+  @Test
+  public final void testNestedGetAndHasValue() {
+    DBObject dbo = document();
+    DBObjectAccessor accessor = new DBObjectAccessor(dbo);
+
+    assertEquals("Wendy'S", accessor.get(property("assetName")));
+    assertEquals("10462", accessor.get(property("zipcode")));
+    assertTrue(accessor.hasValue(property("zipcode")));
+    assertFalse(accessor.hasValue(property("locationType")));
+    assertNull(accessor.get(property("locationType")));
+
+    dbo.put("address", "not a document");
+    assertNull(accessor.get(property("zipcode")));
+    assertFalse(accessor.hasValue(property("zipcode")));
+  }
+
+  static DBObject document() {
+    DBObject address = new BasicDBObject("building", "1007").append("street", "Morris Park Ave")
+        .append("zipcode", "10462");
+    return new BasicDBObject("_id", "5571a1e3b1f7f2f38d2e0a11").append("aName", "Wendy'S")
+        .append("borough", "Bronx").append("cuisine", "Hamburgers").append("address", address);
+  }
+
+  private MongoPersistentProperty property(String name) {
+    return mappingContext.getPersistentEntity(FlatAsset.class).getPersistentProperty(name);
+  }
+
+  /**
+   * An {@link com.digitalbridge.domain.AssetWrapper} with its address embedded through dotted field names.
+   */
+  public static class FlatAsset {
+
+    public String id;
+    @Field("aName") public String assetName;
+    public String borough;
+    public String cuisine;
+    @Field("address.building") public String building;
+    @Field("address.street") public String street;
+    @Field("address.zipcode") public String zipcode;
+    @Field("address.location.type") public String locationType;
+  }
+}
@@ -0,0 +1,135 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+public class DbRefBatchTest {
+
+  private FakeMongoDbFactory mongoDbFactory;
+  private CustomDefaultDbRefResolver resolver;
+  private final List<Object> seen = new ArrayList<Object>();
+
+  @Before
+  public void setUp() {
+    mongoDbFactory = new FakeMongoDbFactory();
+    for (int i = 1; i <= 3; i++) {
+      mongoDbFactory.insert("address", new BasicDBObject("_id", "a" + i).append("street", "Street " + i));
+      mongoDbFactory.insert("note", new BasicDBObject("_id", "n" + i).append("text", "Note " + i));
+    }
+    resolver = new CustomDefaultDbRefResolver(mongoDbFactory);
+  }
+
+  @Test
+  public final void testDeferredTasksRunAfterOneQueryPerCollection() {
+    DbRefBatch batch = resolver.openBatch();
+
+    try {
+      batch.defer(new DBRef("address", "a1"), lookup(batch, new DBRef("address", "a1")));
+      batch.defer(notes("n1", "n2"), lookup(batch, new DBRef("note", "n2")));
+      batch.defer(new DBRef("address", "a2"), lookup(batch, new DBRef("address", "a2")));
+
+      assertTrue(seen.isEmpty());
+      assertTrue(mongoDbFactory.getQueries().isEmpty());
+
+      batch.resolve();
+    } finally {
+      batch.close();
+    }
+
+    assertEquals(Arrays.asList("address", "note"), mongoDbFactory.getQueriedCollections());
+    assertEquals(Arrays.<Object> asList("Street 1", "Note 2", "Street 2"), seen);
+  }
+
+  @Test
+  public final void testReferencesFoundWhileResolvingAreFetchedInTheNextRound() {
+    final DbRefBatch batch = resolver.openBatch();
+
+    try {
+      batch.defer(new DBRef("address", "a1"), new Runnable() {
+
+        @Override
+        public void run() {
+          batch.defer(notes("n1", "n3"), lookup(batch, new DBRef("note", "n3")));
+          batch.defer(new DBRef("address", "a3"), lookup(batch, new DBRef("address", "a3")));
+        }
+      });
+      batch.defer(new DBRef("address", "a2"), lookup(batch, new DBRef("address", "a2")));
+      batch.resolve();
+    } finally {
+      batch.close();
+    }
+
+    assertEquals(Arrays.asList("address", "note", "address"), mongoDbFactory.getQueriedCollections());
+    assertEquals(Arrays.<Object> asList("Street 2", "Note 3", "Street 3"), seen);
+  }
+
+  @Test
+  public final void testNestedBatchIsResolvedByTheOutermost() {
+    DbRefBatch batch = resolver.openBatch();
+
+    try {
+      DbRefBatch nested = resolver.openBatch();
+
+      try {
+        nested.defer(new DBRef("address", "a1"), lookup(nested, new DBRef("address", "a1")));
+        nested.resolve();
+        assertTrue(seen.isEmpty());
+      } finally {
+        nested.close();
+      }
+
+      assertTrue(resolver.currentBatch() == batch);
+      batch.resolve();
+    } finally {
+      batch.close();
+    }
+
+    assertEquals(Arrays.<Object> asList("Street 1"), seen);
+    assertTrue(resolver.currentBatch() == null);
+  }
+
+  @Test
+  public final void testEntitiesAreSharedWithinTheBatch() {
+    DbRefBatch batch = resolver.openBatch();
+    Object entity = new Object();
+
+    try {
+      batch.putEntity(new DBRef("address", "a1"), entity);
+      assertTrue(batch.getEntity(new DBRef("address", "a1")) == entity);
+      assertTrue(batch.getEntity(new DBRef("note", "a1")) == null);
+    } finally {
+      batch.close();
+    }
+  }
+
+  private Runnable lookup(final DbRefBatch batch, final DBRef ref) {
+    return new Runnable() {
+
+      @Override
+      public void run() {
+        DBObject document = batch.lookup(ref);
+        seen.add(document.containsField("street") ? document.get("street") : document.get("text"));
+      }
+    };
+  }
+
+  private static BasicDBList notes(String... ids) {
+    BasicDBList refs = new BasicDBList();
+    for (String id : ids) {
+      refs.add(new DBRef("note", id));
+    }
+    return refs;
+  }
+}
@@ -0,0 +1,82 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+public class DbRefCacheTest {
+
+  @Test
+  public final void testLeastRecentlyUsedIsEvicted() {
+    DbRefCache cache = new DbRefCache(2, 60000);
+    DBObject first = new BasicDBObject("_id", "1");
+    cache.put(new DBRef("address", "1"), first);
+    cache.put(new DBRef("address", "2"), new BasicDBObject("_id", "2"));
+    assertEquals(first, cache.get(new DBRef("address", "1")));
+    cache.put(new DBRef("address", "3"), new BasicDBObject("_id", "3"));
+    assertNull(cache.get(new DBRef("address", "2")));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public final void testExpiredEntryIsNotReturned() {
+    DbRefCache cache = new DbRefCache(10, 0);
+    cache.put(new DBRef("notes", "1"), new BasicDBObject("_id", "1"));
+    assertNull(cache.get(new DBRef("notes", "1")));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public final void testEvictCollection() {
+    DbRefCache cache = new DbRefCache(10, 60000);
+    cache.put(new DBRef("notes", "1"), new BasicDBObject("_id", "1"));
+    cache.put(new DBRef("address", "1"), new BasicDBObject("_id", "1"));
+    cache.evictCollection("notes");
+    assertNull(cache.get(new DBRef("notes", "1")));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public final void testCallersDoNotShareDocuments() {
+    DbRefCache cache = new DbRefCache(10, 60000);
+    DBObject stored = new BasicDBObject("_id", "1").append("location", new BasicDBObject("city", "Pune"));
+    cache.put(new DBRef("address", "1"), stored);
+    ((DBObject) stored.get("location")).put("city", "Goa");
+
+    DBObject first = cache.get(new DBRef("address", "1"));
+    ((DBObject) first.get("location")).put("city", "Delhi");
+    DBObject second = cache.get(new DBRef("address", "1"));
+
+    assertNotSame(first, second);
+    assertEquals("Pune", ((DBObject) second.get("location")).get("city"));
+  }
+
+  @Test
+  public final void testPutReadBeforeEvictionIsDropped() {
+    DbRefCache cache = new DbRefCache(10, 60000);
+    long epoch = cache.currentEpoch();
+    cache.evict("address", "1");
+
+    assertFalse(cache.put(new DBRef("address", "1"), new BasicDBObject("_id", "1"), epoch));
+    assertNull(cache.get(new DBRef("address", "1")));
+    assertTrue(cache.put(new DBRef("address", "1"), new BasicDBObject("_id", "1"), cache.currentEpoch()));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public final void testDisabledCacheStoresNothing() {
+    DbRefCache cache = new DbRefCache(0, 60000);
+    cache.put(new DBRef("notes", "1"), new BasicDBObject("_id", "1"));
+    assertEquals(0, cache.size());
+  }
+}
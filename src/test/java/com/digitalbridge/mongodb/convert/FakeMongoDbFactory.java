@@ -0,0 +1,172 @@
+package com.digitalbridge.mongodb.convert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.objenesis.ObjenesisStd;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
+/**
+ * In-memory {@link MongoDbFactory} answering {@code find} and {@code findOne} from the documents inserted into it and
+ * recording every query. The driver classes need a live {@code Mongo} to be constructed, so the fakes are instantiated
+ * through Objenesis.
+ */
+public class FakeMongoDbFactory implements MongoDbFactory {
+
+  private static final ObjenesisStd OBJENESIS = new ObjenesisStd(true);
+
+  private final Map<String, Map<Object, DBObject>> collections = new LinkedHashMap<String, Map<Object, DBObject>>();
+  private final List<String> queriedCollections = new ArrayList<String>();
+  private final List<DBObject> queries = new ArrayList<DBObject>();
+  private final FakeDb db;
+
+  public FakeMongoDbFactory() {
+    db = (FakeDb) OBJENESIS.newInstance(FakeDb.class);
+    db.factory = this;
+  }
+
+  public FakeMongoDbFactory insert(String collection, DBObject document) {
+    Map<Object, DBObject> documents = collections.get(collection);
+    if (documents == null) {
+      documents = new LinkedHashMap<Object, DBObject>();
+      collections.put(collection, documents);
+    }
+    documents.put(document.get("_id"), document);
+    return this;
+  }
+
+  /**
+   * Returns the collection of every query issued so far, in order.
+   */
+  public List<String> getQueriedCollections() {
+    return queriedCollections;
+  }
+
+  /**
+   * Returns every query issued so far, in order.
+   */
+  public List<DBObject> getQueries() {
+    return queries;
+  }
+
+  public void reset() {
+    queriedCollections.clear();
+    queries.clear();
+  }
+
+  public DB getDb() {
+    return db;
+  }
+
+  public DB getDb(String dbName) {
+    return db;
+  }
+
+  public PersistenceExceptionTranslator getExceptionTranslator() {
+    return new MongoExceptionTranslator();
+  }
+
+  private List<DBObject> find(String collection, DBObject query) {
+    queriedCollections.add(collection);
+    queries.add(query);
+
+    Map<Object, DBObject> documents = collections.get(collection);
+    List<DBObject> result = new ArrayList<DBObject>();
+
+    if (documents == null) {
+      return result;
+    }
+
+    Object id = query.get("_id");
+
+    if (id == null) {
+      result.addAll(documents.values());
+    } else if (id instanceof DBObject && ((DBObject) id).containsField("$in")) {
+      for (Object element : (Collection<?>) ((DBObject) id).get("$in")) {
+        if (documents.containsKey(element)) {
+          result.add(documents.get(element));
+        }
+      }
+    } else if (documents.containsKey(id)) {
+      result.add(documents.get(id));
+    }
+
+    return result;
+  }
+
+  private static class FakeDb extends DB {
+
+    private FakeMongoDbFactory factory;
+
+    private FakeDb() {
+      super(null, null);
+    }
+
+    @Override
+    public DBCollection getCollection(String name) {
+      FakeCollection collection = (FakeCollection) OBJENESIS.newInstance(FakeCollection.class);
+      collection.factory = factory;
+      collection.collectionName = name;
+      return collection;
+    }
+  }
+
+  private static class FakeCollection extends DBCollection {
+
+    private FakeMongoDbFactory factory;
+    private String collectionName;
+
+    private FakeCollection() {
+      super(null, null);
+    }
+
+    @Override
+    public DBCursor find(DBObject query) {
+      FakeCursor cursor = (FakeCursor) OBJENESIS.newInstance(FakeCursor.class);
+      cursor.documents = factory.find(collectionName, query).iterator();
+      return cursor;
+    }
+
+    @Override
+    public DBObject findOne(Object id) {
+      List<DBObject> documents = factory.find(collectionName, new BasicDBObject("_id", id));
+      return documents.isEmpty() ? null : documents.get(0);
+    }
+  }
+
+  private static class FakeCursor extends DBCursor {
+
+    private Iterator<DBObject> documents;
+
+    private FakeCursor() {
+      super(null, null, null, null);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return documents.hasNext();
+    }
+
+    @Override
+    public DBObject next() {
+      return documents.next();
+    }
+
+    @Override
+    public void close() {
+      // nothing to release
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.LazyLoadingProxy;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+
+public class LazyDbRefGroupTest {
+
+  private DbRefCache cache;
+  private CustomMappingMongoConverter converter;
+
+  @Before
+  public void setUp() {
+    cache = new DbRefCache(100, 60000);
+    CustomDefaultDbRefResolver resolver = new CustomDefaultDbRefResolver(new UnusedMongoDbFactory());
+    resolver.setSharedCache(cache);
+    converter = new CustomMappingMongoConverter(resolver, new MongoMappingContext());
+    converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+    converter.setCustomConversions(new CustomConversions(Collections.emptyList()));
+    converter.afterPropertiesSet();
+
+    for (int i = 0; i < 3; i++) {
+      cache.put(new com.mongodb.DBRef("book", String.valueOf(i)),
+          new BasicDBObject("_id", String.valueOf(i)).append("title", "Book " + i));
+    }
+  }
+
+  @Test
+  public final void testFirstTouchFetchesAllSiblings() {
+    List<Shelf> shelves = readShelves();
+    assertTrue(shelves.get(0).book instanceof LazyLoadingProxy);
+    assertEquals(0, cache.getHitCount());
+
+    assertEquals("Book 0", shelves.get(0).book.getTitle());
+    assertEquals(3, cache.getHitCount());
+
+    assertEquals("Book 1", shelves.get(1).book.getTitle());
+    assertEquals("Book 2", shelves.get(2).book.getTitle());
+    assertEquals(3, cache.getHitCount());
+    assertSame(shelves.get(0).book.getClass(), shelves.get(2).book.getClass());
+  }
+
+  @Test
+  public final void testListsOfReferencesArePrefetched() {
+    BasicDBList refs = new BasicDBList();
+    refs.add(new com.mongodb.DBRef("book", "1"));
+    refs.add(new com.mongodb.DBRef("book", "2"));
+
+    DbRefBatch batch = converter.openDbRefBatch();
+    Shelf shelf;
+    Shelf other;
+
+    try {
+      shelf = converter.read(Shelf.class, new BasicDBObject("_id", "s").append("books", refs));
+      other = converter.read(Shelf.class,
+          new BasicDBObject("_id", "t").append("book", new com.mongodb.DBRef("book", "0")));
+      batch.resolve();
+    } finally {
+      batch.close();
+    }
+
+    assertEquals("Book 0", other.book.getTitle());
+    assertEquals(3, cache.getHitCount());
+    assertEquals("Book 2", shelf.books.get(1).getTitle());
+    assertEquals(3, cache.getHitCount());
+  }
+
+  private List<Shelf> readShelves() {
+    List<Shelf> shelves = new ArrayList<Shelf>();
+    DbRefBatch batch = converter.openDbRefBatch();
+
+    try {
+      for (int i = 0; i < 3; i++) {
+        DBObject dbo = new BasicDBObject("_id", "s" + i).append("book",
+            new com.mongodb.DBRef("book", String.valueOf(i)));
+        shelves.add(converter.read(Shelf.class, dbo));
+      }
+      batch.resolve();
+    } finally {
+      batch.close();
+    }
+
+    return shelves;
+  }
+
+  public static class Shelf {
+
+    @Id public String id;
+    @DBRef(lazy = true) public Book book;
+    @DBRef(lazy = true) public List<Book> books;
+  }
+
+  @Document(collection = "book")
+  public static class Book {
+
+    @Id private String id;
+    private String title;
+
+    public String getId() {
+      return id;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+  }
+
+  private static class UnusedMongoDbFactory implements MongoDbFactory {
+
+    public DB getDb() {
+      throw new UnsupportedOperationException();
+    }
+
+    public DB getDb(String dbName) {
+      throw new UnsupportedOperationException();
+    }
+
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+      return new MongoExceptionTranslator();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.digitalbridge.mongodb.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+public class ObjectPathTest {
+
+  private final MongoMappingContext mappingContext = new MongoMappingContext();
+  private final MongoPersistentEntity<?> folders = mappingContext.getPersistentEntity(Folder.class);
+  private final MongoPersistentEntity<?> notes = mappingContext.getPersistentEntity(Note.class);
+
+  @Test
+  public final void testFindsItemsByCollectionAndId() {
+    Folder root = new Folder("root");
+    Note note = new Note("1");
+    ObjectPath path = ObjectPath.ROOT.push(root, folders, "1").push(note, notes, "1");
+
+    assertSame(root, path.getPathItem("1", "folder"));
+    assertSame(note, path.getPathItem("1", "note"));
+    assertNull(path.getPathItem("2", "note"));
+    assertSame(note, path.getCurrentObject());
+    assertNull(ObjectPath.ROOT.getCurrentObject());
+    assertEquals("root -> 1", path.toString());
+  }
+
+  @Test
+  public final void testDeepPathsShareParentsAndIndex() {
+    ObjectPath path = ObjectPath.ROOT;
+    Folder[] chain = new Folder[3 * ObjectPath.INDEX_DEPTH];
+
+    for (int i = 0; i < chain.length; i++) {
+      chain[i] = new Folder(String.valueOf(i));
+      path = path.push(chain[i], folders, i);
+    }
+
+    ObjectPath left = path.push(new Note("left"), notes, "left");
+    ObjectPath right = path.push(new Note("right"), notes, "right");
+
+    for (int i = 0; i < chain.length; i++) {
+      assertSame(chain[i], left.getPathItem(i, "folder"));
+      assertSame(chain[i], right.getPathItem(i, "folder"));
+    }
+
+    assertNull(left.getPathItem("right", "note"));
+    assertEquals("right", right.getCurrentObject().toString());
+  }
+
+  @Test
+  public final void testItemClosestToRootWins() {
+    Folder first = new Folder("first");
+    Folder second = new Folder("second");
+    ObjectPath path = ObjectPath.ROOT.push(first, folders, "1").push(second, folders, "1").push(new Note("n"), notes,
+        null);
+
+    assertSame(first, path.getPathItem("1", "folder"));
+
+    for (int i = 0; i < ObjectPath.INDEX_DEPTH; i++) {
+      path = path.push(new Note(String.valueOf(i)), notes, null);
+    }
+
+    assertSame(first, path.getPathItem("1", "folder"));
+  }
+
+  @Document(collection = "folder")
+  public static class Folder {
+
+    private final String name;
+
+    public Folder(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  @Document(collection = "note")
+  public static class Note {
+
+    private final String text;
+
+    public Note(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public String toString() {
+      return text;
+    }
+  }
+}
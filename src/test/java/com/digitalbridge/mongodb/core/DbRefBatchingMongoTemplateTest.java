@@ -0,0 +1,120 @@
+package com.digitalbridge.mongodb.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.digitalbridge.mongodb.convert.CustomDefaultDbRefResolver;
+import com.digitalbridge.mongodb.convert.CustomMappingMongoConverter;
+import com.digitalbridge.mongodb.convert.FakeMongoDbFactory;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+public class DbRefBatchingMongoTemplateTest {
+
+  private FakeMongoDbFactory mongoDbFactory;
+  private DbRefBatchingMongoTemplate template;
+
+  @Before
+  public void setUp() {
+    mongoDbFactory = new FakeMongoDbFactory();
+    mongoDbFactory.insert("address", new BasicDBObject("_id", "a1").append("street", "Street 1"));
+    mongoDbFactory.insert("address", new BasicDBObject("_id", "a2").append("street", "Street 2"));
+    mongoDbFactory.insert("note", new BasicDBObject("_id", "n1").append("text", "Note 1"));
+    mongoDbFactory.insert("note", new BasicDBObject("_id", "n2").append("text", "Note 2"));
+    mongoDbFactory.insert("owner", owner("o1", "a1", "n1", "n2"));
+    mongoDbFactory.insert("owner", owner("o2", "a2", "n2"));
+    mongoDbFactory.insert("owner", owner("o3", "a1"));
+
+    CustomMappingMongoConverter converter = new CustomMappingMongoConverter(
+        new CustomDefaultDbRefResolver(mongoDbFactory), new MongoMappingContext());
+    converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+    converter.setCustomConversions(new CustomConversions(Collections.emptyList()));
+    converter.afterPropertiesSet();
+
+    template = new DbRefBatchingMongoTemplate(mongoDbFactory, converter);
+  }
+
+  @Test
+  public final void testFindFetchesReferencesWithOneQueryPerCollection() {
+    List<Owner> owners = template.find(new Query(), Owner.class, "owner");
+
+    assertEquals(Arrays.asList("owner", "address", "note"), mongoDbFactory.getQueriedCollections());
+    assertEquals(3, owners.size());
+    assertEquals("Street 1", owners.get(0).address.street);
+    assertEquals("Street 2", owners.get(1).address.street);
+    assertSame(owners.get(0).address, owners.get(2).address);
+    assertEquals(2, owners.get(0).notes.size());
+    assertEquals("Note 2", owners.get(0).notes.get(1).text);
+    assertEquals("Note 2", owners.get(1).notes.get(0).text);
+  }
+
+  @Test
+  public final void testAfterConvertListenersSeeResolvedReferences() {
+    final List<String> streets = new ArrayList<String>();
+    GenericApplicationContext context = new GenericApplicationContext();
+    context.addApplicationListener(new ApplicationListener<AfterConvertEvent<Object>>() {
+
+      @Override
+      public void onApplicationEvent(AfterConvertEvent<Object> event) {
+        Owner owner = (Owner) event.getSource();
+        streets.add(owner.address == null ? null : owner.address.street);
+      }
+    });
+    context.refresh();
+    template.setApplicationContext(context);
+
+    template.find(new Query(), Owner.class, "owner");
+
+    assertEquals(Arrays.asList("Street 1", "Street 2", "Street 1"), streets);
+    context.close();
+  }
+
+  private static BasicDBObject owner(String id, String address, String... notes) {
+    BasicDBList refs = new BasicDBList();
+    for (String note : notes) {
+      refs.add(new com.mongodb.DBRef("note", note));
+    }
+    return new BasicDBObject("_id", id).append("address", new com.mongodb.DBRef("address", address)).append("notes",
+        refs);
+  }
+
+  @Document(collection = "owner")
+  public static class Owner {
+
+    @Id public String id;
+    @DBRef public Address address;
+    @DBRef public List<Note> notes;
+  }
+
+  @Document(collection = "address")
+  public static class Address {
+
+    @Id public String id;
+    public String street;
+  }
+
+  @Document(collection = "note")
+  public static class Note {
+
+    @Id public String id;
+    public String text;
+  }
+}
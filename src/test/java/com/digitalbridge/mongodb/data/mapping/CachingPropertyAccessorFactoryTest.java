@@ -0,0 +1,92 @@
+package com.digitalbridge.mongodb.data.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.data.annotation.AccessType;
+import org.springframework.data.annotation.AccessType.Type;
+import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.SimplePropertyHandler;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import com.digitalbridge.domain.Address;
+import com.digitalbridge.domain.AssetWrapper;
+
+public class CachingPropertyAccessorFactoryTest {
+
+  private final MongoMappingContext mappingContext = new MongoMappingContext();
+  private final CachingPropertyAccessorFactory factory = new CachingPropertyAccessorFactory();
+
+  @Test
+  public final void testFieldAccessMatchesBeanWrapper() {
+    MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(AssetWrapper.class);
+    assertTrue(factory.isSupported(entity));
+
+    AssetWrapper asset = new AssetWrapper();
+    PersistentPropertyAccessor accessor = factory.getPropertyAccessor(entity, asset);
+    accessor.setProperty(entity.getPersistentProperty("assetName"), "Morris Park Bake Shop");
+    accessor.setProperty(entity.getPersistentProperty("version"), 3L);
+    Address address = new Address();
+    accessor.setProperty(entity.getPersistentProperty("address"), address);
+
+    assertEquals("Morris Park Bake Shop", asset.getAssetName());
+    assertEquals(Long.valueOf(3), asset.getVersion());
+    assertEquals(address, asset.getAddress());
+
+    final BeanWrapper<AssetWrapper> wrapper = new BeanWrapper<AssetWrapper>(asset);
+    final PersistentPropertyAccessor cached = accessor;
+    entity.doWithProperties(new SimplePropertyHandler() {
+
+      @Override
+      public void doWithPersistentProperty(PersistentProperty<?> property) {
+        assertEquals(property.getName(), wrapper.getProperty(property), cached.getProperty(property));
+      }
+    });
+  }
+
+  @Test
+  public final void testPropertyAccessUsesAccessors() {
+    MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(PropertyAccessed.class);
+
+    PropertyAccessed bean = new PropertyAccessed();
+    PersistentPropertyAccessor accessor = factory.getPropertyAccessor(entity, bean);
+    accessor.setProperty(entity.getPersistentProperty("name"), "queens");
+
+    assertEquals("QUEENS", bean.name);
+    assertEquals("QUEENS", accessor.getProperty(entity.getPersistentProperty("name")));
+  }
+
+  @Test
+  public final void testNonPublicTypesFallBackToBeanWrapper() {
+    MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(Hidden.class);
+    assertFalse(factory.isSupported(entity));
+
+    Hidden bean = new Hidden();
+    factory.getPropertyAccessor(entity, bean).setProperty(entity.getPersistentProperty("value"), "x");
+    assertEquals("x", bean.value);
+    assertNull(factory.getPropertyAccessor(entity, new Hidden()).getProperty(entity.getPersistentProperty("value")));
+  }
+
+  @AccessType(Type.PROPERTY)
+  public static class PropertyAccessed {
+
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name.toUpperCase();
+    }
+  }
+
+  static class Hidden {
+
+    private String value;
+  }
+}
@@ -0,0 +1,188 @@
+package com.digitalbridge.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository;
+import org.springframework.boot.actuate.metrics.writer.DefaultCounterService;
+import org.springframework.boot.actuate.metrics.writer.DefaultGaugeService;
+import org.springframework.data.domain.Page;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResult.DeferredResultHandler;
+
+import com.digitalbridge.domain.AssetSearchRequest;
+import com.digitalbridge.domain.AssetWrapper;
+import com.digitalbridge.elasticsearch.SearchTemplateCache;
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.digitalbridge.metrics.ElasticSearchMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import io.searchbox.client.JestClientFactory;
+import io.searchbox.client.config.HttpClientConfig;
+import io.searchbox.client.http.JestHttpClient;
+
+/**
+ * Compares blocking and asynchronous searches against a stub Elasticsearch answering after a fixed latency, with the
+ * same small number of "container" threads issuing the requests. Timing dependent, hence only run by the
+ * <code>benchmark</code> profile.
+ */
+public class ElasticSearchOperationsAsyncBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchOperationsAsyncBenchmark.class);
+
+  private static final int USERS = 200;
+  private static final int CONTAINER_THREADS = 10;
+  private static final long LATENCY_MILLIS = 100;
+
+  private HttpServer server;
+  private JestHttpClient jestClient;
+  private ThreadPoolTaskExecutor callbackExecutor;
+  private ElasticSearchOperations operations;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), USERS);
+    server.setExecutor(Executors.newFixedThreadPool(USERS));
+    server.createContext("/", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        byte[] body = "{\"took\":1,\"hits\":{\"total\":0,\"hits\":[]}}".getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    server.start();
+
+    JestClientFactory factory = new JestClientFactory();
+    factory.setHttpClientConfig(new HttpClientConfig.Builder("http://localhost:" + server.getAddress().getPort())
+        .multiThreaded(true).maxTotalConnection(USERS).defaultMaxTotalConnectionPerRoute(USERS).build());
+    jestClient = (JestHttpClient) factory.getObject();
+
+    callbackExecutor = new ThreadPoolTaskExecutor();
+    callbackExecutor.setCorePoolSize(2);
+    callbackExecutor.initialize();
+
+    operations = new ElasticSearchOperations();
+    operations.jestClient = jestClient;
+    operations.searchTemplateCache = new SearchTemplateCache(10);
+    operations.callbackExecutor = callbackExecutor;
+    operations.env = new MockEnvironment();
+    InMemoryMetricRepository metrics = new InMemoryMetricRepository();
+    operations.elasticSearchMetrics = new ElasticSearchMetrics(new DefaultCounterService(metrics),
+        new DefaultGaugeService(metrics));
+  }
+
+  @After
+  public void tearDown() {
+    jestClient.shutdownClient();
+    callbackExecutor.shutdown();
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  @Test
+  public final void benchmarkSyncAgainstAsyncSearch() throws Exception {
+    long sync = runSync();
+    long async = runAsync();
+    LOGGER.info("{} searches with {} container threads: sync {} ms, async {} ms", USERS, CONTAINER_THREADS, sync,
+        async);
+
+    // blocking needs USERS / CONTAINER_THREADS round trips, async about one
+    assertTrue(sync >= USERS / CONTAINER_THREADS * LATENCY_MILLIS);
+    assertTrue(async < sync / 2);
+    assertEquals(0, operations.elasticSearchMetrics.getInFlight());
+  }
+
+  private long runSync() throws Exception {
+    ExecutorService container = Executors.newFixedThreadPool(CONTAINER_THREADS);
+    List<Callable<Page<AssetWrapper>>> calls = new ArrayList<Callable<Page<AssetWrapper>>>(USERS);
+    for (int i = 0; i < USERS; i++) {
+      calls.add(new Callable<Page<AssetWrapper>>() {
+
+        @Override
+        public Page<AssetWrapper> call() throws DigitalBridgeException {
+          return operations.search(request());
+        }
+      });
+    }
+    long started = System.currentTimeMillis();
+    try {
+      for (Future<Page<AssetWrapper>> page : container.invokeAll(calls)) {
+        assertEquals(0, page.get().getTotalElements());
+      }
+    } finally {
+      container.shutdownNow();
+    }
+    return System.currentTimeMillis() - started;
+  }
+
+  private long runAsync() throws Exception {
+    ExecutorService container = Executors.newFixedThreadPool(CONTAINER_THREADS);
+    final CountDownLatch done = new CountDownLatch(USERS);
+    final AtomicInteger succeeded = new AtomicInteger();
+    long started = System.currentTimeMillis();
+    try {
+      for (int i = 0; i < USERS; i++) {
+        container.execute(new Runnable() {
+
+          @Override
+          public void run() {
+            DeferredResult<Page<AssetWrapper>> result = operations.searchAsync(request());
+            result.setResultHandler(new DeferredResultHandler() {
+
+              @Override
+              public void handleResult(Object result) {
+                if (result instanceof Page) {
+                  succeeded.incrementAndGet();
+                }
+                done.countDown();
+              }
+            });
+          }
+        });
+      }
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+    } finally {
+      container.shutdownNow();
+    }
+    assertEquals(USERS, succeeded.get());
+    return System.currentTimeMillis() - started;
+  }
+
+  private static AssetSearchRequest request() {
+    AssetSearchRequest request = new AssetSearchRequest();
+    request.setText("garden");
+    return request;
+  }
+}
@@ -0,0 +1,274 @@
+package com.digitalbridge.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository;
+import org.springframework.boot.actuate.metrics.writer.DefaultCounterService;
+import org.springframework.boot.actuate.metrics.writer.DefaultGaugeService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResult.DeferredResultHandler;
+
+import com.digitalbridge.domain.AssetSearchRequest;
+import com.digitalbridge.domain.AssetWrapper;
+import com.digitalbridge.elasticsearch.SearchTemplateCache;
+import com.digitalbridge.exception.DigitalBridgeException;
+import com.digitalbridge.metrics.ElasticSearchMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import io.searchbox.client.JestClientFactory;
+import io.searchbox.client.config.HttpClientConfig;
+import io.searchbox.client.http.JestHttpClient;
+
+/**
+ * Runs asynchronous searches against a stub Elasticsearch that holds every request until the test releases it. The
+ * throughput comparison with blocking searches is {@link ElasticSearchOperationsAsyncBenchmark}.
+ */
+public class ElasticSearchOperationsAsyncTest {
+
+  private static final int SEARCHES = 20;
+  private static final String CALLBACK_THREAD_PREFIX = "es-callback-";
+  private static final String BAD_FIELD = "no_such_field";
+
+  private final CountDownLatch received = new CountDownLatch(SEARCHES);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private HttpServer server;
+  private JestHttpClient jestClient;
+  private ThreadPoolTaskExecutor callbackExecutor;
+  private ElasticSearchOperations operations;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), SEARCHES);
+    server.setExecutor(Executors.newFixedThreadPool(SEARCHES));
+    server.createContext("/", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        received.countDown();
+        try {
+          release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        int status = 200;
+        byte[] body = "{\"took\":1,\"hits\":{\"total\":0,\"hits\":[]}}".getBytes("UTF-8");
+        if (StreamUtils.copyToString(exchange.getRequestBody(), Charset.forName("UTF-8")).contains(BAD_FIELD)) {
+          status = 400;
+          body = ("{\"error\":\"SearchPhaseExecutionException[No mapping found for [" + BAD_FIELD
+              + "]]\",\"status\":400}").getBytes("UTF-8");
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    server.start();
+
+    JestClientFactory factory = new JestClientFactory();
+    factory.setHttpClientConfig(new HttpClientConfig.Builder("http://localhost:" + server.getAddress().getPort())
+        .multiThreaded(true).maxTotalConnection(SEARCHES).defaultMaxTotalConnectionPerRoute(SEARCHES).build());
+    jestClient = (JestHttpClient) factory.getObject();
+
+    callbackExecutor = new ThreadPoolTaskExecutor();
+    callbackExecutor.setCorePoolSize(2);
+    callbackExecutor.setThreadNamePrefix(CALLBACK_THREAD_PREFIX);
+    callbackExecutor.initialize();
+
+    operations = new ElasticSearchOperations();
+    operations.jestClient = jestClient;
+    operations.searchTemplateCache = new SearchTemplateCache(10);
+    operations.callbackExecutor = callbackExecutor;
+    operations.env = new MockEnvironment();
+    InMemoryMetricRepository metrics = new InMemoryMetricRepository();
+    operations.elasticSearchMetrics = new ElasticSearchMetrics(new DefaultCounterService(metrics),
+        new DefaultGaugeService(metrics));
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    jestClient.shutdownClient();
+    callbackExecutor.shutdown();
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  @Test
+  public final void testContainerThreadIsReleasedWhileSearchesArePending() throws Exception {
+    final List<DeferredResult<Page<AssetWrapper>>> results = new ArrayList<DeferredResult<Page<AssetWrapper>>>();
+    final List<String> handlerThreads = Collections.synchronizedList(new ArrayList<String>());
+    final CountDownLatch done = new CountDownLatch(SEARCHES);
+    ExecutorService container = Executors.newSingleThreadExecutor();
+    try {
+      // a single container thread issues every search and is free again before any of them is answered
+      container.submit(new Runnable() {
+
+        @Override
+        public void run() {
+          for (int i = 0; i < SEARCHES; i++) {
+            DeferredResult<Page<AssetWrapper>> result = operations.searchAsync(request());
+            result.setResultHandler(new DeferredResultHandler() {
+
+              @Override
+              public void handleResult(Object result) {
+                handlerThreads.add(Thread.currentThread().getName());
+                done.countDown();
+              }
+            });
+            results.add(result);
+          }
+        }
+      }).get(10, TimeUnit.SECONDS);
+    } finally {
+      container.shutdownNow();
+    }
+
+    assertTrue(received.await(10, TimeUnit.SECONDS));
+    assertEquals(SEARCHES, operations.elasticSearchMetrics.getInFlight());
+    for (DeferredResult<Page<AssetWrapper>> result : results) {
+      assertFalse(result.hasResult());
+    }
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    for (DeferredResult<Page<AssetWrapper>> result : results) {
+      assertTrue(result.getResult() instanceof Page);
+    }
+    assertEquals(SEARCHES, handlerThreads.size());
+    for (String handlerThread : handlerThreads) {
+      assertTrue(handlerThread, handlerThread.startsWith(CALLBACK_THREAD_PREFIX));
+    }
+    assertEquals(0, operations.elasticSearchMetrics.getInFlight());
+  }
+
+  @Test
+  public final void testInvalidPageIsRejected() {
+    AssetSearchRequest request = request();
+    request.setSize(0);
+    try {
+      operations.search(request);
+      fail("size 0 accepted");
+    } catch (DigitalBridgeException e) {
+      assertEquals("1016", e.getFaultBean().getFaultCode());
+    }
+
+    request = request();
+    request.setPage(-1);
+    Object result = operations.searchAsync(request).getResult();
+    assertTrue(result instanceof DigitalBridgeException);
+    assertEquals("1016", ((DigitalBridgeException) result).getFaultBean().getFaultCode());
+  }
+
+  @Test
+  public final void testFailedSearchIsReported() throws InterruptedException {
+    release.countDown();
+    AssetSearchRequest request = request();
+    request.getSort().put(BAD_FIELD, Direction.ASC);
+    try {
+      operations.search(request);
+      fail("failed search answered with a page");
+    } catch (DigitalBridgeException e) {
+      assertEquals("1017", e.getFaultBean().getFaultCode());
+    }
+
+    final CountDownLatch done = new CountDownLatch(1);
+    DeferredResult<Page<AssetWrapper>> result = operations.searchAsync(request);
+    result.setResultHandler(new DeferredResultHandler() {
+
+      @Override
+      public void handleResult(Object result) {
+        done.countDown();
+      }
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(result.getResult() instanceof DigitalBridgeException);
+    assertEquals("1017", ((DigitalBridgeException) result.getResult()).getFaultBean().getFaultCode());
+  }
+
+  @Test
+  public final void testSaturatedCallbackExecutorFailsRightAway() throws InterruptedException {
+    release.countDown();
+    final CountDownLatch busy = new CountDownLatch(1);
+    ThreadPoolTaskExecutor saturated = new ThreadPoolTaskExecutor();
+    saturated.setCorePoolSize(1);
+    saturated.setMaxPoolSize(1);
+    saturated.setQueueCapacity(0);
+    saturated.initialize();
+    try {
+      saturated.execute(new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            busy.await(30, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      operations.callbackExecutor = saturated;
+
+      final CountDownLatch done = new CountDownLatch(1);
+      DeferredResult<Page<AssetWrapper>> result = operations.searchAsync(request());
+      result.setResultHandler(new DeferredResultHandler() {
+
+        @Override
+        public void handleResult(Object result) {
+          done.countDown();
+        }
+      });
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertTrue(result.getResult() instanceof DigitalBridgeException);
+      assertEquals("1018", ((DigitalBridgeException) result.getResult()).getFaultBean().getFaultCode());
+    } finally {
+      busy.countDown();
+      saturated.shutdown();
+    }
+  }
+
+  @Test
+  public final void testUnreachableClusterIsReported() {
+    server.stop(0);
+    try {
+      operations.search(request());
+      fail("unreachable cluster answered with a page");
+    } catch (DigitalBridgeException e) {
+      assertEquals("1004", e.getFaultBean().getFaultCode());
+    }
+  }
+
+  private static AssetSearchRequest request() {
+    AssetSearchRequest request = new AssetSearchRequest();
+    request.setText("garden");
+    return request;
+  }
+}
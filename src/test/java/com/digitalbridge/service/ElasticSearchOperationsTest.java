@@ -21,6 +21,7 @@ import org.springframework.security.authentication.AuthenticationCredentialsNotF
 import com.digitalbridge.MongoESConfigTest;
 import com.digitalbridge.domain.AssetWrapper;
 import com.digitalbridge.domain.FacetDateRange;
+import com.digitalbridge.elasticsearch.TermsFacets;
 import com.digitalbridge.exception.DigitalBridgeException;
 import com.digitalbridge.security.SecurityUtils;
 import com.google.gson.JsonObject;
@@ -81,6 +82,36 @@ public class ElasticSearchOperationsTest extends MongoESConfigTest {
     elasticSearchOperations.performElasticSearch();
   }
 
+  @Test
+  public final void testSearchAssets() throws DigitalBridgeException {
+    SecurityUtils.runAs(USERNAME, PASSWORD, ROLE_USER);
+    Page<AssetWrapper> response = elasticSearchOperations.searchAssets("garden", 0, 3, false);
+    assertFalse(response.getContent().isEmpty());
+    assertTrue(response.getContent().size() <= 3);
+    assertNotNull(response.getContent().get(0).getId());
+    assertNotNull(response.getContent().get(0).getAssetName());
+    assertNotNull(response.getContent().get(0).getAddress().getLocation().getCoordinates());
+  }
+
+  @Test
+  public final void testSearchAssetsHydrated() throws DigitalBridgeException {
+    SecurityUtils.runAs(USERNAME, PASSWORD, ROLE_USER);
+    Page<AssetWrapper> fromSource = elasticSearchOperations.searchAssets("garden", 1, 3, false);
+    Page<AssetWrapper> hydrated = elasticSearchOperations.searchAssets("garden", 1, 3, true);
+    assertEquals(fromSource.getTotalElements(), hydrated.getTotalElements());
+    assertEquals(fromSource.getContent().size(), hydrated.getContent().size());
+    for (int i = 0; i < hydrated.getContent().size(); i++) {
+      assertEquals(fromSource.getContent().get(i).getId(), hydrated.getContent().get(i).getId());
+      assertNotNull(hydrated.getContent().get(i).getAddress().getId());
+    }
+  }
+
+  @Test(expected = DigitalBridgeException.class)
+  public final void testSearchAssetsNegativePage() throws DigitalBridgeException {
+    SecurityUtils.runAs(USERNAME, PASSWORD, ROLE_USER);
+    elasticSearchOperations.searchAssets("garden", -1, 3, false);
+  }
+
   @Test
   public final void testTermFacetSearchWithOutFilters() throws DigitalBridgeException, IOException {
     SecurityUtils.runAs(USERNAME, PASSWORD, ROLE_USER);
@@ -112,6 +143,19 @@ public class ElasticSearchOperationsTest extends MongoESConfigTest {
     assertTrue(response.size() == 3);
   }
 
+  @Test
+  public final void testTermFacetValues() throws DigitalBridgeException {
+    SecurityUtils.runAs(USERNAME, PASSWORD, ROLE_USER);
+    Map<String, Long> firstPage = elasticSearchOperations.termFacetValues("MyCuisine",
+        Collections.<String, Object[]> emptyMap(), 0, 5);
+    Map<String, Long> secondPage = elasticSearchOperations.termFacetValues("MyCuisine",
+        Collections.<String, Object[]> emptyMap(), 1, 5);
+    assertTrue(!firstPage.isEmpty());
+    for (String cuisine : secondPage.keySet()) {
+      assertTrue(TermsFacets.OTHER.equals(cuisine) || !firstPage.containsKey(cuisine));
+    }
+  }
+
   @Test
   public final void testOptimizeIndex() throws DigitalBridgeException {
     elasticSearchOperations.optimizeIndex();
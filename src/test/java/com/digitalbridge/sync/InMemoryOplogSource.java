@@ -0,0 +1,47 @@
+package com.digitalbridge.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.BSONTimestamp;
+
+/**
+ * In-process {@link OplogSource} replaying the entries appended to it.
+ */
+public class InMemoryOplogSource implements OplogSource {
+
+  private final List<OplogEntry> log = new ArrayList<OplogEntry>();
+  private final BlockingQueue<OplogEntry> cursor = new LinkedBlockingQueue<OplogEntry>();
+  private int time = 1;
+
+  public synchronized OplogEntry append(String operation, String collectionName, Object documentId) {
+    OplogEntry entry = new OplogEntry(new BSONTimestamp(time++, 0), operation, "digitalbridge." + collectionName,
+        documentId);
+    log.add(entry);
+    cursor.add(entry);
+    return entry;
+  }
+
+  @Override
+  public synchronized void open(BSONTimestamp resumeAfter) {
+    cursor.clear();
+    for (OplogEntry entry : log) {
+      if (resumeAfter == null || entry.getTimestamp().compareTo(resumeAfter) > 0) {
+        cursor.add(entry);
+      }
+    }
+  }
+
+  @Override
+  public OplogEntry poll(long maxWaitMillis) throws InterruptedException {
+    return cursor.poll(maxWaitMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    cursor.clear();
+  }
+}
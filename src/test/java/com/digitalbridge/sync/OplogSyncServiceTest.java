@@ -0,0 +1,301 @@
+package com.digitalbridge.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.types.BSONTimestamp;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.digitalbridge.elasticsearch.StubJestClient;
+import com.digitalbridge.elasticsearch.StubJestClient.Request;
+import com.digitalbridge.elasticsearch.StubJestClient.Responder;
+import com.digitalbridge.elasticsearch.StubJestClient.Response;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class OplogSyncServiceTest {
+
+  private InMemoryOplogSource oplogSource;
+  private FakeDocumentSource documentSource;
+  private FakeCheckpointStore checkpointStore;
+  private StubJestClient jestClient;
+  private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<List<String>>());
+  private final LinkedList<int[]> statuses = new LinkedList<int[]>();
+  private OplogSyncService syncService;
+
+  @Before
+  public void setUp() {
+    oplogSource = new InMemoryOplogSource();
+    documentSource = new FakeDocumentSource();
+    checkpointStore = new FakeCheckpointStore();
+    jestClient = new StubJestClient().on("POST", "_bulk", new BulkResponder());
+    syncService = new OplogSyncService(oplogSource, documentSource, checkpointStore, jestClient, "digitalbridge",
+        "assetwrapper");
+    syncService.setInitialBackoffMillis(1);
+    syncService.setMaxBatchDelayMillis(60000);
+  }
+
+  @Test
+  public final void testChangesAreCoalescedIntoOneBulk() throws InterruptedException {
+    documentSource.put("a1", "a1-v2");
+    documentSource.put("a2", "a2-v1");
+    documentSource.addReference("address", "addr1", "a2");
+    oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1");
+    oplogSource.append(OplogEntry.UPDATE, "assetwrapper", "a1");
+    oplogSource.append(OplogEntry.UPDATE, "address", "addr1");
+    BSONTimestamp last = oplogSource.append(OplogEntry.DELETE, "assetwrapper", "a3").getTimestamp();
+
+    syncService.setMaxBatchActions(3);
+    oplogSource.open(null);
+    for (int i = 0; i < 4; i++) {
+      syncService.process(0);
+    }
+
+    assertEquals(1, requests.size());
+    assertEquals(3, requests.get(0).size());
+    assertTrue(requests.get(0).contains("index a1"));
+    assertTrue(requests.get(0).contains("index a2"));
+    assertTrue(requests.get(0).contains("delete a3"));
+    assertEquals(last, checkpointStore.timestamp);
+    assertEquals(2, syncService.getIndexedCount());
+    assertEquals(1, syncService.getDeletedCount());
+  }
+
+  @Test
+  public final void testRejectedItemsAreRetriedBeforeCheckpoint() throws InterruptedException {
+    documentSource.put("a1", "a1-v1");
+    documentSource.put("a2", "a2-v1");
+    oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1");
+    BSONTimestamp last = oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a2").getTimestamp();
+    statuses.add(new int[] { 201, 429 });
+    statuses.add(new int[] { 429 });
+
+    oplogSource.open(null);
+    syncService.process(0);
+    syncService.process(0);
+    syncService.flush();
+
+    assertEquals(3, requests.size());
+    assertEquals(Collections.singletonList("index a2"), requests.get(1));
+    assertEquals(Collections.singletonList("index a2"), requests.get(2));
+    assertEquals(2, syncService.getRetryCount());
+    assertEquals(2, syncService.getIndexedCount());
+    assertEquals(last, checkpointStore.timestamp);
+  }
+
+  @Test
+  public final void testBulkIsSplitByBytes() throws InterruptedException {
+    documentSource.put("a1", "a1-v1");
+    documentSource.put("a2", "a2-v1");
+    oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1");
+    oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a2");
+
+    syncService.setMaxBatchBytes(1);
+    oplogSource.open(null);
+    syncService.process(0);
+    syncService.process(0);
+    syncService.flush();
+
+    assertEquals(2, requests.size());
+  }
+
+  @Test
+  public final void testResumesAfterCheckpoint() throws InterruptedException {
+    documentSource.put("a1", "a1-v1");
+    documentSource.put("a2", "a2-v1");
+    checkpointStore.timestamp = oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1").getTimestamp();
+    BSONTimestamp last = oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a2").getTimestamp();
+
+    syncService.setMaxBatchDelayMillis(10);
+    syncService.start();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!last.equals(checkpointStore.timestamp) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    syncService.stop();
+
+    assertEquals(last, checkpointStore.timestamp);
+    assertEquals(Collections.singletonList(Collections.singletonList("index a2")), requests);
+  }
+
+  private static class FakeDocumentSource implements SyncDocumentSource {
+
+    private final Map<Object, String> documents = new HashMap<Object, String>();
+    private final Map<Object, Object> references = new HashMap<Object, Object>();
+
+    void put(String id, String name) {
+      documents.put(id, name);
+    }
+
+    void addReference(String collectionName, Object id, Object rootId) {
+      references.put(collectionName + "/" + id, rootId);
+    }
+
+    @Override
+    public String getRootCollectionName() {
+      return "assetwrapper";
+    }
+
+    @Override
+    public Set<Object> findReferencingIds(String collectionName, Collection<Object> ids) {
+      Set<Object> result = new LinkedHashSet<Object>();
+      for (Object id : ids) {
+        Object rootId = references.get(collectionName + "/" + id);
+        if (rootId != null) {
+          result.add(rootId);
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public Map<Object, JsonObject> loadDocuments(Collection<Object> ids) {
+      Map<Object, JsonObject> result = new LinkedHashMap<Object, JsonObject>();
+      for (Object id : ids) {
+        if (documents.containsKey(id)) {
+          JsonObject document = new JsonObject();
+          document.addProperty("aName", documents.get(id));
+          result.put(id, document);
+        }
+      }
+      return result;
+    }
+  }
+
+  @Test
+  public final void testExhaustedItemsKeepCheckpointAndBatch() throws InterruptedException {
+    syncService.setMaxBulkAttempts(1);
+    documentSource.put("a1", "a1-v1");
+    BSONTimestamp last = oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1").getTimestamp();
+    statuses.add(new int[] { 429 });
+
+    oplogSource.open(null);
+    syncService.process(0);
+
+    try {
+      syncService.flush();
+      fail("Expected the exhausted item to keep the checkpoint");
+    } catch (IllegalStateException e) {
+      assertNull(checkpointStore.timestamp);
+    }
+
+    syncService.flush();
+    assertEquals(last, checkpointStore.timestamp);
+    assertEquals(1, syncService.getFailedCount());
+    assertEquals(1, syncService.getIndexedCount());
+  }
+
+  @Test
+  public final void testRejectedItemIsSkipped() throws InterruptedException {
+    documentSource.put("a1", "a1-v1");
+    documentSource.put("a2", "a2-v1");
+    oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1");
+    BSONTimestamp last = oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a2").getTimestamp();
+    statuses.add(new int[] { 400 });
+
+    oplogSource.open(null);
+    syncService.process(0);
+    syncService.process(0);
+    syncService.flush();
+
+    assertEquals(last, checkpointStore.timestamp);
+    assertEquals(1, requests.size());
+    assertEquals(1, syncService.getFailedCount());
+    assertEquals(1, syncService.getIndexedCount());
+    assertEquals(0, syncService.getRetryCount());
+  }
+
+  @Test
+  public final void testOpenIsRetriedAfterFailure() throws InterruptedException {
+    final AtomicInteger opens = new AtomicInteger();
+    oplogSource = new InMemoryOplogSource() {
+      @Override
+      public synchronized void open(BSONTimestamp resumeAfter) {
+        if (opens.incrementAndGet() < 3) {
+          throw new IllegalStateException("mongo is down");
+        }
+        super.open(resumeAfter);
+      }
+    };
+    syncService = new OplogSyncService(oplogSource, documentSource, checkpointStore, jestClient, "digitalbridge",
+        "assetwrapper");
+    syncService.setInitialBackoffMillis(1);
+    syncService.setMaxBatchDelayMillis(10);
+    documentSource.put("a1", "a1-v1");
+    BSONTimestamp last = oplogSource.append(OplogEntry.INSERT, "assetwrapper", "a1").getTimestamp();
+
+    syncService.start();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!last.equals(checkpointStore.timestamp) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    syncService.stop();
+
+    assertEquals(last, checkpointStore.timestamp);
+    assertEquals(3, opens.get());
+  }
+
+  private static class FakeCheckpointStore implements SyncCheckpointStore {
+
+    private volatile BSONTimestamp timestamp;
+
+    @Override
+    public BSONTimestamp load() {
+      return timestamp;
+    }
+
+    @Override
+    public void save(BSONTimestamp timestamp) {
+      this.timestamp = timestamp;
+    }
+  }
+
+  /**
+   * Answers bulk requests with per item statuses taken from {@link #statuses}, 201 once exhausted, and records the
+   * actions of every request in {@link #requests}.
+   */
+  private class BulkResponder implements Responder {
+
+    @Override
+    public Response respond(Request bulk) {
+      List<String> request = new ArrayList<String>();
+      JsonArray items = new JsonArray();
+      int[] itemStatuses = statuses.isEmpty() ? new int[0] : statuses.removeFirst();
+      for (String line : bulk.lines()) {
+        JsonObject json = new JsonParser().parse(line).getAsJsonObject();
+        String operation = json.has("index") ? "index" : json.has("delete") ? "delete" : null;
+        if (operation != null && json.entrySet().size() == 1) {
+          JsonObject metadata = json.getAsJsonObject(operation);
+          int status = request.size() < itemStatuses.length ? itemStatuses[request.size()] : 201;
+          request.add(operation + " " + metadata.get("_id").getAsString());
+          JsonObject response = new JsonObject();
+          response.add("_id", metadata.get("_id"));
+          response.addProperty("status", status);
+          JsonObject item = new JsonObject();
+          item.add(operation, response);
+          items.add(item);
+        }
+      }
+      requests.add(request);
+      JsonObject body = new JsonObject();
+      body.add("items", items);
+      return Response.ok(body);
+    }
+  }
+}